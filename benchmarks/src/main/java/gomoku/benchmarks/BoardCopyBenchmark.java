@@ -0,0 +1,79 @@
+package gomoku.benchmarks;
+
+import gomoku.engine.BitBoard;
+import gomoku.engine.PaddedBoard;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copying a whole board, as a search or an archive snapshot does: the int[][] gridInt the game used to keep, the
+ * flat PaddedBoard that replaced it, PaddedBoard packed at 2 bits a cell, and the BitBoard the engines use.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardCopyBenchmark {
+
+    /** Board size as rows x columns; any size can be given with -p board=RxC */
+    @Param({ "15x15", "19x19", "100x100", "500x500" })
+    public String board;
+
+    /** Position from Positions */
+    @Param({ Positions.MIDDLE })
+    public String position;
+
+    private int[][] grid;
+    private PaddedBoard padded;
+    private BitBoard bits;
+
+    /**
+     * Builds the position in every representation
+     */
+    @Setup
+    public void setUp() {
+        int rows = Integer.parseInt(board.substring(0, board.indexOf('x')));
+        int columns = Integer.parseInt(board.substring(board.indexOf('x') + 1));
+        grid = Positions.build(position, rows, columns);
+        padded = PaddedBoard.fromGrid(grid);
+        bits = BitBoard.fromGrid(grid, 5);
+    }
+
+    @Benchmark
+    public int[][] copyGridInt() {
+        int[][] copy = new int[grid.length][];
+        for (int r = 0; r < grid.length; r++) {
+            copy[r] = grid[r].clone();
+        }
+        return copy;
+    }
+
+    @Benchmark
+    public PaddedBoard copyPaddedBoard() {
+        return new PaddedBoard(padded);
+    }
+
+    @Benchmark
+    public long[] packPaddedBoard() {
+        return padded.pack();
+    }
+
+    @Benchmark
+    public BitBoard copyBitBoard() {
+        return new BitBoard(bits);
+    }
+}
@@ -0,0 +1,66 @@
+package gomoku.benchmarks;
+
+import gomoku.metrics.Histogram;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of recording into a metrics Histogram, which stays on in production: one thread alone, and four threads
+ * recording into the same histogram at once. Values spread over many buckets, like real latencies. Timing a move
+ * adds two System.nanoTime calls on top, measured by nanoTimePair.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+
+    private final Histogram histogram = new Histogram("benchmark", "ns");
+
+    /**
+     * Per thread source of values
+     */
+    @State(Scope.Thread)
+    public static class Values {
+        long value = 0x9E3779B97F4A7C15L;
+
+        /**
+         * The next pseudo-random value, 0 to about a millisecond in nanoseconds
+         * @return value
+         */
+        long next() {
+            value = value * 6364136223846793005L + 1442695040888963407L;
+            return (value >>> 44) & ((1L << (int) ((value >>> 20) & 15) + 5) - 1);
+        }
+    }
+
+    @Benchmark
+    public void record(Values values) {
+        histogram.record(values.next());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordContended(Values values) {
+        histogram.record(values.next());
+    }
+
+    @Benchmark
+    public long nanoTimePair() {
+        long start = System.nanoTime();
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,128 @@
+package gomoku.benchmarks;
+
+import gomoku.engine.BitBoard;
+import gomoku.engine.LegalMoves;
+import gomoku.engine.PatternTable;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Legal move generation: finding every empty cell the side to move may play without breaking the four-four or
+ * three-three rule. The original way tries each cell on the int grid with fourFour and threeThree; the engines
+ * place and classify on a BitBoard, or read the PatternTable flags; LegalMoves makes a bitmask 64 cells at a time,
+ * on one thread or in bands of rows on the common pool. The score is the time for the whole board.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveGenerationBenchmark {
+
+    /** Board size as rows x columns; any size can be given with -p board=RxC */
+    @Param({ "15x15", "19x19", "100x100", "500x500" })
+    public String board;
+
+    /** Position from Positions */
+    @Param({ Positions.OPENING, Positions.MIDDLE, Positions.DENSE })
+    public String position;
+
+    /** Win number */
+    @Param({ "5" })
+    public int winNumber;
+
+    private int[][] grid;
+    private Object click;
+    private BitBoard bits;
+    private PatternTable patterns;
+    private long[] legal;
+    private int rows;
+    private int columns;
+
+    /**
+     * Builds the position in every representation
+     */
+    @Setup
+    public void setUp() {
+        rows = Integer.parseInt(board.substring(0, board.indexOf('x')));
+        columns = Integer.parseInt(board.substring(board.indexOf('x') + 1));
+        grid = Positions.build(position, rows, columns);
+        click = Originals.newClick(Originals.newGame(grid, winNumber));
+        bits = BitBoard.fromGrid(grid, winNumber);
+        patterns = new PatternTable(BitBoard.fromGrid(grid, winNumber));
+        legal = LegalMoves.newMask(rows, columns);
+    }
+
+    @Benchmark
+    public int legalMovesOriginal() {
+        int legal = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                if (grid[r][c] != BitBoard.GREEN) {
+                    continue;
+                }
+                // the checks look at the stone on the grid, so it is placed and taken back
+                grid[r][c] = BitBoard.BLACK;
+                Originals.moveClick(click, r, c);
+                if (!Originals.fourFour(click) && !Originals.threeThree(click)) {
+                    legal++;
+                }
+                grid[r][c] = BitBoard.GREEN;
+            }
+        }
+        return legal;
+    }
+
+    @Benchmark
+    public int legalMovesBitBoard() {
+        int legal = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                if (bits.isEmpty(r, c) && !bits.isForbidden(r, c, BitBoard.BLACK)) {
+                    legal++;
+                }
+            }
+        }
+        return legal;
+    }
+
+    @Benchmark
+    public int legalMovesPatternTable() {
+        BitBoard tableBoard = patterns.getBoard();
+        int legal = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                if (tableBoard.isEmpty(r, c) && !patterns.isForbidden(r, c, BitBoard.BLACK)) {
+                    legal++;
+                }
+            }
+        }
+        return legal;
+    }
+
+    @Benchmark
+    public int legalMovesBitmask() {
+        LegalMoves.generate(patterns, BitBoard.BLACK, legal);
+        return LegalMoves.count(legal);
+    }
+
+    @Benchmark
+    public int legalMovesBitmaskParallel() {
+        LegalMoves.generateParallel(patterns, BitBoard.BLACK, legal, ForkJoinPool.commonPool());
+        return LegalMoves.count(legal);
+    }
+}
@@ -0,0 +1,199 @@
+package gomoku.benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Calls the original rule checks of Gomoku and its ProcessClick.
+ *
+ * Gomoku is in the default package, which can't be imported, and JMH won't run benchmarks from the default
+ * package. So the methods are looked up once by name, and the handles are kept in static finals so the JIT can
+ * inline through them like direct calls.
+ */
+final class Originals {
+
+    private static final MethodHandle NEW_GAME;
+    private static final MethodHandle SET_WIN_NUMBER;
+    private static final MethodHandle SET_ROWS;
+    private static final MethodHandle SET_COLUMNS;
+    private static final MethodHandle SET_GRID_INT;
+    private static final MethodHandle NUMBER_IN_LINE_INT;
+    private static final MethodHandle IS_OPEN;
+    private static final MethodHandle NEW_CLICK;
+    private static final MethodHandle SET_X_COOR;
+    private static final MethodHandle SET_Y_COOR;
+    private static final MethodHandle COUNT_4_DIRECTIONS;
+    private static final MethodHandle FOUR_FOUR;
+    private static final MethodHandle THREE_THREE;
+    private static final MethodHandle IS_WINNING_MOVE;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> game = Class.forName("Gomoku");
+            Class<?> click = Class.forName("Gomoku$ProcessClick");
+
+            NEW_GAME = erase(lookup.findConstructor(game, MethodType.methodType(void.class)));
+            SET_WIN_NUMBER = erase(lookup.findVirtual(game, "setWinNumber",
+                    MethodType.methodType(void.class, int.class)));
+            SET_ROWS = erase(lookup.findVirtual(game, "setRows", MethodType.methodType(void.class, int.class)));
+            SET_COLUMNS = erase(lookup.findVirtual(game, "setColumns",
+                    MethodType.methodType(void.class, int.class)));
+            SET_GRID_INT = erase(lookup.findVirtual(game, "setGridInt",
+                    MethodType.methodType(void.class, int[][].class)));
+            NUMBER_IN_LINE_INT = erase(lookup.findVirtual(game, "numberInLineInt",
+                    MethodType.methodType(int.class, int[][].class, int.class, int.class, int.class)));
+            IS_OPEN = erase(lookup.findVirtual(game, "isOpen",
+                    MethodType.methodType(boolean.class, int[][].class, int.class, int.class, int.class)));
+
+            // an inner class constructor takes the outer instance first
+            NEW_CLICK = erase(lookup.findConstructor(click,
+                    MethodType.methodType(void.class, game, int.class, int.class)));
+            SET_X_COOR = erase(lookup.findVirtual(click, "setXCoor", MethodType.methodType(void.class, int.class)));
+            SET_Y_COOR = erase(lookup.findVirtual(click, "setYCoor", MethodType.methodType(void.class, int.class)));
+            COUNT_4_DIRECTIONS = erase(lookup.findVirtual(click, "count4DirectionsIntBoard",
+                    MethodType.methodType(int.class, int.class)));
+            FOUR_FOUR = erase(lookup.findVirtual(click, "fourFour", MethodType.methodType(boolean.class)));
+            THREE_THREE = erase(lookup.findVirtual(click, "threeThree", MethodType.methodType(boolean.class)));
+            IS_WINNING_MOVE = erase(lookup.findVirtual(click, "isWinningMove", MethodType.methodType(boolean.class)));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Originals() {
+    }
+
+    /**
+     * Creates a game holding a board, without starting JavaFX
+     * @param grid the board, kept by reference
+     * @param winNumber
+     * @return the Gomoku instance
+     */
+    static Object newGame(int[][] grid, int winNumber) {
+        try {
+            Object game = NEW_GAME.invokeExact();
+            SET_WIN_NUMBER.invokeExact(game, winNumber);
+            SET_ROWS.invokeExact(game, grid.length);
+            SET_COLUMNS.invokeExact(game, grid[0].length);
+            SET_GRID_INT.invokeExact(game, grid);
+            return game;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Creates the click handler the rule checks live in
+     * @param game from newGame
+     * @return the ProcessClick instance
+     */
+    static Object newClick(Object game) {
+        try {
+            return (Object) NEW_CLICK.invokeExact(game, 0, 0);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Moves the click handler to a cell
+     * @param click
+     * @param row
+     * @param column
+     */
+    static void moveClick(Object click, int row, int column) {
+        try {
+            SET_X_COOR.invokeExact(click, row);
+            SET_Y_COOR.invokeExact(click, column);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Gomoku.numberInLineInt
+     */
+    static int numberInLineInt(Object game, int[][] grid, int row, int column, int direction) {
+        try {
+            return (int) NUMBER_IN_LINE_INT.invokeExact(game, grid, row, column, direction);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Gomoku.isOpen
+     */
+    static boolean isOpen(Object game, int[][] grid, int row, int column, int direction) {
+        try {
+            return (boolean) IS_OPEN.invokeExact(game, grid, row, column, direction);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * ProcessClick.count4DirectionsIntBoard
+     */
+    static int count4DirectionsIntBoard(Object click, int direction) {
+        try {
+            return (int) COUNT_4_DIRECTIONS.invokeExact(click, direction);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * ProcessClick.fourFour
+     */
+    static boolean fourFour(Object click) {
+        try {
+            return (boolean) FOUR_FOUR.invokeExact(click);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * ProcessClick.threeThree
+     */
+    static boolean threeThree(Object click) {
+        try {
+            return (boolean) THREE_THREE.invokeExact(click);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * ProcessClick.isWinningMove, the board part of checkWin
+     */
+    static boolean isWinningMove(Object click) {
+        try {
+            return (boolean) IS_WINNING_MOVE.invokeExact(click);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Changes every parameter and the return type of a handle to Object, so it can be called with invokeExact
+     * without naming Gomoku
+     * @param handle
+     * @return the erased handle
+     */
+    private static MethodHandle erase(MethodHandle handle) {
+        MethodType type = handle.type();
+        for (int i = 0; i < type.parameterCount(); i++) {
+            if (!type.parameterType(i).isPrimitive() && type.parameterType(i) != int[][].class) {
+                type = type.changeParameterType(i, Object.class);
+            }
+        }
+        if (!type.returnType().isPrimitive()) {
+            type = type.changeReturnType(Object.class);
+        }
+        return handle.asType(type);
+    }
+}
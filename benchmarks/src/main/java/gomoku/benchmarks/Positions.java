@@ -0,0 +1,104 @@
+package gomoku.benchmarks;
+
+import gomoku.engine.BitBoard;
+
+import java.util.SplittableRandom;
+
+/**
+ * The fixed board positions every benchmark runs on, so results stay comparable between releases.
+ *
+ * A position is built around the center of a board of any size: "opening" has a handful of stones, "middle" a
+ * played-out fight with threes and fours, and "dense" fills 40% of the board from a fixed seed.
+ */
+final class Positions {
+
+    /** Names accepted by build */
+    static final String OPENING = "opening";
+    static final String MIDDLE = "middle";
+    static final String DENSE = "dense";
+
+    /** Cells checked per benchmark call */
+    static final int PROBES = 64;
+
+    /** Row, column offsets from the center, played alternately from black */
+    private static final int[] OPENING_MOVES = { 0, 0, -1, 1, 1, 1, 1, -1, -1, 0, 0, 2 };
+    private static final int[] MIDDLE_MOVES = {
+        0, 0, -1, 1, 1, 1, 1, -1, -1, 0, 0, 2, 2, 2, -2, -2, 0, 1, 0, -1,
+        -1, -1, 2, 0, 1, 0, -2, 0, -1, 2, 3, 3, -3, 1, -2, 2, 2, -2, 3, -3,
+        1, 2, 3, 0, -2, 1, 2, 1, -1, -2, -3, -1, 0, -2, 1, -2, 4, 1, -3, 2,
+    };
+    private static final double DENSE_FILL = 0.4;
+
+    private Positions() {
+    }
+
+    /**
+     * Builds a position
+     * @param name opening, middle or dense
+     * @param rows
+     * @param columns
+     * @return the board as the int grid Gomoku uses
+     */
+    static int[][] build(String name, int rows, int columns) {
+        int[][] grid = new int[rows][columns];
+        if (DENSE.equals(name)) {
+            SplittableRandom random = new SplittableRandom(rows * 31L + columns);
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c < columns; c++) {
+                    if (random.nextDouble() < DENSE_FILL) {
+                        grid[r][c] = random.nextBoolean() ? BitBoard.BLACK : BitBoard.WHITE;
+                    }
+                }
+            }
+            return grid;
+        }
+
+        int[] moves = MIDDLE.equals(name) ? MIDDLE_MOVES : OPENING_MOVES;
+        if (!MIDDLE.equals(name) && !OPENING.equals(name)) {
+            throw new IllegalArgumentException("Unknown position: " + name);
+        }
+        for (int i = 0; i < moves.length; i += 2) {
+            int r = rows / 2 + moves[i];
+            int c = columns / 2 + moves[i + 1];
+            if (r >= 0 && r < rows && c >= 0 && c < columns) {
+                grid[r][c] = (i / 2) % 2 == 0 ? BitBoard.BLACK : BitBoard.WHITE;
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Picks the cells to check: stones near the center, cycled if there are fewer than PROBES
+     * @param grid
+     * @param occupied true for cells holding a stone, false for empty cells
+     * @return row, column pairs, PROBES of them
+     */
+    static int[] probes(int[][] grid, boolean occupied) {
+        int rows = grid.length;
+        int columns = grid[0].length;
+        int[] found = new int[PROBES * 2];
+        int count = 0;
+        // walks outwards from the center ring by ring
+        for (int ring = 0; count < PROBES && ring <= Math.max(rows, columns); ring++) {
+            for (int r = rows / 2 - ring; r <= rows / 2 + ring && count < PROBES; r++) {
+                for (int c = columns / 2 - ring; c <= columns / 2 + ring && count < PROBES; c++) {
+                    boolean onRing = Math.abs(r - rows / 2) == ring || Math.abs(c - columns / 2) == ring;
+                    if (onRing && r >= 0 && r < rows && c >= 0 && c < columns
+                            && (grid[r][c] != BitBoard.GREEN) == occupied) {
+                        found[count * 2] = r;
+                        found[count * 2 + 1] = c;
+                        count++;
+                    }
+                }
+            }
+        }
+        if (count == 0) {
+            throw new IllegalStateException("No cell to probe");
+        }
+        for (int i = count; i < PROBES; i++) {
+            found[i * 2] = found[(i % count) * 2];
+            found[i * 2 + 1] = found[(i % count) * 2 + 1];
+        }
+        return found;
+    }
+}
@@ -0,0 +1,79 @@
+package gomoku.benchmarks;
+
+import gomoku.engine.BitBoard;
+import gomoku.engine.RenjuRules;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Forbidden point checks for black: the Renju rules of RenjuRules (broken fours and threes, overlines, true
+ * threes checked recursively) next to the standard four-four and three-three check of BitBoard. Every call checks
+ * the same PROBES empty cells nearest the center, where the stones are, and the score is the time per check.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenjuBenchmark {
+
+    /** Board size as rows x columns; Renju is played on 15x15 */
+    @Param({ "15x15", "19x19" })
+    public String board;
+
+    /** Position from Positions */
+    @Param({ Positions.OPENING, Positions.MIDDLE, Positions.DENSE })
+    public String position;
+
+    private BitBoard bits;
+    private RenjuRules renju;
+    /** Row, column pairs of empty cells */
+    private int[] empties;
+
+    /**
+     * Builds the position
+     */
+    @Setup
+    public void setUp() {
+        int rows = Integer.parseInt(board.substring(0, board.indexOf('x')));
+        int columns = Integer.parseInt(board.substring(board.indexOf('x') + 1));
+        int[][] grid = Positions.build(position, rows, columns);
+        bits = BitBoard.fromGrid(grid, 5);
+        renju = new RenjuRules(BitBoard.fromGrid(grid, 5));
+        empties = Positions.probes(grid, false);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Positions.PROBES)
+    public int forbiddenRenju() {
+        int sum = 0;
+        for (int i = 0; i < Positions.PROBES; i++) {
+            sum += renju.isForbidden(empties[i * 2], empties[i * 2 + 1]) ? 1 : 0;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Positions.PROBES)
+    public int forbiddenStandard() {
+        int sum = 0;
+        for (int i = 0; i < Positions.PROBES; i++) {
+            sum += bits.isForbidden(empties[i * 2], empties[i * 2 + 1], BitBoard.BLACK) ? 1 : 0;
+        }
+        return sum;
+    }
+}
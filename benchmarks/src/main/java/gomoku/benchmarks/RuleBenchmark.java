@@ -0,0 +1,317 @@
+package gomoku.benchmarks;
+
+import gomoku.engine.BitBoard;
+import gomoku.engine.LinePatterns;
+import gomoku.engine.PaddedBoard;
+import gomoku.engine.PatternTable;
+import gomoku.engine.SparseBoard;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Line counting and rule checks: the originals in Gomoku next to PaddedBoard, SparseBoard, BitBoard and
+ * PatternTable.
+ *
+ * Every call checks the same PROBES cells, with the direction turning from probe to probe (only the four axes for
+ * count4Directions, which counts the opposite direction itself), and the score is the time per check. Benchmarks of the same check share a prefix, so they sort next to each other in the results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RuleBenchmark {
+
+    /** Board size as rows x columns; any size can be given with -p board=RxC */
+    @Param({ "15x15", "19x19", "100x100", "500x500" })
+    public String board;
+
+    /** Position from Positions */
+    @Param({ Positions.OPENING, Positions.MIDDLE, Positions.DENSE })
+    public String position;
+
+    /** Win number */
+    @Param({ "5" })
+    public int winNumber;
+
+    private int[][] grid;
+    private Object game;
+    private Object click;
+    private PaddedBoard padded;
+    private SparseBoard sparse;
+    private BitBoard bits;
+    private PatternTable patterns;
+    private LinePatterns lines;
+    /** Row, column pairs of stones, and of empty cells */
+    private int[] stones;
+    private int[] empties;
+
+    /**
+     * Builds the position in every representation
+     */
+    @Setup
+    public void setUp() {
+        int rows = Integer.parseInt(board.substring(0, board.indexOf('x')));
+        int columns = Integer.parseInt(board.substring(board.indexOf('x') + 1));
+        grid = Positions.build(position, rows, columns);
+        game = Originals.newGame(grid, winNumber);
+        click = Originals.newClick(game);
+        padded = PaddedBoard.fromGrid(grid);
+        sparse = SparseBoard.fromGrid(grid, winNumber);
+        bits = BitBoard.fromGrid(grid, winNumber);
+        // its own board, as checkWinBitBoardPlay plays moves on bits
+        patterns = new PatternTable(BitBoard.fromGrid(grid, winNumber));
+        lines = LinePatterns.forWinNumber(winNumber);
+        stones = Positions.probes(grid, true);
+        empties = Positions.probes(grid, false);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Positions.PROBES)
+    public int numberInLineOriginal() {
+        int sum = 0;
+        for (int i = 0; i < Positions.PROBES; i++) {
+            sum += Originals.numberInLineInt(game, grid, stones[i * 2], stones[i * 2 + 1], i & 7);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Positions.PROBES)
+    public int numberInLinePadded() {
+        int sum = 0;
+        for (int i = 0; i < Positions.PROBES; i++) {
+            sum += padded.numberInLine(stones[i * 2], stones[i * 2 + 1], i & 7);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Positions.PROBES)
+    public int numberInLineSparse() {
+        int sum = 0;
+        for (int i = 0; i < Positions.PROBES; i++) {
+            sum += sparse.numberInLine(stones[i * 2], stones[i * 2 + 1], i & 7);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Positions.PROBES)
+    public int isOpenOriginal() {
+        int sum = 0;
+        for (int i = 0; i < Positions.PROBES; i++) {
+            sum += Originals.isOpen(game, grid, stones[i * 2], stones[i * 2 + 1], i & 7) ? 1 : 0;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Positions.PROBES)
+    public int isOpenPadded() {
+        int sum = 0;
+        for (int i = 0; i < Positions.PROBES; i++) {
+            sum += padded.isOpen(stones[i * 2], stones[i * 2 + 1], i & 7) ? 1 : 0;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Positions.PROBES)
+    public int isOpenSparse() {
+        int sum = 0;
+        for (int i = 0; i < Positions.PROBES; i++) {
+            sum += sparse.isOpen(stones[i * 2], stones[i * 2 + 1], i & 7) ? 1 : 0;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Positions.PROBES)
+    public int isOpenBitBoard() {
+        int sum = 0;
+        for (int i = 0; i < Positions.PROBES; i++) {
+            sum += bits.isOpen(stones[i * 2], stones[i * 2 + 1], i & 7) ? 1 : 0;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Positions.PROBES)
+    public int count4DirectionsOriginal() {
+        int sum = 0;
+        for (int i = 0; i < Positions.PROBES; i++) {
+            Originals.moveClick(click, stones[i * 2], stones[i * 2 + 1]);
+            sum += Originals.count4DirectionsIntBoard(click, i & 3);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Positions.PROBES)
+    public int count4DirectionsPadded() {
+        int sum = 0;
+        for (int i = 0; i < Positions.PROBES; i++) {
+            sum += padded.count4Directions(stones[i * 2], stones[i * 2 + 1], i & 3);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Positions.PROBES)
+    public int count4DirectionsSparse() {
+        int sum = 0;
+        for (int i = 0; i < Positions.PROBES; i++) {
+            sum += sparse.count4Directions(stones[i * 2], stones[i * 2 + 1], i & 3);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Positions.PROBES)
+    public int count4DirectionsBitBoard() {
+        int sum = 0;
+        for (int i = 0; i < Positions.PROBES; i++) {
+            sum += bits.count(stones[i * 2], stones[i * 2 + 1], i & 3);
+        }
+        return sum;
+    }
+
+    /**
+     * The run and open ends a new stone would make along an axis, measured on the line
+     */
+    @Benchmark
+    @OperationsPerInvocation(Positions.PROBES)
+    public int lineShapeBitBoard() {
+        int sum = 0;
+        for (int i = 0; i < Positions.PROBES; i++) {
+            sum += bits.lineShape((i & 1) + 1, empties[i * 2], empties[i * 2 + 1], i & 7);
+        }
+        return sum;
+    }
+
+    /**
+     * The shape a new stone would make along an axis, looked up in the precomputed table
+     */
+    @Benchmark
+    @OperationsPerInvocation(Positions.PROBES)
+    public int lineShapeLinePatterns() {
+        int sum = 0;
+        for (int i = 0; i < Positions.PROBES; i++) {
+            sum += lines.shape(bits, (i & 1) + 1, empties[i * 2], empties[i * 2 + 1], i & 7);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Positions.PROBES)
+    public int fourFourOriginal() {
+        int sum = 0;
+        for (int i = 0; i < Positions.PROBES; i++) {
+            Originals.moveClick(click, stones[i * 2], stones[i * 2 + 1]);
+            sum += Originals.fourFour(click) ? 1 : 0;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Positions.PROBES)
+    public int fourFourBitBoard() {
+        int sum = 0;
+        for (int i = 0; i < Positions.PROBES; i++) {
+            sum += bits.fourFour(stones[i * 2], stones[i * 2 + 1]) ? 1 : 0;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Positions.PROBES)
+    public int threeThreeOriginal() {
+        int sum = 0;
+        for (int i = 0; i < Positions.PROBES; i++) {
+            Originals.moveClick(click, stones[i * 2], stones[i * 2 + 1]);
+            sum += Originals.threeThree(click) ? 1 : 0;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Positions.PROBES)
+    public int threeThreeBitBoard() {
+        int sum = 0;
+        for (int i = 0; i < Positions.PROBES; i++) {
+            sum += bits.threeThree(stones[i * 2], stones[i * 2 + 1]) ? 1 : 0;
+        }
+        return sum;
+    }
+
+    /**
+     * The board part of checkWin; the popup it ends with needs a running JavaFX
+     */
+    @Benchmark
+    @OperationsPerInvocation(Positions.PROBES)
+    public int checkWinOriginal() {
+        int sum = 0;
+        for (int i = 0; i < Positions.PROBES; i++) {
+            Originals.moveClick(click, stones[i * 2], stones[i * 2 + 1]);
+            sum += Originals.isWinningMove(click) ? 1 : 0;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Positions.PROBES)
+    public int checkWinBitBoard() {
+        int sum = 0;
+        for (int i = 0; i < Positions.PROBES; i++) {
+            sum += bits.checkWin(stones[i * 2], stones[i * 2 + 1]) ? 1 : 0;
+        }
+        return sum;
+    }
+
+    /**
+     * What the game does per click today: every rule for a new stone in one pass, played and taken back
+     */
+    @Benchmark
+    @OperationsPerInvocation(Positions.PROBES)
+    public int checkWinBitBoardPlay() {
+        int sum = 0;
+        for (int i = 0; i < Positions.PROBES; i++) {
+            int row = empties[i * 2];
+            int column = empties[i * 2 + 1];
+            int result = bits.play(row, column, (i & 1) + 1);
+            if (result == BitBoard.PLACED || result == BitBoard.WIN) {
+                bits.undo(row, column);
+            }
+            sum += result;
+        }
+        return sum;
+    }
+
+    /**
+     * Every rule for a new stone read from the incrementally kept pattern flags
+     */
+    @Benchmark
+    @OperationsPerInvocation(Positions.PROBES)
+    public int checkWinPatternTable() {
+        int sum = 0;
+        for (int i = 0; i < Positions.PROBES; i++) {
+            sum += patterns.check(empties[i * 2], empties[i * 2 + 1], (i & 1) + 1);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,101 @@
+package gomoku.benchmarks;
+
+import gomoku.engine.BitBoard;
+import gomoku.engine.PatternTable;
+import gomoku.search.AlphaBetaEngine;
+import gomoku.search.MctsEngine;
+import gomoku.search.ThreatSolver;
+import gomoku.search.TranspositionTable;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The computer players on a fixed amount of work: alpha-beta to a fixed depth, MCTS for a fixed number of
+ * playouts and the threat solver to a fixed VCT depth, from an empty table or tree every time, so a slower result
+ * means slower search code.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    /** Board size as rows x columns */
+    @Param({ "15x15", "19x19" })
+    public String board;
+
+    /** Position from Positions; dense boards are mostly decided and search too little to measure */
+    @Param({ Positions.OPENING, Positions.MIDDLE })
+    public String position;
+
+    /** Alpha-beta depth */
+    @Param({ "6" })
+    public int depth;
+
+    /** MCTS playouts */
+    @Param({ "20000" })
+    public int playouts;
+
+    /** Threat solver VCT depth, in attacker moves */
+    @Param({ "4" })
+    public int threatDepth;
+
+    private PatternTable table;
+    private TranspositionTable transpositions;
+    private AlphaBetaEngine alphaBeta;
+    private MctsEngine mcts;
+    private ThreatSolver threats;
+    private int color;
+
+    /**
+     * Builds the position and the engines, with budgets too long to run out
+     */
+    @Setup
+    public void setUp() {
+        int rows = Integer.parseInt(board.substring(0, board.indexOf('x')));
+        int columns = Integer.parseInt(board.substring(board.indexOf('x') + 1));
+        int[][] grid = Positions.build(position, rows, columns);
+        table = new PatternTable(BitBoard.fromGrid(grid, 5));
+        color = table.getBoard().getStoneCount() % 2 == 0 ? BitBoard.BLACK : BitBoard.WHITE;
+
+        transpositions = new TranspositionTable(64);
+        alphaBeta = new AlphaBetaEngine(Long.MAX_VALUE / 2000000L, transpositions);
+        alphaBeta.setMaxDepth(depth);
+        alphaBeta.setThreatMillis(0);
+        mcts = new MctsEngine(Long.MAX_VALUE / 2000000L);
+        mcts.setMaxPlayouts(playouts);
+        threats = new ThreatSolver(Long.MAX_VALUE / 2000000L);
+        threats.setMaxDepth(30, threatDepth);
+    }
+
+    @Benchmark
+    public int alphaBeta() {
+        transpositions.clear();
+        return alphaBeta.chooseMove(table, color);
+    }
+
+    @Benchmark
+    public int mcts() {
+        mcts.clear();
+        return mcts.chooseMove(table, color);
+    }
+
+    @Benchmark
+    public int threatSolver() {
+        return threats.solve(table, color);
+    }
+}
@@ -0,0 +1,211 @@
+import gomoku.engine.BitBoard;
+import javafx.geometry.Orientation;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+
+/**
+ * Draws the board of a Gomoku game on a single Canvas instead of one Button per cell.
+ *
+ * The canvas is only as big as the window: it shows a viewport onto the board, moved with the scroll bars or the
+ * mouse wheel, and only the cells in view are ever drawn. A move redraws just its own cell, and the whole view is
+ * redrawn only when it scrolls or resizes, so a 500x500 board costs no more to show than a small one.
+ */
+public class BoardCanvas extends Region {
+
+    /** Size of a cell in pixels, the preferred size of the buttons */
+    public static final int CELL = 25;
+    /** Largest preferred size of the view in pixels, bigger boards scroll */
+    private static final int MAX_VIEW = 800;
+    /** Gap around each cell and around each stone, as the button backgrounds have */
+    private static final int CELL_INSET = 1;
+    private static final int STONE_INSET = 3;
+    /** Gap around the mark of a forbidden point */
+    private static final int FORBIDDEN_INSET = 9;
+    /** Cells scrolled per wheel notch */
+    private static final int WHEEL_CELLS = 3;
+
+    /** Color of the lines between cells */
+    private static final Color LINES = Color.DARKGRAY;
+    /** Color of the mark of a forbidden point */
+    private static final Color FORBIDDEN = Color.RED;
+
+    /** The game the board belongs to */
+    private final Gomoku game;
+    private final int rows;
+    private final int columns;
+
+    private final Canvas canvas = new Canvas();
+    private final ScrollBar horizontal = new ScrollBar();
+    private final ScrollBar vertical = new ScrollBar();
+
+    /**
+     * Constructor
+     * @param game whose board is drawn, and which moves are played on
+     */
+    public BoardCanvas(Gomoku game) {
+        this.game = game;
+        this.rows = game.getRows();
+        this.columns = game.getColumns();
+
+        vertical.setOrientation(Orientation.VERTICAL);
+        horizontal.valueProperty().addListener((observable, before, after) -> paintAll());
+        vertical.valueProperty().addListener((observable, before, after) -> paintAll());
+        getChildren().addAll(canvas, horizontal, vertical);
+
+        canvas.setOnMouseClicked(this::click);
+        setOnScroll(this::scroll);
+    }
+
+    /**
+     * Plays the cell under the mouse
+     * @param event
+     */
+    private void click(MouseEvent event) {
+        if (event.getButton() != MouseButton.PRIMARY) {
+            return;
+        }
+        int row = (int) ((event.getY() + vertical.getValue()) / CELL);
+        int column = (int) ((event.getX() + horizontal.getValue()) / CELL);
+        if (row >= 0 && row < rows && column >= 0 && column < columns) {
+            game.playMove(row, column);
+        }
+    }
+
+    /**
+     * Scrolls the view with the mouse wheel, sideways with shift held
+     * @param event
+     */
+    private void scroll(ScrollEvent event) {
+        double delta = Math.signum(event.getDeltaY() != 0 ? event.getDeltaY() : event.getDeltaX()) * -WHEEL_CELLS * CELL;
+        ScrollBar bar = event.isShiftDown() || event.getDeltaY() == 0 ? horizontal : vertical;
+        bar.setValue(Math.max(bar.getMin(), Math.min(bar.getMax(), bar.getValue() + delta)));
+        event.consume();
+    }
+
+    /**
+     * Preferred width: the whole board, up to MAX_VIEW
+     * @param height
+     * @return width
+     */
+    protected double computePrefWidth(double height) {
+        return Math.min(columns * CELL, MAX_VIEW) + (columns * CELL > MAX_VIEW ? vertical.prefWidth(-1) : 0);
+    }
+
+    /**
+     * Preferred height: the whole board, up to MAX_VIEW
+     * @param width
+     * @return height
+     */
+    protected double computePrefHeight(double width) {
+        return Math.min(rows * CELL, MAX_VIEW) + (rows * CELL > MAX_VIEW ? horizontal.prefHeight(-1) : 0);
+    }
+
+    /**
+     * Sizes the canvas to the space left by the scroll bars, which only show when the board doesn't fit
+     */
+    protected void layoutChildren() {
+        double width = getWidth();
+        double height = getHeight();
+        boolean scrollsSideways = columns * CELL > width;
+        boolean scrollsDown = rows * CELL > height;
+        double barWidth = scrollsDown ? vertical.prefWidth(-1) : 0;
+        double barHeight = scrollsSideways ? horizontal.prefHeight(-1) : 0;
+        double viewWidth = Math.max(0, width - barWidth);
+        double viewHeight = Math.max(0, height - barHeight);
+
+        horizontal.setVisible(scrollsSideways);
+        vertical.setVisible(scrollsDown);
+        horizontal.resizeRelocate(0, viewHeight, viewWidth, barHeight);
+        vertical.resizeRelocate(viewWidth, 0, barWidth, viewHeight);
+        setRange(horizontal, columns * CELL, viewWidth);
+        setRange(vertical, rows * CELL, viewHeight);
+
+        canvas.setWidth(viewWidth);
+        canvas.setHeight(viewHeight);
+        paintAll();
+    }
+
+    /**
+     * Fits a scroll bar to the part of the board in view
+     * @param bar
+     * @param boardSize pixels of the whole board along the bar
+     * @param viewSize pixels in view
+     */
+    private static void setRange(ScrollBar bar, double boardSize, double viewSize) {
+        double max = Math.max(0, boardSize - viewSize);
+        bar.setMax(max);
+        bar.setVisibleAmount(max == 0 ? 0 : viewSize * max / boardSize);
+        bar.setUnitIncrement(CELL);
+        bar.setBlockIncrement(Math.max(CELL, viewSize - CELL));
+        if (bar.getValue() > max) {
+            bar.setValue(max);
+        }
+    }
+
+    /**
+     * Redraws every cell in view
+     */
+    public void paintAll() {
+        GraphicsContext graphics = canvas.getGraphicsContext2D();
+        // clearing the whole canvas also drops the drawing commands queued before
+        graphics.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        graphics.setFill(LINES);
+        graphics.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+
+        int firstRow = (int) (vertical.getValue() / CELL);
+        int firstColumn = (int) (horizontal.getValue() / CELL);
+        int lastRow = Math.min(rows - 1, (int) ((vertical.getValue() + canvas.getHeight()) / CELL));
+        int lastColumn = Math.min(columns - 1, (int) ((horizontal.getValue() + canvas.getWidth()) / CELL));
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                drawCell(graphics, row, column);
+            }
+        }
+    }
+
+    /**
+     * Redraws one cell, if it is in view
+     * @param row
+     * @param column
+     */
+    public void paintCell(int row, int column) {
+        double x = column * CELL - horizontal.getValue();
+        double y = row * CELL - vertical.getValue();
+        if (x + CELL < 0 || y + CELL < 0 || x > canvas.getWidth() || y > canvas.getHeight()) {
+            return;
+        }
+        GraphicsContext graphics = canvas.getGraphicsContext2D();
+        graphics.setFill(LINES);
+        graphics.fillRect(x, y, CELL, CELL);
+        drawCell(graphics, row, column);
+    }
+
+    /**
+     * Draws the green of a cell and its stone over the lines
+     * @param graphics
+     * @param row
+     * @param column
+     */
+    private void drawCell(GraphicsContext graphics, int row, int column) {
+        double x = column * CELL - horizontal.getValue();
+        double y = row * CELL - vertical.getValue();
+        graphics.setFill(Color.GREEN);
+        graphics.fillRect(x + CELL_INSET, y + CELL_INSET, CELL - 2 * CELL_INSET, CELL - 2 * CELL_INSET);
+
+        int stone = game.getStone(row, column);
+        if (stone != BitBoard.GREEN) {
+            graphics.setFill(stone == BitBoard.BLACK ? Color.BLACK : Color.WHITE);
+            graphics.fillOval(x + STONE_INSET, y + STONE_INSET, CELL - 2 * STONE_INSET, CELL - 2 * STONE_INSET);
+        } else if (game.isMarkedForbidden(row, column)) {
+            graphics.setFill(FORBIDDEN);
+            graphics.fillOval(x + FORBIDDEN_INSET, y + FORBIDDEN_INSET, CELL - 2 * FORBIDDEN_INSET,
+                    CELL - 2 * FORBIDDEN_INSET);
+        }
+    }
+}
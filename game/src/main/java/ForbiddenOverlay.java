@@ -0,0 +1,172 @@
+import gomoku.engine.BitBoard;
+import gomoku.engine.LegalMoves;
+import gomoku.engine.PatternTable;
+import gomoku.engine.RenjuRules;
+import javafx.application.Platform;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Marks every point the side to move may not play (four-four or three-three) on a Gomoku board, worked out off
+ * the JavaFX thread.
+ *
+ * The overlay keeps its own copy of the position on a background thread, and the moves are passed to it as they
+ * are played or taken back, so the JavaFX thread only queues a task per move whatever the size of the board.
+ * After each refresh the background thread finds the forbidden points 64 cells at a time and hands the JavaFX
+ * thread the whole mask in one runLater, which redraws only the cells whose mark changed. Every refresh takes a
+ * new generation number; a refresh overtaken by a newer one is skipped, and a result that arrives after a newer
+ * refresh was asked for is dropped.
+ *
+ * Under the Renju rules only black has forbidden points, and they are found with RenjuRules cell by cell, still
+ * on the background thread.
+ */
+public class ForbiddenOverlay {
+
+    /** The game whose cells are redrawn */
+    private final Gomoku game;
+    private final int columns;
+    private final int wordsPerRow;
+    /** Single daemon thread the copy of the position lives on */
+    private final ExecutorService executor;
+    /** Generation of the latest refresh asked for, read by the background thread to skip stale ones */
+    private final AtomicLong requested = new AtomicLong();
+
+    /** Whether the points are the Renju ones */
+    private final boolean renju;
+
+    /** Copy of the position and its Renju rules (or null), only used on the background thread */
+    private PatternTable position;
+    private RenjuRules rules;
+    /** Forbidden points shown, only used on the JavaFX thread */
+    private long[] shown;
+
+    /**
+     * Constructor starting from the game's current position
+     * @param game
+     * @param renju whether the game is played by the Renju rules
+     */
+    public ForbiddenOverlay(Gomoku game, boolean renju) {
+        this.game = game;
+        this.renju = renju;
+        this.columns = game.getColumns();
+        this.wordsPerRow = LegalMoves.wordsPerRow(columns);
+        this.shown = LegalMoves.newMask(game.getRows(), columns);
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "gomoku-overlay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reset(game.getPatterns());
+    }
+
+    /**
+     * Starts over from a position, e.g. a new board. The copy is made at once, on the calling thread.
+     * @param patterns the game's table
+     */
+    public void reset(PatternTable patterns) {
+        PatternTable copy = new PatternTable(patterns);
+        executor.execute(() -> {
+            position = copy;
+            rules = renju ? new RenjuRules(copy.getBoard()) : null;
+        });
+    }
+
+    /**
+     * Passes on a move played on the board
+     * @param row
+     * @param column
+     * @param color BLACK or WHITE
+     */
+    public void place(int row, int column, int color) {
+        executor.execute(() -> position.place(row, column, color));
+    }
+
+    /**
+     * Passes on a move taken back
+     * @param row
+     * @param column
+     */
+    public void undo(int row, int column) {
+        executor.execute(() -> position.undo(row, column));
+    }
+
+    /**
+     * Works out the forbidden points after the moves passed on so far and shows them. Returns at once.
+     * @param color BLACK or WHITE, the side to move
+     */
+    public void refresh(int color) {
+        long generation = requested.incrementAndGet();
+        executor.execute(() -> {
+            if (requested.get() != generation) {
+                // a later refresh is queued behind this one
+                return;
+            }
+            int rows = position.getBoard().getRows();
+            long[] forbidden = LegalMoves.newMask(rows, columns);
+            if (rules != null) {
+                if (color == BitBoard.BLACK) {
+                    renjuPoints(forbidden);
+                }
+                Platform.runLater(() -> show(forbidden, generation));
+                return;
+            }
+            for (int r = 0, i = 0; r < rows; r++) {
+                for (int w = 0; w < wordsPerRow; w++, i++) {
+                    forbidden[i] = position.getForbiddenWord(color, r, w) & ~position.getBoard().getStoneWord(r, w);
+                }
+            }
+            Platform.runLater(() -> show(forbidden, generation));
+        });
+    }
+
+    /**
+     * Marks the points black may not play under the Renju rules, on the background thread
+     * @param forbidden empty mask, filled
+     */
+    private void renjuPoints(long[] forbidden) {
+        BitBoard board = position.getBoard();
+        for (int r = 0; r < board.getRows(); r++) {
+            for (int c = 0; c < columns; c++) {
+                if (board.isEmpty(r, c) && rules.isForbidden(r, c)) {
+                    forbidden[r * wordsPerRow + (c >>> 6)] |= 1L << c;
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether a point is marked forbidden, for drawing it
+     * @param row
+     * @param column
+     * @return boolean
+     */
+    public boolean isForbidden(int row, int column) {
+        return (shown[row * wordsPerRow + (column >>> 6)] & 1L << column) != 0;
+    }
+
+    /**
+     * Stops the background thread
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Swaps in a new mask and redraws the cells whose mark changed, on the JavaFX thread
+     * @param forbidden
+     * @param generation of the refresh that made it
+     */
+    private void show(long[] forbidden, long generation) {
+        if (requested.get() != generation) {
+            return;
+        }
+        long[] old = shown;
+        shown = forbidden;
+        for (int i = 0; i < forbidden.length; i++) {
+            for (long changed = old[i] ^ forbidden[i]; changed != 0; changed &= changed - 1) {
+                game.paintCell(i / wordsPerRow, (i % wordsPerRow << 6) + Long.numberOfTrailingZeros(changed));
+            }
+        }
+    }
+}
@@ -0,0 +1,1282 @@
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.scene.control.Alert;
+import javafx.stage.Stage;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyCodeCombination;
+import javafx.scene.input.KeyCombination;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.GridPane;
+import javafx.event.EventHandler;
+import javafx.event.ActionEvent;
+import javafx.scene.paint.Color;
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundFill;
+import javafx.scene.layout.CornerRadii;
+import javafx.geometry.Insets;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import gomoku.book.OpeningBook;
+import gomoku.engine.BitBoard;
+import gomoku.engine.MoveHistory;
+import gomoku.engine.PaddedBoard;
+import gomoku.engine.PatternTable;
+import gomoku.engine.RenjuRules;
+import gomoku.metrics.Metrics;
+import gomoku.search.LazySmpEngine;
+import gomoku.search.Ponderer;
+
+/**
+ * How to play: Two players alternate until one wins. One wins the game by getting exactly five pieces in a row.
+ * Black piece moves first.
+ * @author Benjamin Wang
+ */
+
+public class Gomoku extends Application {
+
+    /** Tester Colors Map */
+    private static int GREEN = 0;
+    private static int BLACK = 1;
+    private static int WHITE = 2;
+
+    /** Tester Directions Map */
+    private static int NORTH = 0;
+    private static int NORTHEAST = 1;
+    private static int EAST = 2;
+    private static int SOUTHEAST = 3;
+    private static int SOUTH = 4;
+    private static int SOUTHWEST = 5;
+    private static int WEST = 6;
+    private static int NORTHWEST = 7;
+
+    /** Row in the grid. */
+    private int rows;
+    /** Column in the grid. */
+    private int columns;
+
+    /** Two dimensional array of Buttons */
+    private Button[][] grid;
+
+    /** Colors of the cells, row-major in one byte array */
+    private PaddedBoard stones;
+    /** Two dimensional array of ints, representing colors: a view of stones for getGridInt, made on first use */
+    private int[][] gridInt;
+
+    /** Headless rules engine the clicks are validated with */
+    private BitBoard board;
+    /** Shapes of every empty cell, kept up to date with each move so rule checks are lookups */
+    private PatternTable patterns;
+    /** Moves played on patterns, for undo, redo and jumping to a move */
+    private MoveHistory history;
+    /** Whether the moves are checked by the Renju rules instead of the standard ones */
+    private boolean renjuRules = false;
+    /** Renju rules on board, or null under the standard rules */
+    private RenjuRules renju;
+
+    /** Whether game is won! */
+    private boolean isGameWon = false;
+    /** Current color */
+    private Color color = Color.BLACK;
+    /** the number of pieces in a row needed to win game */
+    private int winNumber;
+
+    /** Current color player int starts at 1, or Black */
+    private int colorCurrent = BLACK;
+
+    /** Color the computer plays, GREEN when both players are human */
+    private int aiColor = GREEN;
+    /** Milliseconds the computer thinks per move */
+    private long aiMillis = 1000;
+    /** Computer player, searching on every processor, or null when both players are human */
+    private LazySmpEngine engine;
+    /** Book the computer plays its first moves from, or null */
+    private OpeningBook book;
+    /** Background thread the computer thinks on, so the JavaFX thread never waits for it */
+    private ExecutorService aiExecutor;
+    /** Whether the computer is choosing a move (clicks are ignored meanwhile) */
+    private boolean aiThinking = false;
+    /** Whether the computer thinks on the opponent's time too */
+    private boolean ponder = false;
+    /** Searches on the opponent's time on the computer's thread, or null when not pondering */
+    private Ponderer ponderer;
+    /** Whether the forbidden points of the side to move are marked */
+    private boolean showForbidden = false;
+    /** Works out the forbidden points off the JavaFX thread, or null when they aren't marked */
+    private ForbiddenOverlay overlay;
+
+    /** Boards with more cells than this are drawn on a canvas unless --renderer says otherwise */
+    private static final int CANVAS_CELLS = 2500;
+    /** Board drawn on one canvas, or null when every cell is a button */
+    private BoardCanvas canvas;
+
+    /** Button backgrounds, shared by every button since a Background never changes */
+    private final Background emptyCell = new Background(new BackgroundFill(Color.GREEN, CornerRadii.EMPTY, new Insets(1)));
+    private final Background blackStone = new Background(new BackgroundFill(Color.GREEN, CornerRadii.EMPTY, new Insets(1)),
+            new BackgroundFill(Color.BLACK, new CornerRadii(50), new Insets(3)));
+    private final Background whiteStone = new Background(new BackgroundFill(Color.GREEN, CornerRadii.EMPTY, new Insets(1)),
+            new BackgroundFill(Color.WHITE, new CornerRadii(50), new Insets(3)));
+    private final Background forbiddenCell = new Background(new BackgroundFill(Color.GREEN, CornerRadii.EMPTY, new Insets(1)),
+            new BackgroundFill(Color.RED, new CornerRadii(50), new Insets(9)));
+
+
+    /** Enum represents possible directions in the game.
+     * x and y displacements (neg is up or left one, pos is down or right one)
+     * COORDINATE MAP
+     * pointer[0] = north (up 1)
+     * pointer[1] = northeast (right 1, up 1)
+     * pointer[2] = east (right 1)
+     * pointer[3] = southeast (right 1, down 1)
+     * pointer[4] = south (down 1)
+     * pointer[5] = southwest (left 1, down 1)
+     * pointer[6] = west (left 1)
+     * pointer[7] = northwest (left 1, up 1)
+     */
+    private int[][] pointer = { {0, -1}, {1, -1}, {1, 0}, {1, 1}, {0, 1}, {-1, 1}, {-1, 0}, {-1, -1} };
+
+    /**
+     * Returns the value shifting through the x-axis by
+     * @param direction Any number between 0 and 7 from the eight directions in pointer
+     * @return int
+     */
+    public int getXDisplacement(int direction) {
+        int[] displacement = pointer[direction];
+        return displacement[1];
+    }
+
+    /**
+     * Returns the value shifting through the y-axis by
+     * @param direction Any number between 0 and 7 from the eight directions in pointer
+     * @return int
+     */
+    public int getYDisplacement(int direction) {
+        int[] displacement = pointer[direction];
+        return displacement[0];
+    }
+
+    /**
+     * Getter for rows
+     * @return rows
+     */
+    public int getRows() {
+        return this.rows;
+    }
+
+    /**
+     * Setter for rows
+     * @param rows
+     */
+    public void setRows(int rows) {
+        this.rows = rows;
+    }
+
+    /**
+     * Getter for columns
+     * @return columns
+     */
+    public int getColumns() {
+        return this.columns;
+    }
+
+    /**
+     * Setter for columns
+     * @param columns
+     */
+    public void setColumns(int columns) {
+        this.columns = columns;
+    }
+
+    /**
+     * Setter for number of tiles needed in a row
+     * @param winNumber
+     */
+    public void setWinNumber(int winNumber) {
+        this.winNumber = winNumber;
+    }
+
+    /**
+     * Getter for number of tiles needed in a row
+     * @return winNumber
+     */
+    public int getWinNumber() {
+        return winNumber;
+    }
+
+    /**
+     * Getter for current player color
+     * @return color
+     */
+    public Color getPlayerColor() {
+        return color;
+    }
+
+    /**
+     * Setter for current player color
+     * @param color
+     */
+    public void setPlayerColor(Color color) {
+        this.color = color;
+    }
+
+    /**
+     * Getter for int representation of current player color
+     * @return color
+     */
+    public int getPlayerColorInt() {
+        return colorCurrent;
+    }
+
+    /**
+     * Setter for int representation of current player color
+     * @param colorCurrent
+     */
+    public void setPlayerColorInt(int colorCurrent) {
+        this.colorCurrent = colorCurrent;
+    }
+
+    /**
+     * Gets the button color
+     * @param button
+     * @return Color
+     */
+    public Color getButtonColor(Button button) {
+        List<BackgroundFill> fills = button.getBackground().getFills();
+        return (Color)(fills.get(fills.size() - 1).getFill());
+    }
+
+    /*
+     * Gets the integer representation of color at a row and column
+     * @param gridInt
+     * @param row
+     * @param column
+     * @return int
+     */
+    public int getButtonIntColor(int[][] gridInt, int row, int column) {
+        return gridInt[row][column];
+    }
+
+    /**
+     * Helper method returns the grid of ints for testing. The grid is made from the board on the first call and
+     * kept up to date with every move after. ProcessClick's createTestBoard and resetTestBoard write through to the
+     * board; other writes to the grid are not seen by it.
+     * @return gridInt
+     */
+    public int[][] getGridInt() {
+        if (gridInt == null) {
+            gridInt = stones.toGrid();
+        }
+        return gridInt;
+    }
+
+    /**
+     * Helper method sets the grid of ints for testing; the grid is copied into the board and stays its view
+     * @param gridInt
+     */
+    public void setGridInt(int[][] gridInt) {
+        this.stones = PaddedBoard.fromGrid(gridInt);
+        this.gridInt = gridInt;
+        // keeps the rules engine in step with the int board
+        this.board = BitBoard.fromGrid(gridInt, getWinNumber());
+        this.patterns = new PatternTable(board);
+        this.history = new MoveHistory(patterns, getPlayerColorInt());
+        if (renju != null) {
+            this.renju = new RenjuRules(board);
+        }
+        if (overlay != null) {
+            overlay.reset(patterns);
+            overlay.refresh(getPlayerColorInt());
+        }
+    }
+
+    /**
+     * Gets the color at a row and column
+     * @param row
+     * @param column
+     * @return GREEN, BLACK or WHITE
+     */
+    public int getStone(int row, int column) {
+        return stones.get(row, column);
+    }
+
+    /**
+     * Whether a point is marked as forbidden for the side to move
+     * @param row
+     * @param column
+     * @return false when the forbidden points aren't marked
+     */
+    public boolean isMarkedForbidden(int row, int column) {
+        return overlay != null && overlay.isForbidden(row, column);
+    }
+
+    /**
+     * Copies the board, for a search or an archive to keep
+     * @return a copy of the cells, one array copy however large the board
+     */
+    public PaddedBoard snapshot() {
+        return new PaddedBoard(stones);
+    }
+
+    /**
+     * Getter for the rules engine behind the board
+     * @return board
+     */
+    public BitBoard getBoard() {
+        return board;
+    }
+
+    /**
+     * Getter for the shapes of the empty cells
+     * @return patterns
+     */
+    public PatternTable getPatterns() {
+        return patterns;
+    }
+
+    /**
+     * Getter for the moves played, for undo and redo
+     * @return history
+     */
+    public MoveHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * Set game won helper method for testing
+     * @param isGameWon
+     */
+    public void setGameWon(boolean isGameWon) {
+        this.isGameWon = isGameWon;
+    }
+
+//    /**
+//     * Get game won helper method for testing
+//     * @return isGameWon
+//     */
+//    public boolean getGameWon() {
+//        return isGameWon;
+//    }
+
+
+    /**
+     * Method start must be overridden for Application
+     * @param primaryStage
+     * @throws Exception
+     */
+    public void start (Stage primaryStage) {
+
+        BorderPane pane = new BorderPane();
+        GridPane gridpane = new GridPane();
+
+        // Sets default game
+        // 19x19 game
+        if (this.getParameters().getUnnamed().size() == 0) {
+            this.setWinNumber(5);
+            this.setRows(19);
+            this.setColumns(19);
+        }
+
+        // Sets the board if given one parameter
+        if (this.getParameters().getUnnamed().size() == 1) {
+            try {
+                if (Integer.parseInt(this.getParameters().getUnnamed().get(0)) > 4) {
+                    this.setWinNumber(Integer.parseInt(this.getParameters().getUnnamed().get(0)));
+                } else {
+                    System.out.println("Incorrect input: win number must be at least 5");
+                }
+
+                this.setRows(19);
+                this.setColumns(19);
+            } catch (NumberFormatException e) {
+                System.out.println("Incorrect input: takes in integer");
+            }
+        }
+
+        // Sets the board if given two parameters
+        if (this.getParameters().getUnnamed().size() == 2) {
+            try {
+                this.setWinNumber(5);
+                this.setRows(Integer.parseInt(this.getParameters().getUnnamed().get(0)));
+                this.setColumns(Integer.parseInt(this.getParameters().getUnnamed().get(1)));
+            } catch (NumberFormatException e) {
+                System.out.println("Incorrect input: takes in integer");
+            }
+        }
+
+        // Sets the board if given three parameters
+        if (this.getParameters().getUnnamed().size() == 3) {
+            try {
+                if (Integer.parseInt(this.getParameters().getUnnamed().get(0)) > 4) {
+                    this.setWinNumber(Integer.parseInt(this.getParameters().getUnnamed().get(0)));
+                } else {
+                    System.out.println("Incorrect input: win number must be at least 5");
+                }
+                this.setRows(Integer.parseInt(this.getParameters().getUnnamed().get(1)));
+                this.setColumns(Integer.parseInt(this.getParameters().getUnnamed().get(2)));
+            } catch (NumberFormatException e) {
+                System.out.println("Incorrect input: takes in integer");
+            }
+        }
+
+        // Sets the computer player if given --ai=black or --ai=white, and its time with --ai-millis=1000
+        String ai = this.getParameters().getNamed().get("ai");
+        if ("black".equalsIgnoreCase(ai)) {
+            aiColor = BLACK;
+        } else if ("white".equalsIgnoreCase(ai)) {
+            aiColor = WHITE;
+        } else if (ai != null) {
+            System.out.println("Incorrect input: ai must be black or white");
+        }
+        String aiMillisOption = this.getParameters().getNamed().get("ai-millis");
+        if (aiMillisOption != null) {
+            try {
+                aiMillis = Long.parseLong(aiMillisOption);
+            } catch (NumberFormatException e) {
+                System.out.println("Incorrect input: takes in integer");
+            }
+        }
+
+        // Lets the computer think on the opponent's time with --ponder=on
+        String ponderOption = this.getParameters().getNamed().get("ponder");
+        if ("on".equalsIgnoreCase(ponderOption)) {
+            ponder = true;
+        } else if (ponderOption != null && !"off".equalsIgnoreCase(ponderOption)) {
+            System.out.println("Incorrect input: ponder must be on or off");
+        }
+
+        // Plays by the Renju rules with --rules=renju: only black is barred from overlines, double fours and true
+        // double threes
+        String rules = this.getParameters().getNamed().get("rules");
+        if ("renju".equalsIgnoreCase(rules) && (getWinNumber() < 5 || getWinNumber() > RenjuRules.MAX_WIN_NUMBER)) {
+            System.out.println("Incorrect input: renju needs a win number of 5 to " + RenjuRules.MAX_WIN_NUMBER
+                    + ", playing the standard rules");
+        } else if ("renju".equalsIgnoreCase(rules)) {
+            if (aiColor != GREEN) {
+                System.out.println("Incorrect input: the computer only plays the standard rules");
+                aiColor = GREEN;
+            }
+            renjuRules = true;
+        } else if (rules != null && !"standard".equalsIgnoreCase(rules)) {
+            System.out.println("Incorrect input: rules must be standard or renju");
+        }
+
+        // Marks the points the side to move may not play with --forbidden=on
+        String forbiddenOption = this.getParameters().getNamed().get("forbidden");
+        if ("on".equalsIgnoreCase(forbiddenOption)) {
+            showForbidden = true;
+        } else if (forbiddenOption != null && !"off".equalsIgnoreCase(forbiddenOption)) {
+            System.out.println("Incorrect input: forbidden must be on or off");
+        }
+
+        // Lets the computer play its first moves from an opening book with --book=file
+        String bookFile = this.getParameters().getNamed().get("book");
+        if (bookFile != null) {
+            try {
+                book = new OpeningBook(Paths.get(bookFile));
+            } catch (IOException e) {
+                System.out.println("Incorrect input: can't read the book, " + e.getMessage());
+            }
+        }
+
+        // Draws the board with --renderer=buttons or --renderer=canvas, by default a canvas for large boards
+        String renderer = this.getParameters().getNamed().get("renderer");
+        boolean useCanvas = getRows() * getColumns() > CANVAS_CELLS;
+        if ("canvas".equalsIgnoreCase(renderer)) {
+            useCanvas = true;
+        } else if ("buttons".equalsIgnoreCase(renderer)) {
+            useCanvas = false;
+        } else if (renderer != null) {
+            System.out.println("Incorrect input: renderer must be buttons or canvas");
+        }
+
+        // the engine's transposition table and helper threads are only worth making when the computer plays
+        if (aiColor != GREEN) {
+            engine = new LazySmpEngine(aiMillis);
+        }
+
+        stones = new PaddedBoard(getRows(), getColumns());
+        gridInt = null;
+        board = new BitBoard(getWinNumber(), getRows(), getColumns());
+        patterns = new PatternTable(board);
+        history = new MoveHistory(patterns);
+        if (renjuRules) {
+            renju = new RenjuRules(board);
+        }
+
+        if (useCanvas) {
+            // one node for the whole board, however large
+            canvas = new BoardCanvas(this);
+            pane.setCenter(canvas);
+        } else {
+            grid = new Button[getRows()][getColumns()];
+
+            // iterates through rows and columns to add buttons to grid!
+            for (int i = 0; i < getRows(); i++) {
+                for (int j = 0; j < getColumns(); j++) {
+                    // creates a new button for every row and column place
+                    Button button = new Button();
+                    grid[i][j] = button;
+                    button.setPrefHeight(25);
+                    button.setPrefWidth(25);
+                    button.setMinHeight(20);
+                    button.setMinWidth(20);
+                    button.setBackground(emptyCell);
+                    button.setOnAction(new ProcessClick(i, j));
+                    //adds the button to grid pane
+                    gridpane.add(button, j, i);
+
+                }
+            }
+
+            pane.setCenter(gridpane);
+        }
+        // exposes the move and search timings over JMX, and dumps them with -Dgomoku.metrics.dump=seconds
+        Metrics.install();
+
+        Scene scene = new Scene(pane);
+        // ctrl+z takes a move back, ctrl+y or ctrl+shift+z plays it again, home and end go to either end of the game
+        scene.getAccelerators().put(new KeyCodeCombination(KeyCode.Z, KeyCombination.SHORTCUT_DOWN), this::undoMove);
+        scene.getAccelerators().put(new KeyCodeCombination(KeyCode.Y, KeyCombination.SHORTCUT_DOWN), this::redoMove);
+        scene.getAccelerators().put(new KeyCodeCombination(KeyCode.Z, KeyCombination.SHORTCUT_DOWN,
+                KeyCombination.SHIFT_DOWN), this::redoMove);
+        scene.getAccelerators().put(new KeyCodeCombination(KeyCode.HOME), () -> jumpToMove(0));
+        scene.getAccelerators().put(new KeyCodeCombination(KeyCode.END), () -> jumpToMove(history.getSize()));
+
+        primaryStage.setScene(scene);
+        primaryStage.show();
+
+        if (showForbidden) {
+            overlay = new ForbiddenOverlay(this, renju != null);
+            overlay.refresh(getPlayerColorInt());
+        }
+
+        // the computer opens when it plays black
+        requestAiMove();
+    }
+
+    /**
+     * Stops the computer player when the window closes
+     */
+    public void stop() {
+        if (ponderer != null) {
+            ponderer.cancel();
+        }
+        if (aiExecutor != null) {
+            aiExecutor.shutdownNow();
+        }
+        if (overlay != null) {
+            overlay.shutdown();
+        }
+        if (engine != null) {
+            engine.shutdown();
+        }
+    }
+
+    /**
+     * Lets the computer choose its move on a background thread when it is its turn,
+     * then plays it back on the JavaFX thread.
+     */
+    public void requestAiMove() {
+        if (isGameWon || aiThinking || aiColor != getPlayerColorInt()) {
+            return;
+        }
+        if (aiExecutor == null) {
+            aiExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "gomoku-ai");
+                thread.setDaemon(true);
+                return thread;
+            });
+            if (ponder) {
+                ponderer = new Ponderer(engine, aiExecutor);
+            }
+        }
+        aiThinking = true;
+        PatternTable position = new PatternTable(patterns);
+        int color = getPlayerColorInt();
+
+        aiExecutor.execute(() -> {
+            int bookMove = book == null ? -1 : book.lookup(position.getBoard(), color);
+            int move;
+            if (bookMove >= 0) {
+                move = bookMove;
+                Metrics.BOOK_MOVES.increment();
+            } else {
+                // the engine records its time, speed and depth in Metrics
+                move = ponderer != null ? ponderer.chooseMove(position, color) : engine.chooseMove(position, color);
+            }
+            Platform.runLater(() -> {
+                aiThinking = false;
+                if (move >= 0 && playMove(move / getColumns(), move % getColumns()) >= 0 && ponderer != null
+                        && !isGameWon) {
+                    // the opponent's turn: think about the reply it is expected to play
+                    ponderer.start(patterns, getPlayerColorInt());
+                }
+            });
+        });
+    }
+
+    /**
+     * Plays the current color at row and column, the same way whether the board is buttons or a canvas.
+     * A forbidden move only shows its alert; any other move is drawn, checked for a win and passes the turn.
+     * @param row
+     * @param column
+     * @return PLACED, WIN, FOUR_FOUR, THREE_THREE, OVERLINE or OCCUPIED, or -1 when the move was ignored
+     */
+    public int playMove(int row, int column) {
+        // the game is over or the computer is choosing its move
+        if (isGameWon || aiThinking) {
+            return -1;
+        }
+
+        // important: the pattern table checks the move before altering the graphics
+        long start = System.nanoTime();
+        int result;
+        if (renju != null) {
+            result = renju.check(row, column, getPlayerColorInt());
+            if (result == BitBoard.PLACED || result == BitBoard.WIN) {
+                history.place(row, column, getPlayerColorInt(), result == BitBoard.WIN);
+            }
+        } else {
+            result = history.play(row, column, getPlayerColorInt());
+        }
+        Metrics.MOVE_VALIDATION.record(System.nanoTime() - start);
+        if (result == BitBoard.OCCUPIED) {
+            return result;
+        }
+
+        // check if fourFour, threeThree or an overline apply
+        if (result == BitBoard.FOUR_FOUR || result == BitBoard.THREE_THREE || result == BitBoard.OVERLINE) {
+            Metrics.FORBIDDEN_MOVES.increment();
+            displayAlerts(result);
+            return result;
+        }
+
+        // the move is made: pondering ends so the computer's thread is free for its turn
+        if (ponderer != null) {
+            ponderer.cancel();
+        }
+
+        setCell(row, column, getPlayerColorInt());
+
+        if (result == BitBoard.WIN) {
+            isGameWon = true;
+        }
+        declareWinner();
+
+        alternateColor();
+        if (overlay != null) {
+            overlay.place(row, column, history.getColor(history.getCurrent() - 1));
+            overlay.refresh(getPlayerColorInt());
+        }
+        requestAiMove();
+        return result;
+    }
+
+    /**
+     * Takes the last move back. Against the computer its reply goes back too, so the human is to move again.
+     */
+    public void undoMove() {
+        if (aiThinking || !history.canUndo()) {
+            return;
+        }
+        int move = history.getCurrent() - 1;
+        if (move > 0 && history.getColor(move) == aiColor) {
+            move--;
+        }
+        jumpToMove(move);
+    }
+
+    /**
+     * Plays the last move taken back again. Against the computer its reply comes back too when there is one.
+     */
+    public void redoMove() {
+        if (aiThinking || !history.canRedo()) {
+            return;
+        }
+        int move = history.getCurrent() + 1;
+        if (move < history.getSize() && history.getColor(move) == aiColor) {
+            move++;
+        }
+        jumpToMove(move);
+    }
+
+    /**
+     * Undoes or redoes moves until a number of them are on the board, redrawing only the cells stepped over.
+     * The computer moves if that leaves it to play; a new move drops the moves that could have been redone.
+     * @param move 0 for the empty board up to the number of moves played
+     */
+    public void jumpToMove(int move) {
+        if (aiThinking || move < 0 || move > history.getSize() || move == history.getCurrent()) {
+            return;
+        }
+        // the position pondered on is gone
+        if (ponderer != null) {
+            ponderer.cancel();
+        }
+        while (history.getCurrent() > move) {
+            int cell = history.undo();
+            setCell(cell / getColumns(), cell % getColumns(), GREEN);
+            if (overlay != null) {
+                overlay.undo(cell / getColumns(), cell % getColumns());
+            }
+        }
+        while (history.getCurrent() < move) {
+            int cell = history.redo();
+            setCell(cell / getColumns(), cell % getColumns(), history.getColor(history.getCurrent() - 1));
+            if (overlay != null) {
+                overlay.place(cell / getColumns(), cell % getColumns(), history.getColor(history.getCurrent() - 1));
+            }
+        }
+        isGameWon = history.isWon();
+        setPlayerColorInt(history.getColorToMove());
+        setPlayerColor(history.getColorToMove() == BLACK ? Color.BLACK : Color.WHITE);
+        if (overlay != null) {
+            overlay.refresh(getPlayerColorInt());
+        }
+        requestAiMove();
+    }
+
+    /**
+     * Keeps the board, and the int grid view if made, in step with the engine and redraws the cell
+     * @param row
+     * @param column
+     * @param color GREEN, BLACK or WHITE
+     */
+    private void setCell(int row, int column, int color) {
+        stones.set(row, column, color);
+        if (gridInt != null) {
+            gridInt[row][column] = color;
+        }
+        paintCell(row, column);
+    }
+
+    /**
+     * Redraws one cell after its stone changed
+     * @param row
+     * @param column
+     */
+    public void paintCell(int row, int column) {
+        if (canvas != null) {
+            canvas.paintCell(row, column);
+        } else if (stones.get(row, column) == BLACK) {
+            grid[row][column].setBackground(blackStone);
+        } else if (stones.get(row, column) == WHITE) {
+            grid[row][column].setBackground(whiteStone);
+        } else if (isMarkedForbidden(row, column)) {
+            grid[row][column].setBackground(forbiddenCell);
+        } else {
+            grid[row][column].setBackground(emptyCell);
+        }
+    }
+
+    /**
+     * Method alternating the player color (white and black)
+     */
+    public void alternateColor() {
+        // statement switching colors
+        if (getPlayerColorInt() == BLACK) {
+            setPlayerColor(Color.WHITE);
+            setPlayerColorInt(WHITE);
+        } else {
+            setPlayerColor(Color.BLACK);
+            setPlayerColorInt(BLACK);
+
+        }
+    }
+
+    /**
+     * Java FX alert method
+     * @param result FOUR_FOUR, THREE_THREE or OVERLINE from the rules engine
+     */
+    public void displayAlerts(int result) {
+        // messages appearing for four four and three three
+        if (result == BitBoard.FOUR_FOUR) {
+            Alert alert = new Alert(Alert.AlertType.INFORMATION);
+            alert.setTitle("WARNING");
+            alert.setHeaderText(null);
+            alert.setContentText("This violates the four-four rule! Try a different spot.");
+            alert.showAndWait();
+        } else if (result == BitBoard.THREE_THREE) {
+            Alert alert = new Alert(Alert.AlertType.INFORMATION);
+            alert.setTitle("WARNING");
+            alert.setHeaderText(null);
+            alert.setContentText("This violates the three-three rule! Try a different spot.");
+            alert.showAndWait();
+        } else if (result == BitBoard.OVERLINE) {
+            Alert alert = new Alert(Alert.AlertType.INFORMATION);
+            alert.setTitle("WARNING");
+            alert.setHeaderText(null);
+            alert.setContentText("Black can't make more than five in a row! Try a different spot.");
+            alert.showAndWait();
+        }
+    }
+
+    /**
+     * The main method
+     * @param args
+     */
+    public static void main(String[] args) {
+        Application.launch(args);
+    }
+
+    /**
+     * Class for handling Button Click!
+     */
+    public class ProcessClick implements EventHandler<ActionEvent> {
+
+        // Stores the location of the clicked button
+        private int xCoor;
+        private int yCoor;
+
+        // the color at the xcoor and y coor
+        private int testBoard;
+
+        /**
+         * Constructor for process click, assigning xCoor and yCoor
+         * @param xCoor
+         * @param yCoor
+         */
+        public ProcessClick (int xCoor, int yCoor) {
+            this.xCoor = xCoor;
+            this.yCoor = yCoor;
+        }
+
+        /**
+         * Sets x coordinate
+         * @param xCoor
+         */
+        public void setXCoor (int xCoor) {
+            this.xCoor = xCoor;
+        }
+
+        /**
+         * Sets y coordinate
+         * @param yCoor
+         */
+        public void setYCoor (int yCoor) {
+            this.yCoor = yCoor;
+        }
+
+        /**
+         * Gets the x coordinate of the button clicked
+         * @return xCoor
+         */
+        public int getXCoor() {
+            return xCoor;
+        }
+
+        /**
+         * Gets the x coordinate of the button clicked
+         * @return yCoor
+         */
+        public int getYCoor() {
+            return yCoor;
+        }
+
+        /**
+         * Response to a button being clicked
+         * @param e Action occurred
+         */
+        public void handle(ActionEvent e) {
+
+            // the pattern table knows whether the cell is open, undo included
+            playMove(xCoor, yCoor);
+
+        }
+
+        /**
+         * Places a color int at certain x-coor and y-coor in a 2D board. On the game's own grid from getGridInt the
+         * stone also goes on the padded board the checks of ProcessClick read, as it did when they read the grid;
+         * the rules engine and the move history don't see it, so real moves still go through playMove.
+         * @param board double array of int used in ProcessClick
+         */
+        public void createTestBoard(int[][] board) {
+            setTestCell(board, getPlayerColorInt());
+        }
+
+        /**
+         * Helper method for testing createTestBoard
+         * @return testBoard
+         */
+        public int getTestBoard() {
+            return testBoard;
+        }
+
+        /**
+         * Helper method that resets the board at a certain x and y coor to green, on the padded board too when
+         * given the game's own grid, as for createTestBoard
+         * @param board double array of int used in ProcessClick
+         */
+        public void resetTestBoard(int[][] board) {
+            setTestCell(board, GREEN);
+        }
+
+        /**
+         * Sets the cell at x-coor and y-coor of a test board
+         * @param board a copy, or the game's own grid kept in step with the padded board
+         * @param color GREEN, BLACK or WHITE
+         */
+        private void setTestCell(int[][] board, int color) {
+            board[xCoor][yCoor] = color;
+            if (board == gridInt) {
+                stones.set(xCoor, yCoor, color);
+            }
+            testBoard = board[xCoor][yCoor];
+        }
+
+        /**
+         * Checks to see if there is a game won, or 5 pieces of the same color in a row.
+         * @param button The button clicked
+         */
+        public void checkWin(Button button) {
+            // check if not empty, while having a counter
+            if (!isEmpty(button) && isWinningMove()) {
+                isGameWon = true;
+            }
+
+            declareWinner();
+        }
+
+        /**
+         * Checks whether the piece at xCoor, yCoor has exactly the win number in a row in any direction.
+         * The board part of checkWin, without the button and the popup.
+         * @return boolean
+         */
+        public boolean isWinningMove() {
+            // stores the number of same color pieces
+            int counterINT = 0;
+            boolean won = false;
+
+            // goes through each direction
+            for (int i = 0; i < 4; i++) {
+                // counter for all four directions
+                counterINT = count4DirectionsIntBoard(i);
+
+                // when the win number equals the pieces in a row, the move wins
+                if (getWinNumber() == counterINT) {
+                    won = true;
+                }
+
+            } // post condition: all directions are checked
+
+            return won;
+        }
+
+        /**
+         * This method counts the number of buttons in a row starting from the given button
+         * @param direction the int representation of the eight directions
+         * @return counter the number of same colors in row
+         */
+        public int count4DirectionsIntBoard (int direction) {
+            // both ways along the line on the padded board, which stops at its border without bounds checks
+            return stones.count4Directions(getXCoor(), getYCoor(), direction);
+        }
+
+        /**
+         * Checks to see if there is a four Four, regardless of open spaces
+         * @return The boolean representation of whether there was a four four.
+         */
+        public boolean fourFour() {
+            // sets number for 4-4 rule
+            int max4 = getWinNumber() - 1;
+            int counter = 0;
+
+            // counts the number of pieces in every direction
+            for (int direction = 0; direction < 4; direction++) {
+                // counts the number of fours created by pieces of the same color
+                if (count4DirectionsIntBoard(direction) == max4) {
+                    counter++;
+                }
+            }
+
+            // when the counter of the number of directions created with the max is 2 or more groups, set boolean to true
+            return counter >= 2;
+        }
+
+        /**
+         * Checks to see if there is a three-three. Player can't make a move that simultaneously creates two or more groups
+         * of three
+         * @return The boolean stating whether there is a three three
+         */
+        public boolean threeThree() {
+            // sets number for 3-3 rule
+            int max3 = getWinNumber() - 2;
+            int counter = 0;
+            boolean threeThree = false;
+
+            // counts the number of pieces in every direction
+            for (int direction = 0; direction < 4; direction++) {
+                // counts the number of fours created by pieces of the same color
+                if (count4DirectionsIntBoard(direction) == max3 && (stones.isOpen(getXCoor(), getYCoor(), direction) && stones.isOpen(getXCoor(), getYCoor(), direction + 4))) {
+                    counter++;
+                }
+            }
+
+            // when the counter of the number of directions created with the max is 2 or more groups, set boolean to true
+            return counter >= 2;
+
+        }
+    }
+
+    /**
+     * Declares victory!
+     * Uses JavaFX to create a popup window
+     */
+    public void declareWinner () {
+        if (isGameWon) {
+            Alert alert = new Alert(Alert.AlertType.INFORMATION);
+            alert.setTitle("Declare the Winner");
+            alert.setHeaderText(null);
+            // when the game is won and the last piece placed was BLACK
+            if (getPlayerColorInt() == BLACK) {
+                alert.setContentText("Black is the winner!");
+            }
+
+            // when the game is won and the last piece placed was WHITE
+            if (getPlayerColorInt() == WHITE) {
+                alert.setContentText("White is the winner!");
+            }
+            alert.showAndWait();
+        }
+    }
+
+    /**
+     * This method returns the number of pieces of the same color in a row including the button in params.
+     * @param grid The 2D array of ints representing the board
+     * @param row The row position of the currently played piece
+     * @param column The column position of the currently played piece
+     * @param direction The direction to search (vert, horiz, right diag, left diag)
+     * @return The number of consecutive same color pieces counting the first starting one
+     */
+    public int numberInLineInt (int[][] grid, int row, int column, int direction) {
+        // sets how much we're moving by
+        int dx = getXDisplacement(direction);
+        int dy = getYDisplacement(direction);
+        // counter starts at 1 to account for the button you're on
+        int counter = 1;
+
+        // a start off the board counts only itself
+        if (!isInGrid(grid, row, column)) {
+            return counter;
+        }
+
+        int color = getButtonIntColor(grid, row, column);
+        // precondition: the dx and dy are set correctly
+        // stops at the edge of the board instead of running off it
+
+        // makes sure is counting pieces of same color
+        while (isInGrid(grid, row+dx, column+dy) && getButtonIntColor(grid, row+dx, column+dy) == color) {
+            row += dx;
+            column += dy;
+            counter++;
+        }
+        // postcondition: counted same color
+
+        // doesn't account for the button you're on!
+        return counter;
+    }
+
+    /**
+     * Whether row and column are inside the grid
+     * @param grid The 2D array of ints representing the board
+     * @param row
+     * @param column
+     * @return boolean
+     */
+    private boolean isInGrid(int[][] grid, int row, int column) {
+        return row >= 0 && row < grid.length && column >= 0 && column < grid[row].length;
+    }
+
+    /**
+     * Checks whether JavaFX button is empty or not
+     * @param button the JavaFX feature passed in
+     * @return boolean
+     */
+    public boolean isEmpty(Button button) {
+        if (getButtonColor(button) == Color.GREEN) {
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Determines if there is an open space following the input direction at position row, column on the board.
+     * Directions consists of up, right, down, left, and the four diagonals.
+     * @param grid The two D array of buttons representing the board of the game.
+     * @param row The position for the row of the currently played piece.
+     * @param column The position for the column of the currently played piece.
+     * @param direction The direction to search (up, right, down, left, and the four diagonals).
+     * @return The boolean representation if there is an open space following the direction starting at the row, column on the board.
+     */
+    public boolean isOpen (int[][] grid, int row, int column, int direction) {
+
+        // counters for row and columns
+        int r = row;
+        int c = column;
+
+        // stores whether the direction is open
+        boolean open = false;
+
+        // ensures that while counting, does not exit the board
+        boolean exit = false;
+
+        // assigns color int
+        int color = getButtonIntColor(grid, row, column);
+
+        if (getButtonIntColor(grid, r, c) == GREEN) {
+            open = false;
+            exit = true;
+        }
+
+        // NORTH (up 1)
+        if (direction == NORTH) {
+            while ((r > 0) && (exit == false)) {
+
+                // 1. check if the above is open (green)
+                // return open true, exit true
+                // 2. check if the above is the same color
+                // return exit false;
+                if (getButtonIntColor(grid, r-1, c) == GREEN) {
+                    open = true;
+                    exit = true;
+                } else if (getButtonIntColor(grid, r-1, c) == color) {
+                    open = false;
+                    exit = false;
+                } else {
+                    open = false;
+                    exit = true;
+                }
+                r--;
+            }
+        }
+
+        // NORTHEAST (right 1, up 1)
+        else if (direction == NORTHEAST) {
+            while ((r > 0) && (c < getColumns()-1) && (exit == false)) {
+                if (getButtonIntColor(grid, r-1, c+1) == GREEN) {
+                    open = true;
+                    exit = true;
+                } else if (getButtonIntColor(grid, r-1, c+1) == color) {
+                    open = false;
+                    exit = false;
+                } else {
+                    open = false;
+                    exit = true;
+                }
+                r--;
+                c++;
+            }
+        }
+
+        // EAST (right 1)
+        else if (direction == EAST) {
+            while ((c < getColumns()-1) && (exit == false)) {
+                if (getButtonIntColor(grid, r, c+1) == GREEN) {
+                    open = true;
+                    exit = true;
+                } else if (getButtonIntColor(grid, r, c+1) == color) {
+                    open = false;
+                    exit = false;
+                } else {
+                    open = false;
+                    exit = true;
+                }
+                c++;
+            }
+        }
+
+        // SOUTHEAST (right 1, down 1)
+        else if (direction == SOUTHEAST) {
+            while ((r < getRows()-1) && (c < getColumns()-1) && (exit == false)) {
+                if (getButtonIntColor(grid, r+1, c+1) == GREEN) {
+                    open = true;
+                    exit = true;
+                } else if (getButtonIntColor(grid, r+1, c+1) == color) {
+                    open = false;
+                    exit = false;
+                } else {
+                    open = false;
+                    exit = true;
+                }
+                r++;
+                c++;
+            }
+        }
+
+        // SOUTH (down 1)
+        else if (direction == SOUTH) {
+            while ((r < getRows()-1) && (exit == false)) {
+                if (getButtonIntColor(grid, r+1, c) == GREEN) {
+                    open = true;
+                    exit = true;
+                } else if (getButtonIntColor(grid, r+1, c) == color) {
+                    open = false;
+                    exit = false;
+                } else {
+                    open = false;
+                    exit = true;
+                }
+                r++;
+            }
+        }
+
+        // SOUTHWEST (left 1, down 1)
+        else if (direction == SOUTHWEST) {
+            while ((r < getRows()-1) && (c > 0) && (exit == false)) {
+                if (getButtonIntColor(grid, r+1, c-1) == GREEN) {
+                    open = true;
+                    exit = true;
+                } else if (getButtonIntColor(grid, r+1, c-1) == color) {
+                    open = false;
+                    exit = false;
+                } else {
+                    open = false;
+                    exit = true;
+                }
+                r++;
+                c--;
+            }
+        }
+
+        // WEST (left 1)
+        else if (direction == WEST) {
+            while ((c > 0) && (exit == false)) {
+                if (getButtonIntColor(grid, r, c-1) == GREEN) {
+                    open = true;
+                    exit = true;
+                } else if (getButtonIntColor(grid, r, c-1) == color) {
+                    open = false;
+                    exit = false;
+                } else {
+                    open = false;
+                    exit = true;
+                }
+                c--;
+            }
+        }
+
+        // NORTHWEST (left 1, up 1)
+        else if (direction == NORTHWEST) {
+            while ((r > 0) && (c > 0) && (exit == false)) {
+                if (getButtonIntColor(grid, r-1, c-1) == GREEN) {
+                    open = true;
+                    exit = true;
+                } else if (getButtonIntColor(grid, r-1, c-1) == color) {
+                    open = false;
+                    exit = false;
+                } else {
+                    open = false;
+                    exit = true;
+                }
+                r--;
+                c--;
+            }
+        }
+
+        return open;
+    }
+}
\ No newline at end of file
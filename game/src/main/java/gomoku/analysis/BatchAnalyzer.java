@@ -0,0 +1,402 @@
+package gomoku.analysis;
+
+import gomoku.engine.BitBoard;
+import gomoku.engine.PatternTable;
+import gomoku.search.AlphaBetaEngine;
+import gomoku.search.TranspositionTable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Headless analysis of a stream of positions (see Position for the forms read): for each, whether either side
+ * already has a five, and for the side to move the cells that win, the cells the four-four and three-three rules
+ * forbid, the cells where the opponent wins, and optionally the move and score of a fixed-depth alpha-beta search.
+ *
+ * A reader thread fills batches of positions, worker threads analyze them, and the calling thread writes the
+ * results in input order as batches come back. The batches are made once and passed around through bounded
+ * queues: the reader waits for a free batch, so a slow writer or slow workers hold it back, and memory stays the
+ * same for ten positions or a hundred million.
+ *
+ * Output, one tab separated line per position: index, winner (0 none, 1 black, 2 white, 3 both), side to move,
+ * winning cells, four-four cells, three-three cells, opponent winning cells, then with a search depth the chosen
+ * move as row,column and its score. A position that can't be read gives its index, ERR and the reason.
+ * The side to move is black when both sides have as many stones, white otherwise.
+ */
+public class BatchAnalyzer {
+
+    /** Positions per batch */
+    public static final int BATCH_POSITIONS = 256;
+    /** Size of each worker's transposition table when searching, in megabytes */
+    private static final int TABLE_MEGABYTES = 16;
+
+    private final int threads;
+    private final int depth;
+    /** Batches made, the most positions held at once is this times BATCH_POSITIONS */
+    private final int batches;
+
+    /** Statistics of the last run */
+    private final LongAdder positions = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private long elapsedNanos;
+
+    /**
+     * Constructor
+     * @param threads number of worker threads
+     * @param depth alpha-beta depth of the optional search, 0 for none
+     * @param queue batches waiting to be analyzed or written, beyond one per worker
+     */
+    public BatchAnalyzer(int threads, int depth, int queue) {
+        this.threads = Math.max(1, threads);
+        this.depth = Math.max(0, depth);
+        this.batches = this.threads + Math.max(1, queue);
+    }
+
+    /**
+     * Getter for the positions analyzed by the last run, unreadable ones included
+     * @return positions
+     */
+    public long getPositions() {
+        return positions.sum();
+    }
+
+    /**
+     * Getter for the positions of the last run that couldn't be read
+     * @return errors
+     */
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    /**
+     * Getter for the positions per second of the last run
+     * @return positions per second
+     */
+    public long getPositionsPerSecond() {
+        return elapsedNanos == 0 ? 0 : getPositions() * 1000000000L / elapsedNanos;
+    }
+
+    /**
+     * Analyzes every position of a stream, writing the results as they are ready. Neither stream is closed.
+     * @param in
+     * @param binary whether the input is in binary form rather than text
+     * @param out
+     * @throws IOException when reading or writing fails
+     * @throws InterruptedException when the calling thread is interrupted
+     */
+    public void run(InputStream in, boolean binary, Writer out) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        positions.reset();
+        errors.reset();
+
+        BlockingQueue<Batch> free = new ArrayBlockingQueue<>(batches);
+        BlockingQueue<Batch> work = new ArrayBlockingQueue<>(batches);
+        BlockingQueue<Batch> done = new ArrayBlockingQueue<>(batches);
+        for (int i = 0; i < batches; i++) {
+            free.add(new Batch());
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 1, runnable -> {
+            Thread thread = new Thread(runnable, "gomoku-batch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            pool.execute(() -> read(in, binary, free, work));
+            for (int i = 0; i < threads; i++) {
+                pool.execute(() -> analyze(work, done));
+            }
+            write(out, free, done);
+        } finally {
+            pool.shutdownNow();
+            elapsedNanos = System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Reader thread: fills free batches from the stream and hands them to the workers. A read failure ends the
+     * input: the batch it happened in still carries the positions read before it, and run throws it once they
+     * are written.
+     * @param in
+     * @param binary
+     * @param free
+     * @param work
+     */
+    private void read(InputStream in, boolean binary, BlockingQueue<Batch> free, BlockingQueue<Batch> work) {
+        try {
+            BufferedReader text = binary ? null
+                    : new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII), 1 << 16);
+            DataInputStream data = binary ? new DataInputStream(new BufferedInputStream(in, 1 << 16)) : null;
+            byte[] packed = new byte[(Position.MAX_CELLS + 3) / 4];
+            long sequence = 0;
+            boolean more = true;
+            while (more) {
+                Batch batch = free.take();
+                batch.reset(sequence++);
+                try {
+                    while (more && batch.count < BATCH_POSITIONS) {
+                        Position position = batch.positions[batch.count];
+                        if (binary) {
+                            more = position.readBinary(data, packed);
+                        } else {
+                            String line = text.readLine();
+                            // blank lines are skipped
+                            more = line != null;
+                            if (more && !position.readText(line)) {
+                                continue;
+                            }
+                        }
+                        if (more) {
+                            batch.count++;
+                        }
+                    }
+                } catch (IOException e) {
+                    batch.failure = e;
+                    more = false;
+                }
+                batch.last = !more;
+                work.put(batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Worker thread: analyzes batches into their text until it is interrupted
+     * @param work
+     * @param done
+     */
+    private void analyze(BlockingQueue<Batch> work, BlockingQueue<Batch> done) {
+        Analysis analysis = new Analysis(depth);
+        try {
+            while (true) {
+                Batch batch = work.take();
+                for (int i = 0; i < batch.count; i++) {
+                    long index = batch.sequence * BATCH_POSITIONS + i;
+                    Position position = batch.positions[i];
+                    if (position.getError() != null) {
+                        batch.text.append(index).append("\tERR\t").append(position.getError()).append('\n');
+                        errors.increment();
+                    } else {
+                        int length = batch.text.length();
+                        try {
+                            analysis.analyze(position, index, batch.text);
+                        } catch (RuntimeException e) {
+                            // a bad position only loses its line, the batch still has to reach the writer
+                            batch.text.setLength(length);
+                            batch.text.append(index).append("\tERR\t").append(e).append('\n');
+                            errors.increment();
+                            analysis = new Analysis(depth);
+                        }
+                    }
+                }
+                positions.add(batch.count);
+                done.put(batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes the batches in input order as they come back, returning each to the free ones
+     * @param out
+     * @param free
+     * @param done
+     * @throws IOException when writing fails, or the read failure that ended the input
+     * @throws InterruptedException
+     */
+    private void write(Writer out, BlockingQueue<Batch> free, BlockingQueue<Batch> done)
+            throws IOException, InterruptedException {
+        // batches that came back before the one to write next, by sequence; no more than were made are out
+        Batch[] waiting = new Batch[batches];
+        long next = 0;
+        while (true) {
+            Batch batch = done.take();
+            waiting[(int) (batch.sequence % batches)] = batch;
+            Batch ready;
+            while ((ready = waiting[(int) (next % batches)]) != null && ready.sequence == next) {
+                waiting[(int) (next % batches)] = null;
+                out.append(ready.text);
+                next++;
+                if (ready.last) {
+                    out.flush();
+                    if (ready.failure != null) {
+                        throw ready.failure;
+                    }
+                    return;
+                }
+                free.put(ready);
+            }
+            if (done.isEmpty()) {
+                out.flush();
+            }
+        }
+    }
+
+    /**
+     * Positions read together and the text of their results
+     */
+    private static class Batch {
+
+        private final Position[] positions = new Position[BATCH_POSITIONS];
+        private final StringBuilder text = new StringBuilder();
+        private int count;
+        private long sequence;
+        /** Whether the input ends with this batch */
+        private boolean last;
+        /** Why the input ended early, or null */
+        private IOException failure;
+
+        /**
+         * Constructor
+         */
+        Batch() {
+            for (int i = 0; i < BATCH_POSITIONS; i++) {
+                positions[i] = new Position();
+            }
+        }
+
+        /**
+         * Empties the batch for reuse
+         * @param sequence
+         */
+        void reset(long sequence) {
+            this.sequence = sequence;
+            count = 0;
+            last = false;
+            failure = null;
+            text.setLength(0);
+        }
+    }
+
+    /**
+     * The rule checks and search of one worker. The table of the previous position is kept and only the cells
+     * that differ are changed, so positions from the same game, which follow each other in most inputs, cost a
+     * few stones each instead of a whole new table.
+     */
+    private static class Analysis {
+
+        private final int depth;
+        private final AlphaBetaEngine engine;
+        private PatternTable table;
+        private BitBoard board;
+
+        /**
+         * Constructor
+         * @param depth alpha-beta depth, 0 for none
+         */
+        Analysis(int depth) {
+            this.depth = depth;
+            if (depth > 0) {
+                engine = new AlphaBetaEngine(Long.MAX_VALUE / 2000000L, new TranspositionTable(TABLE_MEGABYTES));
+                engine.setMaxDepth(depth);
+                // the solver works to a clock, which would make results vary from run to run
+                engine.setThreatMillis(0);
+            } else {
+                engine = null;
+            }
+        }
+
+        /**
+         * Analyzes a position, appending its result line
+         * @param position
+         * @param index
+         * @param out
+         */
+        void analyze(Position position, long index, StringBuilder out) {
+            load(position);
+            int rows = board.getRows();
+            int columns = board.getColumns();
+            int black = 0;
+            int white = 0;
+            int winner = 0;
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c < columns; c++) {
+                    int color = board.get(r, c);
+                    if (color == BitBoard.GREEN) {
+                        continue;
+                    }
+                    if (color == BitBoard.BLACK) {
+                        black++;
+                    } else {
+                        white++;
+                    }
+                    if ((winner & color) == 0 && board.checkWin(r, c)) {
+                        winner |= color;
+                    }
+                }
+            }
+            int color = black == white ? BitBoard.BLACK : BitBoard.WHITE;
+
+            int fourFour = 0;
+            int threeThree = 0;
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c < columns; c++) {
+                    int flags = table.getFlags(r, c, color);
+                    if ((flags & PatternTable.FLAG_FOUR_FOUR) != 0) {
+                        fourFour++;
+                    } else if ((flags & PatternTable.FLAG_THREE_THREE) != 0) {
+                        threeThree++;
+                    }
+                }
+            }
+            out.append(index).append('\t').append(winner).append('\t').append(color).append('\t')
+                    .append(table.countWinningMoves(color)).append('\t').append(fourFour).append('\t')
+                    .append(threeThree).append('\t').append(table.countWinningMoves(3 - color));
+            if (engine != null) {
+                int move = winner == 0 ? engine.chooseMove(table, color) : -1;
+                if (move >= 0) {
+                    out.append('\t').append(move / columns).append(',').append(move % columns).append('\t')
+                            .append(engine.getScore());
+                } else {
+                    out.append("\t-\t0");
+                }
+            }
+            out.append('\n');
+        }
+
+        /**
+         * Brings the table to a position, changing only the cells that differ when the size is the same
+         * @param position
+         */
+        private void load(Position position) {
+            int rows = position.getRows();
+            int columns = position.getColumns();
+            if (board == null || board.getWinNumber() != position.getWinNumber() || board.getRows() != rows
+                    || board.getColumns() != columns) {
+                board = new BitBoard(position.getWinNumber(), rows, columns);
+                table = new PatternTable(board);
+            }
+            // stones to take off first, so no cell is placed over
+            for (int r = 0, cell = 0; r < rows; r++) {
+                for (int c = 0; c < columns; c++, cell++) {
+                    int color = board.get(r, c);
+                    if (color != BitBoard.GREEN && color != position.get(cell)) {
+                        table.undo(r, c);
+                    }
+                }
+            }
+            for (int r = 0, cell = 0; r < rows; r++) {
+                for (int c = 0; c < columns; c++, cell++) {
+                    int color = position.get(cell);
+                    if (color != BitBoard.GREEN && board.isEmpty(r, c)) {
+                        table.place(r, c, color);
+                    }
+                }
+            }
+        }
+    }
+}
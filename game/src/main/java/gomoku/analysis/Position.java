@@ -0,0 +1,245 @@
+package gomoku.analysis;
+
+import gomoku.engine.BitBoard;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * A position as read from a batch input: winNumber, rows, columns and a cell array like gridInt flattened row by
+ * row. A Position is meant to be filled again and again, so reading millions of them allocates next to nothing.
+ *
+ * Text form, one position per line: winNumber rows columns cells, the cells being one digit per cell (GREEN 0,
+ * BLACK 1, WHITE 2), e.g. "5 3 3 000010000". Binary form: winNumber, rows and columns as unsigned 16 bit
+ * big-endian numbers, then the cells packed four to a byte, two bits each from the low bits up.
+ */
+public class Position {
+
+    /** Largest board read, as for the game records */
+    public static final int MAX_CELLS = 0xFFFF;
+
+    private int winNumber;
+    private int rows;
+    private int columns;
+    /** Color per cell, row * columns + column */
+    private byte[] cells = new byte[0];
+    /** Why the last read failed, or null */
+    private String error;
+
+    /**
+     * Getter for winNumber
+     * @return winNumber
+     */
+    public int getWinNumber() {
+        return winNumber;
+    }
+
+    /**
+     * Getter for rows
+     * @return rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Getter for columns
+     * @return columns
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Gets the color at a cell
+     * @param cell row * columns + column
+     * @return GREEN, BLACK or WHITE
+     */
+    public int get(int cell) {
+        return cells[cell];
+    }
+
+    /**
+     * Getter for why the last read failed
+     * @return the message, or null when the position is good
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Sets the size of the position and empties it
+     * @param winNumber
+     * @param rows
+     * @param columns
+     */
+    public void reset(int winNumber, int rows, int columns) {
+        this.winNumber = winNumber;
+        this.rows = rows;
+        this.columns = columns;
+        this.error = null;
+        if (cells.length < rows * columns) {
+            cells = new byte[rows * columns];
+        }
+        java.util.Arrays.fill(cells, 0, rows * columns, (byte) BitBoard.GREEN);
+    }
+
+    /**
+     * Sets the color at a cell
+     * @param cell row * columns + column
+     * @param color GREEN, BLACK or WHITE
+     */
+    public void set(int cell, int color) {
+        cells[cell] = (byte) color;
+    }
+
+    /**
+     * Reads a position from a line of text. A malformed line doesn't throw: it leaves the position empty and
+     * getError tells why.
+     * @param line
+     * @return false if the line is blank, true otherwise
+     */
+    public boolean readText(String line) {
+        String[] fields = line.trim().split("\\s+");
+        if (fields.length == 1 && fields[0].isEmpty()) {
+            return false;
+        }
+        reset(0, 0, 0);
+        if (fields.length != 4) {
+            error = "Incorrect input: takes in winNumber, rows, columns and cells";
+            return true;
+        }
+        int win;
+        int r;
+        int c;
+        try {
+            win = Integer.parseInt(fields[0]);
+            r = Integer.parseInt(fields[1]);
+            c = Integer.parseInt(fields[2]);
+        } catch (NumberFormatException e) {
+            error = "Incorrect input: takes in integer";
+            return true;
+        }
+        if (!checkSize(win, r, c)) {
+            return true;
+        }
+        String digits = fields[3];
+        if (digits.length() != r * c) {
+            error = "Incorrect input: " + r * c + " cells expected, " + digits.length() + " given";
+            return true;
+        }
+        reset(win, r, c);
+        for (int i = 0; i < digits.length(); i++) {
+            int color = digits.charAt(i) - '0';
+            if (color < BitBoard.GREEN || color > BitBoard.WHITE) {
+                reset(0, 0, 0);
+                error = "Incorrect input: cells are 0, 1 or 2";
+                return true;
+            }
+            cells[i] = (byte) color;
+        }
+        return true;
+    }
+
+    /**
+     * Reads a position in binary form. Only a malformed size sets getError; a stream that ends inside a position
+     * throws.
+     * @param in
+     * @param packed scratch space of at least (MAX_CELLS + 3) / 4 bytes
+     * @return false at the end of the stream
+     * @throws IOException when the stream fails or ends inside a position
+     */
+    public boolean readBinary(DataInputStream in, byte[] packed) throws IOException {
+        int win = in.read();
+        if (win < 0) {
+            return false;
+        }
+        int r;
+        int c;
+        try {
+            win = win << 8 | in.readUnsignedByte();
+            r = in.readUnsignedShort();
+            c = in.readUnsignedShort();
+        } catch (EOFException e) {
+            throw new IOException("Incorrect input: the input ends inside a position");
+        }
+        reset(0, 0, 0);
+        if ((long) r * c > MAX_CELLS) {
+            // the cells can't be skipped without trusting the size
+            throw new IOException("Incorrect input: boards hold at most " + MAX_CELLS + " cells");
+        }
+        try {
+            in.readFully(packed, 0, (r * c + 3) / 4);
+        } catch (EOFException e) {
+            throw new IOException("Incorrect input: the input ends inside a position");
+        }
+        if (!checkSize(win, r, c)) {
+            return true;
+        }
+        reset(win, r, c);
+        for (int i = 0; i < r * c; i++) {
+            int color = (packed[i >> 2] >> ((i & 3) * 2)) & 3;
+            if (color > BitBoard.WHITE) {
+                reset(0, 0, 0);
+                error = "Incorrect input: cells are 0, 1 or 2";
+                return true;
+            }
+            cells[i] = (byte) color;
+        }
+        return true;
+    }
+
+    /**
+     * Checks the size of a position being read, setting the error when it is wrong
+     * @param win
+     * @param r
+     * @param c
+     * @return whether the size is good
+     */
+    private boolean checkSize(int win, int r, int c) {
+        if (r < 1 || c < 1 || (long) r * c > MAX_CELLS) {
+            error = "Incorrect input: boards hold 1 to " + MAX_CELLS + " cells";
+            return false;
+        }
+        if (win < 1) {
+            error = "Incorrect input: win number must be positive";
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Writes the position in text form, without the line end
+     * @param out
+     */
+    public void writeText(StringBuilder out) {
+        out.append(winNumber).append(' ').append(rows).append(' ').append(columns).append(' ');
+        for (int i = 0; i < rows * columns; i++) {
+            out.append((char) ('0' + cells[i]));
+        }
+    }
+
+    /**
+     * Writes the position in binary form
+     * @param out
+     * @throws IOException
+     */
+    public void writeBinary(DataOutputStream out) throws IOException {
+        out.writeShort(winNumber);
+        out.writeShort(rows);
+        out.writeShort(columns);
+        int packed = 0;
+        for (int i = 0; i < rows * columns; i++) {
+            packed |= cells[i] << ((i & 3) * 2);
+            if ((i & 3) == 3) {
+                out.write(packed);
+                packed = 0;
+            }
+        }
+        if ((rows * columns & 3) != 0) {
+            out.write(packed);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package gomoku.book;
+
+import gomoku.engine.PatternTable;
+import gomoku.metrics.Metrics;
+import gomoku.search.Engine;
+
+/**
+ * A player that plays from an opening book while the position is in it, and asks another engine otherwise.
+ * The book is only read, so one book can be shared by any number of BookEngines.
+ */
+public class BookEngine implements Engine {
+
+    private final OpeningBook book;
+    private final Engine engine;
+
+    /** Moves taken from the book */
+    private long bookMoves;
+
+    /**
+     * Constructor
+     * @param book
+     * @param engine plays when the book has no move
+     */
+    public BookEngine(OpeningBook book, Engine engine) {
+        this.book = book;
+        this.engine = engine;
+    }
+
+    /**
+     * Getter for the engine playing out of the book
+     * @return engine
+     */
+    public Engine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Getter for the number of moves taken from the book
+     * @return moves
+     */
+    public long getBookMoves() {
+        return bookMoves;
+    }
+
+    /**
+     * Plays the book move when there is one, otherwise searches
+     * @param position the board with its pattern table
+     * @param color BLACK or WHITE, the side to move
+     * @return the chosen cell as row * columns + column, or -1 when no legal move is left
+     */
+    public int chooseMove(PatternTable position, int color) {
+        int move = book.lookup(position.getBoard(), color);
+        if (move >= 0) {
+            bookMoves++;
+            Metrics.BOOK_MOVES.increment();
+            return move;
+        }
+        return engine.chooseMove(position, color);
+    }
+}
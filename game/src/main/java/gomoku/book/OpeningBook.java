@@ -0,0 +1,350 @@
+package gomoku.book;
+
+import gomoku.engine.BitBoard;
+import gomoku.record.GameArchive;
+import gomoku.record.GameRecord;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Moves played from the first positions of archived games, with how often each was played and how it scored.
+ *
+ * A book is built offline for one winNumber and board size. Every position is stored under its smallest hash
+ * over the board's symmetries (see Symmetry), with the move turned the same way, so a book learns an opening
+ * from every rotation and reflection it was played in. The entries are sorted by key in a memory-mapped file
+ * and a lookup is a binary search, so a book of millions of entries costs no heap and a lookup a few
+ * microseconds.
+ *
+ * File: a header of HEADER_BYTES (magic, version, winNumber, rows, columns, plies, entries), then the entries,
+ * each a long key (45 bits of hash, then the 16 bit cell), the games it was played in and its score in half
+ * points for the side that played it.
+ */
+public class OpeningBook {
+
+    /** File header: "GMKB" and the format version */
+    public static final int MAGIC = 0x474D4B42;
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 32;
+    public static final int ENTRY_BYTES = 16;
+
+    /** Moves of each game put in the book when not told otherwise */
+    public static final int DEFAULT_PLIES = 12;
+    /** Games a move needs to be kept in the book when not told otherwise */
+    public static final int DEFAULT_MIN_GAMES = 2;
+
+    /** Bits of the position hash in a key, so the key with its move and result stays positive */
+    private static final int HASH_BITS = 45;
+    /** Games whose keys are worked out by one task */
+    private static final long CHUNK_GAMES = 1 << 12;
+    /** Unused slot of the keys being sorted, below every key */
+    private static final long EMPTY = -1;
+
+    private final MappedByteBuffer entries;
+    private final int winNumber;
+    private final int rows;
+    private final int columns;
+    private final int plies;
+    private final int size;
+
+    /**
+     * Opens a book
+     * @param path
+     * @throws IOException when the file can't be read or isn't a book
+     */
+    public OpeningBook(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Not an opening book");
+            }
+            entries = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (entries.getInt(0) != MAGIC || entries.getInt(4) != VERSION
+                || entries.getLong(24) != (entries.capacity() - HEADER_BYTES) / ENTRY_BYTES) {
+            throw new IOException("Not an opening book");
+        }
+        winNumber = entries.getInt(8);
+        rows = entries.getInt(12);
+        columns = entries.getInt(16);
+        plies = entries.getInt(20);
+        size = (int) entries.getLong(24);
+    }
+
+    /**
+     * Getter for the number of entries
+     * @return entries
+     */
+    public int getEntryCount() {
+        return size;
+    }
+
+    /**
+     * Getter for the number of moves of a game the book covers
+     * @return plies
+     */
+    public int getPlies() {
+        return plies;
+    }
+
+    /**
+     * Chooses the book move for a position: the one played in the most games, the better scoring one on a tie
+     * @param board the position, left unchanged
+     * @param color BLACK or WHITE, the side to move
+     * @return the cell as row * columns + column, or -1 when the position isn't in the book
+     */
+    public int lookup(BitBoard board, int color) {
+        int stones = board.getStoneCount();
+        if (board.getWinNumber() != winNumber || board.getRows() != rows || board.getColumns() != columns
+                || stones >= plies || color != (stones % 2 == 0 ? BitBoard.BLACK : BitBoard.WHITE)) {
+            return -1;
+        }
+
+        long[] hashes = new long[8];
+        Symmetry.hashes(board, hashes);
+        int set = Symmetry.canonicalSet(hashes, Symmetry.count(rows, columns), HASH_BITS);
+        long hash = hashes[Integer.numberOfTrailingZeros(set)] >>> (64 - HASH_BITS);
+
+        int best = -1;
+        int bestGames = 0;
+        int bestScore = 0;
+        for (int i = firstAtLeast(hash << 16); i < size && key(i) >>> 16 == hash; i++) {
+            int games = entries.getInt(HEADER_BYTES + i * ENTRY_BYTES + 8);
+            int score = entries.getInt(HEADER_BYTES + i * ENTRY_BYTES + 12);
+            if (games < bestGames || (games == bestGames && score <= bestScore)) {
+                continue;
+            }
+            int cell = (int) (key(i) & 0xFFFF);
+            int move = Symmetry.applyBack(set, cell / columns, cell % columns, rows, columns);
+            int row = move / columns;
+            int column = move % columns;
+            if (board.isEmpty(row, column) && !board.isForbidden(row, column, color)) {
+                best = move;
+                bestGames = games;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Key of an entry
+     * @param i
+     * @return key
+     */
+    private long key(int i) {
+        return entries.getLong(HEADER_BYTES + i * ENTRY_BYTES);
+    }
+
+    /**
+     * Binary search for the first entry whose key isn't below a key
+     * @param key
+     * @return index, size when there is none
+     */
+    private int firstAtLeast(long key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (key(middle) < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Builds a book from the games of an archive played with one winNumber and board size; unfinished games and
+     * games of other sizes are left out. The keys of every game are worked out and sorted in parallel, then
+     * counted up and written in one pass.
+     * @param archive
+     * @param path the book, replaced if it exists
+     * @param winNumber
+     * @param rows
+     * @param columns
+     * @param plies moves of each game to put in the book
+     * @param minGames games a move needs to be kept
+     * @param threads
+     * @return the number of entries
+     * @throws IOException when the book can't be written
+     */
+    public static int build(GameArchive archive, Path path, int winNumber, int rows, int columns, int plies,
+            int minGames, int threads) throws IOException {
+        if ((long) rows * columns > GameRecord.MAX_CELLS || plies < 1 || minGames < 1 || threads < 1) {
+            throw new IllegalArgumentException("Incorrect input: boards hold at most " + GameRecord.MAX_CELLS
+                    + " cells, and plies, games and threads must be positive");
+        }
+        long slots = archive.getGameCount() * plies;
+        if (slots > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Incorrect input: too many games for " + plies + " plies");
+        }
+
+        long[] keys = new long[(int) slots];
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.invoke(new Keys(archive, keys, 0, archive.getGameCount(), winNumber, rows, columns, plies));
+            pool.submit(() -> Arrays.parallelSort(keys)).join();
+        } finally {
+            pool.shutdown();
+        }
+        return write(keys, path, winNumber, rows, columns, plies, minGames);
+    }
+
+    /**
+     * Counts up the sorted keys and writes the book
+     * @param keys sorted keys, each ending in two bits for the result of the move: 0 lost, 1 drawn, 2 won
+     * @param path
+     * @param winNumber
+     * @param rows
+     * @param columns
+     * @param plies
+     * @param minGames
+     * @return the number of entries
+     * @throws IOException
+     */
+    private static int write(long[] keys, Path path, int winNumber, int rows, int columns, int plies, int minGames)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+        long entryCount = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = HEADER_BYTES;
+            int i = 0;
+            while (i < keys.length && keys[i] == EMPTY) {
+                i++;
+            }
+            while (i < keys.length) {
+                long key = keys[i] >>> 2;
+                int games = 0;
+                int score = 0;
+                for (; i < keys.length && keys[i] >>> 2 == key; i++) {
+                    games++;
+                    score += (int) (keys[i] & 3);
+                }
+                if (games < minGames) {
+                    continue;
+                }
+                if (buffer.remaining() < ENTRY_BYTES) {
+                    position += writeFully(channel, buffer.flip(), position);
+                    buffer.clear();
+                }
+                buffer.putLong(key).putInt(games).putInt(score);
+                entryCount++;
+            }
+            writeFully(channel, buffer.flip(), position);
+            if (HEADER_BYTES + entryCount * ENTRY_BYTES > Integer.MAX_VALUE) {
+                throw new IOException("The book is over 2 GB, raise the games a move needs");
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(winNumber).putInt(rows).putInt(columns).putInt(plies)
+                    .putLong(entryCount);
+            writeFully(channel, header.flip(), 0);
+        }
+        return (int) entryCount;
+    }
+
+    /**
+     * Writes all of a buffer at a position
+     * @param channel
+     * @param buffer
+     * @param position
+     * @return bytes written
+     * @throws IOException
+     */
+    private static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int bytes = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        return bytes;
+    }
+
+    /**
+     * Works out the keys of a range of games, halving it until it is small enough to do in one go. Game g fills
+     * slots g * plies to (g + 1) * plies of the keys, leaving EMPTY where it has no move.
+     */
+    private static class Keys extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final GameArchive archive;
+        private final long[] keys;
+        private final long from;
+        private final long to;
+        private final int winNumber;
+        private final int rows;
+        private final int columns;
+        private final int plies;
+
+        /**
+         * Constructor
+         * @param archive
+         * @param keys filled in
+         * @param from first game
+         * @param to game after the last
+         * @param winNumber
+         * @param rows
+         * @param columns
+         * @param plies
+         */
+        Keys(GameArchive archive, long[] keys, long from, long to, int winNumber, int rows, int columns,
+                int plies) {
+            this.archive = archive;
+            this.keys = keys;
+            this.from = from;
+            this.to = to;
+            this.winNumber = winNumber;
+            this.rows = rows;
+            this.columns = columns;
+            this.plies = plies;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CHUNK_GAMES) {
+                long middle = (from + to) >>> 1;
+                invokeAll(new Keys(archive, keys, from, middle, winNumber, rows, columns, plies),
+                        new Keys(archive, keys, middle, to, winNumber, rows, columns, plies));
+                return;
+            }
+
+            long[] hashes = new long[8];
+            int symmetries = Symmetry.count(rows, columns);
+            for (long game = from; game < to; game++) {
+                int slot = (int) (game * plies);
+                Arrays.fill(keys, slot, slot + plies, EMPTY);
+                int result = archive.getResult(game);
+                if (result == GameRecord.UNFINISHED || archive.getWinNumber(game) != winNumber
+                        || archive.getRows(game) != rows || archive.getColumns(game) != columns) {
+                    continue;
+                }
+
+                Arrays.fill(hashes, 0L);
+                int moves = Math.min(plies, archive.getMoveCount(game));
+                int color = BitBoard.BLACK;
+                for (int i = 0; i < moves; i++) {
+                    int cell = archive.getCell(game, i);
+                    int row = cell / columns;
+                    int column = cell % columns;
+                    int symmetry = Symmetry.canonical(hashes, symmetries, HASH_BITS, row, column, rows, columns);
+                    long hash = hashes[symmetry] >>> (64 - HASH_BITS);
+                    int outcome = result == GameRecord.DRAW ? 1 : result == color ? 2 : 0;
+                    keys[slot + i] = ((hash << 16 | Symmetry.apply(symmetry, row, column, rows, columns)) << 2)
+                            | outcome;
+
+                    Symmetry.addStone(hashes, color, row, column, rows, columns);
+                    color = color == BitBoard.BLACK ? BitBoard.WHITE : BitBoard.BLACK;
+                }
+            }
+        }
+    }
+}
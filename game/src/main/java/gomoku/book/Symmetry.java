@@ -0,0 +1,200 @@
+package gomoku.book;
+
+import gomoku.engine.BitBoard;
+import gomoku.engine.Zobrist;
+
+import java.util.Arrays;
+
+/**
+ * The symmetries of a board: a square board has 8 (the rotations and reflections of gridInt), any other board
+ * only the 4 that keep its rows and columns (identity, the two mirrors and the half turn).
+ *
+ * A position is keyed by the smallest of its Zobrist hashes under every symmetry, so positions that are the
+ * same up to a rotation or reflection share one key. A position that is symmetric itself, such as the empty
+ * board, has that key under several symmetries; its moves are then stored under the one taking the move to the
+ * smallest cell, so the same move turned different ways is stored once.
+ */
+public final class Symmetry {
+
+    /** Symmetries, the first 4 work on any board */
+    public static final int IDENTITY = 0;
+    public static final int MIRROR_COLUMNS = 1;
+    public static final int MIRROR_ROWS = 2;
+    public static final int HALF_TURN = 3;
+    public static final int TRANSPOSE = 4;
+    public static final int QUARTER_TURN = 5;
+    public static final int THREE_QUARTER_TURN = 6;
+    public static final int ANTI_TRANSPOSE = 7;
+
+    /**
+     * No instances
+     */
+    private Symmetry() {
+    }
+
+    /**
+     * Number of symmetries of a board
+     * @param rows
+     * @param columns
+     * @return 8 for a square board, otherwise 4
+     */
+    public static int count(int rows, int columns) {
+        return rows == columns ? 8 : 4;
+    }
+
+    /**
+     * Where a cell goes under a symmetry
+     * @param symmetry
+     * @param row
+     * @param column
+     * @param rows
+     * @param columns
+     * @return the cell, row * columns + column
+     */
+    public static int apply(int symmetry, int row, int column, int rows, int columns) {
+        int lastRow = rows - 1;
+        int lastColumn = columns - 1;
+        switch (symmetry) {
+            case IDENTITY:
+                return row * columns + column;
+            case MIRROR_COLUMNS:
+                return row * columns + lastColumn - column;
+            case MIRROR_ROWS:
+                return (lastRow - row) * columns + column;
+            case HALF_TURN:
+                return (lastRow - row) * columns + lastColumn - column;
+            case TRANSPOSE:
+                return column * columns + row;
+            case QUARTER_TURN:
+                return column * columns + lastRow - row;
+            case THREE_QUARTER_TURN:
+                return (lastColumn - column) * columns + row;
+            case ANTI_TRANSPOSE:
+                return (lastColumn - column) * columns + lastRow - row;
+            default:
+                throw new IllegalArgumentException("Incorrect symmetry: " + symmetry);
+        }
+    }
+
+    /**
+     * The symmetry undoing another
+     * @param symmetry
+     * @return inverse
+     */
+    public static int inverse(int symmetry) {
+        if (symmetry == QUARTER_TURN) {
+            return THREE_QUARTER_TURN;
+        }
+        if (symmetry == THREE_QUARTER_TURN) {
+            return QUARTER_TURN;
+        }
+        return symmetry;
+    }
+
+    /**
+     * Adds a stone to the hashes of a position under every symmetry
+     * @param hashes one hash per symmetry, updated
+     * @param color BLACK or WHITE
+     * @param row
+     * @param column
+     * @param rows
+     * @param columns
+     */
+    public static void addStone(long[] hashes, int color, int row, int column, int rows, int columns) {
+        int symmetries = count(rows, columns);
+        for (int s = 0; s < symmetries; s++) {
+            hashes[s] ^= Zobrist.key(color, apply(s, row, column, rows, columns));
+        }
+    }
+
+    /**
+     * Hashes of a board under every symmetry
+     * @param board
+     * @param hashes one hash per symmetry, overwritten
+     */
+    public static void hashes(BitBoard board, long[] hashes) {
+        int rows = board.getRows();
+        int columns = board.getColumns();
+        Arrays.fill(hashes, 0L);
+        int left = board.getStoneCount();
+        for (int r = 0; r < rows && left > 0; r++) {
+            for (int c = 0; c < columns; c++) {
+                int color = board.get(r, c);
+                if (color != BitBoard.GREEN) {
+                    addStone(hashes, color, r, c, rows, columns);
+                    left--;
+                }
+            }
+        }
+    }
+
+    /**
+     * The symmetries giving the smallest key, which the book stores the position under. They all turn the
+     * position into the same board, and there is more than one when the position is symmetric itself.
+     * @param hashes one hash per symmetry
+     * @param symmetries how many of them are used
+     * @param bits bits of the hash kept in the key
+     * @return a bit per symmetry, at least one set
+     */
+    public static int canonicalSet(long[] hashes, int symmetries, int bits) {
+        int set = 1;
+        long best = hashes[0] >>> (64 - bits);
+        for (int s = 1; s < symmetries; s++) {
+            long key = hashes[s] >>> (64 - bits);
+            if (key < best) {
+                best = key;
+                set = 1 << s;
+            } else if (key == best) {
+                set |= 1 << s;
+            }
+        }
+        return set;
+    }
+
+    /**
+     * Of the symmetries giving the smallest key, the one taking a move to the smallest cell, so a move is turned
+     * the same way whichever symmetric twin of it was played
+     * @param hashes one hash per symmetry
+     * @param symmetries how many of them are used
+     * @param bits bits of the hash kept in the key
+     * @param row of the move
+     * @param column
+     * @param rows
+     * @param columns
+     * @return symmetry
+     */
+    public static int canonical(long[] hashes, int symmetries, int bits, int row, int column, int rows,
+            int columns) {
+        int set = canonicalSet(hashes, symmetries, bits);
+        int best = Integer.numberOfTrailingZeros(set);
+        int bestCell = apply(best, row, column, rows, columns);
+        for (set &= set - 1; set != 0; set &= set - 1) {
+            int s = Integer.numberOfTrailingZeros(set);
+            int cell = apply(s, row, column, rows, columns);
+            if (cell < bestCell) {
+                best = s;
+                bestCell = cell;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Turns a cell of the stored board back onto the position, the reverse of canonical: of the symmetries giving
+     * the smallest key, the one putting the cell on the smallest cell of the position
+     * @param set from canonicalSet
+     * @param row of the stored cell
+     * @param column
+     * @param rows
+     * @param columns
+     * @return the cell, row * columns + column
+     */
+    public static int applyBack(int set, int row, int column, int rows, int columns) {
+        int best = Integer.MAX_VALUE;
+        for (; set != 0; set &= set - 1) {
+            int s = Integer.numberOfTrailingZeros(set);
+            best = Math.min(best, apply(inverse(s), row, column, rows, columns));
+        }
+        return best;
+    }
+}
@@ -0,0 +1,660 @@
+package gomoku.engine;
+
+/**
+ * Headless board and rules engine for Gomoku. No JavaFX needed, so moves can be validated on servers.
+ *
+ * Stones are kept as packed long bitboards, one per color. Every line of the four axes (vertical, the two
+ * diagonals and horizontal) is laid out contiguously, so the run of stones through a cell is found with a couple
+ * of shifts, masks and bit counts instead of walking the grid one cell at a time.
+ *
+ * Colors and directions use the same numbers as gridInt and the pointer map in Gomoku.
+ */
+public class BitBoard {
+
+    /** Colors Map (same ints as gridInt) */
+    public static final int GREEN = 0;
+    public static final int BLACK = 1;
+    public static final int WHITE = 2;
+
+    /** Directions Map (same as the pointer map in Gomoku) */
+    public static final int NORTH = 0;
+    public static final int NORTHEAST = 1;
+    public static final int EAST = 2;
+    public static final int SOUTHEAST = 3;
+    public static final int SOUTH = 4;
+    public static final int SOUTHWEST = 5;
+    public static final int WEST = 6;
+    public static final int NORTHWEST = 7;
+
+    /** Results of play, in the order ProcessClick checks them */
+    public static final int PLACED = 0;
+    public static final int WIN = 1;
+    public static final int FOUR_FOUR = 2;
+    public static final int THREE_THREE = 3;
+    public static final int OCCUPIED = 4;
+    /** Only RenjuRules returns it: black made more than winNumber in a row */
+    public static final int OVERLINE = 5;
+
+    /** the number of pieces in a row needed to win game */
+    private final int winNumber;
+    /** Rows in the board */
+    private final int rows;
+    /** Columns in the board */
+    private final int columns;
+
+    /** Number of longs holding one line */
+    private final int wordsPerLine;
+    /** Index of the first line of each axis (axis = direction 0 to 3) */
+    private final int[] axisLine = new int[4];
+    /** Lowest and highest position of every line that is still on the board */
+    private final int[] low;
+    private final int[] high;
+
+    /** Packed lines for each color, the GREEN slot is unused */
+    private final long[][] stones = new long[3][];
+
+    /** Number of stones on the board */
+    private int stoneCount;
+    /** Zobrist hash of the stones on the board */
+    private long hash;
+
+    /**
+     * Constructor for an empty board
+     * @param winNumber the number of pieces in a row needed to win game
+     * @param rows
+     * @param columns
+     */
+    public BitBoard(int winNumber, int rows, int columns) {
+        if (rows < 0 || columns < 0) {
+            throw new IllegalArgumentException("Incorrect input: rows and columns can't be negative");
+        }
+        this.winNumber = winNumber;
+        this.rows = rows;
+        this.columns = columns;
+        this.wordsPerLine = Math.max(1, (Math.max(rows, columns) + 63) >>> 6);
+
+        int diagonals = Math.max(0, rows + columns - 1);
+        axisLine[NORTH] = 0;
+        axisLine[NORTHEAST] = axisLine[NORTH] + columns;
+        axisLine[EAST] = axisLine[NORTHEAST] + diagonals;
+        axisLine[SOUTHEAST] = axisLine[EAST] + rows;
+        int lines = axisLine[SOUTHEAST] + diagonals;
+
+        low = new int[lines];
+        high = new int[lines];
+        for (int c = 0; c < columns; c++) {
+            high[axisLine[NORTH] + c] = rows - 1;
+        }
+        for (int s = 0; s < diagonals; s++) {
+            // row + column is constant on a north east line
+            low[axisLine[NORTHEAST] + s] = Math.max(0, s - rows + 1);
+            high[axisLine[NORTHEAST] + s] = Math.min(columns - 1, s);
+            // row - column is constant on a south east line
+            int k = s - (columns - 1);
+            low[axisLine[SOUTHEAST] + s] = Math.max(0, -k);
+            high[axisLine[SOUTHEAST] + s] = Math.min(columns - 1, rows - 1 - k);
+        }
+        for (int r = 0; r < rows; r++) {
+            high[axisLine[EAST] + r] = columns - 1;
+        }
+
+        stones[BLACK] = new long[lines * wordsPerLine];
+        stones[WHITE] = new long[lines * wordsPerLine];
+    }
+
+    /**
+     * Copy constructor
+     * @param other the board to copy
+     */
+    public BitBoard(BitBoard other) {
+        this.winNumber = other.winNumber;
+        this.rows = other.rows;
+        this.columns = other.columns;
+        this.wordsPerLine = other.wordsPerLine;
+        System.arraycopy(other.axisLine, 0, this.axisLine, 0, 4);
+        this.low = other.low;
+        this.high = other.high;
+        this.stones[BLACK] = other.stones[BLACK].clone();
+        this.stones[WHITE] = other.stones[WHITE].clone();
+        this.stoneCount = other.stoneCount;
+        this.hash = other.hash;
+    }
+
+    /**
+     * Builds a board from a grid of ints like gridInt
+     * @param grid The 2D array of ints representing the board
+     * @param winNumber the number of pieces in a row needed to win game
+     * @return the board
+     */
+    public static BitBoard fromGrid(int[][] grid, int winNumber) {
+        int rows = grid.length;
+        int columns = rows == 0 ? 0 : grid[0].length;
+        BitBoard board = new BitBoard(winNumber, rows, columns);
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                if (grid[r][c] != GREEN) {
+                    board.place(r, c, grid[r][c]);
+                }
+            }
+        }
+        return board;
+    }
+
+    /**
+     * Getter for number of tiles needed in a row
+     * @return winNumber
+     */
+    public int getWinNumber() {
+        return winNumber;
+    }
+
+    /**
+     * Getter for rows
+     * @return rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Getter for columns
+     * @return columns
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Getter for the number of stones on the board
+     * @return stoneCount
+     */
+    public int getStoneCount() {
+        return stoneCount;
+    }
+
+    /**
+     * Getter for the Zobrist hash of the stones on the board, kept up to date by place and undo
+     * @return hash
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Whether row and column are on the board
+     * @param row
+     * @param column
+     * @return boolean
+     */
+    public boolean isOnBoard(int row, int column) {
+        return row >= 0 && row < rows && column >= 0 && column < columns;
+    }
+
+    /**
+     * Gets the integer representation of color at a row and column
+     * @param row
+     * @param column
+     * @return GREEN, BLACK or WHITE
+     */
+    public int get(int row, int column) {
+        int word = (axisLine[EAST] + row) * wordsPerLine + (column >>> 6);
+        long bit = 1L << column;
+        if ((stones[BLACK][word] & bit) != 0) {
+            return BLACK;
+        }
+        if ((stones[WHITE][word] & bit) != 0) {
+            return WHITE;
+        }
+        return GREEN;
+    }
+
+    /**
+     * Whether the cell holds no stone
+     * @param row
+     * @param column
+     * @return boolean
+     */
+    public boolean isEmpty(int row, int column) {
+        return get(row, column) == GREEN;
+    }
+
+    /**
+     * Getter for 64 columns of a row of the stones, both colors together
+     * @param row
+     * @param word columns from word * 64, below (columns + 63) / 64
+     * @return a bit for each column holding a stone, lowest column lowest
+     */
+    public long getStoneWord(int row, int word) {
+        int index = (axisLine[EAST] + row) * wordsPerLine + word;
+        return stones[BLACK][index] | stones[WHITE][index];
+    }
+
+    /**
+     * Places a color at row and column without any rule check (same as createTestBoard)
+     * @param row
+     * @param column
+     * @param color BLACK or WHITE
+     */
+    public void place(int row, int column, int color) {
+        if (!isOnBoard(row, column)) {
+            throw new IndexOutOfBoundsException("Not on the board: " + row + ", " + column);
+        }
+        if (color != BLACK && color != WHITE) {
+            throw new IllegalArgumentException("Incorrect color: " + color);
+        }
+        if (!isEmpty(row, column)) {
+            throw new IllegalStateException("Already placed: " + row + ", " + column);
+        }
+        long[] bits = stones[color];
+        for (int axis = 0; axis < 4; axis++) {
+            int pos = position(axis, column, row);
+            bits[(axisLine[axis] + line(axis, row, column)) * wordsPerLine + (pos >>> 6)] |= 1L << pos;
+        }
+        stoneCount++;
+        hash ^= Zobrist.key(color, row * columns + column);
+    }
+
+    /**
+     * Takes the stone at row and column back off the board (same as resetTestBoard)
+     * @param row
+     * @param column
+     */
+    public void undo(int row, int column) {
+        int color = get(row, column);
+        if (color == GREEN) {
+            throw new IllegalStateException("Nothing placed: " + row + ", " + column);
+        }
+        long[] bits = stones[color];
+        for (int axis = 0; axis < 4; axis++) {
+            int pos = position(axis, column, row);
+            bits[(axisLine[axis] + line(axis, row, column)) * wordsPerLine + (pos >>> 6)] &= ~(1L << pos);
+        }
+        stoneCount--;
+        hash ^= Zobrist.key(color, row * columns + column);
+    }
+
+    /**
+     * Removes every stone
+     */
+    public void clear() {
+        java.util.Arrays.fill(stones[BLACK], 0L);
+        java.util.Arrays.fill(stones[WHITE], 0L);
+        stoneCount = 0;
+        hash = 0;
+    }
+
+    /**
+     * Plays a move the same way ProcessClick does: the move is rejected when it makes a four-four or a
+     * three-three, otherwise the stone stays on the board and the result says whether it won.
+     * @param row
+     * @param column
+     * @param color BLACK or WHITE
+     * @return PLACED, WIN, FOUR_FOUR, THREE_THREE or OCCUPIED
+     */
+    public int play(int row, int column, int color) {
+        if (!isEmpty(row, column)) {
+            return OCCUPIED;
+        }
+        place(row, column, color);
+        int result = classify(row, column);
+        if (result == FOUR_FOUR || result == THREE_THREE) {
+            undo(row, column);
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether placing color at an empty row and column breaks the four-four or three-three rule.
+     * The board is left unchanged.
+     * @param row
+     * @param column
+     * @param color BLACK or WHITE
+     * @return boolean
+     */
+    public boolean isForbidden(int row, int column, int color) {
+        place(row, column, color);
+        int result = classify(row, column);
+        undo(row, column);
+        return result == FOUR_FOUR || result == THREE_THREE;
+    }
+
+    /**
+     * Runs every rule check for the stone at row and column, counting each axis only once.
+     * @param row
+     * @param column
+     * @return FOUR_FOUR, THREE_THREE, WIN or PLACED, in that order of priority
+     */
+    public int classify(int row, int column) {
+        int color = get(row, column);
+        if (color == GREEN) {
+            return PLACED;
+        }
+        int fours = 0;
+        int threes = 0;
+        boolean win = false;
+        long[] bits = stones[color];
+
+        for (int axis = 0; axis < 4; axis++) {
+            int line = axisLine[axis] + line(axis, row, column);
+            int base = line * wordsPerLine;
+            int pos = position(axis, column, row);
+            int after = runAfter(bits, base, pos);
+            int before = runBefore(bits, base, pos);
+            int count = 1 + after + before;
+
+            if (count == winNumber) {
+                win = true;
+            } else if (count == winNumber - 1) {
+                fours++;
+            } else if (count == winNumber - 2
+                    && isFree(line, pos + after + 1) && isFree(line, pos - before - 1)) {
+                threes++;
+            }
+        }
+
+        if (fours >= 2) {
+            return FOUR_FOUR;
+        }
+        if (threes >= 2) {
+            return THREE_THREE;
+        }
+        return win ? WIN : PLACED;
+    }
+
+    /**
+     * Checks to see if the stone at row and column has exactly winNumber pieces in a row.
+     * @param row
+     * @param column
+     * @return boolean
+     */
+    public boolean checkWin(int row, int column) {
+        if (get(row, column) == GREEN) {
+            return false;
+        }
+        for (int direction = 0; direction < 4; direction++) {
+            if (count(row, column, direction) == winNumber) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks to see if the stone at row and column makes a four-four, regardless of open spaces
+     * @param row
+     * @param column
+     * @return boolean
+     */
+    public boolean fourFour(int row, int column) {
+        if (get(row, column) == GREEN) {
+            return false;
+        }
+        int counter = 0;
+        for (int direction = 0; direction < 4; direction++) {
+            if (count(row, column, direction) == winNumber - 1) {
+                counter++;
+            }
+        }
+        return counter >= 2;
+    }
+
+    /**
+     * Checks to see if the stone at row and column makes two or more open groups of three
+     * @param row
+     * @param column
+     * @return boolean
+     */
+    public boolean threeThree(int row, int column) {
+        if (get(row, column) == GREEN) {
+            return false;
+        }
+        int counter = 0;
+        for (int direction = 0; direction < 4; direction++) {
+            if (count(row, column, direction) == winNumber - 2
+                    && isOpen(row, column, direction) && isOpen(row, column, direction + 4)) {
+                counter++;
+            }
+        }
+        return counter >= 2;
+    }
+
+    /**
+     * Counts the stones in a row through row and column along an axis, like count4DirectionsIntBoard.
+     * @param row
+     * @param column
+     * @param direction any of the eight directions, the opposite direction is counted too
+     * @return the number of same colors in row, or 0 if the cell is empty
+     */
+    public int count(int row, int column, int direction) {
+        int color = get(row, column);
+        if (color == GREEN) {
+            return 0;
+        }
+        return run(color, row, column, direction);
+    }
+
+    /**
+     * Counts the stones of color in a row through row and column as if color was placed there
+     * @param color BLACK or WHITE
+     * @param row
+     * @param column
+     * @param direction any of the eight directions, the opposite direction is counted too
+     * @return the number of same colors in row counting row and column
+     */
+    public int run(int color, int row, int column, int direction) {
+        int axis = direction & 3;
+        int base = (axisLine[axis] + line(axis, row, column)) * wordsPerLine;
+        int pos = position(axis, column, row);
+        long[] bits = stones[color];
+        return 1 + runAfter(bits, base, pos) + runBefore(bits, base, pos);
+    }
+
+    /**
+     * Measures the line through row and column along an axis as if color was placed there
+     * @param color BLACK or WHITE
+     * @param row
+     * @param column
+     * @param direction any of the eight directions, the opposite direction is measured too
+     * @return the run length shifted left by 2, plus the number of open ends (0 to 2) in the low 2 bits
+     */
+    public int lineShape(int color, int row, int column, int direction) {
+        int axis = direction & 3;
+        int line = axisLine[axis] + line(axis, row, column);
+        int base = line * wordsPerLine;
+        int pos = position(axis, column, row);
+        long[] bits = stones[color];
+        int after = runAfter(bits, base, pos);
+        int before = runBefore(bits, base, pos);
+        int open = (isFree(line, pos + after + 1) ? 1 : 0) + (isFree(line, pos - before - 1) ? 1 : 0);
+        return ((1 + after + before) << 2) | open;
+    }
+
+    /**
+     * Reads the cells within radius of row and column along an axis as bit masks, for table lookups such as
+     * LinePatterns. Bit i of each mask is the cell i - radius positions up the line, so bit radius is row and
+     * column itself.
+     * @param color BLACK or WHITE
+     * @param row
+     * @param column
+     * @param direction any of the eight directions, the opposite direction is read too
+     * @param radius 0 to 15
+     * @return the cells of color in the low 32 bits, the cells color can't use (the other color or off the board)
+     *         in the high 32 bits
+     */
+    public long window(int color, int row, int column, int direction, int radius) {
+        int axis = direction & 3;
+        int line = axisLine[axis] + line(axis, row, column);
+        int base = line * wordsPerLine;
+        int from = position(axis, column, row) - radius;
+        int width = 2 * radius + 1;
+        long mask = (1L << width) - 1;
+        long own = bitsFrom(stones[color], base, from) & mask;
+        long other = bitsFrom(stones[BLACK + WHITE - color], base, from) & mask;
+        // the center is on the board, so both ends are at most radius away from it
+        long outside = 0;
+        if (low[line] > from) {
+            outside |= (1L << (low[line] - from)) - 1;
+        }
+        if (high[line] < from + width - 1) {
+            outside |= mask & -(1L << (high[line] - from + 1));
+        }
+        return own | (other | outside) << 32;
+    }
+
+    /**
+     * The bits of a line from a position up, across word boundaries
+     * @param bits stones of one color
+     * @param base first word of the line
+     * @param from position of bit 0, below 0 for positions before the line starts (those read as empty)
+     * @return at least the 64 - max(0, -from) bits from there
+     */
+    private long bitsFrom(long[] bits, int base, int from) {
+        if (from < 0) {
+            return bits[base] << -from;
+        }
+        int word = from >>> 6;
+        int shift = from & 63;
+        long value = bits[base + word] >>> shift;
+        if (shift != 0 && word + 1 < wordsPerLine) {
+            value |= bits[base + word + 1] << (64 - shift);
+        }
+        return value;
+    }
+
+    /**
+     * Determines if there is an open space following the input direction at row and column, like Gomoku.isOpen
+     * @param row
+     * @param column
+     * @param direction any of the eight directions
+     * @return whether the first cell after the run of same colors is empty and on the board
+     */
+    public boolean isOpen(int row, int column, int direction) {
+        int color = get(row, column);
+        if (color == GREEN) {
+            return false;
+        }
+        int axis = direction & 3;
+        int line = axisLine[axis] + line(axis, row, column);
+        int base = line * wordsPerLine;
+        int pos = position(axis, column, row);
+        if (isForward(direction)) {
+            return isFree(line, pos + runAfter(stones[color], base, pos) + 1);
+        }
+        return isFree(line, pos - runBefore(stones[color], base, pos) - 1);
+    }
+
+    /**
+     * Whether moving along direction goes up the positions of its line
+     * @param direction
+     * @return boolean
+     */
+    private static boolean isForward(int direction) {
+        return direction >= NORTHEAST && direction <= SOUTH;
+    }
+
+    /**
+     * The line through row and column on an axis
+     * @param axis
+     * @param row
+     * @param column
+     * @return line number within the axis
+     */
+    private int line(int axis, int row, int column) {
+        switch (axis) {
+            case NORTH:
+                return column;
+            case NORTHEAST:
+                return row + column;
+            case EAST:
+                return row;
+            default:
+                return row - column + columns - 1;
+        }
+    }
+
+    /**
+     * The position of row and column on its line: the row for vertical lines, the column otherwise
+     * @param axis
+     * @param column
+     * @param row
+     * @return position
+     */
+    private static int position(int axis, int column, int row) {
+        return axis == NORTH ? row : column;
+    }
+
+    /**
+     * Whether a position on a line is on the board and holds no stone
+     * @param line global line number
+     * @param pos
+     * @return boolean
+     */
+    private boolean isFree(int line, int pos) {
+        if (pos < low[line] || pos > high[line]) {
+            return false;
+        }
+        int word = line * wordsPerLine + (pos >>> 6);
+        long bit = 1L << pos;
+        return ((stones[BLACK][word] | stones[WHITE][word]) & bit) == 0;
+    }
+
+    /**
+     * Counts the set bits directly above pos (pos itself is not counted)
+     * @param bits
+     * @param base first word of the line
+     * @param pos
+     * @return the length of the run
+     */
+    private int runAfter(long[] bits, int base, int pos) {
+        if (wordsPerLine == 1) {
+            // boards up to 64 wide: the whole line is one word
+            return pos == 63 ? 0 : Long.numberOfTrailingZeros(~(bits[base] >>> (pos + 1)));
+        }
+        int q = pos + 1;
+        int end = base + wordsPerLine;
+        int word = base + (q >>> 6);
+        int shift = q & 63;
+        int counter = 0;
+        while (word < end) {
+            // ones above the shift become trailing zeros of the complement
+            int ones = Long.numberOfTrailingZeros(~(bits[word] >>> shift));
+            counter += ones;
+            if (ones < 64 - shift) {
+                return counter;
+            }
+            word++;
+            shift = 0;
+        }
+        return counter;
+    }
+
+    /**
+     * Counts the set bits directly below pos (pos itself is not counted)
+     * @param bits
+     * @param base first word of the line
+     * @param pos
+     * @return the length of the run
+     */
+    private int runBefore(long[] bits, int base, int pos) {
+        if (wordsPerLine == 1) {
+            return pos == 0 ? 0 : Long.numberOfLeadingZeros(~(bits[base] << (64 - pos)));
+        }
+        int q = pos - 1;
+        if (q < 0) {
+            return 0;
+        }
+        int word = base + (q >>> 6);
+        int shift = q & 63;
+        int counter = 0;
+        while (true) {
+            // ones below the shift become leading zeros of the complement
+            int ones = Long.numberOfLeadingZeros(~(bits[word] << (63 - shift)));
+            counter += ones;
+            if (ones < shift + 1 || word == base) {
+                return counter;
+            }
+            word--;
+            shift = 63;
+        }
+    }
+}
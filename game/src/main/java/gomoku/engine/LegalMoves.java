@@ -0,0 +1,205 @@
+package gomoku.engine;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Legal moves of the side to move as a bitmask: every empty cell that doesn't break the four-four or three-three
+ * rule, the cells PatternTable.check calls PLACED or WIN.
+ *
+ * The mask is row-major with each row starting on a new long, wordsPerRow(columns) longs to a row, bit
+ * column % 64 of long row * wordsPerRow + column / 64. That is the layout of the board's row lines and of the
+ * table's forbidden cells, both kept up to date move by move, so a long of the mask is one OR, one AND-NOT and a
+ * mask of the columns on the board: 64 cells at a time, with no cell looked at on its own. Large boards can be
+ * split into bands of rows generated in parallel; the bands never share a long.
+ */
+public final class LegalMoves {
+
+    /** Boards of more longs than this are split into bands by generateParallel: 300x300 (1500 longs) and up */
+    public static final int PARALLEL_WORDS = 1 << 10;
+    /** Longs per band of a parallel generation, at least one row */
+    private static final int BAND_WORDS = 1 << 8;
+
+    private LegalMoves() {
+    }
+
+    /**
+     * Longs per row of a mask
+     * @param columns
+     * @return at least 1
+     */
+    public static int wordsPerRow(int columns) {
+        return Math.max(1, (columns + 63) >>> 6);
+    }
+
+    /**
+     * Makes an empty mask for a board
+     * @param rows
+     * @param columns
+     * @return rows * wordsPerRow(columns) longs
+     */
+    public static long[] newMask(int rows, int columns) {
+        return new long[rows * wordsPerRow(columns)];
+    }
+
+    /**
+     * The legal moves of a position
+     * @param position the board with its pattern table
+     * @param color BLACK or WHITE, the side to move
+     * @return a new mask
+     */
+    public static long[] generate(PatternTable position, int color) {
+        BitBoard board = position.getBoard();
+        long[] legal = newMask(board.getRows(), board.getColumns());
+        generate(position, color, legal, 0, board.getRows());
+        return legal;
+    }
+
+    /**
+     * Fills a mask with the legal moves of a position
+     * @param position the board with its pattern table
+     * @param color BLACK or WHITE, the side to move
+     * @param legal at least newMask's length, overwritten
+     */
+    public static void generate(PatternTable position, int color, long[] legal) {
+        generate(position, color, legal, 0, position.getBoard().getRows());
+    }
+
+    /**
+     * Fills some rows of a mask with the legal moves of a position, leaving the other rows as they are
+     * @param position the board with its pattern table
+     * @param color BLACK or WHITE, the side to move
+     * @param legal at least newMask's length
+     * @param fromRow first row
+     * @param toRow row after the last
+     */
+    public static void generate(PatternTable position, int color, long[] legal, int fromRow, int toRow) {
+        BitBoard board = position.getBoard();
+        int columns = board.getColumns();
+        int words = wordsPerRow(columns);
+        // columns of the last long that are on the board
+        long lastMask = (columns & 63) == 0 ? (columns == 0 ? 0 : -1L) : (1L << columns) - 1;
+        for (int r = fromRow; r < toRow; r++) {
+            int base = r * words;
+            for (int w = 0; w < words; w++) {
+                long onBoard = w == words - 1 ? lastMask : -1L;
+                legal[base + w] = ~(board.getStoneWord(r, w) | position.getForbiddenWord(color, r, w)) & onBoard;
+            }
+        }
+    }
+
+    /**
+     * Fills a mask with the legal moves of a position, splitting boards of more than PARALLEL_WORDS longs into
+     * bands of rows generated on a pool. Nothing may change the position meanwhile.
+     * @param position the board with its pattern table
+     * @param color BLACK or WHITE, the side to move
+     * @param legal at least newMask's length, overwritten
+     * @param pool runs the bands
+     */
+    public static void generateParallel(PatternTable position, int color, long[] legal, ForkJoinPool pool) {
+        BitBoard board = position.getBoard();
+        if ((long) board.getRows() * wordsPerRow(board.getColumns()) <= PARALLEL_WORDS) {
+            generate(position, color, legal, 0, board.getRows());
+            return;
+        }
+        generateInBands(position, color, legal, pool, BAND_WORDS);
+    }
+
+    /**
+     * Fills a mask with the legal moves of a position in bands of rows on a pool, whatever the size of the board
+     * @param position the board with its pattern table
+     * @param color BLACK or WHITE, the side to move
+     * @param legal at least newMask's length, overwritten
+     * @param pool runs the bands
+     * @param bandWords longs per band, at least one row
+     */
+    static void generateInBands(PatternTable position, int color, long[] legal, ForkJoinPool pool, int bandWords) {
+        pool.invoke(new Band(position, color, legal, 0, position.getBoard().getRows(), bandWords));
+    }
+
+    /**
+     * Whether a cell of a mask is set
+     * @param legal
+     * @param columns of the board
+     * @param row
+     * @param column
+     * @return boolean
+     */
+    public static boolean isLegal(long[] legal, int columns, int row, int column) {
+        return (legal[row * wordsPerRow(columns) + (column >>> 6)] & 1L << column) != 0;
+    }
+
+    /**
+     * Counts the cells of a mask
+     * @param legal
+     * @return the number of bits set
+     */
+    public static int count(long[] legal) {
+        int count = 0;
+        for (long word : legal) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * The first cell of a mask in row-major order
+     * @param legal
+     * @param columns of the board
+     * @return the cell as row * columns + column, or -1 when the mask is empty
+     */
+    public static int first(long[] legal, int columns) {
+        int words = wordsPerRow(columns);
+        for (int i = 0; i < legal.length; i++) {
+            if (legal[i] != 0) {
+                return i / words * columns + (i % words << 6) + Long.numberOfTrailingZeros(legal[i]);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Generates a band of rows, halving it until it is small enough to do in one go
+     */
+    private static class Band extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final PatternTable position;
+        private final int color;
+        private final long[] legal;
+        private final int fromRow;
+        private final int toRow;
+        private final int bandWords;
+
+        /**
+         * Constructor
+         * @param position
+         * @param color
+         * @param legal
+         * @param fromRow first row
+         * @param toRow row after the last
+         * @param bandWords longs per band
+         */
+        Band(PatternTable position, int color, long[] legal, int fromRow, int toRow, int bandWords) {
+            this.position = position;
+            this.color = color;
+            this.legal = legal;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.bandWords = bandWords;
+        }
+
+        @Override
+        protected void compute() {
+            int words = wordsPerRow(position.getBoard().getColumns());
+            if (toRow - fromRow > 1 && (long) (toRow - fromRow) * words > bandWords) {
+                int middle = (fromRow + toRow) >>> 1;
+                invokeAll(new Band(position, color, legal, fromRow, middle, bandWords),
+                        new Band(position, color, legal, middle, toRow, bandWords));
+                return;
+            }
+            generate(position, color, legal, fromRow, toRow);
+        }
+    }
+}
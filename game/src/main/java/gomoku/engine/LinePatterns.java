@@ -0,0 +1,251 @@
+package gomoku.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+
+/**
+ * Precomputed shapes of every line a cell can sit in, for one winNumber.
+ *
+ * The cells within winNumber of an empty cell along an axis, the cell itself left out, are read as a base 3
+ * number (0 empty, 1 own stone, 2 the other color or off the board) and that number indexes a table holding the
+ * PatternTable shape placing a stone there would make. Together with BitBoard.window a shape is two table loads
+ * to turn the window's bit masks into the index and one to read the shape, whatever stones the line holds.
+ * Reaching winNumber each way is what tells a five from an overline.
+ *
+ * The shapes are the ones the standard four-four and three-three rules are defined on: the unbroken run through
+ * the cell and how many of its ends are empty, the same as measuring the line with BitBoard.lineShape. Broken
+ * shapes such as X_XXX, XX_XX or the split three X_XX are not fours or threes here, and cells past the ends of
+ * the run don't change the shape; RenjuRules is where those count. So the table is a faster way to measure the
+ * run, not a classifier of everything the window holds.
+ *
+ * A table has 3^(2 * winNumber) entries, so tables are only made up to MAX_WIN_NUMBER. Tables are worked out
+ * in memory unless the gomoku.patterns.dir system property names a cache directory: then the first table made
+ * for a winNumber is written there and later runs read it back instead of working it out again.
+ *
+ * File: a header of HEADER_BYTES (magic, version, winNumber, entries, CRC32 of the entries), then one byte per
+ * entry.
+ */
+public class LinePatterns {
+
+    /** File header: "GMKP" and the format version */
+    public static final int MAGIC = 0x474D4B50;
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 24;
+
+    /** Largest winNumber with a table, 3^14 entries (4.8 MB) */
+    public static final int MAX_WIN_NUMBER = 7;
+
+    /** Tables made so far, indexed by winNumber */
+    private static final LinePatterns[] TABLES = new LinePatterns[MAX_WIN_NUMBER + 1];
+
+    private final int winNumber;
+    /** Shape per window index */
+    private final byte[] shapes;
+    /** Base 3 value of every window bit mask with 1 for digits, the center bit left out */
+    private final int[] ternary;
+    /** Whether the shapes were read from the cache directory */
+    private final boolean loaded;
+
+    /**
+     * Gets the table for a winNumber, reading it from the cache directory or working it out the first time
+     * @param winNumber
+     * @return the table, or null when winNumber is below 1 or over MAX_WIN_NUMBER
+     */
+    public static synchronized LinePatterns forWinNumber(int winNumber) {
+        if (winNumber < 1 || winNumber > MAX_WIN_NUMBER) {
+            return null;
+        }
+        if (TABLES[winNumber] == null) {
+            TABLES[winNumber] = new LinePatterns(winNumber, cacheDirectory());
+        }
+        return TABLES[winNumber];
+    }
+
+    /**
+     * Constructor reading the table from a directory, or working it out and writing it there
+     * @param winNumber 1 to MAX_WIN_NUMBER
+     * @param directory where the table is cached, null for no cache
+     */
+    LinePatterns(int winNumber, Path directory) {
+        this.winNumber = winNumber;
+        int width = 2 * winNumber + 1;
+        this.ternary = new int[1 << width];
+        for (int mask = 1; mask < ternary.length; mask++) {
+            int bit = Integer.numberOfTrailingZeros(mask);
+            int digit = bit < winNumber ? bit : bit - 1;
+            ternary[mask] = ternary[mask & (mask - 1)] + (bit == winNumber ? 0 : pow3(digit));
+        }
+
+        Path file = directory == null ? null : directory.resolve("line-patterns-" + winNumber + ".bin");
+        byte[] read = file == null ? null : read(file, winNumber, pow3(2 * winNumber));
+        loaded = read != null;
+        if (read == null) {
+            read = generate(winNumber);
+            if (file != null) {
+                write(file, winNumber, read);
+            }
+        }
+        this.shapes = read;
+    }
+
+    /**
+     * Getter for winNumber
+     * @return winNumber
+     */
+    public int getWinNumber() {
+        return winNumber;
+    }
+
+    /**
+     * Whether the table was read from the cache directory rather than worked out
+     * @return boolean
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * The shape placing color at an empty row and column would make along an axis
+     * @param board
+     * @param color BLACK or WHITE
+     * @param row
+     * @param column
+     * @param direction any of the eight directions, the opposite direction gives the same shape
+     * @return the same shape as PatternTable.getShape
+     */
+    public int shape(BitBoard board, int color, int row, int column, int direction) {
+        long window = board.window(color, row, column, direction, winNumber);
+        return shapes[ternary[(int) window] + 2 * ternary[(int) (window >>> 32)]];
+    }
+
+    /**
+     * Works out the shape of every window
+     * @param winNumber
+     * @return shapes by window index
+     */
+    private static byte[] generate(int winNumber) {
+        int digits = 2 * winNumber;
+        byte[] shapes = new byte[pow3(digits)];
+        // cells of the window, the center holding the stone being placed
+        int[] cells = new int[digits + 1];
+        cells[winNumber] = 1;
+        for (int index = 0; index < shapes.length; index++) {
+            int rest = index;
+            for (int d = 0; d < digits; d++) {
+                cells[d < winNumber ? d : d + 1] = rest % 3;
+                rest /= 3;
+            }
+            int after = 0;
+            while (winNumber + after + 1 <= digits && cells[winNumber + after + 1] == 1) {
+                after++;
+            }
+            int before = 0;
+            while (winNumber - before - 1 >= 0 && cells[winNumber - before - 1] == 1) {
+                before++;
+            }
+            // a run reaching the edge of the window is an overline whatever lies past it
+            int open = (winNumber + after + 1 <= digits && cells[winNumber + after + 1] == 0 ? 1 : 0)
+                    + (winNumber - before - 1 >= 0 && cells[winNumber - before - 1] == 0 ? 1 : 0);
+            shapes[index] = (byte) PatternTable.shapeOf((1 + after + before) << 2 | open, winNumber);
+        }
+        return shapes;
+    }
+
+    /**
+     * Reads a cached table
+     * @param file
+     * @param winNumber
+     * @param entries
+     * @return the shapes, or null when the file is missing, unreadable or not a table for winNumber
+     */
+    private static byte[] read(Path file, int winNumber, int entries) {
+        byte[] bytes;
+        try {
+            if (!Files.isRegularFile(file) || Files.size(file) != HEADER_BYTES + entries) {
+                return null;
+            }
+            bytes = Files.readAllBytes(file);
+        } catch (IOException e) {
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.wrap(bytes, 0, HEADER_BYTES);
+        if (bytes.length != HEADER_BYTES + entries || header.getInt() != MAGIC || header.getInt() != VERSION
+                || header.getInt() != winNumber || header.getInt() != entries) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes, HEADER_BYTES, entries);
+        if (header.getLong() != crc.getValue()) {
+            return null;
+        }
+        byte[] shapes = new byte[entries];
+        System.arraycopy(bytes, HEADER_BYTES, shapes, 0, entries);
+        return shapes;
+    }
+
+    /**
+     * Writes a table to the cache through a temporary file, so another run never reads half a table. A cache
+     * that can't be written is only a slower start, so failures are ignored.
+     * @param file
+     * @param winNumber
+     * @param shapes
+     */
+    private static void write(Path file, int winNumber, byte[] shapes) {
+        CRC32 crc = new CRC32();
+        crc.update(shapes);
+        ByteBuffer bytes = ByteBuffer.allocate(HEADER_BYTES + shapes.length);
+        bytes.putInt(MAGIC).putInt(VERSION).putInt(winNumber).putInt(shapes.length).putLong(crc.getValue())
+                .put(shapes);
+        Path temporary = null;
+        try {
+            Files.createDirectories(file.getParent());
+            temporary = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            Files.write(temporary, bytes.array());
+            try {
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | SecurityException e) {
+            if (temporary != null) {
+                try {
+                    Files.deleteIfExists(temporary);
+                } catch (IOException ignored) {
+                    // nothing left to do
+                }
+            }
+        }
+    }
+
+    /**
+     * The cache directory from the gomoku.patterns.dir system property; nothing is written to disk without it
+     * @return the directory, or null when caching is turned off
+     */
+    private static Path cacheDirectory() {
+        try {
+            String directory = System.getProperty("gomoku.patterns.dir", "");
+            return directory.isEmpty() ? null : Paths.get(directory);
+        } catch (RuntimeException e) {
+            // a path the file system won't take
+            return null;
+        }
+    }
+
+    /**
+     * 3 to a power
+     * @param exponent 0 to 19
+     * @return 3^exponent
+     */
+    private static int pow3(int exponent) {
+        int value = 1;
+        for (int i = 0; i < exponent; i++) {
+            value *= 3;
+        }
+        return value;
+    }
+}
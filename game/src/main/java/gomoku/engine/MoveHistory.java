@@ -0,0 +1,203 @@
+package gomoku.engine;
+
+import java.util.Arrays;
+
+/**
+ * The moves of a game on a PatternTable, with undo, redo and jumping to any move.
+ *
+ * Each move is one int (cell, color and whether it won), and stepping goes through PatternTable.place and undo,
+ * the same make and unmake the searches use: the board, its Zobrist hash and the shapes around the move are
+ * brought up to date incrementally, so going back or forward n moves costs n moves' work whatever the size of
+ * the board. Playing a new move after an undo drops the moves that could have been redone.
+ *
+ * All moves must go through the history (not the table directly) while it is in use.
+ */
+public class MoveHistory {
+
+    /** Bits of a move record below the cell */
+    private static final int CELL_SHIFT = 3;
+    private static final int COLOR_MASK = 3;
+    private static final int WIN_BIT = 4;
+
+    private final PatternTable position;
+    private final int columns;
+    /** Move records in the order played: cell << CELL_SHIFT, the WIN_BIT, and the color */
+    private int[] moves = new int[64];
+    /** Moves recorded, the ones undone included */
+    private int size;
+    /** Moves on the board */
+    private int current;
+    /** Color to move before the first move */
+    private final int firstColor;
+
+    /**
+     * Constructor for a history starting at the position the table holds now, black to move
+     * @param position
+     */
+    public MoveHistory(PatternTable position) {
+        this(position, BitBoard.BLACK);
+    }
+
+    /**
+     * Constructor for a history starting at the position the table holds now
+     * @param position
+     * @param firstColor BLACK or WHITE, the side to move first
+     */
+    public MoveHistory(PatternTable position, int firstColor) {
+        this.position = position;
+        this.columns = position.getBoard().getColumns();
+        this.firstColor = firstColor;
+    }
+
+    /**
+     * Getter for the table the moves are played on
+     * @return position
+     */
+    public PatternTable getPosition() {
+        return position;
+    }
+
+    /**
+     * Checks and plays a move, dropping any moves that could have been redone
+     * @param row
+     * @param column
+     * @param color BLACK or WHITE
+     * @return PLACED, WIN, FOUR_FOUR, THREE_THREE or OCCUPIED, as PatternTable.play; only PLACED and WIN are played
+     */
+    public int play(int row, int column, int color) {
+        int result = position.check(row, column, color);
+        if (result == BitBoard.PLACED || result == BitBoard.WIN) {
+            place(row, column, color, result == BitBoard.WIN);
+        }
+        return result;
+    }
+
+    /**
+     * Plays a move other rules already allowed, such as RenjuRules, dropping any moves that could have been
+     * redone
+     * @param row
+     * @param column
+     * @param color BLACK or WHITE
+     * @param win whether the move won under those rules
+     */
+    public void place(int row, int column, int color, boolean win) {
+        position.place(row, column, color);
+        if (current == moves.length) {
+            moves = Arrays.copyOf(moves, moves.length * 2);
+        }
+        moves[current++] = (row * columns + column) << CELL_SHIFT | (win ? WIN_BIT : 0) | color;
+        size = current;
+    }
+
+    /**
+     * Takes the last move on the board back, keeping it for redo
+     * @return the cell emptied as row * columns + column, or -1 when there was no move
+     */
+    public int undo() {
+        if (current == 0) {
+            return -1;
+        }
+        int cell = moves[--current] >>> CELL_SHIFT;
+        position.undo(cell / columns, cell % columns);
+        return cell;
+    }
+
+    /**
+     * Plays the next undone move again
+     * @return the cell filled as row * columns + column, or -1 when there was nothing to redo
+     */
+    public int redo() {
+        if (current == size) {
+            return -1;
+        }
+        int record = moves[current++];
+        int cell = record >>> CELL_SHIFT;
+        position.place(cell / columns, cell % columns, record & COLOR_MASK);
+        return cell;
+    }
+
+    /**
+     * Undoes or redoes until a number of moves are on the board
+     * @param move 0 for the starting position up to getSize()
+     * @return the number of moves stepped
+     */
+    public int jumpTo(int move) {
+        if (move < 0 || move > size) {
+            throw new IndexOutOfBoundsException("Incorrect input: the history has moves 0 to " + size);
+        }
+        int stepped = Math.abs(move - current);
+        while (current > move) {
+            undo();
+        }
+        while (current < move) {
+            redo();
+        }
+        return stepped;
+    }
+
+    /**
+     * Getter for the number of moves on the board
+     * @return current
+     */
+    public int getCurrent() {
+        return current;
+    }
+
+    /**
+     * Getter for the number of moves recorded, the ones undone included
+     * @return size
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Whether there is a move to undo
+     * @return boolean
+     */
+    public boolean canUndo() {
+        return current > 0;
+    }
+
+    /**
+     * Whether there is a move to redo
+     * @return boolean
+     */
+    public boolean canRedo() {
+        return current < size;
+    }
+
+    /**
+     * Gets the cell of a recorded move
+     * @param move 0 up to getSize() - 1
+     * @return row * columns + column
+     */
+    public int getCell(int move) {
+        return moves[move] >>> CELL_SHIFT;
+    }
+
+    /**
+     * Gets the color of a recorded move
+     * @param move 0 up to getSize() - 1
+     * @return BLACK or WHITE
+     */
+    public int getColor(int move) {
+        return moves[move] & COLOR_MASK;
+    }
+
+    /**
+     * The side to move now
+     * @return BLACK or WHITE
+     */
+    public int getColorToMove() {
+        return current == 0 ? firstColor : BitBoard.BLACK + BitBoard.WHITE - getColor(current - 1);
+    }
+
+    /**
+     * Whether the last move on the board won the game
+     * @return boolean
+     */
+    public boolean isWon() {
+        return current > 0 && (moves[current - 1] & WIN_BIT) != 0;
+    }
+}
@@ -0,0 +1,292 @@
+package gomoku.engine;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Board of cells surrounded by a ring of OFF_BOARD sentinels.
+ *
+ * Walking a line stops on the ring because OFF_BOARD never equals a color, so line counting needs no exception
+ * and no bounds check per step. Results follow the contract of numberInLineInt and count4DirectionsIntBoard in
+ * Gomoku, including counting runs of GREEN when started on an empty cell.
+ *
+ * The cells are one row-major byte array, so the board the game keeps (gridInt is only a view of it now) is
+ * copied with one array copy instead of one per row, and pack squeezes it to 2 bits a cell for snapshots.
+ */
+public class PaddedBoard {
+
+    /** Colors Map (same ints as gridInt) plus the border value */
+    public static final byte GREEN = BitBoard.GREEN;
+    public static final byte BLACK = BitBoard.BLACK;
+    public static final byte WHITE = BitBoard.WHITE;
+    public static final byte OFF_BOARD = 3;
+
+    /** Cells in a long of pack */
+    private static final int CELLS_PER_LONG = 32;
+    /** Reads eight cells as one little-endian long */
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class,
+            ByteOrder.LITTLE_ENDIAN);
+
+    /** Row and column displacements of the eight directions, same order as the pointer map in Gomoku */
+    private static final int[] ROW_STEP = { -1, -1, 0, 1, 1, 1, 0, -1 };
+    private static final int[] COLUMN_STEP = { 0, 1, 1, 1, 0, -1, -1, -1 };
+
+    /** Rows in the board */
+    private final int rows;
+    /** Columns in the board */
+    private final int columns;
+    /** Columns plus the border on both sides */
+    private final int width;
+
+    /** Index shift of one step in each direction */
+    private final int[] stride = new int[8];
+
+    /** Row-major cells including the border ring */
+    private final byte[] cells;
+
+    /**
+     * Constructor for an empty board
+     * @param rows
+     * @param columns
+     */
+    public PaddedBoard(int rows, int columns) {
+        if (rows < 0 || columns < 0) {
+            throw new IllegalArgumentException("Incorrect input: rows and columns can't be negative");
+        }
+        this.rows = rows;
+        this.columns = columns;
+        this.width = columns + 2;
+        this.cells = new byte[(rows + 2) * width];
+
+        for (int direction = 0; direction < 8; direction++) {
+            stride[direction] = ROW_STEP[direction] * width + COLUMN_STEP[direction];
+        }
+
+        // top and bottom border rows
+        for (int c = 0; c < width; c++) {
+            cells[c] = OFF_BOARD;
+            cells[(rows + 1) * width + c] = OFF_BOARD;
+        }
+        // left and right border columns
+        for (int r = 1; r <= rows; r++) {
+            cells[r * width] = OFF_BOARD;
+            cells[r * width + columns + 1] = OFF_BOARD;
+        }
+    }
+
+    /**
+     * Copy constructor
+     * @param other the board to copy
+     */
+    public PaddedBoard(PaddedBoard other) {
+        this.rows = other.rows;
+        this.columns = other.columns;
+        this.width = other.width;
+        System.arraycopy(other.stride, 0, this.stride, 0, 8);
+        this.cells = other.cells.clone();
+    }
+
+    /**
+     * Builds a board from a grid of ints like gridInt
+     * @param grid The 2D array of ints representing the board
+     * @return the board
+     */
+    public static PaddedBoard fromGrid(int[][] grid) {
+        int rows = grid.length;
+        int columns = rows == 0 ? 0 : grid[0].length;
+        PaddedBoard board = new PaddedBoard(rows, columns);
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                board.set(r, c, grid[r][c]);
+            }
+        }
+        return board;
+    }
+
+    /**
+     * Builds a board from the snapshot pack made
+     * @param rows
+     * @param columns
+     * @param packed 2 bits a cell, row by row
+     * @return the board
+     */
+    public static PaddedBoard unpack(int rows, int columns, long[] packed) {
+        PaddedBoard board = new PaddedBoard(rows, columns);
+        if ((long) packed.length * CELLS_PER_LONG < (long) rows * columns) {
+            throw new IllegalArgumentException("Incorrect input: " + rows * columns + " cells don't fit "
+                    + packed.length + " longs");
+        }
+        int cell = 0;
+        for (int r = 0; r < rows; r++) {
+            int i = board.index(r, 0);
+            for (int c = 0; c < columns; c++, cell++) {
+                int color = (int) (packed[cell >>> 5] >>> ((cell & 31) << 1)) & 3;
+                if (color == OFF_BOARD) {
+                    throw new IllegalArgumentException("Incorrect input: cells are 0, 1 or 2");
+                }
+                board.cells[i + c] = (byte) color;
+            }
+        }
+        return board;
+    }
+
+    /**
+     * Snapshot of the cells at 2 bits each, row by row from the low bits up, 32 cells to a long
+     * @return the packed cells
+     */
+    public long[] pack() {
+        long[] packed = new long[(rows * columns + CELLS_PER_LONG - 1) / CELLS_PER_LONG];
+        // bits gathered for the next long, and how many
+        long word = 0;
+        int filled = 0;
+        int out = 0;
+        for (int r = 0; r < rows; r++) {
+            int i = index(r, 0);
+            int end = i + columns;
+            for (; i + 8 <= end; i += 8) {
+                // eight cells at once: the low 2 bits of each byte squeezed together into 16 bits
+                long x = (long) LONGS.get(cells, i);
+                x = (x | x >>> 6) & 0x000F000F000F000FL;
+                x = (x | x >>> 12) & 0x000000FF000000FFL;
+                x = (x | x >>> 24) & 0xFFFFL;
+                word |= x << filled;
+                filled += 16;
+                if (filled >= 64) {
+                    packed[out++] = word;
+                    filled -= 64;
+                    word = filled == 0 ? 0 : x >>> (16 - filled);
+                }
+            }
+            for (; i < end; i++) {
+                word |= (long) cells[i] << filled;
+                filled += 2;
+                if (filled == 64) {
+                    packed[out++] = word;
+                    word = 0;
+                    filled = 0;
+                }
+            }
+        }
+        if (filled > 0) {
+            packed[out] = word;
+        }
+        return packed;
+    }
+
+    /**
+     * The cells as a new grid of ints like gridInt
+     * @return grid[row][column]
+     */
+    public int[][] toGrid() {
+        int[][] grid = new int[rows][columns];
+        for (int r = 0; r < rows; r++) {
+            int i = index(r, 0);
+            for (int c = 0; c < columns; c++) {
+                grid[r][c] = cells[i + c];
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Getter for rows
+     * @return rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Getter for columns
+     * @return columns
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Index of row and column in the padded cells
+     * @param row
+     * @param column
+     * @return index
+     */
+    public int index(int row, int column) {
+        return (row + 1) * width + column + 1;
+    }
+
+    /**
+     * Gets the integer representation of color at a row and column
+     * @param row
+     * @param column
+     * @return GREEN, BLACK or WHITE
+     */
+    public int get(int row, int column) {
+        return cells[index(row, column)];
+    }
+
+    /**
+     * Sets the color at a row and column
+     * @param row
+     * @param column
+     * @param color GREEN, BLACK or WHITE
+     */
+    public void set(int row, int column, int color) {
+        if (row < 0 || row >= rows || column < 0 || column >= columns) {
+            throw new IndexOutOfBoundsException("Not on the board: " + row + ", " + column);
+        }
+        cells[index(row, column)] = (byte) color;
+    }
+
+    /**
+     * Returns the number of pieces of the same color in a row including the cell at row and column,
+     * like Gomoku.numberInLineInt.
+     * @param row
+     * @param column
+     * @param direction any of the eight directions
+     * @return The number of consecutive same color pieces counting the first starting one
+     */
+    public int numberInLine(int row, int column, int direction) {
+        int i = index(row, column);
+        int step = stride[direction];
+        byte color = cells[i];
+        int counter = 1;
+        // the border ring ends the loop
+        while (cells[i += step] == color) {
+            counter++;
+        }
+        return counter;
+    }
+
+    /**
+     * Counts the pieces in a row through row and column along direction and its opposite,
+     * like ProcessClick.count4DirectionsIntBoard.
+     * @param row
+     * @param column
+     * @param direction any of the eight directions
+     * @return the number of same colors in row
+     */
+    public int count4Directions(int row, int column, int direction) {
+        return numberInLine(row, column, direction) + numberInLine(row, column, (direction + 4) & 7) - 1;
+    }
+
+    /**
+     * Determines if there is an open space following the input direction at row and column, like Gomoku.isOpen
+     * @param row
+     * @param column
+     * @param direction any of the eight directions
+     * @return whether the first cell after the run of same colors is empty
+     */
+    public boolean isOpen(int row, int column, int direction) {
+        int i = index(row, column);
+        byte color = cells[i];
+        if (color == GREEN) {
+            return false;
+        }
+        int step = stride[direction];
+        while (cells[i += step] == color) {
+            // skips the run of same colors
+        }
+        return cells[i] == GREEN;
+    }
+}
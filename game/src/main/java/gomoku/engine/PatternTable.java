@@ -0,0 +1,381 @@
+package gomoku.engine;
+
+/**
+ * Incremental table of line shapes for every empty cell of a BitBoard.
+ *
+ * For each empty cell, axis and color the table keeps the shape that placing that color would make (open three,
+ * four, five and so on), measured on the unbroken run through the cell as ProcessClick's rules measure it: a
+ * broken X_XXX is no four. A placement or undo only refreshes the few cells within winNumber of the move whose
+ * lines reach it, so the rule checks of ProcessClick, and any evaluation built on the shapes, become lookups
+ * instead of line scans. Up to LinePatterns.MAX_WIN_NUMBER a shape itself is a lookup in the precomputed
+ * LinePatterns table.
+ *
+ * All moves must go through the table (not the board directly) to keep it up to date.
+ */
+public class PatternTable {
+
+    /** Line shapes, from weakest to strongest */
+    public static final int NONE = 0;
+    public static final int TWO = 1;
+    public static final int OPEN_TWO = 2;
+    public static final int THREE = 3;
+    public static final int OPEN_THREE = 4;
+    public static final int DEAD_FOUR = 5;
+    public static final int FOUR = 6;
+    public static final int OPEN_FOUR = 7;
+    public static final int FIVE = 8;
+    public static final int OVERLINE = 9;
+
+    /** Rule flags of a cell for one color */
+    public static final int FLAG_WIN = 1;
+    public static final int FLAG_FOUR_FOUR = 2;
+    public static final int FLAG_THREE_THREE = 4;
+
+    /** Worth of each shape for evaluation, indexed by shape */
+    private static final int[] SHAPE_SCORE = { 0, 1, 6, 6, 40, 2, 50, 400, 2000, 0 };
+
+    /** Row and column displacements of the eight directions, same order as the pointer map in Gomoku */
+    private static final int[] ROW_STEP = { -1, -1, 0, 1, 1, 1, 0, -1 };
+    private static final int[] COLUMN_STEP = { 0, 1, 1, 1, 0, -1, -1, -1 };
+
+    /** The board the shapes describe */
+    private final BitBoard board;
+    /** Rows, columns and winNumber of the board */
+    private final int rows;
+    private final int columns;
+    private final int winNumber;
+    /** Number of cells on the board */
+    private final int cells;
+    /** Shape lookup for winNumber, null past LinePatterns.MAX_WIN_NUMBER where lines are measured instead */
+    private final LinePatterns patterns;
+
+    /** Shape per color, cell and axis: ((color - 1) * cells + cell) * 4 + axis */
+    private final byte[] shapes;
+    /** Rule flags per color and cell: (color - 1) * cells + cell */
+    private final byte[] flags;
+    /** Forbidden cells of each color as row-major bits, a row starting on a new long as in LegalMoves */
+    private final long[] forbidden;
+    /** Longs per row of forbidden */
+    private final int wordsPerRow;
+
+    /** Sum of SHAPE_SCORE over all empty cells and axes, per color (GREEN slot unused) */
+    private final int[] score = new int[3];
+    /** Number of cells where a color wins without breaking a rule, per color (GREEN slot unused) */
+    private final int[] winningMoves = new int[3];
+
+    /**
+     * Constructor building the table for every empty cell of a board
+     * @param board
+     */
+    public PatternTable(BitBoard board) {
+        this.board = board;
+        this.rows = board.getRows();
+        this.columns = board.getColumns();
+        this.winNumber = board.getWinNumber();
+        this.cells = rows * columns;
+        this.patterns = LinePatterns.forWinNumber(winNumber);
+        this.shapes = new byte[2 * cells * 4];
+        this.flags = new byte[2 * cells];
+        this.wordsPerRow = LegalMoves.wordsPerRow(columns);
+        this.forbidden = new long[2 * rows * wordsPerRow];
+
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                refreshCell(r, c);
+            }
+        }
+    }
+
+    /**
+     * Copy constructor, the board is copied too
+     * @param other the table to copy
+     */
+    public PatternTable(PatternTable other) {
+        this.board = new BitBoard(other.board);
+        this.rows = other.rows;
+        this.columns = other.columns;
+        this.winNumber = other.winNumber;
+        this.cells = other.cells;
+        this.patterns = other.patterns;
+        this.shapes = other.shapes.clone();
+        this.flags = other.flags.clone();
+        this.wordsPerRow = other.wordsPerRow;
+        this.forbidden = other.forbidden.clone();
+        System.arraycopy(other.score, 0, this.score, 0, 3);
+        System.arraycopy(other.winningMoves, 0, this.winningMoves, 0, 3);
+    }
+
+    /**
+     * Getter for the board
+     * @return board
+     */
+    public BitBoard getBoard() {
+        return board;
+    }
+
+    /**
+     * Places a color at row and column without any rule check and refreshes the cells around it
+     * @param row
+     * @param column
+     * @param color BLACK or WHITE
+     */
+    public void place(int row, int column, int color) {
+        board.place(row, column, color);
+        int cell = row * columns + column;
+        for (int k = 0; k < 2; k++) {
+            int slot = k * cells + cell;
+            if (isWinningFlag(flags[slot])) {
+                winningMoves[k + 1]--;
+            }
+            flags[slot] = 0;
+            forbidden[(k * rows + row) * wordsPerRow + (column >>> 6)] &= ~(1L << column);
+            for (int axis = 0; axis < 4; axis++) {
+                score[k + 1] -= SHAPE_SCORE[shapes[slot * 4 + axis]];
+                shapes[slot * 4 + axis] = NONE;
+            }
+        }
+        refreshAround(row, column);
+    }
+
+    /**
+     * Takes the stone at row and column back off the board and refreshes the cells around it
+     * @param row
+     * @param column
+     */
+    public void undo(int row, int column) {
+        board.undo(row, column);
+        refreshCell(row, column);
+        refreshAround(row, column);
+    }
+
+    /**
+     * Plays a move the same way BitBoard.play does, but decides it from the table without scanning lines
+     * @param row
+     * @param column
+     * @param color BLACK or WHITE
+     * @return PLACED, WIN, FOUR_FOUR, THREE_THREE or OCCUPIED
+     */
+    public int play(int row, int column, int color) {
+        int result = check(row, column, color);
+        if (result == BitBoard.PLACED || result == BitBoard.WIN) {
+            place(row, column, color);
+        }
+        return result;
+    }
+
+    /**
+     * The result playing color at row and column would have, without placing it
+     * @param row
+     * @param column
+     * @param color BLACK or WHITE
+     * @return PLACED, WIN, FOUR_FOUR, THREE_THREE or OCCUPIED
+     */
+    public int check(int row, int column, int color) {
+        if (!board.isEmpty(row, column)) {
+            return BitBoard.OCCUPIED;
+        }
+        int flag = flags[(color - 1) * cells + row * columns + column];
+        if ((flag & FLAG_FOUR_FOUR) != 0) {
+            return BitBoard.FOUR_FOUR;
+        }
+        if ((flag & FLAG_THREE_THREE) != 0) {
+            return BitBoard.THREE_THREE;
+        }
+        return (flag & FLAG_WIN) != 0 ? BitBoard.WIN : BitBoard.PLACED;
+    }
+
+    /**
+     * Whether color at an empty row and column breaks the four-four or three-three rule
+     * @param row
+     * @param column
+     * @param color BLACK or WHITE
+     * @return boolean
+     */
+    public boolean isForbidden(int row, int column, int color) {
+        return (flags[(color - 1) * cells + row * columns + column] & (FLAG_FOUR_FOUR | FLAG_THREE_THREE)) != 0;
+    }
+
+    /**
+     * Getter for 64 columns of a row of the forbidden cells, as LegalMoves reads them
+     * @param color BLACK or WHITE
+     * @param row
+     * @param word columns from word * 64
+     * @return a bit for each column breaking the four-four or three-three rule, lowest column lowest
+     */
+    public long getForbiddenWord(int color, int row, int word) {
+        return forbidden[((color - 1) * rows + row) * wordsPerRow + word];
+    }
+
+    /**
+     * Whether color at an empty row and column makes exactly winNumber in a row
+     * @param row
+     * @param column
+     * @param color BLACK or WHITE
+     * @return boolean
+     */
+    public boolean isWinningMove(int row, int column, int color) {
+        return (flags[(color - 1) * cells + row * columns + column] & FLAG_WIN) != 0;
+    }
+
+    /**
+     * Getter for the rule flags of a cell
+     * @param row
+     * @param column
+     * @param color BLACK or WHITE
+     * @return FLAG_WIN, FLAG_FOUR_FOUR and FLAG_THREE_THREE bits, 0 for occupied cells
+     */
+    public int getFlags(int row, int column, int color) {
+        return flags[(color - 1) * cells + row * columns + column];
+    }
+
+    /**
+     * Getter for the shape color would make at an empty row and column along an axis
+     * @param row
+     * @param column
+     * @param color BLACK or WHITE
+     * @param direction any of the eight directions, the opposite direction gives the same shape
+     * @return one of the shapes, NONE for occupied cells
+     */
+    public int getShape(int row, int column, int color, int direction) {
+        return shapes[((color - 1) * cells + row * columns + column) * 4 + (direction & 3)];
+    }
+
+    /**
+     * Getter for the summed worth of the shapes color could make on the empty cells
+     * @param color BLACK or WHITE
+     * @return score
+     */
+    public int getScore(int color) {
+        return score[color];
+    }
+
+    /**
+     * Getter for the number of cells where color would win without breaking the four-four or three-three rule
+     * @param color BLACK or WHITE
+     * @return the number of winning moves
+     */
+    public int countWinningMoves(int color) {
+        return winningMoves[color];
+    }
+
+    /**
+     * Refreshes the empty cells whose shapes a move at row and column can change. For each color and direction
+     * that is only the first empty cell past the stones of that color next to the move, and only on the axis
+     * pointing back at the move: any other cell's line ends before reaching the move. These cells are all within
+     * winNumber of the move unless the run is already longer than a five.
+     * @param row
+     * @param column
+     */
+    private void refreshAround(int row, int column) {
+        for (int direction = 0; direction < 8; direction++) {
+            for (int color = BitBoard.BLACK; color <= BitBoard.WHITE; color++) {
+                int r = row + ROW_STEP[direction];
+                int c = column + COLUMN_STEP[direction];
+                while (r >= 0 && r < rows && c >= 0 && c < columns && board.get(r, c) == color) {
+                    r += ROW_STEP[direction];
+                    c += COLUMN_STEP[direction];
+                }
+                if (r >= 0 && r < rows && c >= 0 && c < columns && board.isEmpty(r, c)) {
+                    refreshShape(r * columns + c, r, c, color, direction & 3);
+                }
+            }
+        }
+    }
+
+    /**
+     * Refreshes every axis of a cell for both colors
+     * @param row
+     * @param column
+     */
+    private void refreshCell(int row, int column) {
+        if (!board.isEmpty(row, column)) {
+            return;
+        }
+        int cell = row * columns + column;
+        for (int axis = 0; axis < 4; axis++) {
+            refreshShape(cell, row, column, BitBoard.BLACK, axis);
+            refreshShape(cell, row, column, BitBoard.WHITE, axis);
+        }
+    }
+
+    /**
+     * Recomputes one shape and the rule flags that depend on it
+     * @param cell row * columns + column
+     * @param row
+     * @param column
+     * @param color BLACK or WHITE
+     * @param axis direction 0 to 3
+     */
+    private void refreshShape(int cell, int row, int column, int color, int axis) {
+        int slot = (color - 1) * cells + cell;
+        int shape = patterns != null ? patterns.shape(board, color, row, column, axis)
+                : shapeOf(board.lineShape(color, row, column, axis), winNumber);
+        int old = shapes[slot * 4 + axis];
+        if (shape == old) {
+            return;
+        }
+        shapes[slot * 4 + axis] = (byte) shape;
+        score[color] += SHAPE_SCORE[shape] - SHAPE_SCORE[old];
+
+        int fours = 0;
+        int threes = 0;
+        boolean win = false;
+        for (int a = 0; a < 4; a++) {
+            int s = shapes[slot * 4 + a];
+            if (s == FIVE) {
+                win = true;
+            } else if (s >= DEAD_FOUR && s <= OPEN_FOUR) {
+                fours++;
+            } else if (s == OPEN_THREE) {
+                threes++;
+            }
+        }
+        int flag = (win ? FLAG_WIN : 0) | (fours >= 2 ? FLAG_FOUR_FOUR : 0) | (threes >= 2 ? FLAG_THREE_THREE : 0);
+        if (isWinningFlag(flags[slot]) != isWinningFlag(flag)) {
+            winningMoves[color] += isWinningFlag(flag) ? 1 : -1;
+        }
+        flags[slot] = (byte) flag;
+        int word = ((color - 1) * rows + row) * wordsPerRow + (column >>> 6);
+        if ((flag & (FLAG_FOUR_FOUR | FLAG_THREE_THREE)) != 0) {
+            forbidden[word] |= 1L << column;
+        } else {
+            forbidden[word] &= ~(1L << column);
+        }
+    }
+
+    /**
+     * Whether rule flags describe a move that wins without breaking a rule
+     * @param flag
+     * @return boolean
+     */
+    private static boolean isWinningFlag(int flag) {
+        return flag == FLAG_WIN;
+    }
+
+    /**
+     * Turns a run length and its open ends into a shape
+     * @param line run length shifted left by 2 plus open ends, from BitBoard.lineShape
+     * @param winNumber
+     * @return shape
+     */
+    static int shapeOf(int line, int winNumber) {
+        int run = line >>> 2;
+        int open = line & 3;
+        if (run > winNumber) {
+            return OVERLINE;
+        }
+        if (run == winNumber) {
+            return FIVE;
+        }
+        if (run == winNumber - 1) {
+            return open == 2 ? OPEN_FOUR : open == 1 ? FOUR : DEAD_FOUR;
+        }
+        if (run == winNumber - 2) {
+            return open == 2 ? OPEN_THREE : open == 1 ? THREE : NONE;
+        }
+        if (run == winNumber - 3) {
+            return open == 2 ? OPEN_TWO : open == 1 ? TWO : NONE;
+        }
+        return NONE;
+    }
+}
@@ -0,0 +1,302 @@
+package gomoku.engine;
+
+/**
+ * Renju rules on a BitBoard: black may not play an overline, a double four or a double three, white may play
+ * anything, and a five wins for black even when the move also makes a forbidden shape.
+ *
+ * Unlike the standard checks (BitBoard.classify and PatternTable), shapes are found the Renju way:
+ * <ul>
+ * <li>a five is exactly winNumber in a row for black, winNumber or more for white; longer is an overline</li>
+ * <li>a four is any line one stone away from a five through the move, broken ones like X_XXX included, and a line
+ * such as X_XXX_X holds two fours; the straight four _XXXX_ counts once</li>
+ * <li>a three is a line one stone away from a straight four through the move, and only a true three counts: the
+ * stone that would make the straight four must not be a forbidden point itself, which is checked recursively on
+ * the board with the move placed</li>
+ * </ul>
+ *
+ * The lines are read with BitBoard.window as two bit masks, so finding the five and four points of an axis is a
+ * few shifts per cell of the window; the board is only changed (and put back) to place the move being checked and
+ * the stones of the recursive checks. Positions must not change while a check runs.
+ */
+public class RenjuRules {
+
+    /** Largest win number the line windows hold */
+    public static final int MAX_WIN_NUMBER = 7;
+
+    /** Row and column step of one bit up a BitBoard.window line, per axis (direction 0 to 3) */
+    private static final int[] ROW_STEP = { 1, -1, 0, 1 };
+    private static final int[] COLUMN_STEP = { 0, 1, 1, 1 };
+
+    private final BitBoard board;
+    private final int winNumber;
+    /** Cells read either side of the move, and the bit of the move in a window */
+    private final int radius;
+    /** Bits of a window on the board side of the masks */
+    private final long windowMask;
+    /** Bits within winNumber - 1 of the move, where its fours and threes are completed */
+    private final long near;
+
+    /**
+     * Constructor
+     * @param board checked and played on, its win number 5 to MAX_WIN_NUMBER
+     */
+    public RenjuRules(BitBoard board) {
+        if (board.getWinNumber() < 5 || board.getWinNumber() > MAX_WIN_NUMBER) {
+            throw new IllegalArgumentException("Incorrect input: renju needs a win number of 5 to " + MAX_WIN_NUMBER);
+        }
+        this.board = board;
+        this.winNumber = board.getWinNumber();
+        this.radius = 2 * winNumber;
+        this.windowMask = (1L << (2 * radius + 1)) - 1;
+        this.near = ((1L << (2 * winNumber - 1)) - 1) << (radius - winNumber + 1);
+    }
+
+    /**
+     * Getter for the board
+     * @return board
+     */
+    public BitBoard getBoard() {
+        return board;
+    }
+
+    /**
+     * Plays a move if the rules allow it
+     * @param row
+     * @param column
+     * @param color BLACK or WHITE
+     * @return PLACED, WIN, FOUR_FOUR, THREE_THREE, OVERLINE or OCCUPIED; only PLACED and WIN are played
+     */
+    public int play(int row, int column, int color) {
+        int result = check(row, column, color);
+        if (result == BitBoard.PLACED || result == BitBoard.WIN) {
+            board.place(row, column, color);
+        }
+        return result;
+    }
+
+    /**
+     * The result playing color at row and column would have. The board is left unchanged.
+     * @param row
+     * @param column
+     * @param color BLACK or WHITE
+     * @return PLACED, WIN, FOUR_FOUR, THREE_THREE, OVERLINE or OCCUPIED
+     */
+    public int check(int row, int column, int color) {
+        if (!board.isEmpty(row, column)) {
+            return BitBoard.OCCUPIED;
+        }
+        board.place(row, column, color);
+        try {
+            return color == BitBoard.BLACK ? classifyBlack(row, column) : classifyWhite(row, column);
+        } finally {
+            board.undo(row, column);
+        }
+    }
+
+    /**
+     * Whether black may not play an empty row and column. The board is left unchanged.
+     * @param row
+     * @param column
+     * @return boolean
+     */
+    public boolean isForbidden(int row, int column) {
+        int result = check(row, column, BitBoard.BLACK);
+        return result == BitBoard.FOUR_FOUR || result == BitBoard.THREE_THREE || result == BitBoard.OVERLINE;
+    }
+
+    /**
+     * Classifies a white stone just placed: any line of winNumber or more wins
+     * @param row
+     * @param column
+     * @return WIN or PLACED
+     */
+    private int classifyWhite(int row, int column) {
+        for (int axis = 0; axis < 4; axis++) {
+            long own = board.window(BitBoard.WHITE, row, column, axis, radius) & windowMask;
+            if (run(own, radius) >= winNumber) {
+                return BitBoard.WIN;
+            }
+        }
+        return BitBoard.PLACED;
+    }
+
+    /**
+     * Classifies a black stone just placed, in the order of precedence of the rules
+     * @param row
+     * @param column
+     * @return WIN, OVERLINE, FOUR_FOUR, THREE_THREE or PLACED
+     */
+    private int classifyBlack(int row, int column) {
+        // a five wins whatever else the move makes
+        boolean overline = false;
+        for (int axis = 0; axis < 4; axis++) {
+            long own = board.window(BitBoard.BLACK, row, column, axis, radius) & windowMask;
+            int run = run(own, radius);
+            if (run == winNumber) {
+                return BitBoard.WIN;
+            }
+            overline |= run > winNumber;
+        }
+        if (overline) {
+            return BitBoard.OVERLINE;
+        }
+
+        // read again rather than kept, as the recursive checks below run this method too
+        int fours = 0;
+        int fourAxes = 0;
+        long[] threePoints = null;
+        int threeAxes = 0;
+        for (int axis = 0; axis < 4; axis++) {
+            long window = board.window(BitBoard.BLACK, row, column, axis, radius);
+            long own = window & windowMask;
+            long empty = ~(own | window >>> 32) & windowMask;
+            int stones = Long.bitCount(own & near);
+            if (stones < winNumber - 2) {
+                // not enough stones around the move for a three, let alone a four
+                continue;
+            }
+            int axisFours = stones < winNumber - 1 ? 0 : fours(own, empty);
+            if (axisFours > 0) {
+                fours += axisFours;
+                fourAxes |= 1 << axis;
+                continue;
+            }
+            long points = threePoints(own, empty);
+            if (points != 0) {
+                if (threePoints == null) {
+                    threePoints = new long[4];
+                }
+                threePoints[axis] = points;
+                threeAxes |= 1 << axis;
+            }
+        }
+        if (fours >= 2) {
+            return BitBoard.FOUR_FOUR;
+        }
+        if (Integer.bitCount(threeAxes) < 2) {
+            return BitBoard.PLACED;
+        }
+
+        // only now the costly part: a three is true when some point making it a straight four isn't forbidden
+        int threes = 0;
+        for (int axis = 0; axis < 4 && threes < 2; axis++) {
+            if ((threeAxes & 1 << axis) != 0 && isTrueThree(row, column, axis, threePoints[axis])) {
+                threes++;
+            }
+        }
+        return threes >= 2 ? BitBoard.THREE_THREE : BitBoard.PLACED;
+    }
+
+    /**
+     * Counts the fours of one axis through the move
+     * @param own black stones of the window, the move included
+     * @param empty empty cells of the window
+     * @return the number of fours, 0 to 2
+     */
+    private int fours(long own, long empty) {
+        int count = 0;
+        int first = -1;
+        int last = -1;
+        for (long points = empty & near; points != 0; points &= points - 1) {
+            int i = Long.numberOfTrailingZeros(points);
+            long line = own | 1L << i;
+            int up = up(line, i);
+            int down = down(line, i);
+            // exactly a five, and through the move
+            if (up + down - 1 == winNumber && i - down < radius && radius < i + up) {
+                count++;
+                if (first < 0) {
+                    first = i;
+                }
+                last = i;
+            }
+        }
+        // both ends of one straight four
+        return count == 2 && last - first == winNumber ? 1 : count;
+    }
+
+    /**
+     * Finds the points of one axis that would turn the move into a straight four: winNumber - 1 in a row through
+     * the move with both ends empty and each end making exactly a five
+     * @param own black stones of the window, the move included
+     * @param empty empty cells of the window
+     * @return a bit for each such point
+     */
+    private long threePoints(long own, long empty) {
+        long found = 0;
+        for (long points = empty & near; points != 0; points &= points - 1) {
+            int i = Long.numberOfTrailingZeros(points);
+            long line = own | 1L << i;
+            int up = up(line, i);
+            int down = down(line, i);
+            int low = i - down + 1;
+            int high = i + up - 1;
+            if (up + down - 1 != winNumber - 1 || low > radius || high < radius) {
+                continue;
+            }
+            // a black stone past either end would make that end an overline rather than a five
+            if ((empty >>> (low - 1) & 1) != 0 && (empty >>> (high + 1) & 1) != 0
+                    && (own >>> (low - 2) & 1) == 0 && (own >>> (high + 2) & 1) == 0) {
+                found |= 1L << i;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Whether any of the points making a straight four is one black may play
+     * @param row of the move, already placed
+     * @param column
+     * @param axis
+     * @param points from threePoints
+     * @return boolean
+     */
+    private boolean isTrueThree(int row, int column, int axis, long points) {
+        for (; points != 0; points &= points - 1) {
+            int offset = Long.numberOfTrailingZeros(points) - radius;
+            int r = row + ROW_STEP[axis] * offset;
+            int c = column + COLUMN_STEP[axis] * offset;
+            board.place(r, c, BitBoard.BLACK);
+            int result;
+            try {
+                result = classifyBlack(r, c);
+            } finally {
+                board.undo(r, c);
+            }
+            if (result != BitBoard.FOUR_FOUR && result != BitBoard.THREE_THREE && result != BitBoard.OVERLINE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Length of the run of set bits through bit i
+     * @param line
+     * @param i a set bit
+     * @return run length
+     */
+    private static int run(long line, int i) {
+        return up(line, i) + down(line, i) - 1;
+    }
+
+    /**
+     * Set bits from bit i up, bit i included
+     * @param line
+     * @param i
+     * @return count
+     */
+    private static int up(long line, int i) {
+        return Long.numberOfTrailingZeros(~(line >>> i));
+    }
+
+    /**
+     * Set bits from bit i down, bit i included
+     * @param line
+     * @param i
+     * @return count
+     */
+    private static int down(long line, int i) {
+        return Long.numberOfLeadingZeros(~(line << (63 - i)));
+    }
+}
@@ -0,0 +1,433 @@
+package gomoku.engine;
+
+/**
+ * Board that only stores the parts holding stones, for very large or unbounded games.
+ *
+ * Cells are kept in 16x16 chunks of bytes, created when their first stone is placed and found through an
+ * open-addressing hash table keyed by chunk coordinate. Memory grows with the stones played rather than the board
+ * area, so a game of tens of thousands of moves on an unbounded board fits in a few megabytes. Line walks remember
+ * the last chunk they read, so most steps don't touch the table.
+ *
+ * Results follow the contract of numberInLineInt and isOpen in Gomoku. On an unbounded board every cell is on the
+ * board, and a walk started on an empty cell counts only that cell, since a run of empty cells would have no end.
+ */
+public class SparseBoard {
+
+    /** Rows and columns of a chunk, as a shift and a mask */
+    private static final int CHUNK_SHIFT = 4;
+    private static final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+    private static final int CHUNK_CELLS = 1 << (2 * CHUNK_SHIFT);
+    /** Starting size of the chunk table, a power of two */
+    private static final int INITIAL_SLOTS = 64;
+
+    /** Row and column displacements of the eight directions, same order as the pointer map in Gomoku */
+    private static final int[] ROW_STEP = { -1, -1, 0, 1, 1, 1, 0, -1 };
+    private static final int[] COLUMN_STEP = { 0, 1, 1, 1, 0, -1, -1, -1 };
+
+    /** Pieces in a row needed to win */
+    private final int winNumber;
+    /** Size of a bounded board, or -1 for unbounded */
+    private final int rows;
+    private final int columns;
+
+    /** Chunk coordinates of each slot, and its cells, null for a free slot */
+    private long[] keys;
+    private byte[][] chunks;
+    /** Chunks in the table */
+    private int chunkCount;
+    /** Stones on the board */
+    private int stoneCount;
+
+    /** The chunk read last by a line walk */
+    private long lastKey;
+    private byte[] lastChunk;
+
+    /**
+     * Constructor for an unbounded board
+     * @param winNumber pieces in a row needed to win
+     */
+    public SparseBoard(int winNumber) {
+        this(winNumber, -1, -1);
+    }
+
+    /**
+     * Constructor
+     * @param winNumber pieces in a row needed to win
+     * @param rows rows of the board, or -1 for unbounded
+     * @param columns columns of the board, or -1 for unbounded
+     */
+    public SparseBoard(int winNumber, int rows, int columns) {
+        if ((rows < 0) != (columns < 0)) {
+            throw new IllegalArgumentException("Incorrect input: rows and columns must both be bounded or not");
+        }
+        this.winNumber = winNumber;
+        this.rows = rows < 0 ? -1 : rows;
+        this.columns = columns < 0 ? -1 : columns;
+        this.keys = new long[INITIAL_SLOTS];
+        this.chunks = new byte[INITIAL_SLOTS][];
+    }
+
+    /**
+     * Builds a bounded board from a grid of ints like gridInt
+     * @param grid The 2D array of ints representing the board
+     * @param winNumber pieces in a row needed to win
+     * @return the board
+     */
+    public static SparseBoard fromGrid(int[][] grid, int winNumber) {
+        int rows = grid.length;
+        int columns = rows == 0 ? 0 : grid[0].length;
+        SparseBoard board = new SparseBoard(winNumber, rows, columns);
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                if (grid[r][c] != BitBoard.GREEN) {
+                    board.set(r, c, grid[r][c]);
+                }
+            }
+        }
+        return board;
+    }
+
+    /**
+     * Getter for winNumber
+     * @return winNumber
+     */
+    public int getWinNumber() {
+        return winNumber;
+    }
+
+    /**
+     * Getter for rows
+     * @return rows, or -1 when unbounded
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Getter for columns
+     * @return columns, or -1 when unbounded
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Whether the board has no edge
+     * @return boolean
+     */
+    public boolean isUnbounded() {
+        return rows < 0;
+    }
+
+    /**
+     * Getter for the number of stones on the board
+     * @return stones
+     */
+    public int getStoneCount() {
+        return stoneCount;
+    }
+
+    /**
+     * Getter for the number of chunks allocated
+     * @return chunks
+     */
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    /**
+     * Memory held by the cells and the chunk table, in bytes (array headers not counted)
+     * @return bytes
+     */
+    public long getBytes() {
+        return (long) chunkCount * CHUNK_CELLS + keys.length * (8L + 8L);
+    }
+
+    /**
+     * Whether row and column are on the board
+     * @param row
+     * @param column
+     * @return boolean
+     */
+    public boolean isOnBoard(int row, int column) {
+        return rows < 0 || (row >= 0 && row < rows && column >= 0 && column < columns);
+    }
+
+    /**
+     * Gets the integer representation of color at a row and column
+     * @param row
+     * @param column
+     * @return GREEN, BLACK or WHITE; GREEN off the board too
+     */
+    public int get(int row, int column) {
+        byte[] chunk = chunkAt(row, column);
+        return chunk == null ? BitBoard.GREEN : chunk[offset(row, column)];
+    }
+
+    /**
+     * Whether a cell is on the board and empty
+     * @param row
+     * @param column
+     * @return boolean
+     */
+    public boolean isEmpty(int row, int column) {
+        return isOnBoard(row, column) && get(row, column) == BitBoard.GREEN;
+    }
+
+    /**
+     * Sets the color at a row and column
+     * @param row
+     * @param column
+     * @param color GREEN, BLACK or WHITE
+     */
+    public void set(int row, int column, int color) {
+        if (!isOnBoard(row, column)) {
+            throw new IndexOutOfBoundsException("Not on the board: " + row + ", " + column);
+        }
+        if (color < BitBoard.GREEN || color > BitBoard.WHITE) {
+            throw new IllegalArgumentException("Incorrect input: color must be GREEN, BLACK or WHITE");
+        }
+        byte[] chunk = chunkAt(row, column);
+        if (chunk == null) {
+            if (color == BitBoard.GREEN) {
+                return;
+            }
+            chunk = createChunk(key(row, column));
+        }
+        int offset = offset(row, column);
+        if (chunk[offset] == BitBoard.GREEN && color != BitBoard.GREEN) {
+            stoneCount++;
+        } else if (chunk[offset] != BitBoard.GREEN && color == BitBoard.GREEN) {
+            stoneCount--;
+        }
+        chunk[offset] = (byte) color;
+    }
+
+    /**
+     * Places color at an empty row and column unless it breaks the four-four or three-three rule,
+     * the same way BitBoard.play does
+     * @param row
+     * @param column
+     * @param color BLACK or WHITE
+     * @return PLACED, WIN, FOUR_FOUR, THREE_THREE or OCCUPIED
+     */
+    public int play(int row, int column, int color) {
+        if (!isOnBoard(row, column) || get(row, column) != BitBoard.GREEN) {
+            return BitBoard.OCCUPIED;
+        }
+        set(row, column, color);
+        int result = classify(row, column);
+        if (result == BitBoard.FOUR_FOUR || result == BitBoard.THREE_THREE) {
+            set(row, column, BitBoard.GREEN);
+        }
+        return result;
+    }
+
+    /**
+     * Takes the stone at row and column off the board
+     * @param row
+     * @param column
+     */
+    public void undo(int row, int column) {
+        set(row, column, BitBoard.GREEN);
+    }
+
+    /**
+     * Runs every rule check for the stone at row and column, like BitBoard.classify
+     * @param row
+     * @param column
+     * @return FOUR_FOUR, THREE_THREE, WIN or PLACED, in that order of priority
+     */
+    public int classify(int row, int column) {
+        if (get(row, column) == BitBoard.GREEN) {
+            return BitBoard.PLACED;
+        }
+        int fours = 0;
+        int threes = 0;
+        boolean win = false;
+        for (int direction = 0; direction < 4; direction++) {
+            int count = count4Directions(row, column, direction);
+            if (count == winNumber) {
+                win = true;
+            } else if (count == winNumber - 1) {
+                fours++;
+            } else if (count == winNumber - 2
+                    && isOpen(row, column, direction) && isOpen(row, column, direction + 4)) {
+                threes++;
+            }
+        }
+        if (fours >= 2) {
+            return BitBoard.FOUR_FOUR;
+        }
+        if (threes >= 2) {
+            return BitBoard.THREE_THREE;
+        }
+        return win ? BitBoard.WIN : BitBoard.PLACED;
+    }
+
+    /**
+     * Returns the number of pieces of the same color in a row including the cell at row and column,
+     * like Gomoku.numberInLineInt.
+     * @param row
+     * @param column
+     * @param direction any of the eight directions
+     * @return The number of consecutive same color pieces counting the first starting one
+     */
+    public int numberInLine(int row, int column, int direction) {
+        int counter = 1;
+        // a start off the board counts only itself
+        if (!isOnBoard(row, column)) {
+            return counter;
+        }
+        int color = get(row, column);
+        if (color == BitBoard.GREEN && rows < 0) {
+            return counter;
+        }
+        int dr = ROW_STEP[direction];
+        int dc = COLUMN_STEP[direction];
+        while (isOnBoard(row + dr, column + dc) && get(row + dr, column + dc) == color) {
+            row += dr;
+            column += dc;
+            counter++;
+        }
+        return counter;
+    }
+
+    /**
+     * Counts the pieces in a row through row and column along direction and its opposite,
+     * like ProcessClick.count4DirectionsIntBoard.
+     * @param row
+     * @param column
+     * @param direction any of the eight directions
+     * @return the number of same colors in row
+     */
+    public int count4Directions(int row, int column, int direction) {
+        return numberInLine(row, column, direction) + numberInLine(row, column, (direction + 4) & 7) - 1;
+    }
+
+    /**
+     * Determines if there is an open space following the input direction at row and column, like Gomoku.isOpen
+     * @param row
+     * @param column
+     * @param direction any of the eight directions
+     * @return whether the first cell after the run of same colors is empty and on the board
+     */
+    public boolean isOpen(int row, int column, int direction) {
+        if (!isOnBoard(row, column)) {
+            return false;
+        }
+        int color = get(row, column);
+        if (color == BitBoard.GREEN) {
+            return false;
+        }
+        int dr = ROW_STEP[direction & 7];
+        int dc = COLUMN_STEP[direction & 7];
+        do {
+            row += dr;
+            column += dc;
+        } while (isOnBoard(row, column) && get(row, column) == color);
+        return isEmpty(row, column);
+    }
+
+    /**
+     * Empties the board and frees every chunk
+     */
+    public void clear() {
+        keys = new long[INITIAL_SLOTS];
+        chunks = new byte[INITIAL_SLOTS][];
+        chunkCount = 0;
+        stoneCount = 0;
+        lastChunk = null;
+    }
+
+    /**
+     * Packs the coordinates of the chunk holding a cell
+     * @param row
+     * @param column
+     * @return key
+     */
+    private static long key(int row, int column) {
+        return ((long) (row >> CHUNK_SHIFT) << 32) | ((column >> CHUNK_SHIFT) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Index of a cell in its chunk
+     * @param row
+     * @param column
+     * @return offset
+     */
+    private static int offset(int row, int column) {
+        return ((row & CHUNK_MASK) << CHUNK_SHIFT) | (column & CHUNK_MASK);
+    }
+
+    /**
+     * First slot to try for a key, by Fibonacci hashing
+     * @param key
+     * @param mask slots minus one
+     * @return slot
+     */
+    private static int slot(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    /**
+     * Finds the chunk holding a cell
+     * @param row
+     * @param column
+     * @return the chunk, or null when it holds no stone yet
+     */
+    private byte[] chunkAt(int row, int column) {
+        long key = key(row, column);
+        if (lastChunk != null && key == lastKey) {
+            return lastChunk;
+        }
+        int mask = keys.length - 1;
+        for (int i = slot(key, mask); chunks[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                lastKey = key;
+                lastChunk = chunks[i];
+                return lastChunk;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds an empty chunk, growing the table to keep it at most half full
+     * @param key
+     * @return the chunk
+     */
+    private byte[] createChunk(long key) {
+        if ((chunkCount + 1) * 2 > keys.length) {
+            long[] oldKeys = keys;
+            byte[][] oldChunks = chunks;
+            keys = new long[oldKeys.length * 2];
+            chunks = new byte[oldKeys.length * 2][];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldChunks[i] != null) {
+                    insert(oldKeys[i], oldChunks[i]);
+                }
+            }
+        }
+        byte[] chunk = new byte[CHUNK_CELLS];
+        insert(key, chunk);
+        chunkCount++;
+        return chunk;
+    }
+
+    /**
+     * Puts a chunk in the first free slot for its key
+     * @param key
+     * @param chunk
+     */
+    private void insert(long key, byte[] chunk) {
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (chunks[i] != null) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        chunks[i] = chunk;
+    }
+}
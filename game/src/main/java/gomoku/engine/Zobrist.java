@@ -0,0 +1,42 @@
+package gomoku.engine;
+
+/**
+ * Zobrist keys for hashing positions.
+ *
+ * Every color and cell gets a fixed random 64-bit key, and a position hashes to the xor of the keys of its stones,
+ * so placing or taking back a stone (createTestBoard and resetTestBoard in ProcessClick) updates the hash with one
+ * xor. Keys are mixed from the color and cell instead of being stored, so boards of any size cost no memory.
+ */
+public final class Zobrist {
+
+    /** Key xored in when WHITE is the side to move */
+    public static final long WHITE_TO_MOVE = mix(-1L);
+
+    /**
+     * No instances
+     */
+    private Zobrist() {
+    }
+
+    /**
+     * The key of a stone
+     * @param color BLACK or WHITE
+     * @param cell row * columns + column
+     * @return key
+     */
+    public static long key(int color, int cell) {
+        return mix(((long) cell << 2) | color);
+    }
+
+    /**
+     * SplitMix64 finalizer, turns consecutive numbers into well spread keys
+     * @param seed
+     * @return key
+     */
+    private static long mix(long seed) {
+        long z = seed * 0x9E3779B97F4A7C15L + 0x632BE59BD9B4E019L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,58 @@
+package gomoku.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A value that goes up and down, such as the games in progress. Any thread may change it.
+ */
+public class Gauge implements GaugeMXBean {
+
+    private final String name;
+    private final AtomicLong value = new AtomicLong();
+
+    /**
+     * Constructor
+     * @param name shown in dumps and JMX
+     */
+    public Gauge(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Getter for name
+     * @return name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Getter for the current value
+     * @return value
+     */
+    public long getValue() {
+        return value.get();
+    }
+
+    /**
+     * Adds one
+     */
+    public void increment() {
+        value.incrementAndGet();
+    }
+
+    /**
+     * Takes one away
+     */
+    public void decrement() {
+        value.decrementAndGet();
+    }
+
+    /**
+     * One line for a text dump
+     * @return name and value
+     */
+    public String summary() {
+        return name + " value=" + value.get();
+    }
+}
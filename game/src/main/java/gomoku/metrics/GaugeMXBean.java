@@ -0,0 +1,13 @@
+package gomoku.metrics;
+
+/**
+ * What JMX shows of a Gauge.
+ */
+public interface GaugeMXBean {
+
+    /**
+     * Getter for the current value
+     * @return value
+     */
+    long getValue();
+}
@@ -0,0 +1,240 @@
+package gomoku.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Distribution of non-negative long values in the style of HdrHistogram: values below 2^SUB_BITS get a bucket
+ * each, and every power of two above is split into 2^(SUB_BITS - 1) buckets, so a value is known to within 1.6%
+ * whatever its size. Record takes no lock and costs a few atomic adds, cheap enough to leave on everywhere. Any
+ * thread may record while others read.
+ *
+ * So that threads recording at once don't all fight over the same counters, the buckets are striped: a thread
+ * counts into one of up to one set of buckets per processor, picked by its id, and the sum is a LongAdder. A
+ * set of buckets is allocated the first time a thread needs it, so a histogram only one thread records into
+ * keeps one set, and after that record allocates nothing. Reads add the sets up.
+ *
+ * Reads are not a consistent snapshot: a value recorded during a read may be counted in one figure and not yet
+ * in another.
+ */
+public class Histogram implements HistogramMXBean {
+
+    /** Bits of a value kept exactly */
+    private static final int SUB_BITS = 7;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int HALF_COUNT = SUB_COUNT / 2;
+    /** Enough buckets for Long.MAX_VALUE, whose shift is 63 - SUB_BITS */
+    private static final int BUCKETS = (64 - SUB_BITS) * HALF_COUNT + HALF_COUNT;
+    /** Sets of buckets: the smallest power of two at least the number of processors, at most 16 */
+    private static final int STRIPES = Integer.highestOneBit(Math.min(16,
+            Runtime.getRuntime().availableProcessors() * 2 - 1));
+
+    private final String name;
+    private final String unit;
+    /** Sets of bucket counts, null until a thread counts into it */
+    private final AtomicReferenceArray<AtomicLongArray> stripes = new AtomicReferenceArray<>(STRIPES);
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Constructor
+     * @param name shown in dumps and JMX
+     * @param unit of the values, e.g. "ns"
+     */
+    public Histogram(String name, String unit) {
+        this.name = name;
+        this.unit = unit;
+    }
+
+    /**
+     * Getter for name
+     * @return name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Getter for the unit of the values
+     * @return unit
+     */
+    public String getUnit() {
+        return unit;
+    }
+
+    /**
+     * Records a value
+     * @param value negative values count as 0
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts().incrementAndGet(bucket(value));
+        sum.add(value);
+        if (value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /**
+     * Getter for the number of values recorded
+     * @return count
+     */
+    public long getCount() {
+        long count = 0;
+        for (int s = 0; s < STRIPES; s++) {
+            AtomicLongArray counts = stripes.get(s);
+            for (int i = 0; counts != null && i < BUCKETS; i++) {
+                count += counts.get(i);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Getter for the mean of the values recorded
+     * @return mean, 0 when there are none
+     */
+    public double getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : (double) sum.sum() / count;
+    }
+
+    /**
+     * Getter for the largest value recorded
+     * @return max, 0 when there are none
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * The value a percentage of the values recorded are at or below, to the precision of the buckets
+     * @param percentile 0 to 100
+     * @return the highest value of the bucket it falls in, at most getMax(); 0 when there are none
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * count));
+        long[] counts = new long[BUCKETS];
+        for (int s = 0; s < STRIPES; s++) {
+            AtomicLongArray stripe = stripes.get(s);
+            for (int i = 0; stripe != null && i < BUCKETS; i++) {
+                counts[i] += stripe.get(i);
+            }
+        }
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highest(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Getter for the median
+     * @return getValueAtPercentile(50)
+     */
+    public long getP50() {
+        return getValueAtPercentile(50);
+    }
+
+    /**
+     * Getter for the 90th percentile
+     * @return getValueAtPercentile(90)
+     */
+    public long getP90() {
+        return getValueAtPercentile(90);
+    }
+
+    /**
+     * Getter for the 99th percentile
+     * @return getValueAtPercentile(99)
+     */
+    public long getP99() {
+        return getValueAtPercentile(99);
+    }
+
+    /**
+     * Getter for the 99.9th percentile
+     * @return getValueAtPercentile(99.9)
+     */
+    public long getP999() {
+        return getValueAtPercentile(99.9);
+    }
+
+    /**
+     * Forgets every value recorded; values recorded meanwhile may be half forgotten
+     */
+    public void reset() {
+        for (int s = 0; s < STRIPES; s++) {
+            AtomicLongArray counts = stripes.get(s);
+            for (int i = 0; counts != null && i < BUCKETS; i++) {
+                counts.set(i, 0);
+            }
+        }
+        sum.reset();
+        max.set(0);
+    }
+
+    /**
+     * One line for a text dump
+     * @return name, count, mean, percentiles and max
+     */
+    public String summary() {
+        return String.format("%s count=%d mean=%.1f p50=%d p90=%d p99=%d p999=%d max=%d %s", name, getCount(),
+                getMean(), getP50(), getP90(), getP99(), getP999(), getMax(), unit);
+    }
+
+    /**
+     * The set of buckets the calling thread counts into, allocated on its first use
+     * @return counts
+     */
+    private AtomicLongArray counts() {
+        long id = Thread.currentThread().getId();
+        // spreads thread ids made one after another over the stripes
+        int s = (int) (id * 0x9E3779B97F4A7C15L >>> 32) & (STRIPES - 1);
+        AtomicLongArray counts = stripes.get(s);
+        if (counts == null) {
+            stripes.compareAndSet(s, null, new AtomicLongArray(BUCKETS));
+            counts = stripes.get(s);
+        }
+        return counts;
+    }
+
+    /**
+     * The bucket of a value
+     * @param value non-negative
+     * @return bucket index
+     */
+    static int bucket(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        // the top SUB_BITS bits of the value pick the bucket within its power of two
+        int shift = 64 - SUB_BITS - Long.numberOfLeadingZeros(value);
+        return shift * HALF_COUNT + (int) (value >>> shift);
+    }
+
+    /**
+     * The highest value of a bucket
+     * @param bucket index
+     * @return value
+     */
+    static long highest(int bucket) {
+        if (bucket < SUB_COUNT) {
+            return bucket;
+        }
+        int shift = bucket / HALF_COUNT - 1;
+        long lowest = (long) (bucket % HALF_COUNT + HALF_COUNT) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,60 @@
+package gomoku.metrics;
+
+/**
+ * What JMX shows of a Histogram.
+ */
+public interface HistogramMXBean {
+
+    /**
+     * Getter for the unit of the values, e.g. "ns"
+     * @return unit
+     */
+    String getUnit();
+
+    /**
+     * Getter for the number of values recorded
+     * @return count
+     */
+    long getCount();
+
+    /**
+     * Getter for the mean of the values recorded
+     * @return mean, 0 when there are none
+     */
+    double getMean();
+
+    /**
+     * Getter for the largest value recorded
+     * @return max, 0 when there are none
+     */
+    long getMax();
+
+    /**
+     * Getter for the median
+     * @return the 50th percentile
+     */
+    long getP50();
+
+    /**
+     * Getter for the 90th percentile
+     * @return p90
+     */
+    long getP90();
+
+    /**
+     * Getter for the 99th percentile
+     * @return p99
+     */
+    long getP99();
+
+    /**
+     * Getter for the 99.9th percentile
+     * @return p999
+     */
+    long getP999();
+
+    /**
+     * Forgets every value recorded
+     */
+    void reset();
+}
@@ -0,0 +1,103 @@
+package gomoku.metrics;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The metrics every part of the game records into, always on: move checks, engine searches and games in progress.
+ *
+ * install exposes them as MBeans (gomoku:type=Histogram,name=... and gomoku:type=Gauge,name=..., so jconsole or
+ * any JMX client can watch a running server) and, when the gomoku.metrics.dump system property gives a period in
+ * seconds, prints them all to standard error that often.
+ */
+public final class Metrics {
+
+    /** Time to check and play one move, from the click or the server command to the rule verdict */
+    public static final Histogram MOVE_VALIDATION = new Histogram("moveValidation", "ns");
+    /** Time an engine took to choose a move */
+    public static final Histogram SEARCH_TIME = new Histogram("searchTime", "ns");
+    /** Nodes per second of each alpha-beta move */
+    public static final Histogram NODES_PER_SECOND = new Histogram("nodesPerSecond", "nodes/s");
+    /** Depth each parallel search reached, or the length of the forced win it found */
+    public static final Histogram SEARCH_DEPTH = new Histogram("searchDepth", "plies");
+    /** Share of transposition table probes that found their position, per search */
+    public static final Histogram TABLE_HIT_RATE = new Histogram("tableHitRate", "%");
+    /** Games started and not yet over, on the server and in tournaments */
+    public static final Gauge GAMES_IN_PROGRESS = new Gauge("gamesInProgress");
+    /** Moves played from an opening book rather than searched, by the game and by BookEngines */
+    public static final Gauge BOOK_MOVES = new Gauge("bookMoves");
+    /** Moves the rules refused: four-fours, three-threes and Renju overlines, in the game and on the server */
+    public static final Gauge FORBIDDEN_MOVES = new Gauge("forbiddenMoves");
+
+    private static final Histogram[] HISTOGRAMS = { MOVE_VALIDATION, SEARCH_TIME, NODES_PER_SECOND, SEARCH_DEPTH,
+            TABLE_HIT_RATE };
+    private static final Gauge[] GAUGES = { GAMES_IN_PROGRESS, BOOK_MOVES, FORBIDDEN_MOVES };
+
+    /** Whether install already ran */
+    private static boolean installed;
+
+    private Metrics() {
+    }
+
+    /**
+     * Registers the MBeans and starts the dump the gomoku.metrics.dump system property asks for. Only the first
+     * call does anything.
+     */
+    public static synchronized void install() {
+        if (installed) {
+            return;
+        }
+        installed = true;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (Histogram histogram : HISTOGRAMS) {
+                server.registerMBean(histogram, new ObjectName("gomoku:type=Histogram,name=" + histogram.getName()));
+            }
+            for (Gauge gauge : GAUGES) {
+                server.registerMBean(gauge, new ObjectName("gomoku:type=Gauge,name=" + gauge.getName()));
+            }
+        } catch (JMException e) {
+            System.out.println("Metrics aren't on JMX: " + e.getMessage());
+        }
+        long seconds = Long.getLong("gomoku.metrics.dump", 0);
+        if (seconds > 0) {
+            startDump(seconds, System.err);
+        }
+    }
+
+    /**
+     * Prints dump() on a daemon thread at a fixed period
+     * @param seconds between dumps
+     * @param out
+     */
+    public static void startDump(long seconds, PrintStream out) {
+        ScheduledExecutorService dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "gomoku-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(() -> out.print(dump()), seconds, seconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Every metric as text, one line each
+     * @return the lines, each ending in a line break
+     */
+    public static String dump() {
+        StringBuilder text = new StringBuilder();
+        for (Histogram histogram : HISTOGRAMS) {
+            text.append("metrics ").append(histogram.summary()).append('\n');
+        }
+        for (Gauge gauge : GAUGES) {
+            text.append("metrics ").append(gauge.summary()).append('\n');
+        }
+        return text.toString();
+    }
+}
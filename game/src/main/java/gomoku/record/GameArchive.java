@@ -0,0 +1,251 @@
+package gomoku.record;
+
+import gomoku.engine.BitBoard;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only view of an archive written by GameArchiveWriter, holding the games there were when it was opened.
+ *
+ * Both files are memory mapped rather than read, so the archive takes no heap however big it is and the pages
+ * are loaded by the OS as they are touched. A mapping can't be over 2 GB, so the archive is mapped in segments
+ * of SEGMENT_BYTES; each data segment runs on for one more largest record, so a record is always whole in the
+ * segment it starts in. Game n is found with one read of the index, and its header and moves are read in place.
+ *
+ * Reads don't change any state, so one archive can be read from many threads.
+ */
+public class GameArchive {
+
+    /** Result of replay when a move is off the board, occupied, forbidden or played after the game ended */
+    public static final int ILLEGAL = -1;
+
+    /** Bytes per mapped segment */
+    private static final long SEGMENT_BYTES = 1L << 30;
+
+    private final MappedByteBuffer[] data;
+    private final MappedByteBuffer[] index;
+    private final long games;
+
+    /**
+     * Opens an archive
+     * @param path the archive; the index is next to it, see GameArchiveWriter.indexPath
+     * @throws IOException when the files can't be read or aren't an archive
+     */
+    public GameArchive(Path path) throws IOException {
+        try (FileChannel dataChannel = FileChannel.open(path, StandardOpenOption.READ);
+                FileChannel indexChannel = FileChannel.open(GameArchiveWriter.indexPath(path),
+                        StandardOpenOption.READ)) {
+            long dataSize = dataChannel.size();
+            long indexSize = indexChannel.size() / 8 * 8;
+            data = map(dataChannel, dataSize, GameRecord.MAX_BYTES);
+            index = map(indexChannel, indexSize, 0);
+            if (dataSize < GameArchiveWriter.FILE_HEADER_BYTES || data[0].getInt(0) != GameArchiveWriter.MAGIC
+                    || data[0].getInt(4) != GameArchiveWriter.VERSION) {
+                throw new IOException("Not a game archive");
+            }
+
+            // leave out records cut short, as GameArchiveWriter does when it opens the archive
+            long count = indexSize / 8;
+            while (count > 0 && !fits(count - 1, dataSize)) {
+                count--;
+            }
+            games = count;
+        }
+    }
+
+    /**
+     * Whether a record is whole in the data
+     * @param game number of the game, from 0
+     * @param dataSize bytes in the data
+     * @return boolean
+     */
+    private boolean fits(long game, long dataSize) {
+        long position = 8 * game;
+        long offset = index[(int) (position / SEGMENT_BYTES)].getLong((int) (position % SEGMENT_BYTES));
+        if (offset < GameArchiveWriter.FILE_HEADER_BYTES || offset + GameRecord.HEADER_BYTES > dataSize) {
+            return false;
+        }
+        int moves = segment(offset).getShort((int) (offset % SEGMENT_BYTES)) & 0xFFFF;
+        return offset + GameRecord.HEADER_BYTES + 2L * moves <= dataSize;
+    }
+
+    /**
+     * Maps a file in segments
+     * @param channel
+     * @param size bytes to map
+     * @param overlap bytes each segment runs on into the next
+     * @return the segments
+     * @throws IOException
+     */
+    private static MappedByteBuffer[] map(FileChannel channel, long size, int overlap) throws IOException {
+        int count = (int) Math.max(1, (size + SEGMENT_BYTES - 1) / SEGMENT_BYTES);
+        MappedByteBuffer[] segments = new MappedByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            long start = i * SEGMENT_BYTES;
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                    Math.min(size - start, SEGMENT_BYTES + overlap));
+        }
+        return segments;
+    }
+
+    /**
+     * Getter for the number of games
+     * @return games
+     */
+    public long getGameCount() {
+        return games;
+    }
+
+    /**
+     * Offset of a record in the archive
+     * @param game number of the game, from 0
+     * @return offset
+     */
+    private long offset(long game) {
+        if (game < 0 || game >= games) {
+            throw new IndexOutOfBoundsException("No game " + game);
+        }
+        long position = 8 * game;
+        return index[(int) (position / SEGMENT_BYTES)].getLong((int) (position % SEGMENT_BYTES));
+    }
+
+    /**
+     * Segment holding the record at an offset
+     * @param offset
+     * @return segment
+     */
+    private ByteBuffer segment(long offset) {
+        return data[(int) (offset / SEGMENT_BYTES)];
+    }
+
+    /**
+     * Number of moves of a game
+     * @param game number of the game, from 0
+     * @return moves
+     */
+    public int getMoveCount(long game) {
+        long offset = offset(game);
+        return segment(offset).getShort((int) (offset % SEGMENT_BYTES)) & 0xFFFF;
+    }
+
+    /**
+     * Result of a game, as recorded
+     * @param game number of the game, from 0
+     * @return GameRecord.UNFINISHED, BLACK_WIN, WHITE_WIN or DRAW
+     */
+    public int getResult(long game) {
+        long offset = offset(game);
+        return segment(offset).get((int) (offset % SEGMENT_BYTES) + 8);
+    }
+
+    /**
+     * When a game started
+     * @param game number of the game, from 0
+     * @return epoch millis
+     */
+    public long getTimestamp(long game) {
+        long offset = offset(game);
+        return segment(offset).getLong((int) (offset % SEGMENT_BYTES) + 9);
+    }
+
+    /**
+     * Cell of one move of a game
+     * @param game number of the game, from 0
+     * @param move index of the move, from 0
+     * @return row * columns + column
+     */
+    public int getCell(long game, int move) {
+        long offset = offset(game);
+        ByteBuffer segment = segment(offset);
+        int start = (int) (offset % SEGMENT_BYTES);
+        if (move < 0 || move >= (segment.getShort(start) & 0xFFFF)) {
+            throw new IndexOutOfBoundsException("No move " + move + " in game " + game);
+        }
+        return segment.getShort(start + GameRecord.HEADER_BYTES + 2 * move) & 0xFFFF;
+    }
+
+    /**
+     * Reads a whole game
+     * @param game number of the game, from 0
+     * @return the record
+     */
+    public GameRecord read(long game) {
+        long offset = offset(game);
+        return GameRecord.read(segment(offset), (int) (offset % SEGMENT_BYTES));
+    }
+
+    /**
+     * Plays a game again through the rules engine, straight from the mapped file without making a GameRecord
+     * @param game number of the game, from 0
+     * @param board cleared, then left with the final position; it must have the game's winNumber, rows and
+     *              columns, so one board can be reused for every game of a size
+     * @return BLACK_WIN or WHITE_WIN if a move won, DRAW if the board filled up, UNFINISHED, or ILLEGAL
+     */
+    public int replay(long game, BitBoard board) {
+        long offset = offset(game);
+        ByteBuffer segment = segment(offset);
+        int start = (int) (offset % SEGMENT_BYTES);
+        int moves = segment.getShort(start) & 0xFFFF;
+        int winNumber = segment.getShort(start + 2) & 0xFFFF;
+        int rows = segment.getShort(start + 4) & 0xFFFF;
+        int columns = segment.getShort(start + 6) & 0xFFFF;
+        if (board.getWinNumber() != winNumber || board.getRows() != rows || board.getColumns() != columns) {
+            throw new IllegalArgumentException("Incorrect input: game " + game + " is " + winNumber + " in a row on "
+                    + rows + "x" + columns);
+        }
+
+        board.clear();
+        int color = BitBoard.BLACK;
+        int position = start + GameRecord.HEADER_BYTES;
+        for (int i = 0; i < moves; i++, position += 2) {
+            int cell = segment.getShort(position) & 0xFFFF;
+            if (cell >= rows * columns) {
+                return ILLEGAL;
+            }
+            int result = board.play(cell / columns, cell % columns, color);
+            if (result == BitBoard.WIN) {
+                return i == moves - 1 ? color : ILLEGAL;
+            }
+            if (result != BitBoard.PLACED) {
+                return ILLEGAL;
+            }
+            color = color == BitBoard.BLACK ? BitBoard.WHITE : BitBoard.BLACK;
+        }
+        return board.getStoneCount() == rows * columns ? GameRecord.DRAW : GameRecord.UNFINISHED;
+    }
+
+    /**
+     * winNumber of a game
+     * @param game number of the game, from 0
+     * @return winNumber
+     */
+    public int getWinNumber(long game) {
+        long offset = offset(game);
+        return segment(offset).getShort((int) (offset % SEGMENT_BYTES) + 2) & 0xFFFF;
+    }
+
+    /**
+     * Rows of the board of a game
+     * @param game number of the game, from 0
+     * @return rows
+     */
+    public int getRows(long game) {
+        long offset = offset(game);
+        return segment(offset).getShort((int) (offset % SEGMENT_BYTES) + 4) & 0xFFFF;
+    }
+
+    /**
+     * Columns of the board of a game
+     * @param game number of the game, from 0
+     * @return columns
+     */
+    public int getColumns(long game) {
+        long offset = offset(game);
+        return segment(offset).getShort((int) (offset % SEGMENT_BYTES) + 6) & 0xFFFF;
+    }
+}
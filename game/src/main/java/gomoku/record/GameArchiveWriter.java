@@ -0,0 +1,191 @@
+package gomoku.record;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends games to an archive. An archive is two files: the records one after the other (see GameRecord) after
+ * a small file header, and next to it an index holding the offset of every record as a long, so game n is found
+ * by reading the long at 8 * n.
+ *
+ * Records are gathered in a buffer and written on flush() or when the buffer is full, records before the index,
+ * so the index should never point past the data. Opening an archive cuts off anything after the last whole
+ * record, which is what a crash in the middle of a flush leaves behind.
+ *
+ * Appending is synchronized, so many threads can share one writer.
+ */
+public class GameArchiveWriter implements Closeable {
+
+    /** File header: "GMKR" and the format version */
+    public static final int MAGIC = 0x474D4B52;
+    public static final int VERSION = 1;
+    public static final int FILE_HEADER_BYTES = 8;
+    /** Extension of the index file, added to the archive's name */
+    public static final String INDEX_SUFFIX = ".idx";
+
+    /** Records held before they are written */
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    private final FileChannel data;
+    private final FileChannel index;
+    private final ByteBuffer dataBuffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private final ByteBuffer indexBuffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+
+    /** Offset of the next record */
+    private long end;
+    /** Games in the archive, written or not */
+    private long games;
+
+    /**
+     * Opens an archive for appending, creating it when it doesn't exist
+     * @param path the archive; the index is path + INDEX_SUFFIX
+     * @throws IOException when the files can't be opened or aren't an archive
+     */
+    public GameArchiveWriter(Path path) throws IOException {
+        data = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        index = FileChannel.open(indexPath(path), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            recover();
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Path of the index of an archive
+     * @param path the archive
+     * @return the index
+     */
+    public static Path indexPath(Path path) {
+        return path.resolveSibling(path.getFileName() + INDEX_SUFFIX);
+    }
+
+    /**
+     * Writes the file header of a new archive, or finds the end of the last indexed record of an existing one
+     * and cuts off what follows it
+     * @throws IOException
+     */
+    private void recover() throws IOException {
+        if (data.size() < FILE_HEADER_BYTES) {
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES).putInt(MAGIC).putInt(VERSION).flip();
+            data.truncate(0);
+            writeFully(data, header, 0);
+            index.truncate(0);
+            end = FILE_HEADER_BYTES;
+            return;
+        }
+        ByteBuffer header = readFully(data, FILE_HEADER_BYTES, 0);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            throw new IOException("Not a game archive");
+        }
+
+        // drop index entries of records that didn't make it to the data
+        games = index.size() / 8;
+        end = FILE_HEADER_BYTES;
+        while (games > 0) {
+            long last = readFully(index, 8, 8 * (games - 1)).getLong(0);
+            if (last + GameRecord.HEADER_BYTES <= data.size()) {
+                int moves = readFully(data, 2, last).getShort(0) & 0xFFFF;
+                if (last + GameRecord.HEADER_BYTES + 2L * moves <= data.size()) {
+                    end = last + GameRecord.HEADER_BYTES + 2L * moves;
+                    break;
+                }
+            }
+            games--;
+        }
+        index.truncate(8 * games);
+        data.truncate(end);
+    }
+
+    /**
+     * Getter for the number of games, including those not written yet
+     * @return games
+     */
+    public synchronized long getGameCount() {
+        return games;
+    }
+
+    /**
+     * Adds a game at the end of the archive
+     * @param record
+     * @return the number of the game in the archive
+     * @throws IOException when the buffer can't be written out
+     */
+    public synchronized long append(GameRecord record) throws IOException {
+        if (dataBuffer.remaining() < record.getSize() || indexBuffer.remaining() < 8) {
+            flush();
+        }
+        indexBuffer.putLong(end);
+        record.write(dataBuffer);
+        end += record.getSize();
+        return games++;
+    }
+
+    /**
+     * Writes out the buffered games
+     * @throws IOException
+     */
+    public synchronized void flush() throws IOException {
+        long written = data.size();
+        dataBuffer.flip();
+        writeFully(data, dataBuffer, written);
+        dataBuffer.clear();
+
+        indexBuffer.flip();
+        writeFully(index, indexBuffer, index.size());
+        indexBuffer.clear();
+    }
+
+    /**
+     * Writes out the buffered games and closes the files
+     * @throws IOException
+     */
+    public synchronized void close() throws IOException {
+        try {
+            if (data.isOpen() && index.isOpen()) {
+                flush();
+            }
+        } finally {
+            data.close();
+            index.close();
+        }
+    }
+
+    /**
+     * Writes all of a buffer at a position
+     * @param channel
+     * @param buffer
+     * @param position
+     * @throws IOException
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Reads bytes at a position
+     * @param channel
+     * @param length
+     * @param position
+     * @return a buffer holding the bytes
+     * @throws IOException when the file is too short
+     */
+    private static ByteBuffer readFully(FileChannel channel, int length, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("The archive is cut short");
+            }
+        }
+        return buffer.flip();
+    }
+}
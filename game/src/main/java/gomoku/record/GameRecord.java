@@ -0,0 +1,209 @@
+package gomoku.record;
+
+import gomoku.engine.BitBoard;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * One game as it is kept in an archive: the game parameters, the result, when it started and its moves.
+ *
+ * On disk a record is a header of HEADER_BYTES followed by two bytes per move:
+ *   u16 moves, u16 winNumber, u16 rows, u16 columns, u8 result, s64 timestamp (epoch millis), u16 cell...
+ * where cell = row * columns + column, as in gridInt order. Colors aren't stored, black always moves first and
+ * the colors alternate, the same as in Gomoku.
+ */
+public class GameRecord {
+
+    /** Results (the winner uses the color ints of gridInt) */
+    public static final int UNFINISHED = 0;
+    public static final int BLACK_WIN = BitBoard.BLACK;
+    public static final int WHITE_WIN = BitBoard.WHITE;
+    public static final int DRAW = 3;
+
+    /** Bytes before the moves of a record */
+    public static final int HEADER_BYTES = 17;
+    /** Largest board a record can hold, so a cell fits in two bytes */
+    public static final int MAX_CELLS = 0xFFFF;
+    /** Largest record on disk */
+    public static final int MAX_BYTES = HEADER_BYTES + 2 * MAX_CELLS;
+
+    private final int winNumber;
+    private final int rows;
+    private final int columns;
+    private final long timestamp;
+    private int result = UNFINISHED;
+
+    /** Cells played, in order */
+    private short[] cells;
+    private int moveCount;
+
+    /**
+     * Constructor for a game with no moves yet
+     * @param winNumber the number of pieces in a row needed to win game
+     * @param rows
+     * @param columns
+     * @param timestamp when the game started, in epoch millis
+     */
+    public GameRecord(int winNumber, int rows, int columns, long timestamp) {
+        if (rows < 1 || columns < 1 || (long) rows * columns > MAX_CELLS || winNumber < 1 || winNumber > 0xFFFF) {
+            throw new IllegalArgumentException("Incorrect input: a record holds boards of at most " + MAX_CELLS
+                    + " cells");
+        }
+        this.winNumber = winNumber;
+        this.rows = rows;
+        this.columns = columns;
+        this.timestamp = timestamp;
+        this.cells = new short[Math.min(rows * columns, 64)];
+    }
+
+    /**
+     * Getter for winNumber
+     * @return winNumber
+     */
+    public int getWinNumber() {
+        return winNumber;
+    }
+
+    /**
+     * Getter for rows
+     * @return rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Getter for columns
+     * @return columns
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Getter for when the game started
+     * @return epoch millis
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Getter for the result
+     * @return UNFINISHED, BLACK_WIN, WHITE_WIN or DRAW
+     */
+    public int getResult() {
+        return result;
+    }
+
+    /**
+     * Setter for the result
+     * @param result UNFINISHED, BLACK_WIN, WHITE_WIN or DRAW
+     */
+    public void setResult(int result) {
+        if (result < UNFINISHED || result > DRAW) {
+            throw new IllegalArgumentException("Incorrect result: " + result);
+        }
+        this.result = result;
+    }
+
+    /**
+     * Getter for the number of moves
+     * @return moves
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    /**
+     * Row of a move
+     * @param move index of the move, from 0
+     * @return row
+     */
+    public int getRow(int move) {
+        return getCell(move) / columns;
+    }
+
+    /**
+     * Column of a move
+     * @param move index of the move, from 0
+     * @return column
+     */
+    public int getColumn(int move) {
+        return getCell(move) % columns;
+    }
+
+    /**
+     * Cell of a move
+     * @param move index of the move, from 0
+     * @return row * columns + column
+     */
+    public int getCell(int move) {
+        if (move < 0 || move >= moveCount) {
+            throw new IndexOutOfBoundsException("No move " + move);
+        }
+        return cells[move] & 0xFFFF;
+    }
+
+    /**
+     * Adds the next move
+     * @param row
+     * @param column
+     */
+    public void addMove(int row, int column) {
+        if (row < 0 || row >= rows || column < 0 || column >= columns) {
+            throw new IndexOutOfBoundsException("Not on the board: " + row + ", " + column);
+        }
+        if (moveCount == rows * columns) {
+            throw new IllegalStateException("The board is full");
+        }
+        if (moveCount == cells.length) {
+            cells = Arrays.copyOf(cells, Math.min(rows * columns, cells.length * 2));
+        }
+        cells[moveCount++] = (short) (row * columns + column);
+    }
+
+    /**
+     * Bytes the record takes on disk
+     * @return bytes
+     */
+    public int getSize() {
+        return HEADER_BYTES + 2 * moveCount;
+    }
+
+    /**
+     * Writes the record at the position of a buffer, which must have getSize() bytes left
+     * @param buffer
+     */
+    public void write(ByteBuffer buffer) {
+        buffer.putShort((short) moveCount);
+        buffer.putShort((short) winNumber);
+        buffer.putShort((short) rows);
+        buffer.putShort((short) columns);
+        buffer.put((byte) result);
+        buffer.putLong(timestamp);
+        for (int i = 0; i < moveCount; i++) {
+            buffer.putShort(cells[i]);
+        }
+    }
+
+    /**
+     * Reads a record written by write, without moving the position of the buffer
+     * @param buffer
+     * @param offset where the record starts in the buffer
+     * @return the record
+     */
+    public static GameRecord read(ByteBuffer buffer, int offset) {
+        int moves = buffer.getShort(offset) & 0xFFFF;
+        GameRecord record = new GameRecord(buffer.getShort(offset + 2) & 0xFFFF, buffer.getShort(offset + 4) & 0xFFFF,
+                buffer.getShort(offset + 6) & 0xFFFF, buffer.getLong(offset + 9));
+        record.setResult(buffer.get(offset + 8));
+        record.cells = new short[Math.max(1, moves)];
+        for (int i = 0; i < moves; i++) {
+            record.cells[i] = buffer.getShort(offset + HEADER_BYTES + 2 * i);
+        }
+        record.moveCount = moves;
+        return record;
+    }
+}
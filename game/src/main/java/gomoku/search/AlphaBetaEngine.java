@@ -0,0 +1,674 @@
+package gomoku.search;
+
+import gomoku.engine.BitBoard;
+import gomoku.engine.LegalMoves;
+import gomoku.engine.PatternTable;
+import gomoku.engine.Zobrist;
+import gomoku.metrics.Metrics;
+
+/**
+ * Negamax alpha-beta search with iterative deepening under a time budget per move.
+ *
+ * Only empty cells within two of a stone are searched, ordered by the shapes they make in the pattern table, and
+ * only the best few of them at each node. Moves breaking the four-four or three-three rule are never played, the
+ * same as in ProcessClick. When the opponent threatens to win, only the blocking cells are searched.
+ * Results are kept in a transposition table keyed by the Zobrist hash, which can be shared with other engines.
+ * Before searching, a ThreatSolver gets a short slice of the budget to look for a forced win by fours and threes,
+ * which is played at once when found.
+ */
+public class AlphaBetaEngine implements Engine {
+
+    /** Score of a won position, less the plies it takes */
+    public static final int WIN_SCORE = 1000000;
+    /** Deepest ply the search can reach */
+    private static final int MAX_PLY = 64;
+    /** Above any score */
+    private static final int INFINITY = WIN_SCORE + 1;
+    /** Nodes between two looks at the clock */
+    private static final int CLOCK_MASK = 1023;
+
+    /** Worth of each pattern table shape for ordering moves, indexed by shape */
+    private static final int[] ORDER_SCORE = { 0, 2, 8, 6, 40, 1, 50, 400, 10000, 0 };
+
+    /** Milliseconds allowed per move */
+    private long budgetMillis = 1000;
+    /** Deepest iteration to start */
+    private int maxDepth = MAX_PLY - 1;
+    /** Number of moves searched at each node below the root */
+    private int width = 10;
+    /** Number of moves searched at the root */
+    private int rootWidth = 20;
+    /** Results of earlier searches, made on the first search when not given */
+    private TranspositionTable transpositions;
+    /** First iteration depth, helpers of a parallel search may start deeper */
+    private int startDepth = 1;
+    /** State of the random ordering noise, 0 for none */
+    private long noise;
+    /** Milliseconds of the budget given to the threat solver, 0 for none */
+    private long threatMillis = 50;
+    /** Looks for forced wins before searching, made on the first move */
+    private ThreatSolver threats;
+
+    /** Position being searched (a private copy) */
+    private PatternTable table;
+    private BitBoard board;
+    private int rows;
+    private int columns;
+    /** Number of stones within two cells, per cell */
+    private int[] near;
+    /** Cut-off counts per cell, for ordering */
+    private int[] history;
+    /** Legal moves of the side to move, filled by generate and anyLegalMove */
+    private long[] legal;
+    private int wordsPerRow;
+
+    /** Moves and their ordering scores per ply */
+    private final int[][] plyMoves = new int[MAX_PLY + 1][];
+    private final int[][] plyScores = new int[MAX_PLY + 1][];
+
+    /** When the running search has to stop, in System.nanoTime */
+    private long deadline;
+    /** Whether the running search ran out of time */
+    private boolean aborted;
+    /** Set from another thread to end the running search */
+    private volatile boolean stopped;
+
+    /** Statistics of the last search */
+    private long nodes;
+    private int depthReached;
+    private int lastScore;
+    private long elapsedNanos;
+    private boolean forcedWin;
+    /** Transposition table probes of the last search, and how many found their position */
+    private long tableProbes;
+    private long tableHits;
+
+    /**
+     * Constructor with the default budget of one second per move
+     */
+    public AlphaBetaEngine() {
+    }
+
+    /**
+     * Constructor with a budget per move
+     * @param budgetMillis milliseconds allowed per move
+     */
+    public AlphaBetaEngine(long budgetMillis) {
+        this.budgetMillis = budgetMillis;
+    }
+
+    /**
+     * Constructor with a budget per move and a transposition table, which may be shared with other engines
+     * @param budgetMillis milliseconds allowed per move
+     * @param transpositions
+     */
+    public AlphaBetaEngine(long budgetMillis, TranspositionTable transpositions) {
+        this.budgetMillis = budgetMillis;
+        this.transpositions = transpositions;
+    }
+
+    /**
+     * Getter for the transposition table
+     * @return transpositions
+     */
+    public TranspositionTable getTranspositions() {
+        if (transpositions == null) {
+            transpositions = new TranspositionTable();
+        }
+        return transpositions;
+    }
+
+    /**
+     * Setter for the milliseconds allowed per move
+     * @param budgetMillis
+     */
+    public void setBudgetMillis(long budgetMillis) {
+        this.budgetMillis = budgetMillis;
+    }
+
+    /**
+     * Getter for the milliseconds allowed per move
+     * @return budgetMillis
+     */
+    public long getBudgetMillis() {
+        return budgetMillis;
+    }
+
+    /**
+     * Setter for the deepest iteration to start
+     * @param maxDepth
+     */
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = Math.max(1, Math.min(MAX_PLY - 1, maxDepth));
+    }
+
+    /**
+     * Setter for the number of moves searched at each node, and at the root
+     * @param width
+     * @param rootWidth
+     */
+    public void setWidth(int width, int rootWidth) {
+        this.width = Math.max(1, width);
+        this.rootWidth = Math.max(1, rootWidth);
+    }
+
+    /**
+     * Setter for the first iteration depth
+     * @param startDepth
+     */
+    public void setStartDepth(int startDepth) {
+        this.startDepth = Math.max(1, Math.min(MAX_PLY - 1, startDepth));
+    }
+
+    /**
+     * Setter for the milliseconds of the budget given to the threat solver before each search; it never gets more
+     * than half the budget
+     * @param threatMillis 0 to never run it
+     */
+    public void setThreatMillis(long threatMillis) {
+        this.threatMillis = Math.max(0, threatMillis);
+    }
+
+    /**
+     * Getter for the threat solver, made on first use
+     * @return threats
+     */
+    public ThreatSolver getThreatSolver() {
+        if (threats == null) {
+            threats = new ThreatSolver(threatMillis);
+        }
+        return threats;
+    }
+
+    /**
+     * Adds a little random noise to move ordering, so parallel helpers search in different orders
+     * @param seed any seed, 0 turns the noise off
+     */
+    public void setOrderingNoise(long seed) {
+        this.noise = seed;
+    }
+
+    /**
+     * Ends the running search as soon as possible; it still returns its best move so far.
+     * Safe to call from another thread.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Getter for the nodes visited by the last search
+     * @return nodes
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Getter for the deepest iteration the last search completed
+     * @return depthReached
+     */
+    public int getDepth() {
+        return depthReached;
+    }
+
+    /**
+     * Getter for the score of the last search, from the point of view of the side that moved
+     * @return lastScore
+     */
+    public int getScore() {
+        return lastScore;
+    }
+
+    /**
+     * Getter for whether the last move was a forced win found by the threat solver
+     * @return forcedWin
+     */
+    public boolean isForcedWin() {
+        return forcedWin;
+    }
+
+    /**
+     * Getter for the nodes per second the last search achieved
+     * @return nodes per second
+     */
+    public long getNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1000000000L / elapsedNanos;
+    }
+
+    /**
+     * Chooses a move for color by iterative deepening until the budget runs out
+     * @param position the board with its pattern table
+     * @param color BLACK or WHITE, the side to move
+     * @return the chosen cell as row * columns + column, or -1 when no legal move is left
+     */
+    public int chooseMove(PatternTable position, int color) {
+        long start = System.nanoTime();
+        stopped = false;
+        int move = solveThreats(position, color, start);
+        if (move < 0) {
+            getTranspositions().newSearch();
+            move = search(position, color, start);
+        }
+        Metrics.SEARCH_TIME.record(System.nanoTime() - start);
+        Metrics.NODES_PER_SECOND.record(getNodesPerSecond());
+        return move;
+    }
+
+    /**
+     * Gives the threat solver its slice of the budget; on a proven win the statistics are the solver's
+     * @param position the board with its pattern table
+     * @param color the side to move
+     * @param start when the move was asked for, in System.nanoTime
+     * @return the first move of a forced win, or -1
+     */
+    int solveThreats(PatternTable position, int color, long start) {
+        forcedWin = false;
+        long slice = Math.min(threatMillis, budgetMillis / 2);
+        if (slice <= 0 || position.getBoard().getStoneCount() == 0) {
+            return -1;
+        }
+        ThreatSolver solver = getThreatSolver();
+        solver.setBudgetMillis(slice);
+        int win = solver.findWin(position, color);
+        if (win >= 0) {
+            forcedWin = true;
+            nodes = solver.getNodes();
+            depthReached = solver.getDepth();
+            lastScore = WIN_SCORE;
+            elapsedNanos = System.nanoTime() - start;
+        }
+        return win;
+    }
+
+    /**
+     * Makes stop() take effect again for the next search, before handing it to another thread
+     */
+    void resume() {
+        stopped = false;
+    }
+
+    /**
+     * Chooses a move without starting a new transposition table search, for parallel helpers
+     * @param position the board with its pattern table
+     * @param color BLACK or WHITE, the side to move
+     * @return the chosen cell, or -1
+     */
+    int search(PatternTable position, int color) {
+        return search(position, color, System.nanoTime());
+    }
+
+    /**
+     * Chooses a move without starting a new transposition table search, the budget counted from start
+     * @param position the board with its pattern table
+     * @param color the side to move
+     * @param start when the move was asked for, in System.nanoTime
+     * @return the chosen cell, or -1
+     */
+    int search(PatternTable position, int color, long start) {
+        long begin = System.nanoTime();
+        deadline = start + budgetMillis * 1000000L;
+        aborted = false;
+        nodes = 0;
+        depthReached = 0;
+        lastScore = 0;
+        tableProbes = 0;
+        tableHits = 0;
+        getTranspositions();
+        prepare(position);
+
+        int best = searchRoot(color);
+
+        elapsedNanos = System.nanoTime() - begin;
+        if (tableProbes > 0) {
+            Metrics.TABLE_HIT_RATE.record(tableHits * 100 / tableProbes);
+        }
+        return best;
+    }
+
+    /**
+     * Copies the position and sets up the per search arrays
+     * @param position
+     */
+    private void prepare(PatternTable position) {
+        table = new PatternTable(position);
+        board = table.getBoard();
+        rows = board.getRows();
+        columns = board.getColumns();
+        int cells = rows * columns;
+        wordsPerRow = LegalMoves.wordsPerRow(columns);
+        if (near == null || near.length != cells || legal.length != rows * wordsPerRow) {
+            near = new int[cells];
+            history = new int[cells];
+            legal = LegalMoves.newMask(rows, columns);
+        } else {
+            java.util.Arrays.fill(near, 0);
+            java.util.Arrays.fill(history, 0);
+        }
+        int size = Math.max(width, rootWidth);
+        if (plyMoves[0] == null || plyMoves[0].length < size) {
+            for (int ply = 0; ply <= MAX_PLY; ply++) {
+                plyMoves[ply] = new int[size];
+                plyScores[ply] = new int[size];
+            }
+        }
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                if (!board.isEmpty(r, c)) {
+                    addNear(r, c, 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Iterative deepening over the root moves
+     * @param color the side to move
+     * @return the chosen cell, or -1
+     */
+    private int searchRoot(int color) {
+        if (rows == 0 || columns == 0) {
+            return -1;
+        }
+        if (board.getStoneCount() == 0) {
+            // opens in the center
+            return (rows / 2) * columns + columns / 2;
+        }
+        int count = generate(0, color, rootWidth, TranspositionTable.move(transpositions.probe(key(color))));
+        if (count == 0) {
+            // every block is forbidden: the game is lost, but a legal move is still owed
+            return anyLegalMove(color);
+        }
+        int[] moves = plyMoves[0];
+        int best = moves[0];
+        if (count == 1 || table.isWinningMove(best / columns, best % columns, color)) {
+            return best;
+        }
+
+        for (int depth = Math.min(startDepth, maxDepth); depth <= maxDepth; depth++) {
+            int alpha = -INFINITY;
+            int bestAtDepth = -1;
+            for (int i = 0; i < count; i++) {
+                int move = moves[i];
+                make(move, color);
+                int score = -negamax(depth - 1, 1, -INFINITY, -alpha, 3 - color);
+                unmake(move);
+                if (aborted) {
+                    break;
+                }
+                if (score > alpha) {
+                    alpha = score;
+                    bestAtDepth = move;
+                    // the best move is searched first in the next iteration
+                    System.arraycopy(moves, 0, moves, 1, i);
+                    moves[0] = move;
+                }
+            }
+            if (bestAtDepth != -1) {
+                // a move completed at this depth beats the earlier best, which was searched first
+                best = bestAtDepth;
+                lastScore = alpha;
+            }
+            if (aborted) {
+                break;
+            }
+            transpositions.store(key(color), best, toTable(alpha, 0), depth, TranspositionTable.EXACT);
+            depthReached = depth;
+            if (Math.abs(alpha) >= WIN_SCORE - MAX_PLY) {
+                // the game is decided, deeper iterations won't change the move
+                break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Negamax with alpha-beta pruning
+     * @param depth plies left
+     * @param ply plies from the root
+     * @param alpha
+     * @param beta
+     * @param color the side to move
+     * @return the score for color
+     */
+    private int negamax(int depth, int ply, int alpha, int beta, int color) {
+        if ((++nodes & CLOCK_MASK) == 0 && (stopped || System.nanoTime() > deadline)) {
+            aborted = true;
+        }
+        if (aborted) {
+            return 0;
+        }
+        if (table.countWinningMoves(color) > 0) {
+            return WIN_SCORE - ply;
+        }
+
+        long key = key(color);
+        long entry = transpositions.probe(key);
+        tableProbes++;
+        int hashMove = -1;
+        if (entry != 0) {
+            tableHits++;
+            hashMove = TranspositionTable.move(entry);
+            if (TranspositionTable.depth(entry) >= depth) {
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && score >= beta)
+                        || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        if (depth == 0 || ply >= MAX_PLY) {
+            return evaluate(color);
+        }
+
+        int count = generate(ply, color, width, hashMove);
+        if (count == 0) {
+            // either every block is forbidden or the board is full
+            return table.countWinningMoves(3 - color) > 0 ? -(WIN_SCORE - ply - 1) : 0;
+        }
+
+        int[] moves = plyMoves[ply];
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = -1;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            make(move, color);
+            int score = -negamax(depth - 1, ply + 1, -beta, -alpha, 3 - color);
+            unmake(move);
+            if (aborted) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        history[move] += depth * depth;
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound = best <= originalAlpha ? TranspositionTable.UPPER
+                : best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+        transpositions.store(key, bestMove, toTable(best, ply), depth, bound);
+        return best;
+    }
+
+    /**
+     * The transposition table key of the private position with color to move
+     * @param color
+     * @return key
+     */
+    private long key(int color) {
+        return board.getHash() ^ (color == BitBoard.WHITE ? Zobrist.WHITE_TO_MOVE : 0);
+    }
+
+    /**
+     * Makes a win score relative to the node before storing it
+     * @param score
+     * @param ply
+     * @return score
+     */
+    private static int toTable(int score, int ply) {
+        if (score >= WIN_SCORE - MAX_PLY) {
+            return score + ply;
+        }
+        if (score <= -(WIN_SCORE - MAX_PLY)) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    /**
+     * Makes a stored win score relative to the root again
+     * @param score
+     * @param ply
+     * @return score
+     */
+    private static int fromTable(int score, int ply) {
+        if (score >= WIN_SCORE - MAX_PLY) {
+            return score - ply;
+        }
+        if (score <= -(WIN_SCORE - MAX_PLY)) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    /**
+     * Static evaluation from the shapes both colors could still make
+     * @param color the side to move
+     * @return the score for color
+     */
+    private int evaluate(int color) {
+        return table.getScore(color) - table.getScore(3 - color);
+    }
+
+    /**
+     * Fills plyMoves[ply] with the best candidate moves for color, best first
+     * @param ply
+     * @param color the side to move
+     * @param limit the most moves to keep
+     * @param hashMove move from the transposition table, searched first, or -1
+     * @return the number of moves
+     */
+    private int generate(int ply, int color, int limit, int hashMove) {
+        int[] moves = plyMoves[ply];
+        int[] scores = plyScores[ply];
+        int opponent = 3 - color;
+        int count = 0;
+
+        if (table.countWinningMoves(color) > 0) {
+            // winning now beats everything else
+            for (int r = 0, cell = 0; r < rows; r++) {
+                for (int c = 0; c < columns; c++, cell++) {
+                    if (near[cell] > 0 && board.isEmpty(r, c) && table.getFlags(r, c, color) == PatternTable.FLAG_WIN) {
+                        moves[0] = cell;
+                        return 1;
+                    }
+                }
+            }
+        }
+
+        boolean mustBlock = table.countWinningMoves(opponent) > 0;
+        LegalMoves.generate(table, color, legal);
+        for (int word = 0; word < legal.length; word++) {
+            int r = word / wordsPerRow;
+            // only the legal cells of the row, lowest column first
+            for (long bits = legal[word]; bits != 0; bits &= bits - 1) {
+                int c = (word % wordsPerRow << 6) + Long.numberOfTrailingZeros(bits);
+                int cell = r * columns + c;
+                if (near[cell] == 0) {
+                    continue;
+                }
+                if (mustBlock && table.getFlags(r, c, opponent) != PatternTable.FLAG_WIN) {
+                    continue;
+                }
+                int score = cell == hashMove ? Integer.MAX_VALUE / 2 : history[cell];
+                if (noise != 0) {
+                    // xorshift step, a few points either way only reorders close moves
+                    noise ^= noise << 13;
+                    noise ^= noise >>> 7;
+                    noise ^= noise << 17;
+                    score += (int) (noise & 7);
+                }
+                for (int direction = 0; direction < 4; direction++) {
+                    score += ORDER_SCORE[table.getShape(r, c, color, direction)] * 2
+                            + ORDER_SCORE[table.getShape(r, c, opponent, direction)];
+                }
+
+                // insertion into the kept moves, best first
+                if (count == limit && score <= scores[count - 1]) {
+                    continue;
+                }
+                int i = count < limit ? count++ : count - 1;
+                while (i > 0 && scores[i - 1] < score) {
+                    moves[i] = moves[i - 1];
+                    scores[i] = scores[i - 1];
+                    i--;
+                }
+                moves[i] = cell;
+                scores[i] = score;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Finds the first free cell color may play
+     * @param color
+     * @return the cell, or -1 when the board is full or every free cell is forbidden
+     */
+    private int anyLegalMove(int color) {
+        LegalMoves.generate(table, color, legal);
+        return LegalMoves.first(legal, columns);
+    }
+
+    /**
+     * Plays a move on the private position
+     * @param cell
+     * @param color
+     */
+    private void make(int cell, int color) {
+        int r = cell / columns;
+        int c = cell - r * columns;
+        table.place(r, c, color);
+        addNear(r, c, 1);
+    }
+
+    /**
+     * Takes a move back on the private position
+     * @param cell
+     */
+    private void unmake(int cell) {
+        int r = cell / columns;
+        int c = cell - r * columns;
+        table.undo(r, c);
+        addNear(r, c, -1);
+    }
+
+    /**
+     * Adds to the near count of every cell within two of row and column
+     * @param row
+     * @param column
+     * @param amount 1 for a placement, -1 for an undo
+     */
+    private void addNear(int row, int column, int amount) {
+        int top = Math.max(0, row - 2);
+        int bottom = Math.min(rows - 1, row + 2);
+        int left = Math.max(0, column - 2);
+        int right = Math.min(columns - 1, column + 2);
+        for (int r = top; r <= bottom; r++) {
+            for (int c = left; c <= right; c++) {
+                near[r * columns + c] += amount;
+            }
+        }
+    }
+}
@@ -0,0 +1,498 @@
+package gomoku.search;
+
+import gomoku.engine.BitBoard;
+import gomoku.engine.PatternTable;
+import gomoku.engine.Zobrist;
+
+/**
+ * Depth-first proof-number search (df-pn): proves or disproves that one side, the attacker, wins a position by
+ * force, at depths alpha-beta can't reach.
+ *
+ * Every position has a proof number, the fewest positions still to prove for the attacker to win, and a disproof
+ * number, the fewest to prove for it not to. The search always expands the most proving position, and stays in
+ * a subtree until its numbers pass thresholds set from its siblings, so it only needs the table of numbers and
+ * the current line. The table is a ProofTable of fixed size, so a solve can run for hours in the memory given to
+ * it. Thresholds are widened by a quarter (the 1 + epsilon trick) so the search doesn't keep switching between
+ * two close subtrees.
+ *
+ * Moves are every empty cell within a radius of a stone that the rules allow, the same four-four and three-three
+ * bans as ProcessClick; a side facing a four may only block it, and loses when the block is forbidden. A position
+ * where the side to move has no move left is a draw, so not a win for the attacker. Cells further from every stone
+ * than the radius are never tried: the answers are exact for the moves within it.
+ */
+public class DfpnSolver {
+
+    /** Results of solve */
+    public static final int UNKNOWN = -1;
+    public static final int DISPROVEN = 0;
+    public static final int PROVEN = 1;
+
+    /** Game values from value, for the side to move */
+    public static final int LOSS = 0;
+    public static final int WIN = 1;
+    public static final int DRAW = 2;
+
+    /** Largest board solved, every empty cell may be a ply of the current line */
+    public static final int MAX_CELLS = 512;
+    /** Nodes between two looks at the clock */
+    private static final int CLOCK_MASK = 1023;
+    /** Xored into the keys of positions searched for WHITE, so both attackers share one table */
+    private static final long WHITE_ATTACKS = Zobrist.WHITE_TO_MOVE * 0x9E3779B97F4A7C15L;
+    /** Ends of the game found by generate instead of a move count */
+    private static final int WON = 0;
+    private static final int LOST = -1;
+    private static final int DRAWN = -2;
+    /** Worth of each pattern table shape for ordering moves, indexed by shape */
+    private static final int[] ORDER_SCORE = { 0, 2, 8, 6, 40, 1, 50, 400, 10000, 0 };
+
+    /** Milliseconds allowed per solve, 0 for no limit */
+    private long budgetMillis;
+    /** Moves are cells within this many of a stone */
+    private int radius = 2;
+    /** Proof and disproof numbers, kept between solves */
+    private final ProofTable proofs;
+
+    /** Position being solved (a private copy) */
+    private PatternTable table;
+    private BitBoard board;
+    private int rows;
+    private int columns;
+    private int attacker;
+    private long attackerKey;
+    /** Number of stones within the radius, per cell, and whether it holds a stone */
+    private int[] near;
+    private boolean[] taken;
+
+    /** Moves, their child keys and ordering scores per ply, made as the line gets that deep */
+    private final int[][] plyMoves = new int[MAX_CELLS + 1][];
+    private final long[][] plyKeys = new long[MAX_CELLS + 1][];
+    private final int[][] plyScores = new int[MAX_CELLS + 1][];
+
+    /** When the running solve has to stop, in System.nanoTime */
+    private long deadline;
+    /** Whether the running solve ran out of time or was stopped */
+    private boolean aborted;
+    /** Set from another thread to end the running solve */
+    private volatile boolean stopped;
+
+    /** Statistics of the last solve */
+    private long nodes;
+    private int move = -1;
+    private int proof;
+    private int disproof;
+    private long elapsedNanos;
+
+    /**
+     * Constructor with no time limit and a table of the default size
+     */
+    public DfpnSolver() {
+        this(0, new ProofTable());
+    }
+
+    /**
+     * Constructor
+     * @param budgetMillis milliseconds allowed per solve, 0 for no limit
+     * @param proofs table of proof numbers, kept between solves
+     */
+    public DfpnSolver(long budgetMillis, ProofTable proofs) {
+        this.budgetMillis = budgetMillis;
+        this.proofs = proofs;
+    }
+
+    /**
+     * Setter for the milliseconds allowed per solve
+     * @param budgetMillis 0 for no limit
+     */
+    public void setBudgetMillis(long budgetMillis) {
+        this.budgetMillis = budgetMillis;
+    }
+
+    /**
+     * Setter for how far from every stone a move may be; the table has to be cleared when it changes
+     * @param radius at least 1
+     */
+    public void setRadius(int radius) {
+        this.radius = Math.max(1, radius);
+    }
+
+    /**
+     * Getter for the table of proof numbers
+     * @return proofs
+     */
+    public ProofTable getProofs() {
+        return proofs;
+    }
+
+    /**
+     * Ends the running solve as soon as possible, its answer is then UNKNOWN. Safe to call from another thread.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Getter for the nodes expanded by the last solve
+     * @return nodes
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Getter for the nodes expanded per second by the last solve
+     * @return nodes per second
+     */
+    public long getNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1000000000L / elapsedNanos;
+    }
+
+    /**
+     * Getter for the milliseconds the last solve took
+     * @return milliseconds
+     */
+    public long getMillis() {
+        return elapsedNanos / 1000000;
+    }
+
+    /**
+     * Getter for the winning move found by the last solve, when the attacker was to move
+     * @return the cell as row * columns + column, or -1
+     */
+    public int getMove() {
+        return move;
+    }
+
+    /**
+     * Getter for the proof number of the root after the last solve, 0 when proven
+     * @return proof number
+     */
+    public int getProof() {
+        return proof;
+    }
+
+    /**
+     * Getter for the disproof number of the root after the last solve, 0 when disproven
+     * @return disproof number
+     */
+    public int getDisproof() {
+        return disproof;
+    }
+
+    /**
+     * Solves whether the side to move wins
+     * @param position the board with its pattern table, left unchanged
+     * @param color BLACK or WHITE, the side to move
+     * @return PROVEN, DISPROVEN or UNKNOWN
+     */
+    public int solve(PatternTable position, int color) {
+        return solve(position, color, color);
+    }
+
+    /**
+     * Solves whether the attacker wins, whoever is to move
+     * @param position the board with its pattern table, left unchanged
+     * @param color BLACK or WHITE, the side to move
+     * @param attacker BLACK or WHITE, the side trying to win
+     * @return PROVEN (getMove gives the move when the attacker is to move), DISPROVEN or UNKNOWN
+     */
+    public int solve(PatternTable position, int color, int attacker) {
+        long start = System.nanoTime();
+        deadline = budgetMillis > 0 ? start + budgetMillis * 1000000L : Long.MAX_VALUE;
+        stopped = false;
+        nodes = 0;
+        int result = run(position, color, attacker);
+        elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * Works out the game value for the side to move: first whether it wins, then whether the other side does,
+     * both within one budget
+     * @param position the board with its pattern table, left unchanged
+     * @param color BLACK or WHITE, the side to move
+     * @return WIN (getMove gives the move), LOSS, DRAW or UNKNOWN
+     */
+    public int value(PatternTable position, int color) {
+        long start = System.nanoTime();
+        deadline = budgetMillis > 0 ? start + budgetMillis * 1000000L : Long.MAX_VALUE;
+        stopped = false;
+        nodes = 0;
+        int value = UNKNOWN;
+        int result = run(position, color, color);
+        if (result == PROVEN) {
+            value = WIN;
+        } else if (result == DISPROVEN) {
+            result = run(position, color, 3 - color);
+            value = result == PROVEN ? LOSS : result == DISPROVEN ? DRAW : UNKNOWN;
+        }
+        elapsedNanos = System.nanoTime() - start;
+        return value;
+    }
+
+    /**
+     * Solves the root under the running deadline
+     * @param position
+     * @param color the side to move
+     * @param attacker the side trying to win
+     * @return PROVEN, DISPROVEN or UNKNOWN
+     */
+    private int run(PatternTable position, int color, int attacker) {
+        if ((long) position.getBoard().getRows() * position.getBoard().getColumns() > MAX_CELLS) {
+            throw new IllegalArgumentException("Incorrect input: boards hold at most " + MAX_CELLS + " cells");
+        }
+        prepare(position, attacker);
+        aborted = false;
+        move = -1;
+        mid(0, color, ProofTable.INFINITY, ProofTable.INFINITY);
+
+        long data = proofs.probe(key(color));
+        proof = ProofTable.proof(data);
+        disproof = ProofTable.disproof(data);
+        if (proof == 0) {
+            return PROVEN;
+        }
+        if (disproof == 0) {
+            return DISPROVEN;
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * Copies the position and sets up the per solve arrays
+     * @param position
+     * @param attacker
+     */
+    private void prepare(PatternTable position, int attacker) {
+        table = new PatternTable(position);
+        board = table.getBoard();
+        rows = board.getRows();
+        columns = board.getColumns();
+        this.attacker = attacker;
+        attackerKey = attacker == BitBoard.WHITE ? WHITE_ATTACKS : 0;
+        int cells = rows * columns;
+        if (near == null || near.length != cells) {
+            near = new int[cells];
+            taken = new boolean[cells];
+            for (int ply = 0; ply <= MAX_CELLS; ply++) {
+                plyMoves[ply] = null;
+                plyKeys[ply] = null;
+                plyScores[ply] = null;
+            }
+        } else {
+            java.util.Arrays.fill(near, 0);
+        }
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                taken[r * columns + c] = !board.isEmpty(r, c);
+                if (taken[r * columns + c]) {
+                    addNear(r, c, 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Expands a position until its proof or disproof number reaches its threshold, then stores the numbers
+     * @param ply plies from the root
+     * @param color the side to move
+     * @param proofLimit threshold of the proof number
+     * @param disproofLimit threshold of the disproof number
+     */
+    private void mid(int ply, int color, int proofLimit, int disproofLimit) {
+        if ((++nodes & CLOCK_MASK) == 0 && (stopped || System.nanoTime() > deadline)) {
+            aborted = true;
+        }
+        long key = key(color);
+        long before = nodes;
+        boolean or = color == attacker;
+
+        int count = generate(ply, color);
+        if (count <= 0) {
+            // the side to move wins or loses at once, or the game is drawn
+            boolean won = count != DRAWN && (count == WON) == or;
+            if (won && ply == 0) {
+                move = winningCell(color);
+            }
+            proofs.store(key, won ? 0 : ProofTable.INFINITY, won ? ProofTable.INFINITY : 0, 1);
+            return;
+        }
+
+        int[] moves = plyMoves[ply];
+        long[] keys = plyKeys[ply];
+        int[] scores = plyScores[ply];
+        long sideKey = Zobrist.WHITE_TO_MOVE;
+        for (int i = 0; i < count; i++) {
+            keys[i] = key ^ sideKey ^ Zobrist.key(color, moves[i]);
+        }
+
+        int pn;
+        int dn;
+        while (true) {
+            // or nodes take the smallest proof number and the sum of disproof numbers, and nodes the reverse;
+            // of equal numbers the move making the better shapes goes first
+            int best = 0;
+            int bestNumber = ProofTable.INFINITY;
+            int secondNumber = ProofTable.INFINITY;
+            int bestOther = 0;
+            long sum = 0;
+            for (int i = 0; i < count; i++) {
+                long data = proofs.probe(keys[i]);
+                int min = or ? ProofTable.proof(data) : ProofTable.disproof(data);
+                int other = or ? ProofTable.disproof(data) : ProofTable.proof(data);
+                sum += other;
+                if (min < bestNumber || (min == bestNumber && scores[i] > scores[best])) {
+                    secondNumber = bestNumber;
+                    bestNumber = min;
+                    bestOther = other;
+                    best = i;
+                } else if (min < secondNumber) {
+                    secondNumber = min;
+                }
+            }
+            int total = (int) Math.min(sum, ProofTable.INFINITY);
+            if (total == ProofTable.INFINITY && bestNumber != 0) {
+                // an unsettled sum stays below a settled one
+                total = ProofTable.INFINITY - 1;
+            }
+            pn = or ? bestNumber : total;
+            dn = or ? total : bestNumber;
+            if (ply == 0 && or && pn == 0) {
+                move = moves[best];
+            }
+            if (pn >= proofLimit || dn >= disproofLimit || aborted) {
+                break;
+            }
+
+            int ownLimit = or ? proofLimit : disproofLimit;
+            int otherLimit = or ? disproofLimit : proofLimit;
+            int childOwn = (int) Math.min(ownLimit, secondNumber + (long) (secondNumber >> 2) + 1);
+            int childOther = (int) Math.min(ProofTable.INFINITY, (long) otherLimit - total + bestOther);
+            int cell = moves[best];
+            make(cell, color);
+            if (or) {
+                mid(ply + 1, 3 - color, childOwn, childOther);
+            } else {
+                mid(ply + 1, 3 - color, childOther, childOwn);
+            }
+            unmake(cell);
+        }
+        long work = nodes - before + (1L << ProofTable.work(proofs.probe(key)));
+        proofs.store(key, pn, dn, work);
+    }
+
+    /**
+     * The table key of the private position with color to move
+     * @param color
+     * @return key
+     */
+    private long key(int color) {
+        return board.getHash() ^ (color == BitBoard.WHITE ? Zobrist.WHITE_TO_MOVE : 0) ^ attackerKey;
+    }
+
+    /**
+     * Lists the moves of color in plyMoves[ply], with the worth of their shapes in plyScores[ply]
+     * @param ply
+     * @param color the side to move
+     * @return the number of moves, or WON, LOST or DRAWN when the game ends here
+     */
+    private int generate(int ply, int color) {
+        if (table.countWinningMoves(color) > 0) {
+            return WON;
+        }
+        int opponent = 3 - color;
+        int threats = table.countWinningMoves(opponent);
+        if (threats > 1) {
+            return LOST;
+        }
+        if (plyMoves[ply] == null) {
+            plyMoves[ply] = new int[near.length];
+            plyKeys[ply] = new long[near.length];
+            plyScores[ply] = new int[near.length];
+        }
+        int[] moves = plyMoves[ply];
+        int[] scores = plyScores[ply];
+        int count = 0;
+        int nearby = board.getStoneCount() > 0 ? 1 : 0;
+        for (int r = 0, cell = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++, cell++) {
+                if (near[cell] < nearby || taken[cell] || table.isForbidden(r, c, color)) {
+                    continue;
+                }
+                if (threats == 1 && table.getFlags(r, c, opponent) != PatternTable.FLAG_WIN) {
+                    continue;
+                }
+                int score = 0;
+                for (int direction = 0; direction < 4; direction++) {
+                    score += ORDER_SCORE[table.getShape(r, c, color, direction)] * 2
+                            + ORDER_SCORE[table.getShape(r, c, opponent, direction)];
+                }
+                moves[count] = cell;
+                scores[count++] = score;
+            }
+        }
+        if (count == 0) {
+            // a four that can't be blocked lost, having no move at all is a draw
+            return threats == 1 ? LOST : DRAWN;
+        }
+        return count;
+    }
+
+    /**
+     * Finds a cell where color wins at once
+     * @param color
+     * @return the cell, or -1
+     */
+    private int winningCell(int color) {
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                if (board.isEmpty(r, c) && table.getFlags(r, c, color) == PatternTable.FLAG_WIN) {
+                    return r * columns + c;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Plays a move on the private position
+     * @param cell
+     * @param color
+     */
+    private void make(int cell, int color) {
+        int r = cell / columns;
+        int c = cell - r * columns;
+        table.place(r, c, color);
+        taken[cell] = true;
+        addNear(r, c, 1);
+    }
+
+    /**
+     * Takes a move back on the private position
+     * @param cell
+     */
+    private void unmake(int cell) {
+        int r = cell / columns;
+        int c = cell - r * columns;
+        table.undo(r, c);
+        taken[cell] = false;
+        addNear(r, c, -1);
+    }
+
+    /**
+     * Adds to the count of nearby stones of every cell within the radius of row and column
+     * @param row
+     * @param column
+     * @param amount 1 for a placed stone, -1 for a removed one
+     */
+    private void addNear(int row, int column, int amount) {
+        int top = Math.max(0, row - radius);
+        int bottom = Math.min(rows - 1, row + radius);
+        int left = Math.max(0, column - radius);
+        int right = Math.min(columns - 1, column + radius);
+        for (int r = top; r <= bottom; r++) {
+            for (int c = left; c <= right; c++) {
+                near[r * columns + c] += amount;
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package gomoku.search;
+
+import gomoku.engine.PatternTable;
+
+/**
+ * A computer player: picks a move for a color on a position.
+ */
+public interface Engine {
+
+    /**
+     * Chooses a move for color. The position is not changed.
+     * @param position the board with its pattern table
+     * @param color BLACK or WHITE, the side to move
+     * @return the chosen cell as row * columns + column, or -1 when no legal move is left
+     */
+    int chooseMove(PatternTable position, int color);
+}
@@ -0,0 +1,324 @@
+package gomoku.search;
+
+import gomoku.engine.BitBoard;
+import gomoku.engine.PatternTable;
+import gomoku.engine.Zobrist;
+import gomoku.metrics.Metrics;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Parallel search in the Lazy SMP style: several alpha-beta searches of the same position run at once and share
+ * one transposition table, so each profits from what the others already found.
+ *
+ * The main search runs on the calling thread. Helpers start one ply deeper on every other thread and shuffle
+ * their move order a little, so they don't all walk the same tree. When the main search runs out of time the
+ * helpers are stopped, and the move of the deepest finished search is played. The main search first gives the
+ * threat solver its slice on the calling thread, and the helpers only start when it finds no forced win.
+ *
+ * ponder searches the same way with no time limit until stop() is called from another thread, for thinking on
+ * the opponent's time (see Ponderer).
+ */
+public class LazySmpEngine implements Engine {
+
+    /** Budget of a ponder search: no limit, it ends when stopped (the same as SmpBenchmark's) */
+    private static final long PONDER_MILLIS = Long.MAX_VALUE / 2000000L;
+
+    /** Shared by every search */
+    private final TranspositionTable transpositions;
+    /** Index 0 is the main search, the rest are helpers */
+    private final AlphaBetaEngine[] searches;
+    /** Threads the helpers run on */
+    private final ExecutorService helpers;
+    /** Moves chosen by each search */
+    private final int[] moves;
+    /** Number of stop() calls, so a search asked for before a stop knows to end at once */
+    private final AtomicLong stops = new AtomicLong();
+
+    /** Statistics of the last search */
+    private long nodes;
+    private int depthReached;
+    private long elapsedNanos;
+    private boolean forcedWin;
+
+    /**
+     * Constructor with one search per available processor and the default table size
+     * @param budgetMillis milliseconds allowed per move
+     */
+    public LazySmpEngine(long budgetMillis) {
+        this(budgetMillis, Runtime.getRuntime().availableProcessors(), new TranspositionTable());
+    }
+
+    /**
+     * Constructor
+     * @param budgetMillis milliseconds allowed per move
+     * @param threads number of searches, the calling thread included
+     * @param transpositions table shared by every search
+     */
+    public LazySmpEngine(long budgetMillis, int threads, TranspositionTable transpositions) {
+        this.transpositions = transpositions;
+        this.searches = new AlphaBetaEngine[Math.max(1, threads)];
+        this.moves = new int[searches.length];
+        for (int i = 0; i < searches.length; i++) {
+            searches[i] = new AlphaBetaEngine(budgetMillis, transpositions);
+            if (i > 0) {
+                // odd helpers start a ply deeper, every helper orders moves a bit differently
+                searches[i].setStartDepth(1 + (i & 1));
+                searches[i].setOrderingNoise(0x9E3779B97F4A7C15L * i);
+            }
+        }
+        this.helpers = searches.length == 1 ? null : Executors.newFixedThreadPool(searches.length - 1, runnable -> {
+            Thread thread = new Thread(runnable, "gomoku-smp-helper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Getter for the number of searches, the calling thread included
+     * @return threads
+     */
+    public int getThreads() {
+        return searches.length;
+    }
+
+    /**
+     * Setter for the milliseconds allowed per move
+     * @param budgetMillis
+     */
+    public void setBudgetMillis(long budgetMillis) {
+        for (AlphaBetaEngine search : searches) {
+            search.setBudgetMillis(budgetMillis);
+        }
+    }
+
+    /**
+     * Getter for the milliseconds allowed per move
+     * @return budgetMillis
+     */
+    public long getBudgetMillis() {
+        return searches[0].getBudgetMillis();
+    }
+
+    /**
+     * Setter for the deepest iteration to start
+     * @param maxDepth
+     */
+    public void setMaxDepth(int maxDepth) {
+        for (AlphaBetaEngine search : searches) {
+            search.setMaxDepth(maxDepth);
+        }
+    }
+
+    /**
+     * Setter for the milliseconds of the budget given to the threat solver before each search
+     * @param threatMillis 0 to never run it
+     */
+    public void setThreatMillis(long threatMillis) {
+        searches[0].setThreatMillis(threatMillis);
+    }
+
+    /**
+     * Getter for whether the last move was a forced win found by the threat solver
+     * @return forcedWin
+     */
+    public boolean isForcedWin() {
+        return forcedWin;
+    }
+
+    /**
+     * Getter for the nodes visited by all searches of the last move
+     * @return nodes
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Getter for the deepest iteration the main search completed on the last move
+     * @return depth
+     */
+    public int getDepth() {
+        return depthReached;
+    }
+
+    /**
+     * Getter for the nodes per second all searches achieved together on the last move
+     * @return nodes per second
+     */
+    public long getNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1000000000L / elapsedNanos;
+    }
+
+    /**
+     * Getter for the shared transposition table
+     * @return transpositions
+     */
+    public TranspositionTable getTranspositions() {
+        return transpositions;
+    }
+
+    /**
+     * Chooses a move for color with every search running at once
+     * @param position the board with its pattern table
+     * @param color BLACK or WHITE, the side to move
+     * @return the chosen cell as row * columns + column, or -1 when no legal move is left
+     */
+    public int chooseMove(PatternTable position, int color) {
+        return chooseMove(position, color, System.nanoTime());
+    }
+
+    /**
+     * Chooses a move for color with the budget counted from an earlier start, as when pondering already covered
+     * part of it
+     * @param position the board with its pattern table
+     * @param color BLACK or WHITE, the side to move
+     * @param start when the budget started, in System.nanoTime
+     * @return the chosen cell as row * columns + column, or -1 when no legal move is left
+     */
+    public int chooseMove(PatternTable position, int color, long start) {
+        long begin = System.nanoTime();
+        long ticket = stops.get();
+        int move = searches[0].solveThreats(position, color, begin);
+        forcedWin = move >= 0;
+        if (forcedWin) {
+            nodes = searches[0].getNodes();
+            depthReached = searches[0].getDepth();
+            elapsedNanos = System.nanoTime() - begin;
+        } else {
+            transpositions.newSearch();
+            move = searchAll(position, color, start, begin, ticket);
+        }
+        Metrics.SEARCH_TIME.record(elapsedNanos);
+        Metrics.NODES_PER_SECOND.record(getNodesPerSecond());
+        Metrics.SEARCH_DEPTH.record(depthReached);
+        return move;
+    }
+
+    /**
+     * Searches a position with no time limit until stop() is called, filling the shared table. The statistics
+     * are kept as for a move.
+     * @param position the board with its pattern table
+     * @param color BLACK or WHITE, the side to move
+     * @param ticket getStopCount() when the ponder search was asked for; a stop since then ends it at once
+     * @return the best cell found, or -1 when no legal move is left
+     */
+    public int ponder(PatternTable position, int color, long ticket) {
+        long begin = System.nanoTime();
+        long budgetMillis = getBudgetMillis();
+        forcedWin = false;
+        setBudgetMillis(PONDER_MILLIS);
+        try {
+            transpositions.newSearch();
+            return searchAll(position, color, begin, begin, ticket);
+        } finally {
+            setBudgetMillis(budgetMillis);
+        }
+    }
+
+    /**
+     * Ends the running search or ponder as soon as possible, and any asked for before this call that hasn't
+     * started yet. Safe to call from another thread; it never waits.
+     */
+    public void stop() {
+        stops.incrementAndGet();
+        for (AlphaBetaEngine search : searches) {
+            search.stop();
+        }
+    }
+
+    /**
+     * Getter for the number of stop() calls so far, the ticket for ponder
+     * @return stops
+     */
+    public long getStopCount() {
+        return stops.get();
+    }
+
+    /**
+     * The reply the last searches expect from color: the best move the shared table holds for the position
+     * @param position the board with its pattern table
+     * @param color BLACK or WHITE, the side to move
+     * @return an empty cell that neither wins nor breaks a rule, or -1 when the table has no such move
+     */
+    public int predictReply(PatternTable position, int color) {
+        BitBoard board = position.getBoard();
+        long key = board.getHash() ^ (color == BitBoard.WHITE ? Zobrist.WHITE_TO_MOVE : 0);
+        int move = TranspositionTable.move(transpositions.probe(key));
+        int cells = board.getRows() * board.getColumns();
+        if (move < 0 || move >= cells) {
+            return -1;
+        }
+        int row = move / board.getColumns();
+        int column = move % board.getColumns();
+        // a winning reply ends the game, there is nothing to ponder after it
+        return position.check(row, column, color) == BitBoard.PLACED ? move : -1;
+    }
+
+    /**
+     * Runs every search at once and plays the move of the deepest
+     * @param position
+     * @param color
+     * @param start when the budget started, in System.nanoTime
+     * @param begin when this call started, for the statistics
+     * @param ticket stop count when the search was asked for
+     * @return the chosen cell, or -1
+     */
+    private int searchAll(PatternTable position, int color, long start, long begin, long ticket) {
+        for (AlphaBetaEngine search : searches) {
+            search.resume();
+        }
+        if (stops.get() != ticket) {
+            // stopped before the searches were resumed, which cleared it
+            for (AlphaBetaEngine search : searches) {
+                search.stop();
+            }
+        }
+
+        Future<?>[] running = new Future<?>[searches.length];
+        for (int i = 1; i < searches.length; i++) {
+            int helper = i;
+            running[helper] = helpers.submit(() -> {
+                moves[helper] = searches[helper].search(position, color, start);
+            });
+        }
+
+        moves[0] = searches[0].search(position, color, start);
+
+        for (int i = 1; i < searches.length; i++) {
+            searches[i].stop();
+        }
+        for (int i = 1; i < searches.length; i++) {
+            try {
+                running[i].get();
+            } catch (Exception e) {
+                // a failed helper only loses its vote
+                moves[i] = -1;
+            }
+        }
+
+        int best = 0;
+        nodes = 0;
+        for (int i = 0; i < searches.length; i++) {
+            nodes += searches[i].getNodes();
+            if (moves[i] >= 0 && searches[i].getDepth() > searches[best].getDepth()) {
+                best = i;
+            }
+        }
+        depthReached = searches[0].getDepth();
+        elapsedNanos = System.nanoTime() - begin;
+        return moves[best];
+    }
+
+    /**
+     * Stops the helper threads for good
+     */
+    public void shutdown() {
+        if (helpers != null) {
+            helpers.shutdownNow();
+        }
+    }
+}
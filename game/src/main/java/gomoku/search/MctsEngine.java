@@ -0,0 +1,587 @@
+package gomoku.search;
+
+import gomoku.engine.BitBoard;
+import gomoku.engine.PatternTable;
+import gomoku.engine.Zobrist;
+import gomoku.metrics.Metrics;
+
+/**
+ * Monte Carlo tree search with UCT selection.
+ *
+ * The tree lives in preallocated primitive arrays (a node pool) and is kept between moves: the next search
+ * starts from the node of the position actually reached, copied into a second pool so the pools never fill up
+ * with dead branches. Playouts run on the engine's own BitBoard and an array of the free cells, taking moves out
+ * by swapping them to the end of the array, so a simulated move allocates nothing. Moves breaking the four-four
+ * or three-three rule are never played, in the tree or in playouts.
+ */
+public class MctsEngine implements Engine {
+
+    /** Default number of nodes in each pool */
+    public static final int DEFAULT_NODES = 1 << 20;
+
+    /** Exploration constant of UCT */
+    private static final double EXPLORATION = 1.0;
+    /** Visits a leaf needs before it gets children */
+    private static final int EXPAND_VISITS = 4;
+    /** Tries at finding a free cell next to a stone before a playout settles for any free cell */
+    private static final int NEAR_TRIES = 3;
+
+    /** Node states */
+    private static final byte OPEN = 0;
+    private static final byte WON = 1;
+    private static final byte DRAWN = 2;
+
+    /** Milliseconds allowed per move */
+    private long budgetMillis;
+    /** Most playouts per move, for fixed-work runs */
+    private long maxPlayouts = Long.MAX_VALUE;
+
+    /** The node pool in use and the spare one the kept subtree is copied into */
+    private NodePool pool;
+    private NodePool spare;
+
+    /** Position of the root node, with the side to move, or 0 when there is no tree to keep */
+    private long rootKey;
+    private int rootColor;
+    private int rootRows;
+    private int rootColumns;
+
+    /** The engine's own board */
+    private BitBoard board;
+    private int rows;
+    private int columns;
+    /** Every cell; the first freeCount are free at the current node, the rest hold stones */
+    private int[] free;
+    /** Where each cell is in free */
+    private int[] freeIndex;
+    private int freeCount;
+    /** Path of nodes from the root in the running iteration */
+    private int[] path;
+    /** Cells near a stone are marked with the current stamp during expansion and playouts */
+    private int[] nearStamp;
+    private int stamp;
+
+    /** Random state (xorshift) */
+    private long random = 0x2545F4914F6CDD1DL;
+
+    /** Statistics of the last search */
+    private long playouts;
+    private long elapsedNanos;
+
+    /**
+     * Constructor with the default pool size
+     * @param budgetMillis milliseconds allowed per move
+     */
+    public MctsEngine(long budgetMillis) {
+        this(budgetMillis, DEFAULT_NODES);
+    }
+
+    /**
+     * Constructor
+     * @param budgetMillis milliseconds allowed per move
+     * @param nodes number of nodes in each of the two pools
+     */
+    public MctsEngine(long budgetMillis, int nodes) {
+        this.budgetMillis = budgetMillis;
+        this.pool = new NodePool(nodes);
+        this.spare = new NodePool(nodes);
+    }
+
+    /**
+     * Setter for the milliseconds allowed per move
+     * @param budgetMillis
+     */
+    public void setBudgetMillis(long budgetMillis) {
+        this.budgetMillis = budgetMillis;
+    }
+
+    /**
+     * Setter for the most playouts per move
+     * @param maxPlayouts
+     */
+    public void setMaxPlayouts(long maxPlayouts) {
+        this.maxPlayouts = maxPlayouts;
+    }
+
+    /**
+     * Getter for the playouts of the last search
+     * @return playouts
+     */
+    public long getPlayouts() {
+        return playouts;
+    }
+
+    /**
+     * Getter for the playouts per second of the last search
+     * @return playouts per second
+     */
+    public long getPlayoutsPerSecond() {
+        return elapsedNanos == 0 ? 0 : playouts * 1000000000L / elapsedNanos;
+    }
+
+    /**
+     * Getter for the nodes in use in the tree
+     * @return nodes
+     */
+    public int getTreeSize() {
+        return pool.size;
+    }
+
+    /**
+     * Forgets the kept tree, so the next search starts from scratch
+     */
+    public void clear() {
+        rootKey = 0;
+    }
+
+    /**
+     * Chooses the most visited move after searching until the budget runs out
+     * @param position the board with its pattern table
+     * @param color BLACK or WHITE, the side to move
+     * @return the chosen cell as row * columns + column, or -1 when no legal move is left
+     */
+    public int chooseMove(PatternTable position, int color) {
+        long start = System.nanoTime();
+        long deadline = start + budgetMillis * 1000000L;
+        prepare(position.getBoard(), color);
+        playouts = 0;
+
+        if (board.getStoneCount() == 0 && rows > 0 && columns > 0) {
+            // opens in the center
+            elapsedNanos = System.nanoTime() - start;
+            return (rows / 2) * columns + columns / 2;
+        }
+
+        while (playouts < maxPlayouts && ((playouts & 63) != 0 || System.nanoTime() < deadline)) {
+            iterate(color);
+            playouts++;
+            if (pool.state[NodePool.ROOT] != OPEN) {
+                break;
+            }
+        }
+
+        int best = -1;
+        int bestVisits = -1;
+        int first = pool.firstChild[NodePool.ROOT];
+        for (int child = first; child < first + pool.childCount[NodePool.ROOT]; child++) {
+            if (pool.state[child] == WON) {
+                best = pool.move[child];
+                break;
+            }
+            if (pool.visits[child] > bestVisits) {
+                bestVisits = pool.visits[child];
+                best = pool.move[child];
+            }
+        }
+        elapsedNanos = System.nanoTime() - start;
+        Metrics.SEARCH_TIME.record(elapsedNanos);
+        return best;
+    }
+
+    /**
+     * Copies the position and finds the root: the kept node of this position if there is one, a new node if not
+     * @param position
+     * @param color the side to move
+     */
+    private void prepare(BitBoard position, int color) {
+        board = new BitBoard(position);
+        rows = board.getRows();
+        columns = board.getColumns();
+        int cells = rows * columns;
+        if (free == null || free.length != cells) {
+            free = new int[cells];
+            freeIndex = new int[cells];
+            path = new int[cells + 1];
+            nearStamp = new int[cells];
+        }
+        freeCount = 0;
+        int taken = cells;
+        for (int r = 0, cell = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++, cell++) {
+                int index = board.isEmpty(r, c) ? freeCount++ : --taken;
+                freeIndex[cell] = index;
+                free[index] = cell;
+            }
+        }
+
+        long key = board.getHash() ^ (color == BitBoard.WHITE ? Zobrist.WHITE_TO_MOVE : 0);
+        int kept = -1;
+        if (rootKey != 0 && rows == rootRows && columns == rootColumns) {
+            kept = findNode(key);
+        }
+        if (kept > 0) {
+            spare.copySubtree(pool, kept);
+            NodePool swap = pool;
+            pool = spare;
+            spare = swap;
+        } else if (kept < 0) {
+            pool.reset();
+        }
+        rootKey = key;
+        rootColor = color;
+        rootRows = rows;
+        rootColumns = columns;
+    }
+
+    /**
+     * Looks for a position in the first two plies of the kept tree
+     * @param key Zobrist hash of the position with the side to move
+     * @return the node, 0 for the root itself, or -1
+     */
+    private int findNode(long key) {
+        if (key == rootKey) {
+            return NodePool.ROOT;
+        }
+        long whiteToggle = Zobrist.WHITE_TO_MOVE;
+        int other = 3 - rootColor;
+        int first = pool.firstChild[NodePool.ROOT];
+        for (int child = first; child < first + pool.childCount[NodePool.ROOT]; child++) {
+            long childKey = rootKey ^ whiteToggle ^ Zobrist.key(rootColor, pool.move[child]);
+            if (childKey == key) {
+                return child;
+            }
+            int grandFirst = pool.firstChild[child];
+            for (int grand = grandFirst; grand < grandFirst + pool.childCount[child]; grand++) {
+                if ((childKey ^ whiteToggle ^ Zobrist.key(other, pool.move[grand])) == key) {
+                    return grand;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * One iteration: select down the tree, expand, play out and back up the result
+     * @param rootToMove the side to move at the root
+     */
+    private void iterate(int rootToMove) {
+        int node = NodePool.ROOT;
+        int color = rootToMove;
+        int depth = 0;
+        path[0] = node;
+
+        // selection
+        while (pool.childCount[node] > 0 && pool.state[node] == OPEN) {
+            node = select(node);
+            int cell = pool.move[node];
+            board.place(cell / columns, cell % columns, color);
+            take(cell);
+            path[++depth] = node;
+            color = 3 - color;
+        }
+
+        // expansion
+        if (pool.state[node] == OPEN && (node == NodePool.ROOT || pool.visits[node] >= EXPAND_VISITS - 1)
+                && depth + 1 < path.length) {
+            expand(node, color);
+            if (pool.childCount[node] > 0) {
+                node = select(node);
+                int cell = pool.move[node];
+                board.place(cell / columns, cell % columns, color);
+                take(cell);
+                path[++depth] = node;
+                color = 3 - color;
+            }
+        }
+
+        // the winner: 0 for a draw
+        int winner;
+        if (pool.state[node] == WON) {
+            winner = 3 - color;
+        } else if (pool.state[node] == DRAWN) {
+            winner = 0;
+        } else {
+            winner = playout(color);
+        }
+
+        // back up, a node's wins count for the side that moved into it
+        for (int i = depth; i >= 0; i--) {
+            int n = path[i];
+            pool.visits[n]++;
+            int mover = ((depth - i) & 1) == 0 ? 3 - color : color;
+            if (winner == mover) {
+                pool.wins[n] += 1f;
+            } else if (winner == 0) {
+                pool.wins[n] += 0.5f;
+            }
+        }
+
+        // takes the path back off the board
+        for (int i = depth; i > 0; i--) {
+            int cell = pool.move[path[i]];
+            board.undo(cell / columns, cell % columns);
+            freeCount++;
+        }
+    }
+
+    /**
+     * UCT: the child with the best mix of win rate and few visits; unvisited children go first
+     * @param node
+     * @return child
+     */
+    private int select(int node) {
+        int first = pool.firstChild[node];
+        int end = first + pool.childCount[node];
+        double logVisits = Math.log(Math.max(1, pool.visits[node]));
+        int best = first;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int child = first; child < end; child++) {
+            int visits = pool.visits[child];
+            if (pool.state[child] == WON) {
+                return child;
+            }
+            if (visits == 0) {
+                return child;
+            }
+            double value = pool.wins[child] / visits + EXPLORATION * Math.sqrt(logVisits / visits);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Gives a leaf a child for every legal cell within two of a stone
+     * @param node
+     * @param color the side to move at the node
+     */
+    private void expand(int node, int color) {
+        // marks the cells within two of a stone, the stones being the end of free
+        markNearStones(2);
+
+        int first = pool.size;
+        int count = 0;
+        for (int i = 0; i < freeCount; i++) {
+            int cell = free[i];
+            if (nearStamp[cell] != stamp) {
+                continue;
+            }
+            int r = cell / columns;
+            int c = cell - r * columns;
+            if (first + count >= pool.capacity) {
+                // the pool is full: the leaf stays a leaf
+                return;
+            }
+            int result = board.play(r, c, color);
+            if (result == BitBoard.FOUR_FOUR || result == BitBoard.THREE_THREE) {
+                continue;
+            }
+            int child = first + count++;
+            pool.init(child, cell, node);
+            if (result == BitBoard.WIN) {
+                pool.state[child] = WON;
+            } else if (freeCount == 1) {
+                pool.state[child] = DRAWN;
+            }
+            board.undo(r, c);
+        }
+        pool.size = first + count;
+        pool.firstChild[node] = first;
+        pool.childCount[node] = count;
+        if (count == 0) {
+            // nothing legal near the stones: the game can't go on from here
+            pool.state[node] = DRAWN;
+        }
+    }
+
+    /**
+     * Plays random legal moves, preferring cells next to a stone, until someone wins or no cell is left
+     * @param color the side to move
+     * @return the winner, or 0 for a draw
+     */
+    private int playout(int color) {
+        int start = freeCount;
+        int winner = 0;
+        markNearStones(1);
+        while (freeCount > 0) {
+            int index = nextInt(freeCount);
+            for (int tries = 1; tries < NEAR_TRIES && nearStamp[free[index]] != stamp; tries++) {
+                index = nextInt(freeCount);
+            }
+            int cell = free[index];
+            take(cell);
+            int r = cell / columns;
+            int c = cell - r * columns;
+            int result = board.play(r, c, color);
+            if (result == BitBoard.FOUR_FOUR || result == BitBoard.THREE_THREE) {
+                // forbidden for this color, left out of the rest of the playout
+                continue;
+            }
+            if (result == BitBoard.WIN) {
+                winner = color;
+                break;
+            }
+            mark(r, c, 1);
+            color = 3 - color;
+        }
+
+        // takes the playout back off the board, the cells taken last are at the end of free
+        for (int i = freeCount; i < start; i++) {
+            int cell = free[i];
+            int r = cell / columns;
+            int c = cell - r * columns;
+            if (!board.isEmpty(r, c)) {
+                board.undo(r, c);
+            }
+        }
+        freeCount = start;
+        return winner;
+    }
+
+    /**
+     * Marks the cells within distance of every stone with a new stamp
+     * @param distance
+     */
+    private void markNearStones(int distance) {
+        if (++stamp == 0) {
+            java.util.Arrays.fill(nearStamp, 0);
+            stamp = 1;
+        }
+        for (int i = freeCount; i < free.length; i++) {
+            int r = free[i] / columns;
+            mark(r, free[i] - r * columns, distance);
+        }
+    }
+
+    /**
+     * Marks the cells within distance of row and column with the current stamp
+     * @param row
+     * @param column
+     * @param distance
+     */
+    private void mark(int row, int column, int distance) {
+        int bottom = Math.min(rows - 1, row + distance);
+        int right = Math.min(columns - 1, column + distance);
+        for (int r = Math.max(0, row - distance); r <= bottom; r++) {
+            for (int c = Math.max(0, column - distance); c <= right; c++) {
+                nearStamp[r * columns + c] = stamp;
+            }
+        }
+    }
+
+    /**
+     * Takes a cell out of the free ones by swapping it to the end
+     * @param cell
+     */
+    private void take(int cell) {
+        int index = freeIndex[cell];
+        int last = free[--freeCount];
+        free[index] = last;
+        freeIndex[last] = index;
+        free[freeCount] = cell;
+        freeIndex[cell] = freeCount;
+    }
+
+    /**
+     * Random int below bound (xorshift)
+     * @param bound
+     * @return int
+     */
+    private int nextInt(int bound) {
+        random ^= random << 13;
+        random ^= random >>> 7;
+        random ^= random << 17;
+        return (int) ((random >>> 33) % bound);
+    }
+
+    /**
+     * Preallocated tree nodes in parallel primitive arrays. Children of a node are consecutive.
+     */
+    private static final class NodePool {
+
+        /** The root is always node 0 */
+        static final int ROOT = 0;
+
+        final int capacity;
+        final int[] move;
+        final int[] parent;
+        final int[] firstChild;
+        final int[] childCount;
+        final int[] visits;
+        final float[] wins;
+        final byte[] state;
+        /** Nodes in use */
+        int size;
+
+        /**
+         * Constructor
+         * @param capacity number of nodes
+         */
+        NodePool(int capacity) {
+            this.capacity = Math.max(1, capacity);
+            this.move = new int[this.capacity];
+            this.parent = new int[this.capacity];
+            this.firstChild = new int[this.capacity];
+            this.childCount = new int[this.capacity];
+            this.visits = new int[this.capacity];
+            this.wins = new float[this.capacity];
+            this.state = new byte[this.capacity];
+            reset();
+        }
+
+        /**
+         * Drops every node but a fresh root
+         */
+        void reset() {
+            size = 1;
+            init(ROOT, -1, -1);
+        }
+
+        /**
+         * Sets up a node with no children and no visits
+         * @param node
+         * @param cell the move leading to it
+         * @param from its parent
+         */
+        void init(int node, int cell, int from) {
+            move[node] = cell;
+            parent[node] = from;
+            firstChild[node] = 0;
+            childCount[node] = 0;
+            visits[node] = 0;
+            wins[node] = 0f;
+            state[node] = OPEN;
+        }
+
+        /**
+         * Replaces this pool with the subtree of another pool, the subtree's top becoming the root.
+         * Nodes are copied breadth first so children stay consecutive.
+         * @param from the pool to copy
+         * @param top the node of from that becomes the root
+         */
+        void copySubtree(NodePool from, int top) {
+            size = 1;
+            move[ROOT] = -1;
+            parent[ROOT] = -1;
+            visits[ROOT] = from.visits[top];
+            wins[ROOT] = from.wins[top];
+            state[ROOT] = from.state[top];
+            // until a node's children are copied, its firstChild holds the node it was copied from
+            firstChild[ROOT] = top;
+
+            for (int node = 0; node < size; node++) {
+                int source = firstChild[node];
+                int first = from.firstChild[source];
+                int count = from.childCount[source];
+                if (size + count > capacity) {
+                    // no room: the node becomes a leaf again
+                    count = 0;
+                }
+                firstChild[node] = size;
+                childCount[node] = count;
+                for (int i = 0; i < count; i++) {
+                    int child = size++;
+                    move[child] = from.move[first + i];
+                    parent[child] = node;
+                    visits[child] = from.visits[first + i];
+                    wins[child] = from.wins[first + i];
+                    state[child] = from.state[first + i];
+                    firstChild[child] = first + i;
+                    childCount[child] = 0;
+                }
+            }
+        }
+    }
+}
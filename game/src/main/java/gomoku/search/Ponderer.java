@@ -0,0 +1,142 @@
+package gomoku.search;
+
+import gomoku.engine.BitBoard;
+import gomoku.engine.PatternTable;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Thinks on the opponent's time for a LazySmpEngine.
+ *
+ * After the engine moves, start guesses the opponent's reply from the transposition table and searches the
+ * position after it until cancel is called, filling the shared table. When the reply played is the one guessed
+ * (a ponder hit), chooseMove counts the time already pondered against the budget, so the move comes sooner, or at
+ * once when pondering used the whole budget. On a miss the search starts over, still helped by whatever the table
+ * learned. Without a guess the position itself is searched for the opponent, which leaves the table something
+ * about every reply.
+ *
+ * The engine only ever runs on the executor, which must run one task at a time: the cancelled ponder ends before
+ * the next chooseMove starts, and neither start nor cancel waits for it.
+ */
+public class Ponderer {
+
+    private final LazySmpEngine engine;
+    private final Executor executor;
+
+    /** Hash and stone count of the position pondered after the guessed reply, -1 stones when nothing to hit */
+    private long ponderedHash;
+    private int ponderedStones = -1;
+    /** Best move the ponder search found, and when it started in System.nanoTime */
+    private int ponderMove = -1;
+    private long ponderStart;
+    /** Whether the last move was a ponder hit */
+    private boolean hit;
+
+    /** Number of moves chosen after pondering, and how many of them were hits */
+    private int pondered;
+    private int hits;
+
+    /**
+     * Constructor
+     * @param engine searched with only on the executor
+     * @param executor runs one task at a time, the same as chooseMove is called on
+     */
+    public Ponderer(LazySmpEngine engine, Executor executor) {
+        this.engine = engine;
+        this.executor = executor;
+    }
+
+    /**
+     * Starts pondering on the executor and returns at once
+     * @param position the board after the engine's move with its pattern table, copied before returning
+     * @param color BLACK or WHITE, the opponent to move
+     */
+    public void start(PatternTable position, int color) {
+        PatternTable copy = new PatternTable(position);
+        long ticket = engine.getStopCount();
+        executor.execute(() -> ponder(copy, color, ticket));
+    }
+
+    /**
+     * Ends the running ponder search, or one started but not yet running. Never waits, so it is safe on the
+     * JavaFX thread.
+     */
+    public void cancel() {
+        engine.stop();
+    }
+
+    /**
+     * Chooses the engine's move after the opponent replied, reusing the ponder search on a hit. Runs on the
+     * executor.
+     * @param position the board with its pattern table
+     * @param color BLACK or WHITE, the side to move
+     * @return the chosen cell as row * columns + column, or -1 when no legal move is left
+     */
+    public int chooseMove(PatternTable position, int color) {
+        BitBoard board = position.getBoard();
+        hit = ponderedStones == board.getStoneCount() && ponderedHash == board.getHash();
+        if (ponderedStones >= 0) {
+            pondered++;
+        }
+        ponderedStones = -1;
+        if (!hit) {
+            return engine.chooseMove(position, color);
+        }
+        hits++;
+        if (ponderMove >= 0 && System.nanoTime() - ponderStart >= engine.getBudgetMillis() * 1000000L) {
+            // the ponder search already had the whole budget; the statistics are still its own
+            return ponderMove;
+        }
+        return engine.chooseMove(position, color, ponderStart);
+    }
+
+    /**
+     * Getter for whether the last move was a ponder hit
+     * @return hit
+     */
+    public boolean isHit() {
+        return hit;
+    }
+
+    /**
+     * Getter for the number of moves chosen after pondering on a guessed reply
+     * @return pondered
+     */
+    public int getPondered() {
+        return pondered;
+    }
+
+    /**
+     * Getter for the number of those moves whose reply was the one guessed
+     * @return hits
+     */
+    public int getHits() {
+        return hits;
+    }
+
+    /**
+     * Guesses the reply and searches the position after it, on the executor
+     * @param position a copy, changed freely
+     * @param color the opponent to move
+     * @param ticket stop count when pondering was asked for
+     */
+    private void ponder(PatternTable position, int color, long ticket) {
+        ponderedStones = -1;
+        ponderMove = -1;
+        if (engine.getStopCount() != ticket) {
+            // cancelled while waiting its turn
+            return;
+        }
+        int reply = engine.predictReply(position, color);
+        ponderStart = System.nanoTime();
+        if (reply < 0) {
+            engine.ponder(position, color, ticket);
+            return;
+        }
+        int columns = position.getBoard().getColumns();
+        position.place(reply / columns, reply % columns, color);
+        ponderedHash = position.getBoard().getHash();
+        ponderedStones = position.getBoard().getStoneCount();
+        ponderMove = engine.ponder(position, BitBoard.BLACK + BitBoard.WHITE - color, ticket);
+    }
+}
@@ -0,0 +1,245 @@
+package gomoku.search;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size table of proof and disproof numbers for DfpnSolver, in a primitive long[] allocated once, so a solve
+ * of any length never grows the heap.
+ *
+ * The table holds a power of two number of buckets of four entries, one cache line each. An entry is two longs:
+ * the key, and the proof number, the disproof number and the log2 of the nodes searched below it (its work).
+ * A new entry takes a free slot of its bucket, or the one with the least work when the bucket is full. When the
+ * table gets too full, a garbage collection empties the entries with the least work, cheapest to find again,
+ * until half the table is free; proven and disproven positions that cost a long search are kept.
+ */
+public class ProofTable {
+
+    /** Proof or disproof number of a settled position, and the most a number can hold */
+    public static final int INFINITY = (1 << 28) - 1;
+
+    /** Bit layout of the data long */
+    private static final int NUMBER_BITS = 28;
+    private static final long NUMBER_MASK = (1L << NUMBER_BITS) - 1;
+    private static final int DISPROOF_SHIFT = 28;
+    private static final int WORK_SHIFT = 56;
+
+    /** Longs per bucket: four slots of key and data */
+    private static final int BUCKET_LONGS = 8;
+    /** Garbage collection starts when this many eighths of the slots are used */
+    private static final int FULL_EIGHTHS = 7;
+
+    /** The buckets */
+    private final long[] table;
+    /** Number of buckets minus one */
+    private final long mask;
+    /** Slots in use */
+    private long used;
+    /** Slots in use per log2 of the work, for garbage collection */
+    private final long[] workCounts = new long[64];
+
+    /** Statistics */
+    private long collections;
+    private long collected;
+    private long replaced;
+
+    /**
+     * Constructor with the default size
+     */
+    public ProofTable() {
+        this(TranspositionTable.DEFAULT_MEGABYTES);
+    }
+
+    /**
+     * Constructor with a memory cap
+     * @param megabytes the most memory the table may use, rounded down to a power of two number of buckets
+     */
+    public ProofTable(int megabytes) {
+        long bytes = Math.max(1, megabytes) * 1024L * 1024L;
+        long buckets = Long.highestOneBit(bytes / (BUCKET_LONGS * 8));
+        // a Java array holds at most 2^31 - 1 longs
+        buckets = Math.min(buckets, 1L << 27);
+        this.table = new long[(int) (buckets * BUCKET_LONGS)];
+        this.mask = buckets - 1;
+    }
+
+    /**
+     * Getter for the memory used, in bytes
+     * @return bytes
+     */
+    public long getBytes() {
+        return table.length * 8L;
+    }
+
+    /**
+     * Getter for the number of entries the table can hold
+     * @return slots
+     */
+    public long getCapacity() {
+        return table.length / 2;
+    }
+
+    /**
+     * Getter for the number of entries held
+     * @return used
+     */
+    public long getUsed() {
+        return used;
+    }
+
+    /**
+     * Getter for the number of garbage collections so far
+     * @return collections
+     */
+    public long getCollections() {
+        return collections;
+    }
+
+    /**
+     * Getter for the number of entries emptied by garbage collections so far
+     * @return collected
+     */
+    public long getCollected() {
+        return collected;
+    }
+
+    /**
+     * Getter for the number of entries pushed out of a full bucket so far
+     * @return replaced
+     */
+    public long getReplaced() {
+        return replaced;
+    }
+
+    /**
+     * Empties the table
+     */
+    public void clear() {
+        Arrays.fill(table, 0L);
+        Arrays.fill(workCounts, 0L);
+        used = 0;
+    }
+
+    /**
+     * Looks up a position
+     * @param key hash of the position, its side to move and its attacker
+     * @return the stored data, or 0 when the position isn't in the table
+     */
+    public long probe(long key) {
+        key = nonZero(key);
+        int base = (int) (key & mask) * BUCKET_LONGS;
+        for (int i = base; i < base + BUCKET_LONGS; i += 2) {
+            if (table[i] == key) {
+                return table[i + 1];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Stores the numbers of a position, garbage collecting first if the table is too full
+     * @param key hash of the position, its side to move and its attacker
+     * @param proof proof number, 0 to INFINITY
+     * @param disproof disproof number, 0 to INFINITY
+     * @param work nodes searched below the position, all searches together
+     */
+    public void store(long key, int proof, int disproof, long work) {
+        key = nonZero(key);
+        int log = 63 - Long.numberOfLeadingZeros(Math.max(1, work));
+        long data = Math.min(proof, INFINITY) | (long) Math.min(disproof, INFINITY) << DISPROOF_SHIFT
+                | (long) log << WORK_SHIFT;
+        int base = (int) (key & mask) * BUCKET_LONGS;
+
+        int slot = -1;
+        for (int i = base; i < base + BUCKET_LONGS; i += 2) {
+            if (table[i] == key) {
+                workCounts[work(table[i + 1])]--;
+                table[i + 1] = data;
+                workCounts[log]++;
+                return;
+            }
+            if (slot < 0 && table[i] == 0) {
+                slot = i;
+            }
+        }
+        if (slot < 0) {
+            // the bucket is full: the entry with the least work goes
+            slot = base;
+            for (int i = base + 2; i < base + BUCKET_LONGS; i += 2) {
+                if (work(table[i + 1]) < work(table[slot + 1])) {
+                    slot = i;
+                }
+            }
+            workCounts[work(table[slot + 1])]--;
+            used--;
+            replaced++;
+        } else if (used >= getCapacity() / 8 * FULL_EIGHTHS) {
+            collect();
+        }
+        table[slot] = key;
+        table[slot + 1] = data;
+        workCounts[log]++;
+        used++;
+    }
+
+    /**
+     * Empties the entries of least work until at most half the table is used: every entry whose log2 of the work
+     * is below a limit goes, the limit being the lowest that frees enough
+     */
+    public void collect() {
+        long target = used - getCapacity() / 2;
+        if (target <= 0) {
+            return;
+        }
+        int limit = 0;
+        long freed = 0;
+        while (limit < workCounts.length && freed < target) {
+            freed += workCounts[limit++];
+        }
+        for (int i = 0; i < table.length; i += 2) {
+            if (table[i] != 0 && work(table[i + 1]) < limit) {
+                workCounts[work(table[i + 1])]--;
+                table[i] = 0;
+                table[i + 1] = 0;
+                used--;
+                collected++;
+            }
+        }
+        collections++;
+    }
+
+    /**
+     * Keeps 0 free for empty slots
+     * @param key
+     * @return key, or 1 for 0
+     */
+    private static long nonZero(long key) {
+        return key == 0 ? 1 : key;
+    }
+
+    /**
+     * The proof number of stored data
+     * @param data from probe, 0 for a position not in the table
+     * @return proof number, 1 when not in the table
+     */
+    public static int proof(long data) {
+        return data == 0 ? 1 : (int) (data & NUMBER_MASK);
+    }
+
+    /**
+     * The disproof number of stored data
+     * @param data from probe, 0 for a position not in the table
+     * @return disproof number, 1 when not in the table
+     */
+    public static int disproof(long data) {
+        return data == 0 ? 1 : (int) ((data >>> DISPROOF_SHIFT) & NUMBER_MASK);
+    }
+
+    /**
+     * The log2 of the work of stored data
+     * @param data from probe
+     * @return log2 of the nodes searched below the position
+     */
+    public static int work(long data) {
+        return (int) (data >>> WORK_SHIFT);
+    }
+}
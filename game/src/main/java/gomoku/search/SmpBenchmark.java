@@ -0,0 +1,107 @@
+package gomoku.search;
+
+import gomoku.engine.BitBoard;
+import gomoku.engine.PatternTable;
+
+/**
+ * Measures how Lazy SMP speeds up with more threads on the default 19x19, five in a row game.
+ *
+ * Every thread count searches the same fixed positions to the same depth with a fresh transposition table, and
+ * the time to reach that depth is compared with one thread.
+ *
+ * Usage: java gomoku.search.SmpBenchmark [depth] [threads...]   (defaults: depth 8, threads 1 2 4 8 16 32)
+ */
+public class SmpBenchmark {
+
+    /** Default game */
+    private static final int WIN_NUMBER = 5;
+    private static final int ROWS = 19;
+    private static final int COLUMNS = 19;
+
+    /** Fixed positions as row, column pairs played alternately from black */
+    private static final int[][] POSITIONS = {
+        { 9, 9, 8, 10, 10, 10, 8, 8 },
+        { 9, 9, 9, 10, 10, 9, 8, 9, 10, 11, 11, 8 },
+        { 9, 9, 10, 10, 8, 10, 10, 8, 10, 9, 8, 8, 11, 10, 9, 11 },
+        { 7, 7, 8, 8, 7, 9, 8, 9, 7, 8, 6, 8, 9, 8, 8, 6 },
+        { 9, 9, 9, 8, 8, 8, 10, 10, 7, 7, 6, 6, 8, 9, 8, 10, 7, 10, 6, 11 },
+        { 12, 3, 11, 4, 12, 5, 12, 4, 13, 4, 10, 4, 9, 4, 11, 3, 11, 5, 10, 5 },
+    };
+
+    /**
+     * The main method
+     * @param args depth, then the thread counts to measure
+     */
+    public static void main(String[] args) {
+        int depth = 8;
+        int[] threads = { 1, 2, 4, 8, 16, 32 };
+        try {
+            if (args.length > 0) {
+                depth = Integer.parseInt(args[0]);
+            }
+            if (args.length > 1) {
+                threads = new int[args.length - 1];
+                for (int i = 1; i < args.length; i++) {
+                    threads[i - 1] = Integer.parseInt(args[i]);
+                }
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Incorrect input: takes in integer");
+            return;
+        }
+
+        System.out.println("Lazy SMP to depth " + depth + " on " + POSITIONS.length + " positions, "
+                + Runtime.getRuntime().availableProcessors() + " processors available");
+        System.out.println("threads   seconds   speedup   nodes/sec");
+
+        double baseline = 0;
+        for (int count : threads) {
+            LazySmpEngine engine = new LazySmpEngine(Long.MAX_VALUE / 2000000L, count, new TranspositionTable(64));
+            engine.setMaxDepth(depth);
+            // one untimed pass warms up the JIT
+            run(engine, Math.min(depth, 4));
+            engine.setMaxDepth(depth);
+
+            long nodes = 0;
+            long start = System.nanoTime();
+            for (int[] moves : POSITIONS) {
+                engine.getTranspositions().clear();
+                engine.chooseMove(position(moves), moves.length % 4 == 0 ? BitBoard.BLACK : BitBoard.WHITE);
+                nodes += engine.getNodes();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            engine.shutdown();
+
+            if (baseline == 0) {
+                baseline = seconds;
+            }
+            System.out.println(String.format("%7d %9.3f %9.2f %11d", count, seconds, baseline / seconds,
+                    (long) (nodes / seconds)));
+        }
+    }
+
+    /**
+     * Searches every position once to a depth
+     * @param engine
+     * @param depth
+     */
+    private static void run(LazySmpEngine engine, int depth) {
+        engine.setMaxDepth(depth);
+        for (int[] moves : POSITIONS) {
+            engine.chooseMove(position(moves), moves.length % 4 == 0 ? BitBoard.BLACK : BitBoard.WHITE);
+        }
+    }
+
+    /**
+     * Builds a position from its moves
+     * @param moves row, column pairs played alternately from black
+     * @return the position
+     */
+    private static PatternTable position(int[] moves) {
+        PatternTable table = new PatternTable(new BitBoard(WIN_NUMBER, ROWS, COLUMNS));
+        for (int i = 0; i < moves.length; i += 2) {
+            table.place(moves[i], moves[i + 1], (i / 2) % 2 == 0 ? BitBoard.BLACK : BitBoard.WHITE);
+        }
+        return table;
+    }
+}
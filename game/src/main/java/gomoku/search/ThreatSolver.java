@@ -0,0 +1,609 @@
+package gomoku.search;
+
+import gomoku.engine.BitBoard;
+import gomoku.engine.PatternTable;
+
+import java.util.Arrays;
+
+/**
+ * Threat-space search: proves a forced win made only of threats, first by continuous fours (VCF), then by fours
+ * and open threes (VCT).
+ *
+ * The attacker only plays moves that threaten to win: a four (the next move makes a five, split fours
+ * included) or, for VCT, an open three (the next move makes an open four). The defender only tries the moves
+ * that answer the threat: the winning cell of a four, or for a three the cells that stop the open four plus any
+ * four of its own. Both sides are held to the five in a row, four-four and three-three rules through the pattern
+ * table flags, so a block the defender is not allowed to play doesn't count as one. With so few moves per node,
+ * forced wins dozens of plies deep are found in milliseconds, well before alpha-beta would see them.
+ *
+ * Positions found not to win are remembered by Zobrist hash with the depth they were searched to. A solve stops
+ * at its time budget; the answer is then UNKNOWN unless a win was already proven.
+ */
+public class ThreatSolver {
+
+    /** Results of solve */
+    public static final int UNKNOWN = -1;
+    public static final int DISPROVEN = 0;
+    public static final int PROVEN = 1;
+
+    /** Deepest search, in attacker moves */
+    private static final int MAX_DEPTH = 30;
+    /** Nodes between two looks at the clock */
+    private static final int CLOCK_MASK = 63;
+    /** Slots of the table of positions found not to win */
+    private static final int CACHE_BITS = 16;
+    /** Xored into the keys of VCT searches, which can win where VCF didn't */
+    private static final long THREES_KEY = 0x5DEECE66DL * 0x9E3779B97F4A7C15L;
+
+    /** Row and column displacements of the eight directions, same order as the pointer map in Gomoku */
+    private static final int[] ROW_STEP = { -1, -1, 0, 1, 1, 1, 0, -1 };
+    private static final int[] COLUMN_STEP = { 0, 1, 1, 1, 0, -1, -1, -1 };
+
+    /** Milliseconds allowed per solve */
+    private long budgetMillis = 50;
+    /** Deepest VCF and VCT searches, in attacker moves */
+    private int vcfDepth = MAX_DEPTH;
+    private int vctDepth = 8;
+
+    /** Position being solved (a private copy) */
+    private PatternTable table;
+    private BitBoard board;
+    private int rows;
+    private int columns;
+    private int attacker;
+    private int defender;
+    /** Box holding every stone and the cells next to it, threats can't be outside it */
+    private int top;
+    private int bottom;
+    private int left;
+    private int right;
+
+    /** Moves per ply */
+    private int[][] plyMoves = new int[2 * MAX_DEPTH + 2][];
+    /** Marks cells already listed, a cell is marked when its stamp equals mark */
+    private int[] stamps;
+    private int mark;
+    /** Positions found not to win: key and the depth searched, 0 for an empty slot */
+    private final long[] failedKeys = new long[1 << CACHE_BITS];
+    private final byte[] failedDepths = new byte[1 << CACHE_BITS];
+
+    /** When the running solve has to stop, in System.nanoTime */
+    private long deadline;
+    /** Whether the running solve ran out of time */
+    private boolean aborted;
+    /** Whether a line was cut at the depth limit, so a failure doesn't disprove the win */
+    private boolean cut;
+
+    /** Statistics of the last solve */
+    private long nodes;
+    private int move = -1;
+    private int depthReached;
+    private boolean threes;
+    private long elapsedNanos;
+
+    /**
+     * Constructor with the default budget of 50 milliseconds per solve
+     */
+    public ThreatSolver() {
+    }
+
+    /**
+     * Constructor with a budget per solve
+     * @param budgetMillis milliseconds allowed per solve
+     */
+    public ThreatSolver(long budgetMillis) {
+        this.budgetMillis = budgetMillis;
+    }
+
+    /**
+     * Setter for the milliseconds allowed per solve
+     * @param budgetMillis
+     */
+    public void setBudgetMillis(long budgetMillis) {
+        this.budgetMillis = budgetMillis;
+    }
+
+    /**
+     * Getter for the milliseconds allowed per solve
+     * @return milliseconds
+     */
+    public long getBudgetMillis() {
+        return budgetMillis;
+    }
+
+    /**
+     * Setter for the deepest searches, in attacker moves
+     * @param vcfDepth continuous fours
+     * @param vctDepth fours and threes, 0 to only search fours
+     */
+    public void setMaxDepth(int vcfDepth, int vctDepth) {
+        this.vcfDepth = Math.max(1, Math.min(MAX_DEPTH, vcfDepth));
+        this.vctDepth = Math.max(0, Math.min(MAX_DEPTH, vctDepth));
+    }
+
+    /**
+     * Getter for the nodes visited by the last solve
+     * @return nodes
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Getter for the nodes per second of the last solve
+     * @return nodes per second
+     */
+    public long getNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1000000000L / elapsedNanos;
+    }
+
+    /**
+     * Getter for the microseconds the last solve took
+     * @return microseconds
+     */
+    public long getMicros() {
+        return elapsedNanos / 1000;
+    }
+
+    /**
+     * Getter for the first move of the win proven by the last solve
+     * @return the cell as row * columns + column, or -1
+     */
+    public int getMove() {
+        return move;
+    }
+
+    /**
+     * Getter for the deepest search the last solve completed, in attacker moves
+     * @return depth
+     */
+    public int getDepth() {
+        return depthReached;
+    }
+
+    /**
+     * Whether the last solve needed threes, so the win is a VCT rather than a VCF
+     * @return boolean
+     */
+    public boolean usedThrees() {
+        return threes;
+    }
+
+    /**
+     * Solves a position given as an int grid like gridInt
+     * @param grid The 2D array of ints representing the board
+     * @param winNumber the number of pieces in a row needed to win game
+     * @param color BLACK or WHITE, the side to move
+     * @return PROVEN, DISPROVEN or UNKNOWN
+     */
+    public int solve(int[][] grid, int winNumber, int color) {
+        return solve(new PatternTable(BitBoard.fromGrid(grid, winNumber)), color);
+    }
+
+    /**
+     * Looks for a forced win of color by threats, VCF first, then VCT, each deepening until it is proven,
+     * disproven or the budget runs out
+     * @param position the board with its pattern table, left unchanged
+     * @param color BLACK or WHITE, the side to move
+     * @return PROVEN (getMove gives the first move), DISPROVEN when no threat sequence wins, or UNKNOWN
+     */
+    public int solve(PatternTable position, int color) {
+        long start = System.nanoTime();
+        deadline = start + budgetMillis * 1000000L;
+        aborted = false;
+        nodes = 0;
+        move = -1;
+        depthReached = 0;
+        threes = false;
+        prepare(position, color);
+
+        int result = UNKNOWN;
+        int passes = vctDepth > 0 ? 2 : 1;
+        for (int pass = 0; pass < passes && result != PROVEN && !aborted; pass++) {
+            threes = pass == 1;
+            result = UNKNOWN;
+            int limit = threes ? vctDepth : vcfDepth;
+            for (int depth = 1; depth <= limit; depth++) {
+                cut = false;
+                if (attack(depth, 0)) {
+                    result = PROVEN;
+                    depthReached = depth;
+                    break;
+                }
+                if (aborted) {
+                    break;
+                }
+                depthReached = depth;
+                if (!cut) {
+                    // every line ended before the limit, deeper searches can't do better
+                    result = DISPROVEN;
+                    break;
+                }
+            }
+        }
+        if (aborted && result != PROVEN) {
+            result = UNKNOWN;
+        }
+        elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * Solves and gives the winning move
+     * @param position the board with its pattern table, left unchanged
+     * @param color BLACK or WHITE, the side to move
+     * @return the first move of a proven win, or -1
+     */
+    public int findWin(PatternTable position, int color) {
+        return solve(position, color) == PROVEN ? move : -1;
+    }
+
+    /**
+     * Copies the position and sets up the per solve arrays
+     * @param position
+     * @param color the attacker
+     */
+    private void prepare(PatternTable position, int color) {
+        table = new PatternTable(position);
+        board = table.getBoard();
+        rows = board.getRows();
+        columns = board.getColumns();
+        attacker = color;
+        defender = 3 - color;
+        int cells = rows * columns;
+        if (stamps == null || stamps.length != cells) {
+            stamps = new int[cells];
+            mark = 0;
+            for (int ply = 0; ply < plyMoves.length; ply++) {
+                plyMoves[ply] = new int[cells];
+            }
+        }
+        Arrays.fill(failedDepths, (byte) 0);
+
+        top = rows;
+        bottom = -1;
+        left = columns;
+        right = -1;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                if (!board.isEmpty(r, c)) {
+                    widen(r, c);
+                }
+            }
+        }
+    }
+
+    /**
+     * Grows the box to hold a stone and its neighbours; the box never shrinks, so it stays right after undos
+     * @param row
+     * @param column
+     */
+    private void widen(int row, int column) {
+        top = Math.max(0, Math.min(top, row - 1));
+        bottom = Math.min(rows - 1, Math.max(bottom, row + 1));
+        left = Math.max(0, Math.min(left, column - 1));
+        right = Math.min(columns - 1, Math.max(right, column + 1));
+    }
+
+    /**
+     * Attacker to move: tries every threat
+     * @param depth attacker moves left
+     * @param ply plies from the root
+     * @return true if a threat wins by force
+     */
+    private boolean attack(int depth, int ply) {
+        if ((++nodes & CLOCK_MASK) == 0 && System.nanoTime() > deadline) {
+            aborted = true;
+        }
+        if (aborted) {
+            return false;
+        }
+        if (table.countWinningMoves(attacker) > 0) {
+            if (ply == 0) {
+                move = winningCell(attacker);
+            }
+            return true;
+        }
+        if (depth == 0) {
+            cut = true;
+            return false;
+        }
+        long key = board.getHash() ^ (threes ? THREES_KEY : 0);
+        int slot = (int) (key >>> (64 - CACHE_BITS));
+        if (failedKeys[slot] == key && failedDepths[slot] >= depth) {
+            return false;
+        }
+
+        // a four of the defender has to be blocked, and the block has to be a threat too
+        int defenderWins = table.countWinningMoves(defender);
+        int forced = defenderWins == 1 ? winningCell(defender) : -1;
+        int count = defenderWins > 1 ? 0 : threats(ply, forced);
+
+        int[] moves = plyMoves[ply];
+        for (int i = 0; i < count; i++) {
+            int cell = moves[i];
+            int r = cell / columns;
+            int c = cell - r * columns;
+            table.place(r, c, attacker);
+            widen(r, c);
+            boolean won = defend(depth, ply + 1);
+            table.undo(r, c);
+            if (aborted) {
+                return false;
+            }
+            if (won) {
+                if (ply == 0) {
+                    move = cell;
+                }
+                return true;
+            }
+        }
+        failedKeys[slot] = key;
+        failedDepths[slot] = (byte) depth;
+        return false;
+    }
+
+    /**
+     * Defender to move after a threat: tries every answer to it
+     * @param depth attacker moves left, counting the one just played
+     * @param ply plies from the root
+     * @return true if every answer loses
+     */
+    private boolean defend(int depth, int ply) {
+        if ((++nodes & CLOCK_MASK) == 0 && System.nanoTime() > deadline) {
+            aborted = true;
+        }
+        if (aborted || table.countWinningMoves(defender) > 0) {
+            return false;
+        }
+        int wins = table.countWinningMoves(attacker);
+        if (wins >= 2) {
+            return true;
+        }
+        if (wins == 1) {
+            // a four: the only answer is its winning cell, if the defender may play there
+            int cell = winningCell(attacker);
+            int r = cell / columns;
+            int c = cell - r * columns;
+            if (table.isForbidden(r, c, defender)) {
+                return true;
+            }
+            table.place(r, c, defender);
+            widen(r, c);
+            boolean won = attack(depth - 1, ply + 1);
+            table.undo(r, c);
+            return won;
+        }
+        if (!threes) {
+            return false;
+        }
+
+        int count = answers(ply);
+        if (count < 0) {
+            // no open four is threatened after all
+            return false;
+        }
+        int[] moves = plyMoves[ply];
+        for (int i = 0; i < count; i++) {
+            int cell = moves[i];
+            int r = cell / columns;
+            int c = cell - r * columns;
+            table.place(r, c, defender);
+            widen(r, c);
+            boolean won = attack(depth - 1, ply + 1);
+            table.undo(r, c);
+            if (!won) {
+                return false;
+            }
+        }
+        return !aborted;
+    }
+
+    /**
+     * Lists the threats of the attacker in plyMoves[ply], fours first
+     * @param ply
+     * @param forced the only cell allowed, or -1
+     * @return the number of threats
+     */
+    private int threats(int ply, int forced) {
+        int[] moves = plyMoves[ply];
+        int count = 0;
+        if (++mark == 0) {
+            Arrays.fill(stamps, 0);
+            mark = 1;
+        }
+        for (int pass = 0; pass < (threes ? 2 : 1); pass++) {
+            for (int r = top; r <= bottom; r++) {
+                for (int c = left; c <= right; c++) {
+                    int cell = r * columns + c;
+                    if ((forced >= 0 && cell != forced) || stamps[cell] == mark
+                            || table.check(r, c, attacker) != BitBoard.PLACED) {
+                        continue;
+                    }
+                    if (pass == 0 ? makesFour(r, c, attacker) : makesOpenThree(r, c)) {
+                        stamps[cell] = mark;
+                        moves[count++] = cell;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Lists the answers to an open three in plyMoves[ply]: the cells where the attacker would make an open
+     * four, the ends of those fours, and every four of the defender
+     * @param ply
+     * @return the number of answers, or -1 when the attacker has no open four to make
+     */
+    private int answers(int ply) {
+        int[] moves = plyMoves[ply];
+        int count = 0;
+        boolean threatened = false;
+        if (++mark == 0) {
+            Arrays.fill(stamps, 0);
+            mark = 1;
+        }
+        for (int r = top; r <= bottom; r++) {
+            for (int c = left; c <= right; c++) {
+                if (!board.isEmpty(r, c) || table.isForbidden(r, c, attacker)) {
+                    continue;
+                }
+                for (int axis = 0; axis < 4; axis++) {
+                    if (table.getShape(r, c, attacker, axis) != PatternTable.OPEN_FOUR || !isOpenFour(r, c)) {
+                        continue;
+                    }
+                    threatened = true;
+                    count = answer(r, c, moves, count);
+                    count = answer(end(r, c, axis), moves, count);
+                    count = answer(end(r, c, axis + 4), moves, count);
+                }
+            }
+        }
+        if (!threatened) {
+            return -1;
+        }
+        for (int r = top; r <= bottom; r++) {
+            for (int c = left; c <= right; c++) {
+                if (board.isEmpty(r, c) && makesFour(r, c, defender)) {
+                    count = answer(r, c, moves, count);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Whether the attacker at an empty cell really gets two winning cells: an end of the four can make an
+     * overline or be forbidden, and then the open three was no threat
+     * @param row
+     * @param column
+     * @return boolean
+     */
+    private boolean isOpenFour(int row, int column) {
+        table.place(row, column, attacker);
+        boolean open = table.countWinningMoves(attacker) >= 2;
+        table.undo(row, column);
+        return open;
+    }
+
+    /**
+     * Adds a cell to the answers unless it is listed already or forbidden for the defender
+     * @param row
+     * @param column
+     * @param moves
+     * @param count answers so far
+     * @return answers now
+     */
+    private int answer(int row, int column, int[] moves, int count) {
+        int cell = row * columns + column;
+        if (stamps[cell] == mark || table.isForbidden(row, column, defender)) {
+            return count;
+        }
+        stamps[cell] = mark;
+        moves[count] = cell;
+        return count + 1;
+    }
+
+    /**
+     * Adds an end cell to the answers
+     * @param cell the cell, or -1 for none
+     * @param moves
+     * @param count answers so far
+     * @return answers now
+     */
+    private int answer(int cell, int[] moves, int count) {
+        return cell < 0 ? count : answer(cell / columns, cell % columns, moves, count);
+    }
+
+    /**
+     * The empty cell past the attacker's stones next to row and column in a direction
+     * @param row
+     * @param column
+     * @param direction
+     * @return the cell, or -1 when the run ends at the edge or at a stone of the defender
+     */
+    private int end(int row, int column, int direction) {
+        int r = row + ROW_STEP[direction];
+        int c = column + COLUMN_STEP[direction];
+        while (r >= 0 && r < rows && c >= 0 && c < columns && board.get(r, c) == attacker) {
+            r += ROW_STEP[direction];
+            c += COLUMN_STEP[direction];
+        }
+        return r >= 0 && r < rows && c >= 0 && c < columns && board.isEmpty(r, c) ? r * columns + c : -1;
+    }
+
+    /**
+     * Whether color at an empty cell makes a four, split ones like two and two with a gap included: it is
+     * placed and the winning cells counted, but only where the line holds enough stones of color to make one
+     * @param row
+     * @param column
+     * @param color
+     * @return boolean
+     */
+    private boolean makesFour(int row, int column, int color) {
+        int winNumber = board.getWinNumber();
+        boolean enough = false;
+        for (int axis = 0; axis < 4 && !enough; axis++) {
+            // stones of color within reach on both sides, up to a stone of the other color
+            int stones = 0;
+            for (int direction = axis; direction < 8; direction += 4) {
+                int r = row;
+                int c = column;
+                for (int step = 1; step < winNumber; step++) {
+                    r += ROW_STEP[direction];
+                    c += COLUMN_STEP[direction];
+                    if (r < 0 || r >= rows || c < 0 || c >= columns) {
+                        break;
+                    }
+                    int stone = board.get(r, c);
+                    if (stone == color) {
+                        stones++;
+                    } else if (stone != BitBoard.GREEN) {
+                        break;
+                    }
+                }
+            }
+            enough = stones >= winNumber - 2;
+        }
+        if (!enough) {
+            return false;
+        }
+        int before = table.countWinningMoves(color);
+        table.place(row, column, color);
+        boolean four = table.countWinningMoves(color) > before;
+        table.undo(row, column);
+        return four;
+    }
+
+    /**
+     * Whether the attacker at an empty cell makes an open three
+     * @param row
+     * @param column
+     * @return boolean
+     */
+    private boolean makesOpenThree(int row, int column) {
+        for (int axis = 0; axis < 4; axis++) {
+            if (table.getShape(row, column, attacker, axis) == PatternTable.OPEN_THREE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds a cell where color wins without breaking a rule
+     * @param color
+     * @return the cell, or -1
+     */
+    private int winningCell(int color) {
+        for (int r = top; r <= bottom; r++) {
+            for (int c = left; c <= right; c++) {
+                if (table.getFlags(r, c, color) == PatternTable.FLAG_WIN && board.isEmpty(r, c)) {
+                    return r * columns + c;
+                }
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,174 @@
+package gomoku.search;
+
+/**
+ * Fixed-size transposition table in a primitive long[], safe to share between search threads without locks.
+ *
+ * The table holds a power of two number of buckets. Each bucket has a depth-preferred slot, kept while it holds a
+ * deeper result of the current search, and an always-replace slot for everything else. An entry is two longs: the
+ * key xored with the data, and the data. A torn write from another thread leaves an entry whose halves don't xor
+ * back to the key, which reads as a miss instead of a wrong result.
+ */
+public class TranspositionTable {
+
+    /** Default size in megabytes, set with -Dgomoku.tt.mb=N to fit a container */
+    public static final int DEFAULT_MEGABYTES = Integer.getInteger("gomoku.tt.mb", 64);
+
+    /** Bounds of a stored score */
+    public static final int EXACT = 1;
+    public static final int LOWER = 2;
+    public static final int UPPER = 3;
+
+    /** Bit layout of the data long */
+    private static final int MOVE_BITS = 22;
+    private static final int SCORE_SHIFT = 22;
+    private static final int SCORE_BITS = 22;
+    private static final int DEPTH_SHIFT = 44;
+    private static final int BOUND_SHIFT = 52;
+    private static final int AGE_SHIFT = 54;
+    private static final long MOVE_MASK = (1L << MOVE_BITS) - 1;
+    private static final long SCORE_MASK = (1L << SCORE_BITS) - 1;
+    private static final int SCORE_OFFSET = 1 << (SCORE_BITS - 1);
+
+    /** Longs per bucket: two slots of key and data */
+    private static final int BUCKET_LONGS = 4;
+
+    /** The buckets */
+    private final long[] table;
+    /** Number of buckets minus one */
+    private final long mask;
+    /** Current search, so entries of older searches can be replaced */
+    private volatile int age;
+
+    /**
+     * Constructor with the default size
+     */
+    public TranspositionTable() {
+        this(DEFAULT_MEGABYTES);
+    }
+
+    /**
+     * Constructor with a memory cap
+     * @param megabytes the most memory the table may use, rounded down to a power of two number of buckets
+     */
+    public TranspositionTable(int megabytes) {
+        long bytes = Math.max(1, megabytes) * 1024L * 1024L;
+        long buckets = Long.highestOneBit(bytes / (BUCKET_LONGS * 8));
+        // a Java array holds at most 2^31 - 1 longs
+        buckets = Math.min(buckets, 1L << 28);
+        this.table = new long[(int) (buckets * BUCKET_LONGS)];
+        this.mask = buckets - 1;
+    }
+
+    /**
+     * Getter for the memory used, in bytes
+     * @return bytes
+     */
+    public long getBytes() {
+        return table.length * 8L;
+    }
+
+    /**
+     * Starts a new search: entries of earlier searches lose their claim on the depth-preferred slots
+     */
+    public void newSearch() {
+        age = (age + 1) & 0xFF;
+    }
+
+    /**
+     * Empties the table
+     */
+    public void clear() {
+        java.util.Arrays.fill(table, 0L);
+    }
+
+    /**
+     * Looks up a position
+     * @param key Zobrist hash of the position
+     * @return the stored data, or 0 when the position isn't in the table
+     */
+    public long probe(long key) {
+        int base = (int) (key & mask) * BUCKET_LONGS;
+        long data = table[base + 1];
+        if ((table[base] ^ data) == key && data != 0) {
+            return data;
+        }
+        data = table[base + 3];
+        if ((table[base + 2] ^ data) == key && data != 0) {
+            return data;
+        }
+        return 0;
+    }
+
+    /**
+     * Stores the result of a search
+     * @param key Zobrist hash of the position
+     * @param move best cell found, or -1
+     * @param score
+     * @param depth plies searched
+     * @param bound EXACT, LOWER or UPPER
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+        int currentAge = age;
+        long data = ((move + 1) & MOVE_MASK)
+                | ((long) (score + SCORE_OFFSET) & SCORE_MASK) << SCORE_SHIFT
+                | (long) (Math.min(depth, 0xFF) & 0xFF) << DEPTH_SHIFT
+                | (long) bound << BOUND_SHIFT
+                | (long) currentAge << AGE_SHIFT;
+        int base = (int) (key & mask) * BUCKET_LONGS;
+
+        long old = table[base + 1];
+        boolean same = (table[base] ^ old) == key;
+        if (old == 0 || same || depth >= depth(old) || age(old) != currentAge) {
+            table[base] = key ^ data;
+            table[base + 1] = data;
+        } else {
+            table[base + 2] = key ^ data;
+            table[base + 3] = data;
+        }
+    }
+
+    /**
+     * The best cell of stored data
+     * @param data from probe
+     * @return cell, or -1
+     */
+    public static int move(long data) {
+        return (int) (data & MOVE_MASK) - 1;
+    }
+
+    /**
+     * The score of stored data
+     * @param data from probe
+     * @return score
+     */
+    public static int score(long data) {
+        return (int) ((data >>> SCORE_SHIFT) & SCORE_MASK) - SCORE_OFFSET;
+    }
+
+    /**
+     * The depth of stored data
+     * @param data from probe
+     * @return plies searched
+     */
+    public static int depth(long data) {
+        return (int) (data >>> DEPTH_SHIFT) & 0xFF;
+    }
+
+    /**
+     * The bound of stored data
+     * @param data from probe
+     * @return EXACT, LOWER or UPPER
+     */
+    public static int bound(long data) {
+        return (int) (data >>> BOUND_SHIFT) & 3;
+    }
+
+    /**
+     * The search that stored the data
+     * @param data from probe
+     * @return age
+     */
+    private static int age(long data) {
+        return (int) (data >>> AGE_SHIFT) & 0xFF;
+    }
+}
@@ -0,0 +1,182 @@
+package gomoku.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One client of the server, read on its own thread. Every command line gets exactly one reply line; what the
+ * other player of the session does arrives as extra lines in between:
+ *   MOVED row column PLACED|WIN|DRAW   the opponent played
+ *   JOINED                             someone joined the session as white
+ *   LEFT                               the opponent left the session
+ *
+ * Commands:
+ *   NEW [winNumber] [rows columns]   starts a session, parameters as for Gomoku   OK id
+ *   JOIN id                          joins a session as white                     OK id
+ *   MOVE row column                  plays the color to move                      OK PLACED|WIN|DRAW or ERR reason
+ *   LEAVE                            leaves the session                           OK
+ *   STATS                            server counters                              OK name=value ...
+ *   QUIT                             closes the connection                        OK
+ */
+public class Connection implements Runnable {
+
+    /** Longest board side a client may ask for, so one client can't take all the memory */
+    public static final int MAX_SIZE = 100;
+
+    private final GameServer server;
+    private final Socket socket;
+    private final Writer out;
+    /** Session played in, or null */
+    private GameSession session;
+
+    /**
+     * Constructor
+     * @param server
+     * @param socket the accepted client
+     * @throws IOException when the socket is already closed
+     */
+    public Connection(GameServer server, Socket socket) throws IOException {
+        this.server = server;
+        this.socket = socket;
+        this.out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Reads commands until the client quits or disconnects
+     */
+    public void run() {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                StandardCharsets.US_ASCII))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String reply = handle(line.trim().split("\\s+"));
+                send(reply);
+                if (reply == null) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            // the client went away
+        } finally {
+            leave();
+            server.closed(this);
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // already closed
+            }
+        }
+    }
+
+    /**
+     * Runs one command
+     * @param words the command and its arguments
+     * @return the reply, or null to close the connection after OK
+     */
+    private String handle(String[] words) {
+        String command = words[0].toUpperCase();
+        try {
+            switch (command) {
+                case "MOVE":
+                    if (session == null) {
+                        return "ERR NO_SESSION";
+                    }
+                    if (words.length != 3) {
+                        return "ERR USAGE MOVE row column";
+                    }
+                    return server.play(session, this, Integer.parseInt(words[1]), Integer.parseInt(words[2]));
+                case "NEW":
+                    return newSession(words);
+                case "JOIN":
+                    if (words.length != 2) {
+                        return "ERR USAGE JOIN id";
+                    }
+                    leave();
+                    GameSession joined = server.find(Long.parseLong(words[1]));
+                    if (joined == null || !joined.join(this)) {
+                        return "ERR NO_SEAT";
+                    }
+                    session = joined;
+                    return "OK " + session.getId();
+                case "LEAVE":
+                    leave();
+                    return "OK";
+                case "STATS":
+                    return "OK " + server.getStats();
+                case "QUIT":
+                    return null;
+                default:
+                    return "ERR UNKNOWN_COMMAND";
+            }
+        } catch (NumberFormatException e) {
+            return "ERR NOT_AN_INTEGER";
+        }
+    }
+
+    /**
+     * Starts a session, reading winNumber, rows and columns the way Gomoku.start() does
+     * @param words NEW and up to three integers
+     * @return the reply
+     */
+    private String newSession(String[] words) {
+        int winNumber = 5;
+        int rows = 19;
+        int columns = 19;
+        if (words.length == 2) {
+            winNumber = Integer.parseInt(words[1]);
+        } else if (words.length == 3) {
+            rows = Integer.parseInt(words[1]);
+            columns = Integer.parseInt(words[2]);
+        } else if (words.length == 4) {
+            winNumber = Integer.parseInt(words[1]);
+            rows = Integer.parseInt(words[2]);
+            columns = Integer.parseInt(words[3]);
+        } else if (words.length > 4) {
+            return "ERR USAGE NEW [winNumber] [rows columns]";
+        }
+        if (winNumber < 5) {
+            return "ERR WIN_NUMBER_BELOW_5";
+        }
+        if (winNumber > MAX_SIZE) {
+            return "ERR WIN_NUMBER_ABOVE_" + MAX_SIZE;
+        }
+        if (rows < 1 || columns < 1 || rows > MAX_SIZE || columns > MAX_SIZE) {
+            return "ERR SIZE_OUT_OF_RANGE";
+        }
+        leave();
+        session = server.create(winNumber, rows, columns, this);
+        return "OK " + session.getId();
+    }
+
+    /**
+     * Leaves the current session, if any
+     */
+    private void leave() {
+        if (session != null) {
+            server.leave(session, this);
+            session = null;
+        }
+    }
+
+    /**
+     * Writes a line to the client; safe to call from the opponent's thread
+     * @param line the line, or null for the reply to QUIT
+     */
+    public void send(String line) {
+        synchronized (out) {
+            try {
+                out.write(line == null ? "OK" : line);
+                out.write('\n');
+                out.flush();
+            } catch (IOException e) {
+                // the reader notices the closed socket
+            }
+        }
+    }
+}
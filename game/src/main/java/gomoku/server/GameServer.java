@@ -0,0 +1,294 @@
+package gomoku.server;
+
+import gomoku.metrics.Metrics;
+import gomoku.record.GameArchiveWriter;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Headless server hosting many games at once over a line-based TCP protocol on localhost (see Connection).
+ *
+ * Hosting thousands of games needs Java 21 or newer: each client is read on its own virtual thread, and each
+ * session's work runs as tasks of its own on virtual threads (see GameSession), so a session costs a few
+ * kilobytes and never waits on another. The code is built for Java 17, so the virtual thread executor is looked
+ * up when the server starts; on older Java the server refuses to start unless platform threads are asked for,
+ * which serve a few hundred clients. Sessions live in a concurrent map. Given an archive, every finished game is
+ * appended to it (see GameArchiveWriter).
+ *
+ * Usage: java gomoku.server.GameServer [port] [archive] [--platform-threads]   (default port 4000, no archive)
+ */
+public class GameServer {
+
+    /** Port used when none is given */
+    public static final int DEFAULT_PORT = 4000;
+    /** Stack of a platform thread; a client or a session task needs little */
+    private static final long STACK_BYTES = 256 * 1024;
+    /** Connections waiting to be accepted */
+    private static final int BACKLOG = 4096;
+
+    private final ServerSocket listener;
+    /** Runs the client readers and the sessions' tasks */
+    private final ExecutorService threads;
+    private final boolean virtualThreads;
+    private final ConcurrentHashMap<Long, GameSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    /** Where finished games go, or null */
+    private final GameArchiveWriter archive;
+
+    /** Counters for STATS */
+    private final AtomicInteger connections = new AtomicInteger();
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder moveNanos = new LongAdder();
+    private final AtomicLong slowestNanos = new AtomicLong();
+
+    /**
+     * Constructor, binding the port on the loopback address
+     * @param port 0 picks a free port
+     * @throws IOException when the port can't be bound
+     */
+    public GameServer(int port) throws IOException {
+        this(port, null, false);
+    }
+
+    /**
+     * Constructor, binding the port on the loopback address and recording finished games
+     * @param port 0 picks a free port
+     * @param archive archive appended to, or null
+     * @param platformThreads whether to run on platform threads when virtual threads aren't there
+     * @throws IOException when the port can't be bound or the archive opened
+     * @throws UnsupportedOperationException before Java 21 without platformThreads
+     */
+    public GameServer(int port, Path archive, boolean platformThreads) throws IOException {
+        ExecutorService virtual = newVirtualThreadPerTaskExecutor();
+        if (virtual == null && !platformThreads) {
+            throw new UnsupportedOperationException("The server needs Java 21 or newer for virtual threads, this is "
+                    + "Java " + Runtime.version().feature() + "; --platform-threads serves a few hundred clients");
+        }
+        this.virtualThreads = virtual != null;
+        this.threads = virtual != null ? virtual : Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(null, runnable, "gomoku-server", STACK_BYTES);
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            this.archive = archive == null ? null : new GameArchiveWriter(archive);
+            this.listener = new ServerSocket(port, BACKLOG, InetAddress.getLoopbackAddress());
+        } catch (IOException e) {
+            threads.shutdownNow();
+            throw e;
+        }
+    }
+
+    /**
+     * The main method
+     * @param args port and archive
+     * @throws IOException when the port can't be bound or the archive opened
+     */
+    public static void main(String[] args) throws IOException {
+        List<String> unnamed = new ArrayList<>(Arrays.asList(args));
+        boolean platformThreads = unnamed.remove("--platform-threads");
+        int port = DEFAULT_PORT;
+        Path archive = unnamed.size() > 1 ? Paths.get(unnamed.get(1)) : null;
+        if (unnamed.size() > 0) {
+            try {
+                port = Integer.parseInt(unnamed.get(0));
+            } catch (NumberFormatException e) {
+                System.out.println("Incorrect input: takes in integer");
+                return;
+            }
+        }
+        GameServer server;
+        try {
+            server = new GameServer(port, archive, platformThreads);
+        } catch (UnsupportedOperationException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+        Metrics.install();
+        System.out.println("Serving on " + server.listener.getInetAddress().getHostAddress() + ":" + server.getPort()
+                + " with " + (server.usesVirtualThreads() ? "virtual" : "platform") + " threads");
+        server.serve();
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor() when the running Java has it; the code is built for Java 17
+     * @return the executor, or null before Java 21
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Getter for the port listened on
+     * @return port
+     */
+    public int getPort() {
+        return listener.getLocalPort();
+    }
+
+    /**
+     * Whether clients run on virtual threads
+     * @return boolean
+     */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Accepts clients until close() is called
+     */
+    public void serve() {
+        while (!listener.isClosed()) {
+            try {
+                Socket socket = listener.accept();
+                Connection connection;
+                try {
+                    socket.setTcpNoDelay(true);
+                    connection = new Connection(this, socket);
+                } catch (IOException e) {
+                    // the client went away before it was served
+                    socket.close();
+                    continue;
+                }
+                // counted only once served, run() counts it out again through closed()
+                connections.incrementAndGet();
+                threads.execute(connection);
+            } catch (IOException e) {
+                if (!listener.isClosed()) {
+                    System.out.println("Accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops accepting clients and ends the running ones
+     */
+    public void close() {
+        try {
+            listener.close();
+        } catch (IOException e) {
+            // already closed
+        }
+        threads.shutdownNow();
+        if (archive != null) {
+            try {
+                archive.close();
+            } catch (IOException e) {
+                System.out.println("Archive failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Starts a session
+     * @param winNumber
+     * @param rows
+     * @param columns
+     * @param creator the first player
+     * @return the session
+     */
+    GameSession create(int winNumber, int rows, int columns, Connection creator) {
+        GameSession session = new GameSession(nextId.getAndIncrement(), winNumber, rows, columns, creator,
+                archive != null, threads);
+        sessions.put(session.getId(), session);
+        Metrics.GAMES_IN_PROGRESS.increment();
+        return session;
+    }
+
+    /**
+     * Looks up a session
+     * @param id
+     * @return the session, or null
+     */
+    GameSession find(long id) {
+        return sessions.get(id);
+    }
+
+    /**
+     * Plays a move, timing it from the command to the reply, session task included, and archives the game if it
+     * ended
+     * @param session
+     * @param player
+     * @param row
+     * @param column
+     * @return the reply to the player
+     */
+    String play(GameSession session, Connection player, int row, int column) {
+        long start = System.nanoTime();
+        String reply = session.play(player, row, column);
+        long nanos = System.nanoTime() - start;
+        moves.increment();
+        moveNanos.add(nanos);
+        slowestNanos.accumulateAndGet(nanos, Math::max);
+        Metrics.MOVE_VALIDATION.record(nanos);
+        boolean over = reply.equals("OK WIN") || reply.equals("OK DRAW");
+        if (over) {
+            Metrics.GAMES_IN_PROGRESS.decrement();
+        }
+        if (archive != null && over) {
+            try {
+                archive.append(session.getRecord());
+                archive.flush();
+            } catch (IOException e) {
+                System.out.println("Archive failed: " + e.getMessage());
+            }
+        }
+        return reply;
+    }
+
+    /**
+     * Takes a player out of a session, dropping the session when it is empty
+     * @param session
+     * @param player
+     */
+    void leave(GameSession session, Connection player) {
+        if (session.leave(player)) {
+            sessions.remove(session.getId());
+            if (!session.isGameOver()) {
+                // abandoned, play already counted the games that ended
+                Metrics.GAMES_IN_PROGRESS.decrement();
+            }
+        }
+    }
+
+    /**
+     * Notes a closed connection
+     * @param connection
+     */
+    void closed(Connection connection) {
+        connections.decrementAndGet();
+    }
+
+    /**
+     * Counters for STATS. The 99th percentile is the one of Metrics.MOVE_VALIDATION, so it counts every move
+     * validated in this JVM since the metrics were last reset.
+     * @return name=value pairs
+     */
+    String getStats() {
+        long count = moves.sum();
+        return "connections=" + connections.get() + " sessions=" + sessions.size() + " moves=" + count
+                + String.format(" avgMoveMicros=%.2f", count == 0 ? 0 : moveNanos.sum() / 1000.0 / count)
+                + String.format(" p99MoveMicros=%.2f", Metrics.MOVE_VALIDATION.getP99() / 1000.0)
+                + String.format(" maxMoveMicros=%.2f", slowestNanos.get() / 1000.0)
+                + " threads=" + (virtualThreads ? "virtual" : "platform");
+    }
+}
@@ -0,0 +1,264 @@
+package gomoku.server;
+
+import gomoku.engine.BitBoard;
+import gomoku.engine.PatternTable;
+import gomoku.metrics.Metrics;
+import gomoku.record.GameRecord;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * One game hosted by the server, with the state the Gomoku application keeps in its fields: the board, whose
+ * turn it is and whether the game is over.
+ *
+ * A session has one or two players. Alone, a player plays both colors in turn; once a second player joins,
+ * the first plays black and the second white, and each is told the other's moves.
+ *
+ * The state belongs to the session's own task: joins, moves and leaves are queued to it and run one at a time on
+ * the server's threads (a virtual thread per task on Java 21), so no lock is taken and a busy session never holds
+ * up another. The player's thread waits for the reply, which keeps replies in command order; lines pushed to the
+ * other player are written from that thread too, so a player that stops reading never holds up the session.
+ */
+public class GameSession {
+
+    /** Session number, unique in the server */
+    private final long id;
+    /** The board and its rule flags, so a move is checked with lookups */
+    private final PatternTable table;
+    /** The moves so far, for the archive, or null when the server keeps none */
+    private final GameRecord record;
+
+    /** Runs the session's task */
+    private final Executor executor;
+    /** Work waiting for the session's task */
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    /** Whether the session's task is queued or running */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /** The players, the second is null until someone joins */
+    private Connection black;
+    private Connection white;
+    /** Color to move, written by the session's task only */
+    private volatile int colorCurrent = BitBoard.BLACK;
+    /** Whether the game is won or the board full, written by the session's task only */
+    private volatile boolean isGameOver = false;
+
+    /**
+     * Constructor
+     * @param id session number
+     * @param winNumber pieces in a row needed to win
+     * @param rows
+     * @param columns
+     * @param creator the first player
+     * @param recorded whether the moves are kept for an archive
+     * @param executor runs the session's task
+     */
+    public GameSession(long id, int winNumber, int rows, int columns, Connection creator, boolean recorded,
+            Executor executor) {
+        this.id = id;
+        this.executor = executor;
+        this.table = new PatternTable(new BitBoard(winNumber, rows, columns));
+        this.record = recorded ? new GameRecord(winNumber, rows, columns, System.currentTimeMillis()) : null;
+        this.black = creator;
+    }
+
+    /**
+     * Getter for the session number
+     * @return id
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Getter for the color to move
+     * @return BLACK or WHITE
+     */
+    public int getPlayerColorInt() {
+        return colorCurrent;
+    }
+
+    /**
+     * Getter for whether the game is over
+     * @return boolean
+     */
+    public boolean isGameOver() {
+        return isGameOver;
+    }
+
+    /**
+     * Getter for the record of the game, which keeps growing until the game is over; read it once play has
+     * returned the end of the game
+     * @return record, null when the session isn't recorded
+     */
+    public GameRecord getRecord() {
+        return record;
+    }
+
+    /**
+     * Adds the second player, who plays white
+     * @param player
+     * @return true if the seat was free
+     */
+    public boolean join(Connection player) {
+        Connection creator = run(() -> {
+            if (white != null || black == null || black == player) {
+                return null;
+            }
+            white = player;
+            return black;
+        });
+        if (creator == null) {
+            return false;
+        }
+        creator.send("JOINED");
+        return true;
+    }
+
+    /**
+     * Removes a player; the session ends once no player is left
+     * @param player
+     * @return true if the session has no player left
+     */
+    public boolean leave(Connection player) {
+        boolean[] empty = new boolean[1];
+        Connection other = run(() -> {
+            Connection left = null;
+            if (black == player) {
+                black = null;
+                left = white;
+            } else if (white == player) {
+                white = null;
+                left = black;
+            }
+            empty[0] = black == null && white == null;
+            return left;
+        });
+        if (other != null) {
+            other.send("LEFT");
+        }
+        return empty[0];
+    }
+
+    /**
+     * Checks and plays a move with the five in a row, four-four and three-three rules
+     * @param player who sends the move
+     * @param row
+     * @param column
+     * @return the reply to the player: OK PLACED, OK WIN, OK DRAW, or ERR and the reason
+     */
+    public String play(Connection player, int row, int column) {
+        String[] push = new String[1];
+        Connection[] opponent = new Connection[1];
+        String reply = run(() -> {
+            String result = playTask(player, row, column, push);
+            opponent[0] = push[0] == null ? null : player == black ? white : black;
+            return result;
+        });
+        if (opponent[0] != null) {
+            opponent[0].send(push[0]);
+        }
+        return reply;
+    }
+
+    /**
+     * Runs work on the session's task and waits for it. Tasks run one at a time in the order queued, each seeing
+     * what the ones before it did.
+     * @param work
+     * @return what the work returned
+     */
+    private <T> T run(Supplier<T> work) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        tasks.add(() -> {
+            try {
+                result.complete(work.get());
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // the server is closing, the player's own thread finishes the work
+                drain();
+            }
+        }
+        return result.join();
+    }
+
+    /**
+     * The session's task: runs the queued work until none is left
+     */
+    private void drain() {
+        do {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+            scheduled.set(false);
+            // picks up work queued between the last poll and clearing the flag
+        } while (!tasks.isEmpty() && scheduled.compareAndSet(false, true));
+    }
+
+    /**
+     * The body of play, run on the session's task
+     * @param player who sends the move
+     * @param row
+     * @param column
+     * @param push set to the line for the opponent, if any
+     * @return the reply to the player
+     */
+    private String playTask(Connection player, int row, int column, String[] push) {
+        if (isGameOver) {
+            return "ERR GAME_OVER";
+        }
+        if (white != null && player != (colorCurrent == BitBoard.BLACK ? black : white)) {
+            return "ERR NOT_YOUR_TURN";
+        }
+        if (!table.getBoard().isOnBoard(row, column)) {
+            return "ERR OFF_BOARD";
+        }
+
+        int result = table.play(row, column, colorCurrent);
+        if (result == BitBoard.OCCUPIED) {
+            return "ERR OCCUPIED";
+        }
+        if (result == BitBoard.FOUR_FOUR) {
+            Metrics.FORBIDDEN_MOVES.increment();
+            return "ERR FOUR_FOUR";
+        }
+        if (result == BitBoard.THREE_THREE) {
+            Metrics.FORBIDDEN_MOVES.increment();
+            return "ERR THREE_THREE";
+        }
+
+        BitBoard board = table.getBoard();
+        if (record != null) {
+            record.addMove(row, column);
+        }
+        String outcome = "PLACED";
+        if (result == BitBoard.WIN) {
+            isGameOver = true;
+            outcome = "WIN";
+        } else if (board.getStoneCount() == board.getRows() * board.getColumns()) {
+            isGameOver = true;
+            outcome = "DRAW";
+        }
+        if (record != null && isGameOver) {
+            record.setResult(result == BitBoard.WIN ? colorCurrent : GameRecord.DRAW);
+        }
+
+        Connection opponent = player == black ? white : black;
+        if (opponent != null && opponent != player) {
+            push[0] = "MOVED " + row + " " + column + " " + outcome;
+        }
+        colorCurrent = colorCurrent == BitBoard.BLACK ? BitBoard.WHITE : BitBoard.BLACK;
+        return "OK " + outcome;
+    }
+}
@@ -0,0 +1,187 @@
+package gomoku.tools;
+
+import gomoku.analysis.BatchAnalyzer;
+import gomoku.analysis.Position;
+import gomoku.engine.BitBoard;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Runs BatchAnalyzer over a file of positions, or standard input, writing the results to a file or standard
+ * output; the totals go to standard error so they don't mix with the results.
+ *
+ * --generate first writes that many positions to the input file, every position of games of random legal moves
+ * in turn, for trying the batch mode out on inputs of any size.
+ *
+ * Usage: java gomoku.tools.AnalyzePositions [input|-] [winNumber] [rows columns] [--output=file]
+ *        [--format=text|binary] [--threads=N] [--depth=0] [--queue=16] [--generate=N] [--seed=1]
+ */
+public class AnalyzePositions {
+
+    /**
+     * The main method
+     * @param args the input, winNumber, rows and columns of generated positions as for Gomoku, then --name=value
+     *        options
+     * @throws IOException when the input can't be read or the output written
+     * @throws InterruptedException when interrupted
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        List<String> unnamed = new ArrayList<>();
+        Map<String, String> named = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.indexOf('=') > 2) {
+                named.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            } else {
+                unnamed.add(arg);
+            }
+        }
+        if (unnamed.size() > 4) {
+            System.err.println("Incorrect input: takes in at most an input, winNumber, rows and columns");
+            return;
+        }
+        String input = unnamed.isEmpty() ? "-" : unnamed.remove(0);
+        String output = named.getOrDefault("output", "-");
+        String format = named.getOrDefault("format", "text");
+        if (!format.equals("text") && !format.equals("binary")) {
+            System.err.println("Incorrect input: the format is text or binary");
+            return;
+        }
+
+        int winNumber = 5;
+        int rows = 15;
+        int columns = 15;
+        int threads;
+        int depth;
+        int queue;
+        long generate;
+        long seed;
+        try {
+            if (unnamed.size() == 1) {
+                winNumber = Integer.parseInt(unnamed.get(0));
+            } else if (unnamed.size() == 2) {
+                rows = Integer.parseInt(unnamed.get(0));
+                columns = Integer.parseInt(unnamed.get(1));
+            } else if (unnamed.size() == 3) {
+                winNumber = Integer.parseInt(unnamed.get(0));
+                rows = Integer.parseInt(unnamed.get(1));
+                columns = Integer.parseInt(unnamed.get(2));
+            }
+            threads = Integer.parseInt(named.getOrDefault("threads",
+                    String.valueOf(Runtime.getRuntime().availableProcessors())));
+            depth = Integer.parseInt(named.getOrDefault("depth", "0"));
+            queue = Integer.parseInt(named.getOrDefault("queue", "16"));
+            generate = Long.parseLong(named.getOrDefault("generate", "0"));
+            seed = Long.parseLong(named.getOrDefault("seed", "1"));
+        } catch (NumberFormatException e) {
+            System.err.println("Incorrect input: takes in integer");
+            return;
+        }
+        if (threads < 1 || queue < 1) {
+            System.err.println("Incorrect input: threads and queue must be positive");
+            return;
+        }
+        if (rows < 1 || columns < 1 || (long) rows * columns > Position.MAX_CELLS) {
+            System.err.println("Incorrect input: boards hold 1 to " + Position.MAX_CELLS + " cells");
+            return;
+        }
+
+        boolean binary = format.equals("binary");
+        if (generate > 0) {
+            if (input.equals("-")) {
+                System.err.println("Incorrect input: generated positions need an input file");
+                return;
+            }
+            generate(Paths.get(input), binary, generate, winNumber, rows, columns, seed);
+        }
+        if (!input.equals("-") && !Files.exists(Paths.get(input))) {
+            System.err.println("Incorrect input: no input at " + input);
+            return;
+        }
+
+        BatchAnalyzer analyzer = new BatchAnalyzer(threads, depth, queue);
+        try (InputStream in = input.equals("-") ? System.in : Files.newInputStream(Paths.get(input));
+                OutputStream stream = output.equals("-") ? System.out : Files.newOutputStream(Paths.get(output));
+                Writer out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.US_ASCII),
+                        1 << 16)) {
+            analyzer.run(in, binary, out);
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+        } finally {
+            System.err.println(String.format("%d positions, %d unreadable, %d positions/sec on %d threads",
+                    analyzer.getPositions(), analyzer.getErrors(), analyzer.getPositionsPerSecond(), threads));
+        }
+    }
+
+    /**
+     * Writes every position of games of random legal moves until there are enough
+     * @param path replaced if it exists
+     * @param binary
+     * @param positions
+     * @param winNumber
+     * @param rows
+     * @param columns
+     * @param seed
+     * @throws IOException
+     */
+    private static void generate(Path path, boolean binary, long positions, int winNumber, int rows, int columns,
+            long seed) throws IOException {
+        long start = System.nanoTime();
+        BitBoard board = new BitBoard(winNumber, rows, columns);
+        Position position = new Position();
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] order = new int[rows * columns];
+        StringBuilder line = new StringBuilder();
+        long written = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path),
+                1 << 16))) {
+            while (written < positions) {
+                board.clear();
+                position.reset(winNumber, rows, columns);
+                for (int i = 0; i < order.length; i++) {
+                    int j = random.nextInt(i + 1);
+                    order[i] = order[j];
+                    order[j] = i;
+                }
+                int color = BitBoard.BLACK;
+                for (int i = 0; i < order.length && written < positions; i++) {
+                    int cell = order[i];
+                    int result = board.play(cell / columns, cell % columns, color);
+                    if (result != BitBoard.PLACED && result != BitBoard.WIN) {
+                        continue;
+                    }
+                    position.set(cell, color);
+                    if (binary) {
+                        position.writeBinary(out);
+                    } else {
+                        line.setLength(0);
+                        position.writeText(line);
+                        out.write(line.append('\n').toString().getBytes(StandardCharsets.US_ASCII));
+                    }
+                    written++;
+                    if (result == BitBoard.WIN) {
+                        break;
+                    }
+                    color = color == BitBoard.BLACK ? BitBoard.WHITE : BitBoard.BLACK;
+                }
+            }
+        }
+        System.err.println(String.format("Wrote %d positions, %d bytes in %.2f s", written, Files.size(path),
+                (System.nanoTime() - start) / 1e9));
+    }
+}
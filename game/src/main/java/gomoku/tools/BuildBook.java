@@ -0,0 +1,136 @@
+package gomoku.tools;
+
+import gomoku.book.OpeningBook;
+import gomoku.engine.BitBoard;
+import gomoku.record.GameArchive;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds an opening book from the games of an archive (see OpeningBook), then times lookups of the positions of
+ * the first games of the archive.
+ *
+ * Usage: java gomoku.tools.BuildBook archive book [winNumber] [rows columns] [--plies=12] [--min-games=2]
+ *        [--threads=N]
+ */
+public class BuildBook {
+
+    /** Games whose positions are looked up after the build */
+    private static final int LOOKUP_GAMES = 10000;
+
+    /**
+     * The main method
+     * @param args the archive and the book, winNumber, rows and columns as for Gomoku, then --name=value options
+     * @throws IOException when the archive can't be read or the book written
+     */
+    public static void main(String[] args) throws IOException {
+        List<String> unnamed = new ArrayList<>();
+        Map<String, String> named = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.indexOf('=') > 2) {
+                named.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            } else {
+                unnamed.add(arg);
+            }
+        }
+        if (unnamed.size() < 2 || unnamed.size() > 5) {
+            System.out.println("Incorrect input: takes in an archive and a book, then at most winNumber, rows and "
+                    + "columns");
+            return;
+        }
+        Path archivePath = Paths.get(unnamed.remove(0));
+        Path bookPath = Paths.get(unnamed.remove(0));
+
+        int winNumber = 5;
+        int rows = 19;
+        int columns = 19;
+        int plies;
+        int minGames;
+        int threads;
+        try {
+            if (unnamed.size() == 1) {
+                winNumber = Integer.parseInt(unnamed.get(0));
+            } else if (unnamed.size() == 2) {
+                rows = Integer.parseInt(unnamed.get(0));
+                columns = Integer.parseInt(unnamed.get(1));
+            } else if (unnamed.size() == 3) {
+                winNumber = Integer.parseInt(unnamed.get(0));
+                rows = Integer.parseInt(unnamed.get(1));
+                columns = Integer.parseInt(unnamed.get(2));
+            }
+            plies = Integer.parseInt(named.getOrDefault("plies", String.valueOf(OpeningBook.DEFAULT_PLIES)));
+            minGames = Integer.parseInt(named.getOrDefault("min-games",
+                    String.valueOf(OpeningBook.DEFAULT_MIN_GAMES)));
+            threads = Integer.parseInt(named.getOrDefault("threads",
+                    String.valueOf(Runtime.getRuntime().availableProcessors())));
+        } catch (NumberFormatException e) {
+            System.out.println("Incorrect input: takes in integer");
+            return;
+        }
+        if (!Files.exists(archivePath)) {
+            System.out.println("Incorrect input: no archive at " + archivePath);
+            return;
+        }
+
+        GameArchive archive = new GameArchive(archivePath);
+        long start = System.nanoTime();
+        int entries;
+        try {
+            entries = OpeningBook.build(archive, bookPath, winNumber, rows, columns, plies, minGames, threads);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+        System.out.println(String.format("%d games, %d entries, %d bytes in %.2f s on %d threads",
+                archive.getGameCount(), entries, Files.size(bookPath), (System.nanoTime() - start) / 1e9, threads));
+
+        time(new OpeningBook(bookPath), archive, winNumber, rows, columns);
+    }
+
+    /**
+     * Looks up every position of the first moves of the first games of the archive and prints the time taken
+     * @param book
+     * @param archive
+     * @param winNumber
+     * @param rows
+     * @param columns
+     */
+    private static void time(OpeningBook book, GameArchive archive, int winNumber, int rows, int columns) {
+        BitBoard board = new BitBoard(winNumber, rows, columns);
+        long lookups = 0;
+        long hits = 0;
+        long nanos = 0;
+        for (long game = 0; game < Math.min(LOOKUP_GAMES, archive.getGameCount()); game++) {
+            if (archive.getWinNumber(game) != winNumber || archive.getRows(game) != rows
+                    || archive.getColumns(game) != columns) {
+                continue;
+            }
+            board.clear();
+            int color = BitBoard.BLACK;
+            int moves = Math.min(book.getPlies(), archive.getMoveCount(game));
+            for (int i = 0; i < moves; i++) {
+                long before = System.nanoTime();
+                int move = book.lookup(board, color);
+                nanos += System.nanoTime() - before;
+                lookups++;
+                if (move >= 0) {
+                    hits++;
+                }
+                int cell = archive.getCell(game, i);
+                board.place(cell / columns, cell % columns, color);
+                color = color == BitBoard.BLACK ? BitBoard.WHITE : BitBoard.BLACK;
+            }
+        }
+        if (lookups > 0) {
+            System.out.println(String.format("%d lookups, %.1f%% in the book, %.2f us per lookup", lookups,
+                    100.0 * hits / lookups, nanos / 1000.0 / lookups));
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package gomoku.tools;
+
+import gomoku.engine.BitBoard;
+import gomoku.record.GameArchive;
+import gomoku.record.GameArchiveWriter;
+import gomoku.record.GameRecord;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Replays every game of an archive through the rules engine, checking each recorded result and reporting the
+ * throughput. The archive is read through its memory mapping and split into ranges of games replayed in
+ * parallel, each keeping one board per game size, so the replay allocates next to nothing whatever the size of
+ * the archive.
+ *
+ * --generate first appends that many games of random legal moves, for trying the format out; --show prints one
+ * game instead.
+ *
+ * Usage: java gomoku.tools.ReplayArchive archive [winNumber] [rows columns] [--generate=N] [--seed=1] [--show=n]
+ *        [--threads=N]
+ */
+public class ReplayArchive {
+
+    /** Names of the results */
+    private static final String[] RESULTS = { "unfinished", "black won", "white won", "draw" };
+    /** Slots of the replay totals after the results */
+    private static final int MISMATCHES = GameRecord.DRAW + 1;
+    private static final int MOVES = GameRecord.DRAW + 2;
+    /** Games replayed by one task */
+    private static final long CHUNK_GAMES = 1 << 12;
+
+    /**
+     * The main method
+     * @param args the archive, winNumber, rows and columns as for Gomoku, then --name=value options
+     * @throws IOException when the archive can't be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        List<String> unnamed = new ArrayList<>();
+        Map<String, String> named = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.indexOf('=') > 2) {
+                named.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            } else {
+                unnamed.add(arg);
+            }
+        }
+        if (unnamed.isEmpty() || unnamed.size() > 4) {
+            System.out.println("Incorrect input: takes in an archive, then at most winNumber, rows and columns");
+            return;
+        }
+        Path path = Paths.get(unnamed.remove(0));
+
+        int winNumber = 5;
+        int rows = 15;
+        int columns = 15;
+        long generate;
+        long seed;
+        long show;
+        int threads;
+        try {
+            if (unnamed.size() == 1) {
+                winNumber = Integer.parseInt(unnamed.get(0));
+            } else if (unnamed.size() == 2) {
+                rows = Integer.parseInt(unnamed.get(0));
+                columns = Integer.parseInt(unnamed.get(1));
+            } else if (unnamed.size() == 3) {
+                winNumber = Integer.parseInt(unnamed.get(0));
+                rows = Integer.parseInt(unnamed.get(1));
+                columns = Integer.parseInt(unnamed.get(2));
+            }
+            generate = Long.parseLong(named.getOrDefault("generate", "0"));
+            seed = Long.parseLong(named.getOrDefault("seed", "1"));
+            show = Long.parseLong(named.getOrDefault("show", "-1"));
+            threads = Integer.parseInt(named.getOrDefault("threads",
+                    String.valueOf(Runtime.getRuntime().availableProcessors())));
+        } catch (NumberFormatException e) {
+            System.out.println("Incorrect input: takes in integer");
+            return;
+        }
+        if (winNumber < 5) {
+            System.out.println("Incorrect input: win number must be at least 5");
+            return;
+        }
+        if (threads < 1) {
+            System.out.println("Incorrect input: threads must be positive");
+            return;
+        }
+        if (rows < 1 || columns < 1 || (long) rows * columns > GameRecord.MAX_CELLS) {
+            System.out.println("Incorrect input: boards hold 1 to " + GameRecord.MAX_CELLS + " cells");
+            return;
+        }
+
+        if (generate > 0) {
+            generate(path, generate, winNumber, rows, columns, seed);
+        }
+        if (!Files.exists(path)) {
+            System.out.println("Incorrect input: no archive at " + path);
+            return;
+        }
+        GameArchive archive = new GameArchive(path);
+        if (show >= 0) {
+            show(archive, show);
+        } else {
+            replay(archive, Files.size(path) + Files.size(GameArchiveWriter.indexPath(path)), threads);
+        }
+    }
+
+    /**
+     * Appends games of random legal moves to an archive
+     * @param path
+     * @param games
+     * @param winNumber
+     * @param rows
+     * @param columns
+     * @param seed
+     * @throws IOException
+     */
+    private static void generate(Path path, long games, int winNumber, int rows, int columns, long seed)
+            throws IOException {
+        long start = System.nanoTime();
+        BitBoard board = new BitBoard(winNumber, rows, columns);
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] order = new int[rows * columns];
+        try (GameArchiveWriter writer = new GameArchiveWriter(path)) {
+            for (long game = 0; game < games; game++) {
+                GameRecord record = new GameRecord(winNumber, rows, columns, System.currentTimeMillis());
+                board.clear();
+                // cells in random order, skipping forbidden ones
+                for (int i = 0; i < order.length; i++) {
+                    int j = random.nextInt(i + 1);
+                    order[i] = order[j];
+                    order[j] = i;
+                }
+                int color = BitBoard.BLACK;
+                for (int cell : order) {
+                    int result = board.play(cell / columns, cell % columns, color);
+                    if (result != BitBoard.PLACED && result != BitBoard.WIN) {
+                        continue;
+                    }
+                    record.addMove(cell / columns, cell % columns);
+                    if (result == BitBoard.WIN) {
+                        record.setResult(color);
+                        break;
+                    }
+                    color = color == BitBoard.BLACK ? BitBoard.WHITE : BitBoard.BLACK;
+                }
+                if (record.getResult() == GameRecord.UNFINISHED && board.getStoneCount() == order.length) {
+                    record.setResult(GameRecord.DRAW);
+                }
+                writer.append(record);
+            }
+            System.out.println(String.format("Wrote %d games in %.2f s, %d in the archive", games,
+                    (System.nanoTime() - start) / 1e9, writer.getGameCount()));
+        }
+    }
+
+    /**
+     * Replays every game, counting those whose replay doesn't give the recorded result
+     * @param archive
+     * @param bytes size of the archive and its index
+     * @param threads
+     */
+    private static void replay(GameArchive archive, long bytes, int threads) {
+        long games = archive.getGameCount();
+        Replays all = new Replays(archive, 0, games);
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.invoke(all);
+        } finally {
+            pool.shutdown();
+        }
+        double seconds = Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+
+        long moves = all.totals[MOVES].sum();
+        System.out.println(String.format("%d games, %d moves in %.2f s on %d threads: %.0f games/sec, "
+                + "%.0f moves/sec, %.1f MB/s", games, moves, seconds, threads, games / seconds, moves / seconds,
+                bytes / seconds / 1e6));
+        System.out.println(String.format("black %d, white %d, draws %d, unfinished %d, mismatches %d",
+                all.totals[GameRecord.BLACK_WIN].sum(), all.totals[GameRecord.WHITE_WIN].sum(),
+                all.totals[GameRecord.DRAW].sum(), all.totals[GameRecord.UNFINISHED].sum(),
+                all.totals[MISMATCHES].sum()));
+    }
+
+    /**
+     * Replays a range of games, halving it until it is small enough to play in one go
+     */
+    private static class Replays extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final GameArchive archive;
+        private final long from;
+        private final long to;
+        /** Games per result, then mismatches and moves, shared by every part of the range */
+        private final LongAdder[] totals;
+
+        /**
+         * Constructor for the whole archive
+         * @param archive
+         * @param from first game
+         * @param to game after the last
+         */
+        Replays(GameArchive archive, long from, long to) {
+            this(archive, from, to, new LongAdder[MOVES + 1]);
+            for (int i = 0; i < totals.length; i++) {
+                totals[i] = new LongAdder();
+            }
+        }
+
+        /**
+         * Constructor for part of the range
+         * @param archive
+         * @param from first game
+         * @param to game after the last
+         * @param totals
+         */
+        private Replays(GameArchive archive, long from, long to, LongAdder[] totals) {
+            this.archive = archive;
+            this.from = from;
+            this.to = to;
+            this.totals = totals;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CHUNK_GAMES) {
+                long middle = (from + to) >>> 1;
+                invokeAll(new Replays(archive, from, middle, totals), new Replays(archive, middle, to, totals));
+                return;
+            }
+
+            Map<Long, BitBoard> boards = new HashMap<>();
+            BitBoard board = null;
+            long[] counts = new long[MOVES + 1];
+            for (long game = from; game < to; game++) {
+                int winNumber = archive.getWinNumber(game);
+                int rows = archive.getRows(game);
+                int columns = archive.getColumns(game);
+                // archives usually hold one size, so the map is only looked at when the size changes
+                if (board == null || board.getWinNumber() != winNumber || board.getRows() != rows
+                        || board.getColumns() != columns) {
+                    board = boards.computeIfAbsent((long) winNumber << 32 | rows << 16 | columns,
+                            key -> new BitBoard(winNumber, rows, columns));
+                }
+                int result = archive.replay(game, board);
+                counts[result == archive.getResult(game) ? result : MISMATCHES]++;
+                counts[MOVES] += archive.getMoveCount(game);
+            }
+            for (int i = 0; i < counts.length; i++) {
+                totals[i].add(counts[i]);
+            }
+        }
+    }
+
+    /**
+     * Prints one game, one move per line
+     * @param archive
+     * @param game
+     */
+    private static void show(GameArchive archive, long game) {
+        if (game >= archive.getGameCount()) {
+            System.out.println("Incorrect input: the archive has " + archive.getGameCount() + " games");
+            return;
+        }
+        GameRecord record = archive.read(game);
+        System.out.println(String.format("game %d: %d in a row on %dx%d, started %s, %s", game,
+                record.getWinNumber(), record.getRows(), record.getColumns(),
+                Instant.ofEpochMilli(record.getTimestamp()), RESULTS[record.getResult()]));
+        for (int i = 0; i < record.getMoveCount(); i++) {
+            System.out.println((i + 1) + ". " + (i % 2 == 0 ? "black " : "white ") + record.getRow(i) + " "
+                    + record.getColumn(i));
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package gomoku.tools;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load test for GameServer: opens many sessions at once, each playing random moves from its own thread, and
+ * reports the round-trip time of a move, which bounds the server's validation time from above.
+ *
+ * Usage: java gomoku.tools.ServerLoad [--port=4000] [--sessions=1000] [--moves=40] [--size=19]
+ */
+public class ServerLoad {
+
+    /** Stack of a client thread */
+    private static final long STACK_BYTES = 128 * 1024;
+
+    private int port = 4000;
+    private int sessions = 1000;
+    private int moves = 40;
+    private int size = 19;
+
+    /** Round-trip times, moves per session */
+    private long[] nanos;
+    private final AtomicInteger failed = new AtomicInteger();
+
+    /**
+     * The main method
+     * @param args --name=value options
+     * @throws InterruptedException
+     */
+    public static void main(String[] args) throws InterruptedException {
+        ServerLoad load = new ServerLoad();
+        try {
+            for (String arg : args) {
+                String name = arg.substring(2, Math.max(2, arg.indexOf('=')));
+                int value = Integer.parseInt(arg.substring(arg.indexOf('=') + 1));
+                if ("port".equals(name)) {
+                    load.port = value;
+                } else if ("sessions".equals(name)) {
+                    load.sessions = value;
+                } else if ("moves".equals(name)) {
+                    load.moves = value;
+                } else if ("size".equals(name)) {
+                    load.size = value;
+                } else {
+                    System.out.println("Incorrect input: options are --port, --sessions, --moves and --size");
+                    return;
+                }
+            }
+        } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+            System.out.println("Incorrect input: takes in --name=integer");
+            return;
+        }
+        load.run();
+    }
+
+    /**
+     * Connects every session, lets them all play at once, then prints the latencies
+     * @throws InterruptedException
+     */
+    void run() throws InterruptedException {
+        nanos = new long[sessions * moves];
+        CountDownLatch connected = new CountDownLatch(sessions);
+        CountDownLatch go = new CountDownLatch(1);
+        Thread[] threads = new Thread[sessions];
+        for (int i = 0; i < sessions; i++) {
+            int session = i;
+            threads[i] = new Thread(null, () -> play(session, connected, go), "load-" + i, STACK_BYTES);
+            threads[i].start();
+        }
+        connected.await();
+        System.out.println(sessions + " sessions connected");
+
+        long start = System.nanoTime();
+        go.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long[] sorted = Arrays.stream(nanos).filter(n -> n > 0).sorted().toArray();
+        if (sorted.length == 0) {
+            System.out.println("No move was played, " + failed.get() + " sessions failed");
+            return;
+        }
+        System.out.println(String.format("%d moves in %.2f s, %.0f moves/sec, %d sessions failed", sorted.length,
+                seconds, sorted.length / seconds, failed.get()));
+        System.out.println(String.format("round trip: p50 %.1f us, p99 %.1f us, p99.9 %.1f us, max %.1f us",
+                percentile(sorted, 0.5), percentile(sorted, 0.99), percentile(sorted, 0.999),
+                sorted[sorted.length - 1] / 1000.0));
+        System.out.println(request("STATS"));
+    }
+
+    /**
+     * One session: starts a game and plays random moves, starting a new game when one ends
+     * @param session index of the session
+     * @param connected counted down once connected
+     * @param go waited on before the first move
+     */
+    private void play(int session, CountDownLatch connected, CountDownLatch go) {
+        boolean counted = false;
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            socket.setTcpNoDelay(true);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                    StandardCharsets.US_ASCII));
+            Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII);
+            SplittableRandom random = new SplittableRandom(session);
+            boolean[] tried = new boolean[size * size];
+            int triedCount = 0;
+
+            send(out, "NEW 5 " + size + " " + size);
+            in.readLine();
+            connected.countDown();
+            counted = true;
+            go.await();
+
+            for (int i = 0; i < moves; i++) {
+                if (triedCount == tried.length) {
+                    send(out, "NEW 5 " + size + " " + size);
+                    in.readLine();
+                    Arrays.fill(tried, false);
+                    triedCount = 0;
+                }
+                int cell;
+                do {
+                    cell = random.nextInt(tried.length);
+                } while (tried[cell]);
+                tried[cell] = true;
+                triedCount++;
+
+                long before = System.nanoTime();
+                send(out, "MOVE " + cell / size + " " + cell % size);
+                String reply = in.readLine();
+                nanos[session * moves + i] = System.nanoTime() - before;
+
+                if (reply == null) {
+                    throw new IOException("Server closed the connection");
+                }
+                if (reply.startsWith("OK WIN") || reply.startsWith("OK DRAW")) {
+                    send(out, "NEW 5 " + size + " " + size);
+                    in.readLine();
+                    Arrays.fill(tried, false);
+                    triedCount = 0;
+                }
+            }
+            send(out, "QUIT");
+            in.readLine();
+        } catch (IOException | InterruptedException e) {
+            failed.incrementAndGet();
+            if (!counted) {
+                connected.countDown();
+            }
+        }
+    }
+
+    /**
+     * Sends one command on a fresh connection
+     * @param command
+     * @return the reply
+     */
+    private String request(String command) {
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                    StandardCharsets.US_ASCII));
+            Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII);
+            send(out, command);
+            return in.readLine();
+        } catch (IOException e) {
+            return "ERR " + e.getMessage();
+        }
+    }
+
+    /**
+     * Writes a line
+     * @param out
+     * @param line
+     * @throws IOException
+     */
+    private static void send(Writer out, String line) throws IOException {
+        out.write(line);
+        out.write('\n');
+        out.flush();
+    }
+
+    /**
+     * Value below which a fraction of the sorted values fall
+     * @param sorted
+     * @param fraction
+     * @return microseconds
+     */
+    private static double percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) (fraction * sorted.length))] / 1000.0;
+    }
+}
@@ -0,0 +1,126 @@
+package gomoku.tools;
+
+import gomoku.engine.BitBoard;
+import gomoku.engine.MoveHistory;
+import gomoku.engine.PatternTable;
+import gomoku.record.GameArchive;
+import gomoku.record.GameRecord;
+import gomoku.search.DfpnSolver;
+import gomoku.search.ProofTable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Post-game analysis: works out the game value of the positions of an archived game with DfpnSolver, from the
+ * last move back to the first, and shows where the loser let a win go or walked into a loss. The positions share
+ * one proof table, so each solve reuses what the later positions proved. The walk stops at the first position
+ * that isn't solved within the time given to it.
+ *
+ * Usage: java gomoku.tools.SolveGame archive [--game=0] [--millis=60000] [--megabytes=256] [--radius=2]
+ */
+public class SolveGame {
+
+    /** Names of the game values, indexed by value */
+    private static final String[] VALUES = { "loss", "win", "draw" };
+
+    /**
+     * The main method
+     * @param args the archive, then --name=value options
+     * @throws IOException when the archive can't be read
+     */
+    public static void main(String[] args) throws IOException {
+        List<String> unnamed = new ArrayList<>();
+        Map<String, String> named = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.indexOf('=') > 2) {
+                named.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            } else {
+                unnamed.add(arg);
+            }
+        }
+        if (unnamed.size() != 1) {
+            System.out.println("Incorrect input: takes in an archive");
+            return;
+        }
+        Path path = Paths.get(unnamed.get(0));
+
+        long game;
+        long millis;
+        int megabytes;
+        int radius;
+        try {
+            game = Long.parseLong(named.getOrDefault("game", "0"));
+            millis = Long.parseLong(named.getOrDefault("millis", "60000"));
+            megabytes = Integer.parseInt(named.getOrDefault("megabytes", "256"));
+            radius = Integer.parseInt(named.getOrDefault("radius", "2"));
+        } catch (NumberFormatException e) {
+            System.out.println("Incorrect input: takes in integer");
+            return;
+        }
+        if (!Files.exists(path)) {
+            System.out.println("Incorrect input: no archive at " + path);
+            return;
+        }
+        GameArchive archive = new GameArchive(path);
+        if (game < 0 || game >= archive.getGameCount()) {
+            System.out.println("Incorrect input: the archive has " + archive.getGameCount() + " games");
+            return;
+        }
+        GameRecord record = archive.read(game);
+        if ((long) record.getRows() * record.getColumns() > DfpnSolver.MAX_CELLS) {
+            System.out.println("Incorrect input: boards hold at most " + DfpnSolver.MAX_CELLS + " cells");
+            return;
+        }
+
+        ProofTable proofs = new ProofTable(megabytes);
+        DfpnSolver solver = new DfpnSolver(millis, proofs);
+        solver.setRadius(radius);
+        System.out.println(String.format("game %d: %d in a row on %dx%d, %d moves, table of %d MB", game,
+                record.getWinNumber(), record.getRows(), record.getColumns(), record.getMoveCount(),
+                proofs.getBytes() >> 20));
+
+        PatternTable position = new PatternTable(new BitBoard(record.getWinNumber(), record.getRows(),
+                record.getColumns()));
+        MoveHistory history = new MoveHistory(position);
+        for (int i = 0; i < record.getMoveCount(); i++) {
+            history.play(record.getRow(i), record.getColumn(i), i % 2 == 0 ? BitBoard.BLACK : BitBoard.WHITE);
+            if (history.getCurrent() != i + 1) {
+                System.out.println("Incorrect input: move " + (i + 1) + " of the game is not legal");
+                return;
+            }
+        }
+        long nodes = 0;
+        long start = System.nanoTime();
+        for (int i = record.getMoveCount() - 1; i >= 0; i--) {
+            history.undo();
+            int color = i % 2 == 0 ? BitBoard.BLACK : BitBoard.WHITE;
+            int value = solver.value(position, color);
+            nodes += solver.getNodes();
+            if (value == DfpnSolver.UNKNOWN) {
+                System.out.println(String.format("%d. %s: unknown after %d ms, %d nodes at %d nodes/sec", i + 1,
+                        color == BitBoard.BLACK ? "black" : "white", solver.getMillis(), solver.getNodes(),
+                        solver.getNodesPerSecond()));
+                break;
+            }
+            String line = String.format("%d. %s played %d %d: %s, %d nodes at %d nodes/sec", i + 1,
+                    color == BitBoard.BLACK ? "black" : "white", record.getRow(i), record.getColumn(i),
+                    VALUES[value], solver.getNodes(), solver.getNodesPerSecond());
+            if (value == DfpnSolver.WIN && solver.getMove() >= 0) {
+                line += String.format(", wins with %d %d", solver.getMove() / record.getColumns(),
+                        solver.getMove() % record.getColumns());
+            }
+            System.out.println(line);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format("%d nodes in %.1f s, %.0f nodes/sec; table %d of %d entries used, %d "
+                + "collections emptied %d, %d replaced", nodes, seconds, nodes / seconds, proofs.getUsed(),
+                proofs.getCapacity(), proofs.getCollections(), proofs.getCollected(), proofs.getReplaced()));
+    }
+}
@@ -0,0 +1,425 @@
+package gomoku.tools;
+
+import gomoku.book.BookEngine;
+import gomoku.book.OpeningBook;
+import gomoku.engine.BitBoard;
+import gomoku.engine.PatternTable;
+import gomoku.metrics.Metrics;
+import gomoku.search.AlphaBetaEngine;
+import gomoku.search.Engine;
+import gomoku.search.LazySmpEngine;
+import gomoku.search.MctsEngine;
+import gomoku.search.TranspositionTable;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Headless match between two engines, for measuring engine changes.
+ *
+ * Games are split over a work-stealing pool. Each worker thread keeps its own pair of engines, as engines aren't
+ * thread safe, and the match shuts them all down when it ends. An smp engine searches on cores / workers threads, so
+ * the workers' helpers don't outnumber the cores; with smp playing and no --threads, games run one at a time. Games come in pairs with the same random opening, and the first engine plays black in one game of
+ * the pair and white in the other. A line is printed as each game ends, and only running totals are kept, so a
+ * long match needs no more memory than a short one.
+ *
+ * Usage: java gomoku.tools.Tournament [winNumber] [rows columns] [--games=100] [--first=alphabeta]
+ *        [--second=mcts] [--millis=100] [--threads=N] [--opening=2] [--seed=1] [--book=file]
+ * Engines are alphabeta, mcts or smp. --book lets the first engine play from an opening book (see OpeningBook).
+ */
+public class Tournament {
+
+    /** Engines that can play */
+    public static final String ALPHA_BETA = "alphabeta";
+    public static final String MCTS = "mcts";
+    public static final String SMP = "smp";
+
+    /** Memory per engine, kept small since every worker has two */
+    private static final int TABLE_MEGABYTES = 16;
+    private static final int MCTS_NODES = 1 << 18;
+
+    /** Game results, from the first engine's side */
+    private static final int LOSS = 0;
+    private static final int DRAW = 1;
+    private static final int WIN = 2;
+
+    /** Game */
+    private int winNumber = 5;
+    private int rows = 19;
+    private int columns = 19;
+
+    /** Match */
+    private int games = 100;
+    private String first = ALPHA_BETA;
+    private String second = MCTS;
+    private long millis = 100;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    /** Searches of each smp engine, the calling thread included */
+    private int smpThreads = 1;
+    private int opening = 2;
+    private long seed = 1;
+    /** Book the first engine plays from, or null */
+    private OpeningBook book;
+
+    /** Engines of each worker thread: the first engine, then the second */
+    private final ThreadLocal<Engine[]> engines = ThreadLocal.withInitial(() -> new Engine[] {
+            book == null ? create(first) : new BookEngine(book, create(first)), create(second) });
+    /** Every engine made, shut down when the match ends */
+    private final List<Engine> created = Collections.synchronizedList(new ArrayList<>());
+
+    /** Running totals */
+    private final LongAdder wins = new LongAdder();
+    private final LongAdder draws = new LongAdder();
+    private final LongAdder losses = new LongAdder();
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder[] moveNanos = { new LongAdder(), new LongAdder() };
+    private final LongAdder[] moveCount = { new LongAdder(), new LongAdder() };
+    private final AtomicLong finished = new AtomicLong();
+
+    /**
+     * The main method
+     * @param args winNumber, rows and columns as for Gomoku, then --name=value options
+     */
+    public static void main(String[] args) {
+        Tournament tournament = new Tournament();
+        if (tournament.parse(args)) {
+            Metrics.install();
+            tournament.run();
+        }
+    }
+
+    /**
+     * Reads the arguments: unnamed ones are winNumber, rows and columns as in Gomoku.start(), named ones are
+     * --name=value
+     * @param args
+     * @return false when the match can't be played
+     */
+    boolean parse(String[] args) {
+        List<String> unnamed = new ArrayList<>();
+        Map<String, String> named = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.indexOf('=') > 2) {
+                named.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            } else {
+                unnamed.add(arg);
+            }
+        }
+
+        try {
+            if (unnamed.size() == 1) {
+                winNumber = Integer.parseInt(unnamed.get(0));
+            } else if (unnamed.size() == 2) {
+                rows = Integer.parseInt(unnamed.get(0));
+                columns = Integer.parseInt(unnamed.get(1));
+            } else if (unnamed.size() == 3) {
+                winNumber = Integer.parseInt(unnamed.get(0));
+                rows = Integer.parseInt(unnamed.get(1));
+                columns = Integer.parseInt(unnamed.get(2));
+            } else if (unnamed.size() > 3) {
+                System.out.println("Incorrect input: takes in at most winNumber, rows and columns");
+                return false;
+            }
+
+            if (named.containsKey("games")) {
+                games = Integer.parseInt(named.get("games"));
+            }
+            if (named.containsKey("millis")) {
+                millis = Long.parseLong(named.get("millis"));
+            }
+            if (named.containsKey("threads")) {
+                threads = Integer.parseInt(named.get("threads"));
+            }
+            if (named.containsKey("opening")) {
+                opening = Integer.parseInt(named.get("opening"));
+            }
+            if (named.containsKey("seed")) {
+                seed = Long.parseLong(named.get("seed"));
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Incorrect input: takes in integer");
+            return false;
+        }
+        first = named.getOrDefault("first", first).toLowerCase();
+        second = named.getOrDefault("second", second).toLowerCase();
+
+        if (winNumber < 5) {
+            System.out.println("Incorrect input: win number must be at least 5");
+            return false;
+        }
+        if (rows < 1 || columns < 1 || games < 1 || threads < 1 || opening < 0) {
+            System.out.println("Incorrect input: sizes, games and threads must be positive");
+            return false;
+        }
+        if (!isEngine(first) || !isEngine(second)) {
+            System.out.println("Incorrect input: engines are " + ALPHA_BETA + ", " + MCTS + " or " + SMP);
+            return false;
+        }
+        if ((SMP.equals(first) || SMP.equals(second)) && !named.containsKey("threads")) {
+            // the smp helpers use the cores instead of parallel games
+            threads = 1;
+        }
+        smpThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / threads);
+        if (named.containsKey("book")) {
+            try {
+                book = new OpeningBook(Paths.get(named.get("book")));
+            } catch (IOException e) {
+                System.out.println("Incorrect input: can't read the book, " + e.getMessage());
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Plays the match, printing each game and then the totals
+     */
+    void run() {
+        System.out.println(first + (book == null ? "" : " with book") + " vs " + second + ", " + games
+                + " games of " + winNumber + " in a row on " + rows + "x" + columns + ", " + millis + " ms per move, "
+                + threads + " threads" + (SMP.equals(first) || SMP.equals(second)
+                        ? ", " + smpThreads + " per smp search" : ""));
+
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.invoke(new Games(0, games));
+        } finally {
+            pool.shutdown();
+            shutdownEngines();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long won = wins.sum();
+        long drawn = draws.sum();
+        long lost = losses.sum();
+        long played = won + drawn + lost;
+        double score = (won + drawn / 2.0) / played;
+        // standard error of the mean score per game
+        double variance = (won * (1 - score) * (1 - score) + drawn * (0.5 - score) * (0.5 - score)
+                + lost * score * score) / played;
+        double margin = 1.96 * Math.sqrt(variance / played);
+
+        System.out.println(String.format("%s: %d wins, %d draws, %d losses, score %.1f%%", first, won, drawn, lost,
+                score * 100));
+        System.out.println(String.format("Elo difference: %+.1f (95%% interval %+.1f to %+.1f)", elo(score),
+                elo(score - margin), elo(score + margin)));
+        System.out.println(String.format("%.2f games/sec, %.1f moves per game", played / seconds,
+                (double) moves.sum() / played));
+        System.out.println(String.format("average move latency: %s %.1f ms, %s %.1f ms", first, latency(0), second,
+                latency(1)));
+    }
+
+    /**
+     * Plays one game
+     * @param game index of the game; games 2k and 2k + 1 share an opening with colors swapped
+     */
+    private void play(int game) {
+        Engine[] pair = engines.get();
+        int firstColor = game % 2 == 0 ? BitBoard.BLACK : BitBoard.WHITE;
+        PatternTable position = new PatternTable(new BitBoard(winNumber, rows, columns));
+        int color = openWith(position, new SplittableRandom(seed * 0x9E3779B97F4A7C15L + game / 2));
+
+        int result = DRAW;
+        String reason = "no legal move";
+        int played = 0;
+        long start = System.nanoTime();
+        Metrics.GAMES_IN_PROGRESS.increment();
+        while (true) {
+            int player = color == firstColor ? 0 : 1;
+            long before = System.nanoTime();
+            int cell = pair[player].chooseMove(position, color);
+            moveNanos[player].add(System.nanoTime() - before);
+            moveCount[player].increment();
+            if (cell < 0) {
+                break;
+            }
+            played++;
+
+            long checked = System.nanoTime();
+            int outcome = position.play(cell / columns, cell % columns, color);
+            Metrics.MOVE_VALIDATION.record(System.nanoTime() - checked);
+            if (outcome == BitBoard.WIN) {
+                result = player == 0 ? WIN : LOSS;
+                reason = "five";
+                break;
+            }
+            if (outcome != BitBoard.PLACED) {
+                // an engine that plays a forbidden or occupied cell loses
+                result = player == 0 ? LOSS : WIN;
+                reason = outcome == BitBoard.OCCUPIED ? "occupied cell" : "forbidden move";
+                break;
+            }
+            color = color == BitBoard.BLACK ? BitBoard.WHITE : BitBoard.BLACK;
+        }
+        Metrics.GAMES_IN_PROGRESS.decrement();
+
+        if (result == WIN) {
+            wins.increment();
+        } else if (result == LOSS) {
+            losses.increment();
+        } else {
+            draws.increment();
+        }
+        moves.add(played);
+
+        String black = firstColor == BitBoard.BLACK ? first : second;
+        String white = firstColor == BitBoard.BLACK ? second : first;
+        String winner = result == DRAW ? "draw" : (result == WIN) == (firstColor == BitBoard.BLACK) ? "1-0" : "0-1";
+        System.out.println(String.format("game %d/%d  black %s  white %s  %s (%s)  %d moves  %.1f s",
+                finished.incrementAndGet(), games, black, white, winner, reason, played,
+                (System.nanoTime() - start) / 1e9));
+    }
+
+    /**
+     * Plays the random opening: alternate stones on free cells near the center
+     * @param position
+     * @param random
+     * @return the color to move after the opening
+     */
+    private int openWith(PatternTable position, SplittableRandom random) {
+        int color = BitBoard.BLACK;
+        int reach = Math.max(1, opening);
+        for (int i = 0; i < opening && i < rows * columns; i++) {
+            int row;
+            int column;
+            do {
+                row = clamp(rows / 2 + random.nextInt(-reach, reach + 1), rows);
+                column = clamp(columns / 2 + random.nextInt(-reach, reach + 1), columns);
+            } while (!position.getBoard().isEmpty(row, column));
+            position.place(row, column, color);
+            color = color == BitBoard.BLACK ? BitBoard.WHITE : BitBoard.BLACK;
+        }
+        return color;
+    }
+
+    /**
+     * Splits a range of games in halves until one game is left, so idle workers can steal the other half
+     */
+    private final class Games extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        /**
+         * Constructor
+         * @param from first game
+         * @param to last game, excluded
+         */
+        Games(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Plays the games of the range
+         */
+        protected void compute() {
+            if (to - from == 1) {
+                play(from);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Games(from, middle), new Games(middle, to));
+            }
+        }
+    }
+
+    /**
+     * Creates an engine and keeps it to shut down when the match ends
+     * @param name alphabeta, mcts or smp
+     * @return the engine
+     */
+    private Engine create(String name) {
+        Engine engine;
+        if (MCTS.equals(name)) {
+            engine = new MctsEngine(millis, MCTS_NODES);
+        } else if (SMP.equals(name)) {
+            engine = new LazySmpEngine(millis, smpThreads, new TranspositionTable(TABLE_MEGABYTES));
+        } else {
+            engine = new AlphaBetaEngine(millis, new TranspositionTable(TABLE_MEGABYTES));
+        }
+        created.add(engine);
+        return engine;
+    }
+
+    /**
+     * Stops the helper threads of every engine made
+     */
+    private void shutdownEngines() {
+        synchronized (created) {
+            for (Engine engine : created) {
+                if (engine instanceof LazySmpEngine) {
+                    ((LazySmpEngine) engine).shutdown();
+                }
+            }
+            created.clear();
+        }
+    }
+
+    /**
+     * Getter for the searches of each smp engine
+     * @return threads, the calling thread included
+     */
+    int getSmpThreads() {
+        return smpThreads;
+    }
+
+    /**
+     * Getter for the worker threads
+     * @return threads
+     */
+    int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Checks an engine name
+     * @param name
+     * @return true if it is alphabeta, mcts or smp
+     */
+    private static boolean isEngine(String name) {
+        return ALPHA_BETA.equals(name) || MCTS.equals(name) || SMP.equals(name);
+    }
+
+    /**
+     * Average time one engine took per move
+     * @param player 0 for the first engine, 1 for the second
+     * @return milliseconds
+     */
+    private double latency(int player) {
+        long count = moveCount[player].sum();
+        return count == 0 ? 0 : moveNanos[player].sum() / 1e6 / count;
+    }
+
+    /**
+     * Elo difference that gives an expected score
+     * @param score between 0 and 1
+     * @return Elo difference
+     */
+    private static double elo(double score) {
+        // a clean sweep has no finite Elo, so keep the score just inside (0, 1)
+        double clamped = Math.min(Math.max(score, 1e-3), 1 - 1e-3);
+        return -400 * Math.log10(1 / clamped - 1);
+    }
+
+    /**
+     * Keeps an index on the board
+     * @param index
+     * @param size
+     * @return index clamped to 0 .. size - 1
+     */
+    private static int clamp(int index, int size) {
+        return Math.min(Math.max(index, 0), size - 1);
+    }
+}
@@ -0,0 +1,150 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import gomoku.engine.BitBoard;
+import gomoku.engine.PaddedBoard;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The original rule checks of ProcessClick against the BitBoard that replaced them, and the line walks on the int
+ * grid against PaddedBoard, on random boards
+ */
+class ProcessClickTest {
+
+    private static final int[][] SIZES = { { 19, 19 }, { 15, 15 }, { 7, 70 }, { 66, 30 }, { 5, 5 }, { 64, 64 } };
+
+    @Test
+    void classifyMatchesOriginalChecks() {
+        Random random = new Random(1);
+        for (int[] size : SIZES) {
+            for (int winNumber = 5; winNumber <= 7; winNumber++) {
+                for (int board = 0; board < 4; board++) {
+                    int[][] grid = randomGrid(random, size[0], size[1]);
+                    BitBoard bits = BitBoard.fromGrid(grid, winNumber);
+                    Gomoku game = newGame(grid, winNumber);
+                    Gomoku.ProcessClick click = game.new ProcessClick(0, 0);
+                    for (int r = 0; r < size[0]; r++) {
+                        for (int c = 0; c < size[1]; c++) {
+                            if (grid[r][c] != BitBoard.GREEN) {
+                                check(bits, click, r, c);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testBoardsOnTheGamesGridReachTheRuleChecks() {
+        Gomoku game = newGame(new int[15][15], 5);
+        int[][] grid = game.getGridInt();
+        Gomoku.ProcessClick click = game.new ProcessClick(0, 0);
+        // black's run of four on row 7, one stone at a time
+        for (int column = 3; column <= 6; column++) {
+            click.setYCoor(column);
+            click.setXCoor(7);
+            click.createTestBoard(grid);
+            assertEquals(BitBoard.BLACK, click.getTestBoard());
+            assertEquals(BitBoard.BLACK, grid[7][column]);
+            assertEquals(BitBoard.BLACK, game.getStone(7, column));
+        }
+        assertEquals(4, click.count4DirectionsIntBoard(2));
+        click.setYCoor(7);
+        click.createTestBoard(grid);
+        assertTrue(click.isWinningMove());
+
+        click.resetTestBoard(grid);
+        assertEquals(BitBoard.GREEN, click.getTestBoard());
+        assertEquals(BitBoard.GREEN, grid[7][7]);
+        assertEquals(BitBoard.GREEN, game.getStone(7, 7));
+        click.setYCoor(6);
+        assertEquals(4, click.count4DirectionsIntBoard(2));
+
+        // a copy leaves the game alone
+        int[][] copy = new int[15][15];
+        click.setXCoor(0);
+        click.setYCoor(0);
+        click.createTestBoard(copy);
+        assertEquals(BitBoard.BLACK, copy[0][0]);
+        assertEquals(BitBoard.GREEN, game.getStone(0, 0));
+        assertEquals(BitBoard.GREEN, grid[0][0]);
+    }
+
+    @Test
+    void paddedBoardMatchesGridWalks() {
+        Random random = new Random(2);
+        for (int t = 0; t < 500; t++) {
+            // narrow boards too, so most cells are on an edge or in a corner
+            int rows = 1 + random.nextInt(t % 2 == 0 ? 4 : 25);
+            int columns = 1 + random.nextInt(t % 3 == 0 ? 4 : 25);
+            int[][] grid = randomGrid(random, rows, columns);
+            Gomoku game = newGame(grid, 5);
+            PaddedBoard padded = PaddedBoard.fromGrid(grid);
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c < columns; c++) {
+                    for (int direction = 0; direction < 8; direction++) {
+                        String at = r + "," + c + " direction " + direction + " on " + rows + "x" + columns;
+                        int line = game.numberInLineInt(grid, r, c, direction);
+                        assertEquals(line, padded.numberInLine(r, c, direction), at);
+                        assertEquals(game.isOpen(grid, r, c, direction), padded.isOpen(r, c, direction), at);
+                        if (direction < 4) {
+                            int back = game.numberInLineInt(grid, r, c, direction + 4);
+                            assertEquals(line + back - 1, padded.count4Directions(r, c, direction), at);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Compares one stone already on the board
+     */
+    private static void check(BitBoard bits, Gomoku.ProcessClick click, int row, int column) {
+        click.setXCoor(row);
+        click.setYCoor(column);
+        String at = row + "," + column;
+        for (int direction = 0; direction < 4; direction++) {
+            assertEquals(click.count4DirectionsIntBoard(direction), bits.count(row, column, direction), at);
+        }
+        boolean fourFour = click.fourFour();
+        boolean threeThree = click.threeThree();
+        assertEquals(fourFour, bits.fourFour(row, column), at);
+        assertEquals(threeThree, bits.threeThree(row, column), at);
+        assertEquals(click.isWinningMove(), bits.checkWin(row, column), at);
+        int expected = fourFour ? BitBoard.FOUR_FOUR : threeThree ? BitBoard.THREE_THREE
+                : click.isWinningMove() ? BitBoard.WIN : BitBoard.PLACED;
+        assertEquals(expected, bits.classify(row, column), at);
+    }
+
+    /**
+     * A board with a random share of each color, up to 80% full, so long runs come up too
+     */
+    private static int[][] randomGrid(Random random, int rows, int columns) {
+        int[][] grid = new int[rows][columns];
+        double density = random.nextDouble() * 0.8;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                double x = random.nextDouble();
+                grid[r][c] = x < density / 2 ? BitBoard.BLACK : x < density ? BitBoard.WHITE : BitBoard.GREEN;
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * A game holding a board, without starting JavaFX
+     */
+    static Gomoku newGame(int[][] grid, int winNumber) {
+        Gomoku game = new Gomoku();
+        game.setWinNumber(winNumber);
+        game.setRows(grid.length);
+        game.setColumns(grid[0].length);
+        game.setGridInt(grid);
+        return game;
+    }
+}
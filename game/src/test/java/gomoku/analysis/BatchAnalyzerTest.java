@@ -0,0 +1,157 @@
+package gomoku.analysis;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import gomoku.engine.BitBoard;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Results against rule checks on a fresh BitBoard, and the same output whatever the input form or thread count
+ */
+class BatchAnalyzerTest {
+
+    /** Positions of random games, enough for a dozen batches */
+    private static final List<Position> POSITIONS = games(new Random(17), 3000);
+
+    @Test
+    void resultsMatchFreshRuleChecks() throws IOException, InterruptedException {
+        String[] lines = run(new BatchAnalyzer(2, 0, 2), text(POSITIONS), false).split("\n");
+        assertEquals(POSITIONS.size(), lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            assertEquals(expected(i, POSITIONS.get(i)), lines[i]);
+        }
+    }
+
+    @Test
+    void binaryInputGivesTheSameOutput() throws IOException, InterruptedException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            for (Position position : POSITIONS) {
+                position.writeBinary(out);
+            }
+        }
+        assertEquals(run(new BatchAnalyzer(1, 0, 1), text(POSITIONS), false),
+                run(new BatchAnalyzer(1, 0, 1), bytes.toByteArray(), true));
+    }
+
+    @Test
+    void threadsGiveTheSameOutputAsOne() throws IOException, InterruptedException {
+        BatchAnalyzer analyzer = new BatchAnalyzer(4, 0, 1);
+        assertEquals(run(new BatchAnalyzer(1, 0, 1), text(POSITIONS), false), run(analyzer, text(POSITIONS), false));
+        assertEquals(POSITIONS.size(), analyzer.getPositions());
+        assertEquals(0, analyzer.getErrors());
+    }
+
+    @Test
+    void unreadableLinesGiveErrors() throws IOException, InterruptedException {
+        String input = "5 3 3 000010000\n5 3 3 0001\n5 x 3 000000000\n5 3 3 000030000\n\n5 3 3 000000000\n";
+        BatchAnalyzer analyzer = new BatchAnalyzer(2, 0, 1);
+        String[] lines = run(analyzer, input.getBytes(StandardCharsets.UTF_8), false).split("\n");
+        assertEquals(5, lines.length);
+        assertEquals("0\t0\t2\t0\t0\t0\t0", lines[0]);
+        for (int i = 1; i <= 3; i++) {
+            assertTrue(lines[i].startsWith(i + "\tERR\tIncorrect input"), lines[i]);
+        }
+        assertEquals("4\t0\t1\t0\t0\t0\t0", lines[4]);
+        assertEquals(3, analyzer.getErrors());
+    }
+
+    /**
+     * The result line of a position worked out cell by cell on a fresh board
+     */
+    private static String expected(long index, Position position) {
+        int rows = position.getRows();
+        int columns = position.getColumns();
+        BitBoard board = new BitBoard(position.getWinNumber(), rows, columns);
+        int stones = 0;
+        for (int cell = 0; cell < rows * columns; cell++) {
+            if (position.get(cell) != BitBoard.GREEN) {
+                board.place(cell / columns, cell % columns, position.get(cell));
+                stones += position.get(cell) == BitBoard.BLACK ? 1 : -1;
+            }
+        }
+        int winner = 0;
+        int color = stones == 0 ? BitBoard.BLACK : BitBoard.WHITE;
+        int[] results = new int[5];
+        int opponentWins = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                if (!board.isEmpty(r, c)) {
+                    winner |= board.checkWin(r, c) ? board.get(r, c) : 0;
+                    continue;
+                }
+                board.place(r, c, color);
+                results[board.classify(r, c)]++;
+                board.undo(r, c);
+                board.place(r, c, BitBoard.BLACK + BitBoard.WHITE - color);
+                opponentWins += board.classify(r, c) == BitBoard.WIN ? 1 : 0;
+                board.undo(r, c);
+            }
+        }
+        return index + "\t" + winner + "\t" + color + "\t" + results[BitBoard.WIN] + "\t"
+                + results[BitBoard.FOUR_FOUR] + "\t" + results[BitBoard.THREE_THREE] + "\t" + opponentWins;
+    }
+
+    /**
+     * Every position of random games one after the other, as the positions of a game usually come
+     */
+    private static List<Position> games(Random random, int count) {
+        int[][] sizes = { { 15, 15 }, { 19, 19 }, { 9, 30 } };
+        List<Position> positions = new ArrayList<>();
+        while (positions.size() < count) {
+            int[] size = sizes[random.nextInt(sizes.length)];
+            int winNumber = 5 + random.nextInt(2);
+            BitBoard board = new BitBoard(winNumber, size[0], size[1]);
+            int color = BitBoard.BLACK;
+            int result = BitBoard.PLACED;
+            // the middle of the board, so the games get crowded enough for fours and threes but never fill it
+            int middleRows = size[0] / 2;
+            int middleColumns = size[1] / 2;
+            for (int moves = 0; moves < middleRows * middleColumns / 2 && result != BitBoard.WIN; ) {
+                int row = random.nextInt(middleRows) + size[0] / 4;
+                int column = random.nextInt(middleColumns) + size[1] / 4;
+                result = board.play(row, column, color);
+                if (result != BitBoard.PLACED && result != BitBoard.WIN) {
+                    continue;
+                }
+                Position position = new Position();
+                position.reset(winNumber, size[0], size[1]);
+                for (int cell = 0; cell < size[0] * size[1]; cell++) {
+                    position.set(cell, board.get(cell / size[1], cell % size[1]));
+                }
+                positions.add(position);
+                color = BitBoard.BLACK + BitBoard.WHITE - color;
+                moves++;
+            }
+        }
+        return positions;
+    }
+
+    private static byte[] text(List<Position> positions) {
+        StringBuilder out = new StringBuilder();
+        for (Position position : positions) {
+            position.writeText(out);
+            out.append('\n');
+        }
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String run(BatchAnalyzer analyzer, byte[] input, boolean binary)
+            throws IOException, InterruptedException {
+        StringWriter out = new StringWriter();
+        analyzer.run(new ByteArrayInputStream(input), binary, out);
+        return out.toString();
+    }
+}
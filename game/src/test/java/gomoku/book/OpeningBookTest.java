@@ -0,0 +1,153 @@
+package gomoku.book;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import gomoku.engine.BitBoard;
+import gomoku.record.GameArchive;
+import gomoku.record.GameArchiveWriter;
+import gomoku.record.GameRecord;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Book lookups of positions turned by every symmetry of the board
+ */
+class OpeningBookTest {
+
+    private static final int PLIES = 8;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void rotatedLookupsOnASquareBoard() throws IOException {
+        checkRotatedLookups(15, 15);
+    }
+
+    @Test
+    void mirroredLookupsOnAnOblongBoard() throws IOException {
+        checkRotatedLookups(13, 19);
+    }
+
+    @Test
+    void symmetricTwinsShareAnEntry() throws IOException {
+        // the same first move turned four ways, then the centre
+        int[][] openings = { { 3, 3 }, { 3, 15 }, { 15, 3 }, { 15, 15 }, { 3, 15 }, { 15, 3 } };
+        Path archive = directory.resolve("corners.gmk");
+        try (GameArchiveWriter writer = new GameArchiveWriter(archive)) {
+            for (int[] opening : openings) {
+                GameRecord record = new GameRecord(5, 19, 19, 0);
+                record.addMove(opening[0], opening[1]);
+                record.addMove(9, 9);
+                record.setResult(GameRecord.BLACK_WIN);
+                writer.append(record);
+            }
+        }
+        Path path = directory.resolve("corners.book");
+        // every move is played in at least two games once the twins are put together
+        assertEquals(2, OpeningBook.build(new GameArchive(archive), path, 5, 19, 19, 2, 2, 1));
+
+        OpeningBook book = new OpeningBook(path);
+        assertEquals(3 * 19 + 3, book.lookup(new BitBoard(5, 19, 19), BitBoard.BLACK));
+        for (int[] opening : openings) {
+            BitBoard board = new BitBoard(5, 19, 19);
+            board.place(opening[0], opening[1], BitBoard.BLACK);
+            assertEquals(9 * 19 + 9, book.lookup(board, BitBoard.WHITE));
+        }
+    }
+
+    @Test
+    void otherBoardsAndColorsAreNotInTheBook() throws IOException {
+        build(15, 15, 50, new Random(3));
+        OpeningBook book = new OpeningBook(directory.resolve("games.book"));
+        assertEquals(-1, book.lookup(new BitBoard(5, 19, 19), BitBoard.BLACK));
+        assertEquals(-1, book.lookup(new BitBoard(6, 15, 15), BitBoard.BLACK));
+        assertEquals(-1, book.lookup(new BitBoard(5, 15, 15), BitBoard.WHITE));
+    }
+
+    /**
+     * Looks up the positions of archived games turned by each symmetry, and checks the move comes back turned the
+     * same way. A position symmetric itself may get a twin of that move, which gives the same position.
+     */
+    private void checkRotatedLookups(int rows, int columns) throws IOException {
+        Random random = new Random(rows * 31 + columns);
+        GameArchive archive = new GameArchive(build(rows, columns, 300, random));
+        OpeningBook book = new OpeningBook(directory.resolve("games.book"));
+        int symmetries = Symmetry.count(rows, columns);
+        for (long game = 0; game < archive.getGameCount(); game++) {
+            int plies = Math.min(PLIES, archive.getMoveCount(game));
+            for (int s = 0; s < symmetries; s++) {
+                BitBoard board = new BitBoard(5, rows, columns);
+                BitBoard turned = new BitBoard(5, rows, columns);
+                int color = BitBoard.BLACK;
+                for (int ply = 0; ply < plies; ply++) {
+                    int move = book.lookup(board, color);
+                    assertTrue(move >= 0, "game " + game + " ply " + ply);
+                    int turnedMove = book.lookup(turned, color);
+                    int expected = Symmetry.apply(s, move / columns, move % columns, rows, columns);
+                    assertEquals(key(turned, expected, color), key(turned, turnedMove, color),
+                            "game " + game + " ply " + ply + " symmetry " + s);
+
+                    int cell = archive.getCell(game, ply);
+                    board.place(cell / columns, cell % columns, color);
+                    int turnedCell = Symmetry.apply(s, cell / columns, cell % columns, rows, columns);
+                    turned.place(turnedCell / columns, turnedCell % columns, color);
+                    color = BitBoard.BLACK + BitBoard.WHITE - color;
+                }
+            }
+        }
+    }
+
+    /**
+     * Smallest hash over the symmetries of a position after a move, taken back after
+     */
+    private static long key(BitBoard board, int move, int color) {
+        int columns = board.getColumns();
+        board.place(move / columns, move % columns, color);
+        long[] hashes = new long[8];
+        Symmetry.hashes(board, hashes);
+        board.undo(move / columns, move % columns);
+        long key = Long.MAX_VALUE;
+        for (int s = 0; s < Symmetry.count(board.getRows(), columns); s++) {
+            key = Math.min(key, hashes[s]);
+        }
+        return key;
+    }
+
+    /**
+     * Archives random games with every move kept in the book, and builds the book next to it
+     * @return the archive
+     */
+    private Path build(int rows, int columns, int games, Random random) throws IOException {
+        Path archive = directory.resolve("games.gmk");
+        try (GameArchiveWriter writer = new GameArchiveWriter(archive)) {
+            for (int g = 0; g < games; g++) {
+                BitBoard board = new BitBoard(5, rows, columns);
+                GameRecord record = new GameRecord(5, rows, columns, g);
+                int color = BitBoard.BLACK;
+                while (record.getMoveCount() < 2 * PLIES) {
+                    int row = random.nextInt(rows);
+                    int column = random.nextInt(columns);
+                    int result = board.play(row, column, color);
+                    if (result == BitBoard.WIN) {
+                        // keeps the games going to their full length
+                        board.undo(row, column);
+                    } else if (result == BitBoard.PLACED) {
+                        record.addMove(row, column);
+                        color = BitBoard.BLACK + BitBoard.WHITE - color;
+                    }
+                }
+                record.setResult(1 + random.nextInt(3));
+                writer.append(record);
+            }
+        }
+        OpeningBook.build(new GameArchive(archive), directory.resolve("games.book"), 5, rows, columns, PLIES, 1, 2);
+        return archive;
+    }
+}
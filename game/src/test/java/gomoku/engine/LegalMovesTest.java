@@ -0,0 +1,113 @@
+package gomoku.engine;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Masks of random positions, made in one go and in bands, against the rule check of each cell on the board
+ */
+class LegalMovesTest {
+
+    /** More threads than the bands of the small boards, so bands run at once even on one core */
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    void shutDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void masksMatchCellChecks() {
+        Random random = new Random(23);
+        // widths on either side of a long, and one cell wide
+        int[][] sizes = { { 15, 15 }, { 19, 19 }, { 9, 64 }, { 13, 65 }, { 40, 1 }, { 11, 130 }, { 1, 200 } };
+        int forbidden = 0;
+        for (int t = 0; t < 60; t++) {
+            int[] size = sizes[t % sizes.length];
+            PatternTable position = new PatternTable(randomBoard(random, size[0], size[1]));
+            for (int color = BitBoard.BLACK; color <= BitBoard.WHITE; color++) {
+                long[] expected = cellByCell(position.getBoard(), color);
+                forbidden += size[0] * size[1] - position.getBoard().getStoneCount() - LegalMoves.count(expected);
+                String at = size[0] + "x" + size[1] + " color " + color;
+                assertArrayEquals(expected, LegalMoves.generate(position, color), at);
+                // bands of one row, and of a few rows that don't split the board evenly
+                for (int bandWords : new int[] { 1, 3 * LegalMoves.wordsPerRow(size[1]) }) {
+                    long[] legal = garbage(expected.length);
+                    LegalMoves.generateInBands(position, color, legal, pool, bandWords);
+                    assertArrayEquals(expected, legal, at + " bands of " + bandWords);
+                }
+                long[] legal = garbage(expected.length);
+                LegalMoves.generateParallel(position, color, legal, pool);
+                assertArrayEquals(expected, legal, at);
+            }
+        }
+        assertTrue(forbidden > 100, forbidden + " forbidden cells");
+    }
+
+    @Test
+    void largeBoardsAreSplitIntoBands() {
+        assertTrue(15 * LegalMoves.wordsPerRow(15) <= LegalMoves.PARALLEL_WORDS);
+        assertTrue(300 * LegalMoves.wordsPerRow(300) > LegalMoves.PARALLEL_WORDS);
+        assertTrue(500 * LegalMoves.wordsPerRow(500) > LegalMoves.PARALLEL_WORDS);
+
+        Random random = new Random(24);
+        PatternTable position = new PatternTable(randomBoard(random, 500, 500));
+        for (int color = BitBoard.BLACK; color <= BitBoard.WHITE; color++) {
+            long[] expected = cellByCell(position.getBoard(), color);
+            long[] legal = garbage(expected.length);
+            LegalMoves.generateParallel(position, color, legal, pool);
+            assertArrayEquals(expected, legal, "color " + color);
+            assertEquals(LegalMoves.count(expected), LegalMoves.count(legal));
+        }
+    }
+
+    /**
+     * The mask worked out one cell at a time with the board's own rule check
+     */
+    private static long[] cellByCell(BitBoard board, int color) {
+        int columns = board.getColumns();
+        long[] legal = LegalMoves.newMask(board.getRows(), columns);
+        for (int r = 0; r < board.getRows(); r++) {
+            for (int c = 0; c < columns; c++) {
+                if (board.isEmpty(r, c) && !board.isForbidden(r, c, color)) {
+                    legal[r * LegalMoves.wordsPerRow(columns) + (c >>> 6)] |= 1L << c;
+                }
+            }
+        }
+        return legal;
+    }
+
+    /**
+     * A mask with every bit set, so a long the generation leaves alone shows up
+     */
+    private static long[] garbage(int length) {
+        long[] legal = new long[length];
+        Arrays.fill(legal, -1L);
+        return legal;
+    }
+
+    /**
+     * A board with a random share of each color, up to half full, so forbidden cells come up often
+     */
+    private static BitBoard randomBoard(Random random, int rows, int columns) {
+        BitBoard board = new BitBoard(5, rows, columns);
+        double density = random.nextDouble() * 0.5;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                double x = random.nextDouble();
+                if (x < density) {
+                    board.place(r, c, x < density / 2 ? BitBoard.BLACK : BitBoard.WHITE);
+                }
+            }
+        }
+        return board;
+    }
+}
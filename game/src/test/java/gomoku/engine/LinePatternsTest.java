@@ -0,0 +1,130 @@
+package gomoku.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Looked up shapes against the lines measured on the board and the shapes PatternTable keeps, and the tables read
+ * back from the cache
+ */
+class LinePatternsTest {
+
+    @Test
+    void shapesMatchMeasuredLines() {
+        Random random = new Random(9);
+        for (int winNumber = 1; winNumber <= LinePatterns.MAX_WIN_NUMBER; winNumber++) {
+            LinePatterns lines = LinePatterns.forWinNumber(winNumber);
+            for (int t = 0; t < 20; t++) {
+                BitBoard board = randomBoard(random, winNumber, 1 + random.nextInt(20), 1 + random.nextInt(20));
+                PatternTable table = new PatternTable(new BitBoard(board));
+                for (int r = 0; r < board.getRows(); r++) {
+                    for (int c = 0; c < board.getColumns(); c++) {
+                        if (!board.isEmpty(r, c)) {
+                            continue;
+                        }
+                        for (int color = BitBoard.BLACK; color <= BitBoard.WHITE; color++) {
+                            for (int direction = 0; direction < 8; direction++) {
+                                String at = r + "," + c + " color " + color + " direction " + direction
+                                        + " winNumber " + winNumber;
+                                int shape = lines.shape(board, color, r, c, direction);
+                                assertEquals(PatternTable.shapeOf(board.lineShape(color, r, c, direction), winNumber),
+                                        shape, at);
+                                assertEquals(shape, table.getShape(r, c, color, direction), at);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void onlyUnbrokenRunsCount() {
+        PatternTable table = new PatternTable(new BitBoard(5, 15, 15));
+        table.place(7, 3, BitBoard.BLACK);
+        table.place(7, 5, BitBoard.BLACK);
+        // X_XX: the split three is an open two of 7,5 and 7,6
+        assertEquals(PatternTable.OPEN_TWO, table.getShape(7, 6, BitBoard.BLACK, 2));
+        table.place(7, 6, BitBoard.BLACK);
+        // X_XXX: the broken four is an open three of 7,5 to 7,7
+        assertEquals(PatternTable.OPEN_THREE, table.getShape(7, 7, BitBoard.BLACK, 2));
+        // filling the gap of X_XX makes the open four
+        assertEquals(PatternTable.OPEN_FOUR, table.getShape(7, 4, BitBoard.BLACK, 6));
+    }
+
+    @Test
+    void cachedTablesReadBack(@TempDir Path directory) throws IOException {
+        LinePatterns made = new LinePatterns(5, directory);
+        assertFalse(made.isLoaded());
+        Path file = directory.resolve("line-patterns-5.bin");
+        assertEquals(LinePatterns.HEADER_BYTES + 59049, Files.size(file));
+
+        LinePatterns read = new LinePatterns(5, directory);
+        assertTrue(read.isLoaded());
+        assertSameShapes(made, read);
+
+        // a damaged entry fails the CRC, so the table is worked out again and the file rewritten
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[LinePatterns.HEADER_BYTES + 1000] ^= 1;
+        Files.write(file, bytes);
+        LinePatterns again = new LinePatterns(5, directory);
+        assertFalse(again.isLoaded());
+        assertSameShapes(made, again);
+        assertTrue(new LinePatterns(5, directory).isLoaded());
+
+        // another winNumber's file under this name is not taken for it
+        Files.copy(file, directory.resolve("line-patterns-6.bin"));
+        assertFalse(new LinePatterns(6, directory).isLoaded());
+        // nor is a file with the wrong winNumber in its header
+        bytes = Files.readAllBytes(file);
+        bytes[11] = 4;
+        Files.write(file, bytes);
+        assertFalse(new LinePatterns(5, directory).isLoaded());
+    }
+
+    /**
+     * Compares two tables for one winNumber cell by cell on random boards
+     */
+    private static void assertSameShapes(LinePatterns expected, LinePatterns actual) {
+        Random random = new Random(4);
+        for (int t = 0; t < 20; t++) {
+            BitBoard board = randomBoard(random, expected.getWinNumber(), 15, 15);
+            for (int cell = 0; cell < 15 * 15; cell++) {
+                for (int direction = 0; direction < 4; direction++) {
+                    int row = cell / 15;
+                    int column = cell % 15;
+                    assertEquals(expected.shape(board, BitBoard.BLACK, row, column, direction),
+                            actual.shape(board, BitBoard.BLACK, row, column, direction));
+                    assertEquals(expected.shape(board, BitBoard.WHITE, row, column, direction),
+                            actual.shape(board, BitBoard.WHITE, row, column, direction));
+                }
+            }
+        }
+    }
+
+    /**
+     * A board with a random share of each color, up to 80% full, so long runs come up too
+     */
+    private static BitBoard randomBoard(Random random, int winNumber, int rows, int columns) {
+        BitBoard board = new BitBoard(winNumber, rows, columns);
+        double density = random.nextDouble() * 0.8;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                double x = random.nextDouble();
+                if (x < density) {
+                    board.place(r, c, x < density / 2 ? BitBoard.BLACK : BitBoard.WHITE);
+                }
+            }
+        }
+        return board;
+    }
+}
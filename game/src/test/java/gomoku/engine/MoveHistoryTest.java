@@ -0,0 +1,116 @@
+package gomoku.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Positions reached by undo, redo and jumps against copies taken as the moves were played, and the redo moves a
+ * new move drops
+ */
+class MoveHistoryTest {
+
+    @Test
+    void jumpsRestoreEveryPosition() {
+        Random random = new Random(21);
+        for (int game = 0; game < 5; game++) {
+            MoveHistory history = new MoveHistory(new PatternTable(new BitBoard(5, 15, 15)));
+            List<PatternTable> positions = playRandomGame(random, history);
+            int moves = history.getSize();
+            for (int t = 0; t < 40; t++) {
+                int move = random.nextInt(moves + 1);
+                int from = history.getCurrent();
+                assertEquals(Math.abs(move - from), history.jumpTo(move));
+                assertEquals(move, history.getCurrent());
+                assertEquals(moves, history.getSize());
+                PatternTableTest.assertSameTable(positions.get(move), history.getPosition());
+            }
+            assertThrows(IndexOutOfBoundsException.class, () -> history.jumpTo(moves + 1));
+            assertThrows(IndexOutOfBoundsException.class, () -> history.jumpTo(-1));
+        }
+    }
+
+    @Test
+    void undoAllThenRedoAll() {
+        Random random = new Random(22);
+        MoveHistory history = new MoveHistory(new PatternTable(new BitBoard(5, 15, 15)));
+        List<PatternTable> positions = playRandomGame(random, history);
+        int moves = history.getSize();
+        boolean won = history.isWon();
+
+        for (int move = moves - 1; move >= 0; move--) {
+            assertEquals(history.getCell(move), history.undo());
+        }
+        assertEquals(-1, history.undo());
+        assertFalse(history.canUndo());
+        assertEquals(BitBoard.BLACK, history.getColorToMove());
+        assertEquals(0, history.getPosition().getBoard().getStoneCount());
+        PatternTableTest.assertSameTable(positions.get(0), history.getPosition());
+
+        for (int move = 0; move < moves; move++) {
+            assertEquals(history.getCell(move), history.redo());
+        }
+        assertEquals(-1, history.redo());
+        assertFalse(history.canRedo());
+        assertEquals(won, history.isWon());
+        PatternTableTest.assertSameTable(positions.get(moves), history.getPosition());
+    }
+
+    @Test
+    void newMoveDropsTheRedoMoves() {
+        MoveHistory history = new MoveHistory(new PatternTable(new BitBoard(5, 15, 15)));
+        int[][] moves = { { 7, 7 }, { 7, 8 }, { 8, 8 }, { 6, 6 }, { 9, 9 } };
+        int color = BitBoard.BLACK;
+        for (int[] move : moves) {
+            assertEquals(BitBoard.PLACED, history.play(move[0], move[1], color));
+            color = BitBoard.BLACK + BitBoard.WHITE - color;
+        }
+        history.undo();
+        history.undo();
+        assertEquals(3, history.getCurrent());
+        assertTrue(history.canRedo());
+        assertEquals(BitBoard.WHITE, history.getColorToMove());
+
+        assertEquals(BitBoard.PLACED, history.play(0, 0, BitBoard.WHITE));
+        assertEquals(4, history.getSize());
+        assertFalse(history.canRedo());
+        assertEquals(-1, history.redo());
+        assertEquals(0, history.getCell(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> history.jumpTo(5));
+        // the dropped moves are off the board
+        assertTrue(history.getPosition().getBoard().isEmpty(6, 6));
+        assertTrue(history.getPosition().getBoard().isEmpty(9, 9));
+
+        // a refused move is not recorded and keeps the redo moves
+        history.undo();
+        assertEquals(BitBoard.OCCUPIED, history.play(7, 7, BitBoard.WHITE));
+        assertEquals(4, history.getSize());
+        assertTrue(history.canRedo());
+        PatternTable fresh = new PatternTable(new BitBoard(history.getPosition().getBoard()));
+        PatternTableTest.assertSameTable(fresh, history.getPosition());
+    }
+
+    /**
+     * Plays random moves the rules allow in the 9x9 middle of the board until one wins or 60 are played, well
+     * before the middle fills
+     * @return copies of the position before the first move and after each move
+     */
+    private static List<PatternTable> playRandomGame(Random random, MoveHistory history) {
+        List<PatternTable> positions = new ArrayList<>();
+        positions.add(new PatternTable(history.getPosition()));
+        while (history.getSize() < 60 && !history.isWon()) {
+            int result = history.play(3 + random.nextInt(9), 3 + random.nextInt(9), history.getColorToMove());
+            if (result == BitBoard.PLACED || result == BitBoard.WIN) {
+                positions.add(new PatternTable(history.getPosition()));
+            }
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,46 @@
+package gomoku.engine;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Snapshots of random boards against packing cell by cell, and the round trips through unpack and the copy
+ */
+class PaddedBoardTest {
+
+    @Test
+    void packRoundTrips() {
+        Random random = new Random(5);
+        for (int t = 0; t < 3000; t++) {
+            // empty boards and widths on either side of the eight cells packed at once
+            checkRoundTrip(random, random.nextInt(40), random.nextInt(40));
+        }
+        checkRoundTrip(random, 500, 500);
+    }
+
+    @Test
+    void unpackRejectsBadSnapshots() {
+        assertThrows(IllegalArgumentException.class, () -> PaddedBoard.unpack(10, 10, new long[3]));
+        // a cell of 3 is off the board
+        assertThrows(IllegalArgumentException.class, () -> PaddedBoard.unpack(2, 2, new long[] { 3L << 4 }));
+    }
+
+    private static void checkRoundTrip(Random random, int rows, int columns) {
+        int[][] grid = new int[rows][columns];
+        long[] expected = new long[(rows * columns + 31) / 32];
+        for (int i = 0; i < rows * columns; i++) {
+            int color = random.nextInt(3);
+            grid[i / columns][i % columns] = color;
+            expected[i >>> 5] |= (long) color << ((i & 31) * 2);
+        }
+        PaddedBoard board = PaddedBoard.fromGrid(grid);
+        String size = rows + "x" + columns;
+        assertArrayEquals(expected, board.pack(), size);
+        assertArrayEquals(grid, PaddedBoard.unpack(rows, columns, expected).toGrid(), size);
+        assertArrayEquals(grid, new PaddedBoard(board).toGrid(), size);
+    }
+}
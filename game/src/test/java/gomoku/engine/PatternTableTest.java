@@ -0,0 +1,89 @@
+package gomoku.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The table kept up to date move by move against one built from scratch on the same board
+ */
+class PatternTableTest {
+
+    @Test
+    void placeAndUndoMatchFreshTable() {
+        Random random = new Random(7);
+        int[][] sizes = { { 15, 15 }, { 19, 19 }, { 9, 70 }, { 70, 9 } };
+        for (int[] size : sizes) {
+            for (int winNumber = 5; winNumber <= 7; winNumber++) {
+                PatternTable table = new PatternTable(new BitBoard(winNumber, size[0], size[1]));
+                List<int[]> moves = new ArrayList<>();
+                int color = BitBoard.BLACK;
+                for (int step = 0; step < 300; step++) {
+                    if (!moves.isEmpty() && random.nextInt(4) == 0) {
+                        // take back a few moves, the last one first
+                        for (int n = random.nextInt(Math.min(3, moves.size())) + 1; n > 0; n--) {
+                            int[] move = moves.remove(moves.size() - 1);
+                            table.undo(move[0], move[1]);
+                        }
+                    } else {
+                        int row = random.nextInt(size[0]);
+                        int column = random.nextInt(size[1]);
+                        if (!table.getBoard().isEmpty(row, column)) {
+                            continue;
+                        }
+                        table.place(row, column, color);
+                        moves.add(new int[] { row, column });
+                        color = BitBoard.BLACK + BitBoard.WHITE - color;
+                    }
+                    if (step % 10 == 0) {
+                        assertSameTable(new PatternTable(new BitBoard(table.getBoard())), table);
+                    }
+                }
+                assertSameTable(new PatternTable(new BitBoard(table.getBoard())), table);
+            }
+        }
+    }
+
+    @Test
+    void copyIsIndependent() {
+        PatternTable table = new PatternTable(new BitBoard(5, 15, 15));
+        table.place(7, 7, BitBoard.BLACK);
+        PatternTable copy = new PatternTable(table);
+        copy.place(7, 8, BitBoard.BLACK);
+        copy.undo(7, 8);
+        copy.place(8, 8, BitBoard.WHITE);
+        assertEquals(BitBoard.GREEN, table.getBoard().get(8, 8));
+        assertSameTable(new PatternTable(new BitBoard(table.getBoard())), table);
+        assertSameTable(new PatternTable(new BitBoard(copy.getBoard())), copy);
+    }
+
+    /**
+     * Every shape, flag, forbidden word and total of two tables on boards holding the same stones
+     */
+    static void assertSameTable(PatternTable expected, PatternTable actual) {
+        BitBoard board = actual.getBoard();
+        assertEquals(expected.getBoard().getHash(), board.getHash());
+        int words = LegalMoves.wordsPerRow(board.getColumns());
+        for (int color = BitBoard.BLACK; color <= BitBoard.WHITE; color++) {
+            assertEquals(expected.getScore(color), actual.getScore(color), "score");
+            assertEquals(expected.countWinningMoves(color), actual.countWinningMoves(color), "winning moves");
+            for (int r = 0; r < board.getRows(); r++) {
+                for (int c = 0; c < board.getColumns(); c++) {
+                    String at = color + " at " + r + "," + c;
+                    assertEquals(expected.getFlags(r, c, color), actual.getFlags(r, c, color), at);
+                    for (int direction = 0; direction < 4; direction++) {
+                        assertEquals(expected.getShape(r, c, color, direction),
+                                actual.getShape(r, c, color, direction), at);
+                    }
+                }
+                for (int w = 0; w < words; w++) {
+                    assertEquals(expected.getForbiddenWord(color, r, w), actual.getForbiddenWord(color, r, w));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package gomoku.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Renju verdicts on positions worked out by hand, all on a 15x15 board with the move at 7,7 unless said otherwise
+ */
+class RenjuRulesTest {
+
+    private static final int B = BitBoard.BLACK;
+    private static final int W = BitBoard.WHITE;
+
+    @Test
+    void overlineIsForbiddenForBlackAndWinsForWhite() {
+        // X X X _ X X on row 7: filling the gap makes six
+        BitBoard board = board(B, 7, 4, 7, 5, 7, 6, 7, 8, 7, 9);
+        assertEquals(BitBoard.OVERLINE, new RenjuRules(board).check(7, 7, B));
+
+        BitBoard white = board(W, 7, 4, 7, 5, 7, 6, 7, 8, 7, 9);
+        assertEquals(BitBoard.WIN, new RenjuRules(white).check(7, 7, W));
+    }
+
+    @Test
+    void exactFiveWinsEvenWithADoubleFour() {
+        // a five on row 7 and fours on the column and the diagonal at the same time
+        BitBoard board = board(B, 7, 3, 7, 4, 7, 5, 7, 6, 4, 7, 5, 7, 6, 7, 4, 4, 5, 5, 6, 6);
+        assertEquals(BitBoard.WIN, new RenjuRules(board).check(7, 7, B));
+    }
+
+    @Test
+    void doubleFourOnTwoLines() {
+        // three on row 7 and three on column 7, both blocked on one side so neither is a three
+        BitBoard board = board(B, 7, 4, 7, 5, 7, 6, 4, 7, 5, 7, 6, 7);
+        place(board, W, 7, 3, 3, 7);
+        assertEquals(BitBoard.FOUR_FOUR, new RenjuRules(board).check(7, 7, B));
+        assertEquals(BitBoard.PLACED, new RenjuRules(board).check(7, 7, W));
+    }
+
+    @Test
+    void doubleFourOnOneLine() {
+        // X _ X X X _ X on row 7: filling either gap makes a five, so the move makes two fours on one line
+        BitBoard board = board(B, 7, 4, 7, 6, 7, 8, 7, 10);
+        assertEquals(BitBoard.FOUR_FOUR, new RenjuRules(board).check(7, 7, B));
+    }
+
+    @Test
+    void straightFourCountsOnce() {
+        // _ X X X X _ on row 7 is one four, and with an open three on column 7 the move is a legal four-three
+        BitBoard board = board(B, 7, 4, 7, 5, 7, 6, 5, 7, 6, 7);
+        assertEquals(BitBoard.PLACED, new RenjuRules(board).check(7, 7, B));
+    }
+
+    @Test
+    void doubleThree() {
+        // open twos on row 7 and column 7 turn into two open threes
+        BitBoard board = board(B, 7, 5, 7, 6, 5, 7, 6, 7);
+        assertEquals(BitBoard.THREE_THREE, new RenjuRules(board).check(7, 7, B));
+        assertTrue(new RenjuRules(board).isForbidden(7, 7));
+        // white has no forbidden points
+        assertEquals(BitBoard.PLACED, new RenjuRules(board(W, 7, 5, 7, 6, 5, 7, 6, 7)).check(7, 7, W));
+    }
+
+    @Test
+    void threeBlockedAtBothEndsIsNoThree() {
+        // O _ X X ? _ O can't become a straight four, though the standard rules call it open
+        BitBoard board = board(B, 7, 5, 7, 6, 5, 7, 6, 7);
+        place(board, W, 7, 3, 7, 9);
+        assertEquals(BitBoard.PLACED, new RenjuRules(board).check(7, 7, B));
+        assertEquals(BitBoard.THREE_THREE, board.play(7, 7, B));
+    }
+
+    @Test
+    void falseThreeWhoseFourPointsAreForbidden() {
+        // the row 7 three would become a straight four at 7,4 or 7,8, and both are double fours for black
+        BitBoard board = board(B, 7, 5, 7, 6, 5, 7, 6, 7,
+                8, 4, 9, 4, 10, 4, 8, 3, 9, 2, 10, 1,
+                8, 8, 9, 8, 10, 8, 6, 9, 5, 10, 4, 11);
+        RenjuRules rules = new RenjuRules(board);
+        place(board, B, 7, 7);
+        assertEquals(BitBoard.FOUR_FOUR, rules.check(7, 4, B));
+        assertEquals(BitBoard.FOUR_FOUR, rules.check(7, 8, B));
+        board.undo(7, 7);
+        // so only the column three is true
+        assertEquals(BitBoard.PLACED, rules.check(7, 7, B));
+        assertFalse(rules.isForbidden(7, 7));
+    }
+
+    @Test
+    void checkLeavesTheBoardAlone() {
+        BitBoard board = board(B, 7, 5, 7, 6, 5, 7, 6, 7);
+        long hash = board.getHash();
+        RenjuRules rules = new RenjuRules(board);
+        rules.check(7, 7, B);
+        rules.check(7, 4, W);
+        assertEquals(hash, board.getHash());
+        assertEquals(BitBoard.OCCUPIED, rules.play(7, 5, W));
+        assertEquals(BitBoard.PLACED, rules.play(0, 0, W));
+        assertEquals(W, board.get(0, 0));
+    }
+
+    @Test
+    void winNumberOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> new RenjuRules(new BitBoard(4, 15, 15)));
+        assertThrows(IllegalArgumentException.class,
+                () -> new RenjuRules(new BitBoard(RenjuRules.MAX_WIN_NUMBER + 1, 15, 15)));
+    }
+
+    /**
+     * A 15x15 board for five in a row with stones of one color
+     * @param color
+     * @param cells row, column pairs
+     */
+    private static BitBoard board(int color, int... cells) {
+        BitBoard board = new BitBoard(5, 15, 15);
+        place(board, color, cells);
+        return board;
+    }
+
+    private static void place(BitBoard board, int color, int... cells) {
+        for (int i = 0; i < cells.length; i += 2) {
+            board.place(cells[i], cells[i + 1], color);
+        }
+    }
+}
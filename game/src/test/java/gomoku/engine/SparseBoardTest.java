@@ -0,0 +1,103 @@
+package gomoku.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Line walks against PaddedBoard and moves against BitBoard.play on the same stones, and an unbounded game
+ */
+class SparseBoardTest {
+
+    @Test
+    void lineWalksMatchPaddedBoard() {
+        Random random = new Random(11);
+        for (int t = 0; t < 300; t++) {
+            int rows = 1 + random.nextInt(40);
+            int columns = 1 + random.nextInt(40);
+            int[][] grid = new int[rows][columns];
+            double fill = random.nextDouble();
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c < columns; c++) {
+                    if (random.nextDouble() < fill) {
+                        grid[r][c] = BitBoard.BLACK + random.nextInt(2);
+                    }
+                }
+            }
+            PaddedBoard padded = PaddedBoard.fromGrid(grid);
+            SparseBoard sparse = SparseBoard.fromGrid(grid, 5);
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c < columns; c++) {
+                    for (int direction = 0; direction < 8; direction++) {
+                        String at = r + "," + c + " direction " + direction + " on " + rows + "x" + columns;
+                        assertEquals(padded.numberInLine(r, c, direction), sparse.numberInLine(r, c, direction), at);
+                        assertEquals(padded.isOpen(r, c, direction), sparse.isOpen(r, c, direction), at);
+                        if (direction < 4) {
+                            assertEquals(padded.count4Directions(r, c, direction),
+                                    sparse.count4Directions(r, c, direction), at);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void playMatchesBitBoard() {
+        Random random = new Random(17);
+        for (int t = 0; t < 200; t++) {
+            int rows = 5 + random.nextInt(30);
+            int columns = 5 + random.nextInt(30);
+            BitBoard board = new BitBoard(5, rows, columns);
+            SparseBoard sparse = new SparseBoard(5, rows, columns);
+            for (int m = 0; m < rows * columns; m++) {
+                int r = random.nextInt(rows);
+                int c = random.nextInt(columns);
+                int color = BitBoard.BLACK + (m & 1);
+                int result = board.play(r, c, color);
+                assertEquals(result, sparse.play(r, c, color), "move " + m + " at " + r + "," + c);
+                if (result == BitBoard.WIN && random.nextBoolean()) {
+                    board.undo(r, c);
+                    sparse.undo(r, c);
+                }
+            }
+            assertEquals(board.getStoneCount(), sparse.getStoneCount());
+        }
+    }
+
+    @Test
+    void unboundedGameKeepsEveryStone() {
+        Random random = new Random(23);
+        SparseBoard board = new SparseBoard(5);
+        Map<Long, Integer> stones = new HashMap<>();
+        int row = 0;
+        int column = 0;
+        while (stones.size() < 20_000) {
+            // a random walk, so the stones spread over many chunks on both sides of zero
+            row += random.nextInt(5) - 2;
+            column += random.nextInt(5) - 2;
+            int color = BitBoard.BLACK + (stones.size() & 1);
+            int result = board.play(row, column, color);
+            if (result == BitBoard.PLACED || result == BitBoard.WIN) {
+                stones.put(((long) row << 32) | (column & 0xFFFFFFFFL), color);
+            }
+        }
+        assertEquals(stones.size(), board.getStoneCount());
+        for (Map.Entry<Long, Integer> stone : stones.entrySet()) {
+            long key = stone.getKey();
+            assertEquals((int) stone.getValue(), board.get((int) (key >> 32), (int) key));
+        }
+        // a chunk holds 256 cells, and the walk packs its stones close together
+        assertTrue(board.getChunkCount() < stones.size() / 4, "chunks " + board.getChunkCount());
+
+        assertEquals(BitBoard.GREEN, board.get(Integer.MIN_VALUE + 5, -7));
+        assertEquals(BitBoard.PLACED, board.play(Integer.MIN_VALUE + 5, -7, BitBoard.BLACK));
+        assertEquals(BitBoard.BLACK, board.get(Integer.MIN_VALUE + 5, -7));
+        assertEquals(1, board.numberInLine(Integer.MIN_VALUE + 5, -7, 0));
+    }
+}
@@ -0,0 +1,109 @@
+package gomoku.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Bucket bounds, percentiles against sorted values, and recording from several threads
+ */
+class HistogramTest {
+
+    @Test
+    void bucketsHoldTheirValues() {
+        Random random = new Random(5);
+        for (int i = 0; i < 1_000_000; i++) {
+            // every size of value, not just small ones
+            long value = random.nextLong() >>> (1 + random.nextInt(63));
+            assertBucketHolds(value);
+        }
+        for (long value = 0; value < 10_000; value++) {
+            assertBucketHolds(value);
+        }
+        for (int shift = 0; shift < 63; shift++) {
+            assertBucketHolds(1L << shift);
+            assertBucketHolds((1L << shift) - 1);
+            assertBucketHolds((1L << shift) + 1);
+        }
+        assertBucketHolds(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, Histogram.highest(Histogram.bucket(Long.MAX_VALUE)));
+    }
+
+    /**
+     * The value is in its bucket and not the one below, and the bucket is within 1/64 of it
+     */
+    private static void assertBucketHolds(long value) {
+        int bucket = Histogram.bucket(value);
+        assertTrue(Histogram.highest(bucket) >= value, "highest of " + value);
+        assertTrue(bucket == 0 || Histogram.highest(bucket - 1) < value, "bucket below " + value);
+        assertTrue(Histogram.highest(bucket) - value <= value / 64, "width at " + value);
+        if (value < 128) {
+            assertEquals(value, Histogram.highest(bucket));
+        }
+    }
+
+    @Test
+    void percentilesBoundTheSortedValues() {
+        Random random = new Random(9);
+        Histogram histogram = new Histogram("test", "ns");
+        long[] values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) Math.abs(random.nextGaussian() * 1e6) >>> random.nextInt(20);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        assertEquals(values.length, histogram.getCount());
+        assertEquals(Arrays.stream(values).average().getAsDouble(), histogram.getMean(), 1e-6);
+        assertEquals(values[values.length - 1], histogram.getMax());
+        for (double percentile : new double[] { 0, 1, 50, 90, 99, 99.9, 100 }) {
+            long exact = values[Math.max(0, (int) Math.ceil(percentile / 100 * values.length) - 1)];
+            long value = histogram.getValueAtPercentile(percentile);
+            assertTrue(value >= exact && value - exact <= exact / 64, percentile + ": " + value + " vs " + exact);
+        }
+        assertEquals(histogram.getMax(), histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    void emptyNegativeAndReset() {
+        Histogram histogram = new Histogram("test", "ns");
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMean());
+        assertEquals(0, histogram.getP99());
+
+        histogram.record(-5);
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+
+        histogram.record(1000);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMean());
+        assertEquals(0, histogram.getMax());
+    }
+
+    @Test
+    void threadsRecordingAtOnce() throws InterruptedException {
+        Histogram histogram = new Histogram("test", "ns");
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            long value = t + 1;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    histogram.record(value);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(800_000, histogram.getCount());
+        assertEquals(4.5, histogram.getMean(), 1e-9);
+        assertEquals(8, histogram.getMax());
+        assertEquals(4, histogram.getP50());
+    }
+}
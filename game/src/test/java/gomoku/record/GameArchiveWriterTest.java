@@ -0,0 +1,145 @@
+package gomoku.record;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Reopening an archive whose last flush was cut short, the way a crash leaves it
+ */
+class GameArchiveWriterTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recordCutShortIsDropped() throws IOException {
+        Path path = write(5);
+        long fourGames = sizeAfter(4);
+        // the data of the last record half written, its index entry whole
+        truncate(path, Files.size(path) - 3);
+
+        assertEquals(4, new GameArchive(path).getGameCount());
+        try (GameArchiveWriter writer = new GameArchiveWriter(path)) {
+            assertEquals(4, writer.getGameCount());
+            writer.append(game(99));
+        }
+        assertEquals(fourGames + game(99).getSize(), Files.size(path));
+        assertGames(new GameArchive(path), 0, 1, 2, 3, 99);
+    }
+
+    @Test
+    void indexEntryCutShortIsDropped() throws IOException {
+        Path path = write(5);
+        Path index = GameArchiveWriter.indexPath(path);
+        try (FileChannel channel = FileChannel.open(index, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[] { 1, 2, 3 }));
+        }
+
+        try (GameArchiveWriter writer = new GameArchiveWriter(path)) {
+            assertEquals(5, writer.getGameCount());
+        }
+        assertEquals(5 * 8, Files.size(index));
+        assertGames(new GameArchive(path), 0, 1, 2, 3, 4);
+    }
+
+    @Test
+    void dataWithoutIndexIsCutOff() throws IOException {
+        Path path = write(3);
+        long size = Files.size(path);
+        // a record written but not its index entry, then a few stray bytes
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.allocate(game(7).getSize() + 5);
+            game(7).write(buffer);
+            channel.write(buffer.flip());
+        }
+
+        try (GameArchiveWriter writer = new GameArchiveWriter(path)) {
+            assertEquals(3, writer.getGameCount());
+        }
+        assertEquals(size, Files.size(path));
+        assertGames(new GameArchive(path), 0, 1, 2);
+    }
+
+    @Test
+    void everyRecordCutShort() throws IOException {
+        Path path = write(2);
+        truncate(path, GameArchiveWriter.FILE_HEADER_BYTES + 1);
+
+        try (GameArchiveWriter writer = new GameArchiveWriter(path)) {
+            assertEquals(0, writer.getGameCount());
+            writer.append(game(5));
+        }
+        assertGames(new GameArchive(path), 5);
+    }
+
+    @Test
+    void notAnArchive() throws IOException {
+        Path path = directory.resolve("other.bin");
+        Files.write(path, new byte[64]);
+        assertThrows(IOException.class, () -> new GameArchiveWriter(path));
+    }
+
+    /**
+     * An archive of games 0 to count - 1
+     */
+    private Path write(int count) throws IOException {
+        Path path = directory.resolve("games.gmk");
+        try (GameArchiveWriter writer = new GameArchiveWriter(path)) {
+            for (int i = 0; i < count; i++) {
+                writer.append(game(i));
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Bytes of the data once a number of games of write are in it
+     */
+    private static long sizeAfter(int games) {
+        long size = GameArchiveWriter.FILE_HEADER_BYTES;
+        for (int i = 0; i < games; i++) {
+            size += game(i).getSize();
+        }
+        return size;
+    }
+
+    /**
+     * A game told apart by its number of moves and its timestamp
+     */
+    private static GameRecord game(int n) {
+        GameRecord record = new GameRecord(5, 15, 15, 1000 + n);
+        for (int move = 0; move <= n % 15; move++) {
+            record.addMove(move, (move * 7 + n) % 15);
+        }
+        record.setResult(GameRecord.DRAW);
+        return record;
+    }
+
+    private static void assertGames(GameArchive archive, int... games) {
+        assertEquals(games.length, archive.getGameCount());
+        for (int i = 0; i < games.length; i++) {
+            GameRecord expected = game(games[i]);
+            assertEquals(expected.getTimestamp(), archive.getTimestamp(i));
+            assertEquals(expected.getMoveCount(), archive.getMoveCount(i));
+            for (int move = 0; move < expected.getMoveCount(); move++) {
+                assertEquals(expected.getCell(move), archive.getCell(i, move));
+            }
+        }
+    }
+
+    private static void truncate(Path path, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+    }
+}
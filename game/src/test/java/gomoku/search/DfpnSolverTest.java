@@ -0,0 +1,132 @@
+package gomoku.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import gomoku.engine.BitBoard;
+import gomoku.engine.PatternTable;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Wins df-pn must prove, positions it must disprove, and its answers against ThreatSolver's
+ */
+class DfpnSolverTest {
+
+    private static final int B = BitBoard.BLACK;
+    private static final int W = BitBoard.WHITE;
+
+    @Test
+    void provesAFourThree() {
+        PatternTable position = position(15, 15, new int[] { 7, 5, 7, 6, 7, 7, 5, 8, 6, 8 }, new int[] { 7, 4, 0, 0 });
+        long hash = position.getBoard().getHash();
+        DfpnSolver solver = new DfpnSolver(10_000, new ProofTable(8));
+        assertEquals(DfpnSolver.PROVEN, solver.solve(position, B));
+        assertEquals(7 * 15 + 8, solver.getMove());
+        assertEquals(hash, position.getBoard().getHash());
+        assertEquals(DfpnSolver.WIN, solver.value(position, B));
+    }
+
+    @Test
+    void provesAVct() {
+        // two open twos crossing at 4,6: no four wins yet, the threes do
+        PatternTable position = position(9, 9, new int[] { 4, 3, 4, 4, 2, 6, 3, 6 }, new int[] { 0, 0, 0, 8, 8, 0 });
+        DfpnSolver solver = new DfpnSolver(20_000, new ProofTable(16));
+        assertEquals(DfpnSolver.PROVEN, solver.solve(position, B));
+        ThreatSolver threats = new ThreatSolver(5000);
+        assertEquals(ThreatSolver.PROVEN, threats.solve(position, B));
+        assertEquals(threats.getMove(), solver.getMove());
+    }
+
+    @Test
+    void disprovesBoardsTooShortToWin() {
+        DfpnSolver solver = new DfpnSolver(20_000, new ProofTable(8));
+        // a single row of nine: black's only five is 0,4 to 0,8, and white blocks it
+        PatternTable row = position(1, 9, new int[] { 0, 4 }, new int[] { 0, 3 });
+        assertEquals(DfpnSolver.DISPROVEN, solver.solve(row, B));
+        assertEquals(DfpnSolver.DISPROVEN, solver.solve(row, B, W));
+        assertEquals(DfpnSolver.DRAW, solver.value(row, B));
+
+        // no five fits between black's stones
+        PatternTable split = position(1, 9, new int[] { 0, 2, 0, 6 }, new int[] { 0, 4 });
+        assertEquals(DfpnSolver.DISPROVEN, solver.solve(split, W));
+        PatternTable twoRows = position(2, 8, new int[] { 0, 3 }, new int[] { 1, 4 });
+        assertEquals(DfpnSolver.DISPROVEN, solver.solve(twoRows, W));
+    }
+
+    @Test
+    void agreesWithThreatSolver() {
+        Random random = new Random(1);
+        ThreatSolver threats = new ThreatSolver(200);
+        DfpnSolver solver = new DfpnSolver(150, new ProofTable(8));
+        int bothProven = 0;
+        int checked = 0;
+        for (int t = 0; t < 30; t++) {
+            PatternTable position = new PatternTable(new BitBoard(5, 9, 9));
+            int color = randomGame(random, position, 12 + random.nextInt(16));
+            int threat = threats.solve(position, color);
+            solver.getProofs().clear();
+            int dfpn = solver.solve(position, color);
+            String at = "position " + t;
+            if (threat == ThreatSolver.PROVEN) {
+                assertNotEquals(DfpnSolver.DISPROVEN, dfpn, at);
+                // and the threat's first move keeps the win: the defender to move can't refute it
+                int move = threats.getMove();
+                position.place(move / 9, move % 9, color);
+                solver.getProofs().clear();
+                assertNotEquals(DfpnSolver.DISPROVEN, solver.solve(position, 3 - color, color), at);
+                position.undo(move / 9, move % 9);
+                checked++;
+                bothProven += dfpn == DfpnSolver.PROVEN ? 1 : 0;
+            }
+        }
+        assertTrue(checked >= 5 && bothProven >= 3, checked + " threat wins, " + bothProven + " proven by df-pn too");
+    }
+
+    /**
+     * Plays random moves the rules allow, never a winning one
+     * @return the side to move after them
+     */
+    private static int randomGame(Random random, PatternTable position, int moves) {
+        BitBoard board = position.getBoard();
+        int color = B;
+        for (int m = 0; m < moves; ) {
+            int row = random.nextInt(9);
+            int column = random.nextInt(9);
+            if (!board.isEmpty(row, column)) {
+                continue;
+            }
+            int result = board.play(row, column, color);
+            if (result == BitBoard.WIN) {
+                board.undo(row, column);
+            }
+            if (result != BitBoard.PLACED) {
+                continue;
+            }
+            board.undo(row, column);
+            position.place(row, column, color);
+            color = B + W - color;
+            m++;
+        }
+        return color;
+    }
+
+    /**
+     * A board for five in a row
+     * @param black row, column pairs
+     * @param white row, column pairs
+     */
+    private static PatternTable position(int rows, int columns, int[] black, int[] white) {
+        PatternTable position = new PatternTable(new BitBoard(5, rows, columns));
+        for (int i = 0; i < black.length; i += 2) {
+            position.place(black[i], black[i + 1], B);
+        }
+        for (int i = 0; i < white.length; i += 2) {
+            position.place(white[i], white[i + 1], W);
+        }
+        return position;
+    }
+}
@@ -0,0 +1,155 @@
+package gomoku.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import gomoku.engine.BitBoard;
+import gomoku.engine.PatternTable;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Moves the search must find or must never make, the tree kept between moves, and playouts without allocation
+ */
+class MctsEngineTest {
+
+    private static final int B = BitBoard.BLACK;
+    private static final int W = BitBoard.WHITE;
+
+    @Test
+    void takesAnImmediateWin() {
+        // an open four for black on row 7, white scattered
+        PatternTable position = position(B, 7, 4, 7, 5, 7, 6, 7, 7);
+        place(position, W, 6, 5, 8, 6, 9, 9, 5, 10);
+        int move = engine(2000).chooseMove(position, B);
+        assertTrue(move == 7 * 15 + 3 || move == 7 * 15 + 8, "move " + move);
+    }
+
+    @Test
+    void blocksAFour() {
+        // white's four on row 7 is closed at 7,2, so 7,7 is the only cell that stops it
+        PatternTable position = position(W, 7, 3, 7, 4, 7, 5, 7, 6, 3, 11);
+        place(position, B, 7, 2, 8, 4, 9, 5, 6, 8);
+        assertEquals(7 * 15 + 7, engine(20_000).chooseMove(position, B));
+    }
+
+    @Test
+    void neverPlaysForbiddenOrOccupiedCells() {
+        Random random = new Random(3);
+        MctsEngine engine = engine(300);
+        for (int game = 0; game < 20; game++) {
+            PatternTable position = new PatternTable(new BitBoard(5, 9, 9));
+            int color = B;
+            for (int ply = 0; ply < 40; ply++) {
+                int move = engine.chooseMove(position, color);
+                if (move < 0) {
+                    break;
+                }
+                BitBoard board = position.getBoard();
+                int row = move / 9;
+                int column = move % 9;
+                assertTrue(board.isEmpty(row, column), "occupied " + move);
+                int result = board.play(row, column, color);
+                assertNotEquals(BitBoard.FOUR_FOUR, result, "four-four at " + move);
+                assertNotEquals(BitBoard.THREE_THREE, result, "three-three at " + move);
+                board.undo(row, column);
+                if (result == BitBoard.WIN) {
+                    break;
+                }
+                // a random reply half the time, so the games wander into crowded positions
+                if (random.nextBoolean()) {
+                    position.place(row, column, color);
+                } else {
+                    row = random.nextInt(9);
+                    column = random.nextInt(9);
+                    if (!board.isEmpty(row, column) || board.play(row, column, color) != BitBoard.PLACED) {
+                        continue;
+                    }
+                    board.undo(row, column);
+                    position.place(row, column, color);
+                }
+                color = B + W - color;
+            }
+        }
+    }
+
+    @Test
+    void keptTreeFollowsTheMovesPlayed() {
+        PatternTable position = position(B, 7, 7);
+        place(position, W, 7, 8);
+        MctsEngine engine = engine(5000);
+        int move = engine.chooseMove(position, B);
+        int searched = engine.getTreeSize();
+
+        // no playouts: whatever the engine answers comes from the tree it kept
+        engine.setMaxPlayouts(0);
+        position.place(move / 15, move % 15, B);
+        int reply = engine.chooseMove(position, W);
+        assertTrue(reply >= 0, "no kept node after black's move");
+        assertTrue(engine.getTreeSize() > 1 && engine.getTreeSize() < searched, "tree " + engine.getTreeSize());
+
+        position.place(reply / 15, reply % 15, W);
+        int next = engine.chooseMove(position, B);
+        assertTrue(next >= 0 && position.getBoard().isEmpty(next / 15, next % 15), "no kept node after white's reply");
+
+        // a position the tree never reached starts over
+        position.undo(reply / 15, reply % 15);
+        position.place(0, 0, W);
+        assertEquals(-1, engine.chooseMove(position, B));
+        assertEquals(1, engine.getTreeSize());
+    }
+
+    @Test
+    void playoutsAllocateNothing() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        PatternTable position = position(B, 7, 7, 6, 8);
+        place(position, W, 7, 8, 8, 6);
+        MctsEngine engine = engine(100);
+        engine.chooseMove(position, B);
+
+        // the same search with a hundred times the playouts, starting over each time so the tree is the same size
+        long id = Thread.currentThread().getId();
+        engine.clear();
+        long before = threads.getThreadAllocatedBytes(id);
+        engine.chooseMove(position, B);
+        long few = threads.getThreadAllocatedBytes(id) - before;
+        engine.clear();
+        engine.setMaxPlayouts(10_000);
+        before = threads.getThreadAllocatedBytes(id);
+        engine.chooseMove(position, B);
+        long many = threads.getThreadAllocatedBytes(id) - before;
+        assertTrue(many - few < 16 * 1024, few + " bytes for 100 playouts, " + many + " for 10,000");
+    }
+
+    /**
+     * An engine that runs a fixed number of playouts, however long they take
+     */
+    private static MctsEngine engine(long playouts) {
+        MctsEngine engine = new MctsEngine(Long.MAX_VALUE / 2_000_000L, 1 << 18);
+        engine.setMaxPlayouts(playouts);
+        return engine;
+    }
+
+    /**
+     * A 15x15 board for five in a row with stones of one color
+     * @param color
+     * @param cells row, column pairs
+     */
+    private static PatternTable position(int color, int... cells) {
+        PatternTable position = new PatternTable(new BitBoard(5, 15, 15));
+        place(position, color, cells);
+        return position;
+    }
+
+    private static void place(PatternTable position, int color, int... cells) {
+        for (int i = 0; i < cells.length; i += 2) {
+            position.place(cells[i], cells[i + 1], color);
+        }
+    }
+}
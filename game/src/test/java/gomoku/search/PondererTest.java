@@ -0,0 +1,150 @@
+package gomoku.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import gomoku.engine.BitBoard;
+import gomoku.engine.PatternTable;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A ponder hit answering from the search already run, a miss searching again after a clean cancel, and a ponder
+ * cancelled before it ran
+ */
+class PondererTest {
+
+    private static final int B = BitBoard.BLACK;
+    private static final int W = BitBoard.WHITE;
+    private static final long BUDGET_MILLIS = 400;
+
+    private ExecutorService executor;
+    private LazySmpEngine engine;
+    private Ponderer ponderer;
+    private PatternTable position;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        executor = Executors.newSingleThreadExecutor();
+        engine = new LazySmpEngine(BUDGET_MILLIS, 1, new TranspositionTable(16));
+        engine.setThreatMillis(0);
+        ponderer = new Ponderer(engine, executor);
+        position = new PatternTable(new BitBoard(5, 15, 15));
+        position.place(7, 7, B);
+        position.place(7, 8, W);
+        position.place(8, 8, B);
+        position.place(6, 6, W);
+        // the engine plays black, and its search leaves a reply to guess in the table
+        play(choose(), B);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        ponderer.cancel();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        engine.shutdown();
+    }
+
+    @Test
+    void hitAnswersFromThePonderSearch() throws Exception {
+        int reply = engine.predictReply(position, W);
+        assertTrue(reply >= 0, "no reply to guess");
+        ponderer.start(position, W);
+        // longer than the budget, so the ponder search covered all of it
+        Thread.sleep(BUDGET_MILLIS * 2);
+        ponderer.cancel();
+        play(reply, W);
+        assertNotEquals(0, engine.getTranspositions().probe(position.getBoard().getHash()), "nothing pondered");
+
+        long start = System.nanoTime();
+        int move = choose();
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(ponderer.isHit());
+        assertEquals(1, ponderer.getHits());
+        assertEquals(1, ponderer.getPondered());
+        assertEquals(BitBoard.PLACED, position.check(move / 15, move % 15, B));
+        assertTrue(millis < BUDGET_MILLIS / 2, millis + " ms after a hit");
+    }
+
+    @Test
+    void missSearchesAgainAfterACleanCancel() throws Exception {
+        int reply = engine.predictReply(position, W);
+        ponderer.start(position, W);
+        Thread.sleep(100);
+        long start = System.nanoTime();
+        ponderer.cancel();
+        long cancelMillis = (System.nanoTime() - start) / 1_000_000;
+        // the ponder task ends soon after: the next task on the executor runs
+        executor.submit(() -> { }).get(2, TimeUnit.SECONDS);
+        assertTrue(cancelMillis < 50, cancelMillis + " ms to cancel");
+
+        play(otherReply(reply), W);
+        int move = choose();
+        assertFalse(ponderer.isHit());
+        assertEquals(0, ponderer.getHits());
+        assertEquals(reply >= 0 ? 1 : 0, ponderer.getPondered());
+        assertEquals(BitBoard.PLACED, position.check(move / 15, move % 15, B));
+    }
+
+    @Test
+    void cancelBeforeThePonderRuns() throws Exception {
+        int reply = engine.predictReply(position, W);
+        assertTrue(reply >= 0, "no reply to guess");
+        // hold the executor, so the ponder is still waiting when it is cancelled
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        ponderer.start(position, W);
+        ponderer.cancel();
+        release.countDown();
+
+        // even the guessed reply is no hit: nothing was pondered
+        play(reply, W);
+        int move = choose();
+        assertFalse(ponderer.isHit());
+        assertEquals(0, ponderer.getPondered());
+        assertEquals(BitBoard.PLACED, position.check(move / 15, move % 15, B));
+    }
+
+    /**
+     * The engine's move for black, chosen on the executor as the game does
+     */
+    private int choose() throws InterruptedException, ExecutionException {
+        PatternTable copy = new PatternTable(position);
+        int move = executor.submit(() -> ponderer.chooseMove(copy, B)).get();
+        assertTrue(move >= 0, "no move");
+        return move;
+    }
+
+    private void play(int move, int color) {
+        assertEquals(BitBoard.PLACED, position.play(move / 15, move % 15, color), "move " + move);
+    }
+
+    /**
+     * An empty cell next to the stones that isn't the guessed reply
+     */
+    private int otherReply(int reply) {
+        for (int cell = 5 * 15; cell < 10 * 15; cell++) {
+            if (cell != reply && position.check(cell / 15, cell % 15, W) == BitBoard.PLACED) {
+                return cell;
+            }
+        }
+        throw new IllegalStateException("no other reply");
+    }
+}
@@ -0,0 +1,89 @@
+package gomoku.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Round trips of the packed numbers, the replacement order within a bucket, and garbage collection keeping the
+ * table within its size
+ */
+class ProofTableTest {
+
+    /** Buckets in a table of one megabyte, so keys differing only above this land in the same bucket */
+    private static final long BUCKETS = 1 << 14;
+
+    @Test
+    void storeAndProbeRoundTrip() {
+        ProofTable table = new ProofTable(1);
+        assertEquals(4 * BUCKETS, table.getCapacity());
+        Random random = new Random(7);
+        for (int i = 0; i < 10_000; i++) {
+            long key = random.nextLong();
+            int proof = random.nextInt(ProofTable.INFINITY + 1);
+            int disproof = random.nextInt(ProofTable.INFINITY + 1);
+            long work = 1L << random.nextInt(63);
+            table.clear();
+            table.store(key, proof, disproof, work);
+            long data = table.probe(key);
+            assertEquals(proof, ProofTable.proof(data));
+            assertEquals(disproof, ProofTable.disproof(data));
+            assertEquals(63 - Long.numberOfLeadingZeros(work), ProofTable.work(data));
+            assertEquals(0, table.probe(key ^ BUCKETS));
+            assertEquals(1, table.getUsed());
+        }
+        // a position not in the table counts as one node still to prove either way
+        assertEquals(1, ProofTable.proof(0));
+        assertEquals(1, ProofTable.disproof(0));
+    }
+
+    @Test
+    void fullBucketDropsTheLeastWork() {
+        ProofTable table = new ProofTable(1);
+        for (int i = 0; i < 4; i++) {
+            table.store(3 + i * BUCKETS, i, i, 1L << (10 + i));
+        }
+        // the same key again updates its slot in place
+        table.store(3 + 2 * BUCKETS, 5, 5, 1L << 12);
+        assertEquals(4, table.getUsed());
+        assertEquals(5, ProofTable.proof(table.probe(3 + 2 * BUCKETS)));
+
+        table.store(3 + 4 * BUCKETS, 9, 9, 1L << 20);
+        assertEquals(0, table.probe(3));
+        assertEquals(9, ProofTable.proof(table.probe(3 + 4 * BUCKETS)));
+        assertEquals(4, table.getUsed());
+        assertEquals(1, table.getReplaced());
+    }
+
+    @Test
+    void collectionKeepsTheTableWithinItsSize() {
+        ProofTable table = new ProofTable(1);
+        Random random = new Random(11);
+        // a few expensive entries among ten times the capacity of cheap ones
+        long[] expensive = new long[100];
+        for (int i = 0; i < expensive.length; i++) {
+            expensive[i] = random.nextLong();
+            table.store(expensive[i], 0, ProofTable.INFINITY, 1L << 40);
+        }
+        long capacity = table.getCapacity();
+        for (long i = 0; i < 10 * capacity; i++) {
+            table.store(random.nextLong(), 1 + random.nextInt(100), 1 + random.nextInt(100), 1 + random.nextInt(64));
+            assertTrue(table.getUsed() <= capacity / 8 * 7, "used " + table.getUsed() + " after " + i);
+        }
+        assertTrue(table.getCollections() > 0);
+        assertTrue(table.getCollected() > 5 * capacity, "collected " + table.getCollected());
+        for (long key : expensive) {
+            assertEquals(0, ProofTable.proof(table.probe(key)));
+        }
+
+        // an explicit collection frees down to half
+        table.collect();
+        assertTrue(table.getUsed() <= capacity / 2, "used " + table.getUsed());
+        table.clear();
+        assertEquals(0, table.getUsed());
+        assertEquals(0, table.probe(expensive[0]));
+    }
+}
@@ -0,0 +1,107 @@
+package gomoku.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import gomoku.engine.BitBoard;
+import gomoku.engine.PatternTable;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Forced wins by threats worked out by hand on a 15x15 board, and threat sequences the rules or the defender stop
+ */
+class ThreatSolverTest {
+
+    private static final int B = BitBoard.BLACK;
+    private static final int W = BitBoard.WHITE;
+
+    @Test
+    void fourThreeIsAVcf() {
+        // 7,8 makes a four on row 7 (closed at 7,4) and an open three on column 8
+        PatternTable position = position(new int[] { 7, 5, 7, 6, 7, 7, 5, 8, 6, 8 }, new int[] { 7, 4, 0, 0 });
+        long hash = position.getBoard().getHash();
+        ThreatSolver solver = new ThreatSolver(5000);
+        assertEquals(ThreatSolver.PROVEN, solver.solve(position, B));
+        assertEquals(7 * 15 + 8, solver.getMove());
+        assertFalse(solver.usedThrees());
+        assertEquals(2, solver.getDepth());
+        assertEquals(hash, position.getBoard().getHash());
+        // white to move has nothing
+        assertEquals(ThreatSolver.DISPROVEN, solver.solve(position, W));
+    }
+
+    @Test
+    void twoOpenTwosAreAVctButNoVcf() {
+        PatternTable position = position(new int[] { 7, 6, 7, 7, 5, 9, 6, 9 }, new int[] { 0, 0, 0, 14 });
+        ThreatSolver solver = new ThreatSolver(5000);
+        solver.setMaxDepth(30, 0);
+        assertEquals(ThreatSolver.DISPROVEN, solver.solve(position, B));
+        solver.setMaxDepth(30, 8);
+        assertEquals(ThreatSolver.PROVEN, solver.solve(position, B));
+        assertTrue(solver.usedThrees());
+        assertEquals(solver.getMove(), solver.findWin(position, B));
+    }
+
+    @Test
+    void doubleFourIsNoWayOut() {
+        // 7,8 would make fours on row 7 and column 8 at once, which the four-four rule forbids, and every other
+        // four is answered on 7,8
+        PatternTable position = position(new int[] { 7, 5, 7, 6, 7, 7, 4, 8, 5, 8, 6, 8 },
+                new int[] { 7, 4, 3, 8, 0, 0 });
+        ThreatSolver solver = new ThreatSolver(5000);
+        solver.setMaxDepth(30, 0);
+        assertEquals(ThreatSolver.DISPROVEN, solver.solve(position, B));
+    }
+
+    @Test
+    void blockThatMakesAFourRefutesTheVcf() {
+        // as in fourThreeIsAVcf, but white's block at 7,9 completes a four on column 9 that black has to answer
+        PatternTable position = position(new int[] { 7, 5, 7, 6, 7, 7, 5, 8, 6, 8, 11, 9 },
+                new int[] { 7, 4, 8, 9, 9, 9, 10, 9 });
+        ThreatSolver solver = new ThreatSolver(5000);
+        solver.setMaxDepth(30, 0);
+        assertEquals(ThreatSolver.DISPROVEN, solver.solve(position, B));
+    }
+
+    @Test
+    void quietPositionsAreDisproven() {
+        ThreatSolver solver = new ThreatSolver(5000);
+        PatternTable quiet = position(new int[] { 7, 7, 3, 3 }, new int[] { 7, 8, 3, 4 });
+        assertEquals(ThreatSolver.DISPROVEN, solver.solve(quiet, B));
+        // a dead four, closed at both ends, is no threat
+        assertEquals(ThreatSolver.DISPROVEN, solver.solve(position(new int[] { 7, 5, 7, 6, 7, 7, 7, 8 },
+                new int[] { 7, 4, 7, 9, 0, 0, 0, 14 }), B));
+        assertEquals(-1, solver.getMove());
+    }
+
+    @Test
+    void gridAndTableGiveTheSameAnswer() {
+        int[][] grid = new int[15][15];
+        int[] black = { 7, 5, 7, 6, 7, 7, 5, 8, 6, 8 };
+        for (int i = 0; i < black.length; i += 2) {
+            grid[black[i]][black[i + 1]] = B;
+        }
+        grid[7][4] = W;
+        ThreatSolver solver = new ThreatSolver(5000);
+        assertEquals(ThreatSolver.PROVEN, solver.solve(grid, 5, B));
+        assertEquals(7 * 15 + 8, solver.getMove());
+    }
+
+    /**
+     * A 15x15 board for five in a row
+     * @param black row, column pairs
+     * @param white row, column pairs
+     */
+    static PatternTable position(int[] black, int[] white) {
+        PatternTable position = new PatternTable(new BitBoard(5, 15, 15));
+        for (int i = 0; i < black.length; i += 2) {
+            position.place(black[i], black[i + 1], B);
+        }
+        for (int i = 0; i < white.length; i += 2) {
+            position.place(white[i], white[i + 1], W);
+        }
+        return position;
+    }
+}
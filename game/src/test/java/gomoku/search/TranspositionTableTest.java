@@ -0,0 +1,135 @@
+package gomoku.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Round trips of the packed data, the replacement order within a bucket, and threads reading while others write
+ */
+class TranspositionTableTest {
+
+    /** Buckets in a table of one megabyte, so keys differing only above this land in the same bucket */
+    private static final long BUCKETS = 1 << 15;
+
+    @Test
+    void storeAndProbeRoundTrip() {
+        TranspositionTable table = new TranspositionTable(1);
+        Random random = new Random(5);
+        for (int i = 0; i < 10_000; i++) {
+            long key = random.nextLong() | 1;
+            int move = random.nextInt(1 << 21) - 1;
+            int score = random.nextInt(1 << 21) - (1 << 20);
+            int depth = random.nextInt(256);
+            int bound = TranspositionTable.EXACT + random.nextInt(3);
+            table.clear();
+            table.store(key, move, score, depth, bound);
+            long data = table.probe(key);
+            assertEquals(move, TranspositionTable.move(data));
+            assertEquals(score, TranspositionTable.score(data));
+            assertEquals(depth, TranspositionTable.depth(data));
+            assertEquals(bound, TranspositionTable.bound(data));
+            assertEquals(0, table.probe(key ^ BUCKETS));
+        }
+        assertEquals(0, new TranspositionTable(1).probe(0));
+    }
+
+    @Test
+    void deeperResultsKeepTheirSlot() {
+        TranspositionTable table = new TranspositionTable(1);
+        long a = 7;
+        long b = 7 + BUCKETS;
+        long c = 7 + 2 * BUCKETS;
+        long d = 7 + 3 * BUCKETS;
+
+        table.store(a, 1, 0, 5, TranspositionTable.EXACT);
+        // shallower: the always-replace slot
+        table.store(b, 2, 0, 3, TranspositionTable.EXACT);
+        assertEquals(1, TranspositionTable.move(table.probe(a)));
+        assertEquals(2, TranspositionTable.move(table.probe(b)));
+
+        // shallower again: pushes out the other shallow entry, not the deep one
+        table.store(c, 3, 0, 2, TranspositionTable.EXACT);
+        assertEquals(1, TranspositionTable.move(table.probe(a)));
+        assertEquals(0, table.probe(b));
+        assertEquals(3, TranspositionTable.move(table.probe(c)));
+
+        // the same position searched again replaces itself whatever the depth
+        table.store(a, 4, 0, 1, TranspositionTable.LOWER);
+        assertEquals(4, TranspositionTable.move(table.probe(a)));
+        assertEquals(1, TranspositionTable.depth(table.probe(a)));
+
+        // deeper takes the depth-preferred slot
+        table.store(d, 5, 0, 6, TranspositionTable.EXACT);
+        assertEquals(0, table.probe(a));
+        assertEquals(5, TranspositionTable.move(table.probe(d)));
+        assertEquals(3, TranspositionTable.move(table.probe(c)));
+
+        // a later search may replace the deep entry with a shallow one
+        table.store(b, 6, 0, 1, TranspositionTable.EXACT);
+        assertEquals(5, TranspositionTable.move(table.probe(d)));
+        table.newSearch();
+        table.store(a, 7, 0, 1, TranspositionTable.EXACT);
+        assertEquals(0, table.probe(d));
+        assertEquals(7, TranspositionTable.move(table.probe(a)));
+    }
+
+    @Test
+    void readersNeverSeeTornEntries() throws InterruptedException {
+        TranspositionTable table = new TranspositionTable(1);
+        // a few buckets, so writers keep overwriting each other's entries
+        long[] keys = new long[256];
+        Random random = new Random(11);
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextLong() & -BUCKETS | random.nextInt(4);
+        }
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicLong hits = new AtomicLong();
+        AtomicLong torn = new AtomicLong();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            boolean writer = t % 2 == 0;
+            long seed = t;
+            threads[t] = new Thread(() -> {
+                Random own = new Random(seed);
+                while (!stop.get()) {
+                    long key = keys[own.nextInt(keys.length)];
+                    if (writer) {
+                        // everything stored follows from the key, so a reader can tell a mixed entry
+                        table.store(key, move(key), score(key), own.nextInt(20), TranspositionTable.EXACT);
+                    } else {
+                        long data = table.probe(key);
+                        if (data != 0) {
+                            hits.incrementAndGet();
+                            if (TranspositionTable.move(data) != move(key)
+                                    || TranspositionTable.score(data) != score(key)) {
+                                torn.incrementAndGet();
+                            }
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        Thread.sleep(1000);
+        stop.set(true);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(hits.get() > 0);
+        assertEquals(0, torn.get());
+    }
+
+    private static int move(long key) {
+        return (int) (key >>> 40) & 0xFFFF;
+    }
+
+    private static int score(long key) {
+        return (int) (key >>> 20) % 100_000;
+    }
+}
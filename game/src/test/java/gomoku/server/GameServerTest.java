@@ -0,0 +1,190 @@
+package gomoku.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import gomoku.metrics.Metrics;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Games played over loopback against a running server: two sessions at once, each with two players
+ */
+class GameServerTest {
+
+    private GameServer server;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = new GameServer(0, null, true);
+        Thread serving = new Thread(server::serve, "gomoku-test-server");
+        serving.setDaemon(true);
+        serving.start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.close();
+    }
+
+    @Test
+    void sessionsPlayAtTheSameTime() throws Exception {
+        long forbidden = Metrics.FORBIDDEN_MOVES.getValue();
+        ExecutorService games = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<?>> played = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                played.add(games.submit(() -> {
+                    playGame();
+                    return null;
+                }));
+            }
+            for (Future<?> game : played) {
+                game.get();
+            }
+        } finally {
+            games.shutdownNow();
+        }
+        // one three-three refused in each game
+        assertEquals(forbidden + 2, Metrics.FORBIDDEN_MOVES.getValue());
+
+        try (Client client = new Client(server.getPort())) {
+            String stats = client.command("STATS");
+            assertTrue(stats.startsWith("OK connections="), stats);
+            // every move checked counts: 17 played and 26 refused in each game
+            assertTrue(stats.contains(" moves=86 "), stats);
+            assertTrue(stats.matches(".* p99MoveMicros=\\d+\\.\\d\\d .*"), stats);
+            assertTrue(stats.contains(" threads=" + (server.usesVirtualThreads() ? "virtual" : "platform")), stats);
+        }
+    }
+
+    @Test
+    void aloneAPlayerPlaysBothColors() throws IOException {
+        try (Client client = new Client(server.getPort())) {
+            assertEquals("ERR NO_SESSION", client.command("MOVE 0 0"));
+            assertTrue(client.command("NEW 5 9 9").startsWith("OK "));
+            assertEquals("OK PLACED", client.command("MOVE 4 4"));
+            assertEquals("OK PLACED", client.command("MOVE 4 5"));
+            assertEquals("ERR NOT_AN_INTEGER", client.command("MOVE x 5"));
+            assertEquals("ERR UNKNOWN_COMMAND", client.command("PASS"));
+            assertEquals("ERR SIZE_OUT_OF_RANGE", client.command("NEW 5 0 9"));
+            assertEquals("OK", client.command("QUIT"));
+        }
+    }
+
+    @Test
+    void needsVirtualThreadsUnlessToldOtherwise() throws IOException {
+        if (server.usesVirtualThreads()) {
+            new GameServer(0).close();
+        } else {
+            assertThrows(UnsupportedOperationException.class, () -> new GameServer(0));
+        }
+    }
+
+    /**
+     * One game between two clients: black makes a double three, which is refused, then five in a row on row 9
+     * while white plays every other cell of row 0. Every session plays the same cells, so a move seen by the wrong
+     * session would come back occupied.
+     */
+    private void playGame() throws IOException {
+        try (Client black = new Client(server.getPort()); Client white = new Client(server.getPort())) {
+            String created = black.command("NEW 5 19 19");
+            assertTrue(created.startsWith("OK "), created);
+            String id = created.substring(3);
+            assertEquals("OK " + id, white.command("JOIN " + id));
+            assertEquals("JOINED", black.push());
+            try (Client third = new Client(server.getPort())) {
+                assertEquals("ERR NO_SEAT", third.command("JOIN " + id));
+            }
+
+            int[][] blackMoves = { { 5, 5 }, { 5, 6 }, { 6, 7 }, { 7, 7 }, { 9, 5 }, { 9, 6 }, { 9, 7 }, { 9, 8 },
+                { 9, 9 } };
+            for (int i = 0; i < blackMoves.length; i++) {
+                int[] move = blackMoves[i];
+                if (i == 4) {
+                    // 5,7 would make open threes on row 5 and column 7
+                    assertEquals("ERR THREE_THREE", black.command("MOVE 5 7"));
+                }
+                boolean last = i == blackMoves.length - 1;
+                String outcome = last ? "WIN" : "PLACED";
+                assertEquals("OK " + outcome, black.command("MOVE " + move[0] + " " + move[1]));
+                assertEquals("MOVED " + move[0] + " " + move[1] + " " + outcome, white.push());
+                if (last) {
+                    break;
+                }
+
+                assertEquals("ERR NOT_YOUR_TURN", black.command("MOVE 10 10"));
+                assertEquals("ERR OCCUPIED", white.command("MOVE " + move[0] + " " + move[1]));
+                assertEquals("ERR OFF_BOARD", white.command("MOVE 19 0"));
+                assertEquals("OK PLACED", white.command("MOVE 0 " + 2 * i));
+                assertEquals("MOVED 0 " + 2 * i + " PLACED", black.push());
+            }
+            assertEquals("ERR GAME_OVER", white.command("MOVE 1 1"));
+            assertEquals("OK", white.command("LEAVE"));
+            assertEquals("LEFT", black.push());
+        }
+    }
+
+    /**
+     * A connection to the server, keeping the lines pushed between replies
+     */
+    private static final class Client implements AutoCloseable {
+
+        private final Socket socket;
+        private final BufferedReader in;
+        private final Writer out;
+        private final Queue<String> pushed = new ArrayDeque<>();
+
+        Client(int port) throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            socket.setSoTimeout(10_000);
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII);
+        }
+
+        /**
+         * Sends a command and reads up to its reply
+         */
+        String command(String line) throws IOException {
+            out.write(line + "\n");
+            out.flush();
+            while (true) {
+                String reply = in.readLine();
+                if (reply == null || reply.startsWith("OK") || reply.startsWith("ERR")) {
+                    return reply;
+                }
+                pushed.add(reply);
+            }
+        }
+
+        /**
+         * The next line pushed by the other player, waiting for it if it hasn't come yet
+         */
+        String push() throws IOException {
+            return pushed.isEmpty() ? in.readLine() : pushed.remove();
+        }
+
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package gomoku.tools;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Threads of an smp match: capped by the workers, and gone once the match ends
+ */
+class TournamentTest {
+
+    private static final int CORES = Runtime.getRuntime().availableProcessors();
+
+    @Test
+    void smpSearchesShareTheCores() {
+        Tournament tournament = new Tournament();
+        assertTrue(tournament.parse(new String[] { "--first=smp" }));
+        assertEquals(1, tournament.getThreads());
+        assertEquals(CORES, tournament.getSmpThreads());
+
+        tournament = new Tournament();
+        assertTrue(tournament.parse(new String[] { "--first=smp", "--second=smp", "--threads=2" }));
+        assertEquals(Math.max(1, CORES / 2), tournament.getSmpThreads());
+
+        tournament = new Tournament();
+        assertTrue(tournament.parse(new String[] { "--first=alphabeta" }));
+        assertEquals(CORES, tournament.getThreads());
+    }
+
+    @Test
+    void enginesAreShutDownAfterTheMatch() throws InterruptedException {
+        Tournament tournament = new Tournament();
+        // helpers on any machine with two cores or more
+        assertTrue(tournament.parse(new String[] { "5", "9", "9", "--games=2", "--first=smp", "--second=smp",
+                "--millis=5", "--threads=" + Math.max(1, CORES / 2) }));
+        tournament.run();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (helpers() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, helpers());
+    }
+
+    private static long helpers() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals("gomoku-smp-helper") && thread.isAlive()).count();
+    }
+}